@@ -0,0 +1,182 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.diorite.serialization.benchmarks;
+
+import org.diorite.serialization.SerializationException;
+import org.diorite.serialization.setting.Property;
+import org.diorite.serialization.setting.PropertySettings;
+import org.diorite.serialization.setting.Setting;
+import org.diorite.serialization.setting.SettingsManager;
+
+import javax.annotation.Nullable;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+
+/**
+ * Field backed property used by benchmark fixtures, values are accessed by {@link VarHandle} like in field based property providers.
+ *
+ * @param <D>
+ *     type of declaration.
+ * @param <T>
+ *     type of property.
+ */
+final class FieldProperty<D, T> implements Property<D, T>
+{
+    private final Field     field;
+    private final VarHandle handle;
+    private final int       modifiers;
+
+    FieldProperty(Field field)
+    {
+        this.field = field;
+        this.modifiers = field.getModifiers();
+        try
+        {
+            this.handle = MethodHandles.privateLookupIn(field.getDeclaringClass(), MethodHandles.lookup()).unreflectVarHandle(field);
+        }
+        catch (IllegalAccessException e)
+        {
+            throw new SerializationException("Can't access " + field, e);
+        }
+    }
+
+    @Override
+    public String getRawName()
+    {
+        return this.field.getName();
+    }
+
+    @Override
+    public String getSerializationName()
+    {
+        return this.field.getName();
+    }
+
+    @Override
+    public boolean isDeserializationName(String name)
+    {
+        return this.field.getName().equals(name);
+    }
+
+    @Override
+    public boolean isStatic(Accessor accessor)
+    {
+        return Modifier.isStatic(this.modifiers);
+    }
+
+    @Override
+    public boolean isTransient(Accessor accessor)
+    {
+        return Modifier.isTransient(this.modifiers);
+    }
+
+    @Override
+    public boolean isSynthetic(Accessor accessor)
+    {
+        return this.field.isSynthetic();
+    }
+
+    @Override
+    public boolean isVolatile(Accessor accessor)
+    {
+        return Modifier.isVolatile(this.modifiers);
+    }
+
+    @Override
+    public boolean isNative(Accessor accessor)
+    {
+        return false;
+    }
+
+    @Override
+    public boolean isFinal()
+    {
+        return Modifier.isFinal(this.modifiers);
+    }
+
+    @Override
+    public Visibility getVisibility(Accessor accessor)
+    {
+        for (Visibility visibility : Visibility.values())
+        {
+            if (visibility.is(this.modifiers))
+            {
+                return visibility;
+            }
+        }
+        return Visibility.DEFAULT;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Class<D> getDeclaringClass()
+    {
+        return (Class<D>) this.field.getDeclaringClass();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Class<? extends T> getRawType()
+    {
+        return (Class<? extends T>) this.field.getType();
+    }
+
+    @Override
+    public Type getGenericType()
+    {
+        return this.field.getGenericType();
+    }
+
+    @Override
+    public PropertySettings getSettings()
+    {
+        return PropertySettings.fromField(SettingsManager.INSTANCE, this.field);
+    }
+
+    @Override
+    @Nullable
+    public <S extends Setting> S getSetting(Class<S> type)
+    {
+        return SettingsManager.INSTANCE.readSetting(this.field, type);
+    }
+
+    @Override
+    public void setValue(D instance, @Nullable T value)
+    {
+        this.handle.set(instance, value);
+    }
+
+    @Override
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public T getValue(D instance)
+    {
+        return (T) this.handle.get(instance);
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.diorite.serialization.benchmarks;
+
+import org.diorite.serialization.annotations.Expose;
+import org.diorite.serialization.annotations.SerializedName;
+import org.diorite.serialization.annotations.Since;
+import org.diorite.serialization.annotations.Until;
+import org.diorite.serialization.setting.GeneratedPropertyProvider;
+import org.diorite.serialization.setting.Property;
+import org.diorite.serialization.setting.PropertyProvider;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Model classes used by benchmarks, shaped like typical service DTOs: mix of primitives, strings, collections, nested objects, own and
+ * gson annotations and unannotated fields.
+ */
+final class Fixtures
+{
+    static final Class<?>[] TYPES = {Customer.class, Address.class, Order.class, OrderItem.class};
+
+    private Fixtures()
+    {
+    }
+
+    /**
+     * @return all declared fields of all fixture classes.
+     */
+    static Field[] fields()
+    {
+        return Arrays.stream(TYPES).flatMap(type -> Arrays.stream(type.getDeclaredFields())).toArray(Field[]::new);
+    }
+
+    /**
+     * @return properties of all declared fields of all fixture classes.
+     */
+    static List<FieldProperty<Object, Object>> properties()
+    {
+        List<FieldProperty<Object, Object>> properties = new ArrayList<>();
+        for (Field field : fields())
+        {
+            properties.add(new FieldProperty<>(field));
+        }
+        return properties;
+    }
+
+    /**
+     * Property provider of declared fields of fixture classes.
+     */
+    static final PropertyProvider PROVIDER = new PropertyProvider()
+    {
+        @Override
+        public <T> List<? extends Property<T, ?>> getProperties(Class<T> type)
+        {
+            List<Property<T, ?>> properties = new ArrayList<>();
+            for (Field field : type.getDeclaredFields())
+            {
+                properties.add(new FieldProperty<T, Object>(field));
+            }
+            return properties;
+        }
+    };
+
+    /**
+     * Property provider of declared fields of fixture classes, using accessors generated by serialization annotation processor.
+     */
+    static final PropertyProvider GENERATED_PROVIDER = new GeneratedPropertyProvider(PROVIDER);
+
+    static Customer customer()
+    {
+        Customer customer = new Customer();
+        customer.id = 1_204_337L;
+        customer.email = "jane.doe@example.com";
+        customer.firstName = "Jane";
+        customer.lastName = "Doe";
+        customer.active = true;
+        customer.loyaltyPoints = 1250;
+        customer.tags = List.of("vip", "newsletter");
+        Address address = new Address();
+        address.street = "221B Baker Street";
+        address.city = "London";
+        address.postalCode = "NW1 6XE";
+        address.countryCode = "GB";
+        customer.addresses = List.of(address);
+        return customer;
+    }
+
+    static final class Customer
+    {
+        @SerializedName(value = "id", alternate = {"customerId", "customer_id"})
+        long                id;
+        @Expose(deserialize = false)
+        String              email;
+        @SerializedName("first_name")
+        String              firstName;
+        @SerializedName("last_name")
+        String              lastName;
+        boolean             active;
+        @Since("1.4")
+        int                 loyaltyPoints;
+        @com.google.gson.annotations.Since(1.2)
+        List<String>        tags;
+        List<Address>       addresses;
+        @Until("2.0")
+        String              legacyCode;
+        transient Object    cache;
+        Map<String, String> attributes;
+    }
+
+    static final class Address
+    {
+        String street;
+        String city;
+        @com.google.gson.annotations.SerializedName(value = "zip", alternate = "postal_code")
+        String postalCode;
+        @SerializedName("country")
+        String countryCode;
+    }
+
+    static final class Order
+    {
+        @SerializedName("order_id")
+        String          orderId;
+        long            customerId;
+        List<OrderItem> items;
+        double          total;
+        String          currency;
+        @Expose(serialize = true, deserialize = false)
+        String          status;
+        @Since("1.1")
+        @Until("3.0")
+        String          notes;
+        long            createdAt;
+    }
+
+    static final class OrderItem
+    {
+        String sku;
+        int    quantity;
+        double unitPrice;
+        @com.google.gson.annotations.Expose
+        String discountCode;
+    }
+}
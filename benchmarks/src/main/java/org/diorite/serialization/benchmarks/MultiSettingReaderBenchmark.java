@@ -0,0 +1,103 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.diorite.serialization.benchmarks;
+
+import org.diorite.serialization.annotations.Expose;
+import org.diorite.serialization.setting.SettingReader;
+import org.diorite.serialization.setting.settings.ExposeSetting;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of reader chain created by {@link SettingReader#of(Class, java.util.Collection)}, where only last reader finds the
+ * setting, so each read walks whole chain under its lock.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class MultiSettingReaderBenchmark
+{
+    @Param({"1", "4", "16"})
+    private int readers;
+
+    private Field[]                                fields;
+    private SettingReader<? extends ExposeSetting> reader;
+
+    @Setup
+    public void setup()
+    {
+        this.fields = Fixtures.fields();
+        List<SettingReader<ExposeSetting>> chain = new ArrayList<>(this.readers);
+        for (int i = 1; i < this.readers; i++)
+        {
+            chain.add(annotatedElement -> Optional.empty());
+        }
+        chain.add(annotatedElement ->
+        {
+            Expose annotation = annotatedElement.getAnnotation(Expose.class);
+            if (annotation == null)
+            { return Optional.empty(); }
+            return Optional.of(ExposeSetting.of(annotation.serialize(), annotation.deserialize()));
+        });
+        this.reader = SettingReader.of(ExposeSetting.class, chain);
+    }
+
+    @Benchmark
+    public void read(Blackhole blackhole)
+    {
+        for (Field field : this.fields)
+        {
+            blackhole.consume(this.reader.read(field));
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void readContended(Blackhole blackhole)
+    {
+        this.read(blackhole);
+    }
+}
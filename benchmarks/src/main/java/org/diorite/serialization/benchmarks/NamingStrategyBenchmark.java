@@ -0,0 +1,80 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.diorite.serialization.benchmarks;
+
+import org.diorite.serialization.naming.PropertyNamingStrategy;
+import org.diorite.serialization.naming.StandardFieldNamingStrategies;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of every {@link StandardFieldNamingStrategies} constant translating names of all fixture properties.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class NamingStrategyBenchmark
+{
+    @Param({"IDENTITY", "LOWER_CASE", "UPPER_CASE", "UPPER_CAMEL_CASE", "CAMEL_CASE", "UPPER_CAMEL_CASE_WITH_SPACES",
+            "CAMEL_CASE_WITH_SPACES", "LOWER_CASE_WITH_SPACES", "UPPER_CAMEL_CASE_WITH_UNDERSCORES", "CAMEL_CASE_WITH_UNDERSCORES",
+            "LOWER_CASE_WITH_UNDERSCORES", "UPPER_CAMEL_CASE_WITH_HYPHEN", "CAMEL_CASE_WITH_HYPHEN", "LOWER_CASE_WITH_HYPHEN"})
+    private String strategyName;
+
+    private PropertyNamingStrategy              strategy;
+    private List<FieldProperty<Object, Object>> properties;
+
+    @Setup
+    public void setup() throws ReflectiveOperationException
+    {
+        this.strategy = (PropertyNamingStrategy) StandardFieldNamingStrategies.class.getField(this.strategyName).get(null);
+        this.properties = Fixtures.properties();
+    }
+
+    @Benchmark
+    public void translateName(Blackhole blackhole)
+    {
+        for (FieldProperty<Object, Object> property : this.properties)
+        {
+            blackhole.consume(this.strategy.translateName(property));
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.diorite.serialization.benchmarks;
+
+import org.diorite.serialization.benchmarks.Fixtures.Customer;
+import org.diorite.serialization.setting.Property;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of {@link org.diorite.serialization.setting.Property} get and set of primitive and reference fields, using
+ * {@link java.lang.invoke.VarHandle} and accessors generated by serialization annotation processor.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PropertyAccessBenchmark
+{
+    private Customer                          customer;
+    private FieldProperty<Customer, Object>[] properties;
+    private FieldProperty<Customer, Long>     id;
+    private FieldProperty<Customer, String>   email;
+    private Property<Customer, ?>[]           generatedProperties;
+    private Property<Customer, Object>        generatedId;
+    private Property<Customer, Object>        generatedEmail;
+    private long                              nextId;
+
+    @Setup
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public void setup() throws NoSuchFieldException
+    {
+        this.customer = Fixtures.customer();
+        this.properties = Arrays.stream(Customer.class.getDeclaredFields()).map(FieldProperty::new).toArray(FieldProperty[]::new);
+        this.id = new FieldProperty<>(Customer.class.getDeclaredField("id"));
+        this.email = new FieldProperty<>(Customer.class.getDeclaredField("email"));
+        this.generatedProperties = Fixtures.GENERATED_PROVIDER.getProperties(Customer.class).toArray(new Property[0]);
+        this.generatedId = this.findGenerated("id");
+        this.generatedEmail = this.findGenerated("email");
+    }
+
+    @SuppressWarnings("unchecked")
+    private Property<Customer, Object> findGenerated(String name)
+    {
+        for (Property<Customer, ?> property : this.generatedProperties)
+        {
+            if (property.getRawName().equals(name))
+            {
+                return (Property<Customer, Object>) property;
+            }
+        }
+        throw new IllegalStateException("Missing property: " + name);
+    }
+
+    @Benchmark
+    public Long getPrimitive()
+    {
+        return this.id.getValue(this.customer);
+    }
+
+    @Benchmark
+    public void setPrimitive()
+    {
+        this.id.setValue(this.customer, this.nextId++);
+    }
+
+    @Benchmark
+    public String getReference()
+    {
+        return this.email.getValue(this.customer);
+    }
+
+    @Benchmark
+    public void setReference()
+    {
+        this.email.setValue(this.customer, "john.doe@example.com");
+    }
+
+    @Benchmark
+    public void getAll(Blackhole blackhole)
+    {
+        for (FieldProperty<Customer, Object> property : this.properties)
+        {
+            blackhole.consume(property.getValue(this.customer));
+        }
+    }
+
+    @Benchmark
+    public Object getPrimitiveGenerated()
+    {
+        return this.generatedId.getValue(this.customer);
+    }
+
+    @Benchmark
+    public void setPrimitiveGenerated()
+    {
+        this.generatedId.setValue(this.customer, this.nextId++);
+    }
+
+    @Benchmark
+    public Object getReferenceGenerated()
+    {
+        return this.generatedEmail.getValue(this.customer);
+    }
+
+    @Benchmark
+    public void setReferenceGenerated()
+    {
+        this.generatedEmail.setValue(this.customer, "john.doe@example.com");
+    }
+
+    @Benchmark
+    public void getAllGenerated(Blackhole blackhole)
+    {
+        for (Property<Customer, ?> property : this.generatedProperties)
+        {
+            blackhole.consume(property.getValue(this.customer));
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.diorite.serialization.benchmarks;
+
+import org.diorite.serialization.setting.SettingsCache;
+import org.diorite.serialization.setting.SettingsManager;
+import org.diorite.serialization.setting.settings.SerializedNameSetting;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of {@link SettingsManager#readSettings(java.lang.reflect.AnnotatedElement)} and
+ * {@link SettingsManager#readSetting(java.lang.reflect.AnnotatedElement, Class)} over all fixture fields, using reflection and
+ * {@link SettingsCache}. Contended variants share single manager between threads, like one global manager in services.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SettingsManagerBenchmark
+{
+    private Field[]         fields;
+    private SettingsManager manager;
+    private SettingsManager cachedManager;
+    private Path            cacheFile;
+
+    @Setup
+    public void setup() throws IOException
+    {
+        this.fields = Fixtures.fields();
+        this.manager = SettingsManager.create();
+
+        this.cacheFile = Files.createTempFile("settings", ".cache");
+        Files.delete(this.cacheFile);
+        SettingsManager coldManager = SettingsManager.create();
+        SettingsCache coldCache = SettingsCache.open(this.cacheFile, coldManager);
+        coldManager.setCache(coldCache);
+        for (Field field : this.fields)
+        {
+            coldManager.readSettings(field);
+        }
+        coldCache.save();
+        this.cachedManager = SettingsManager.create();
+        this.cachedManager.setCache(SettingsCache.open(this.cacheFile, this.cachedManager));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        Files.deleteIfExists(this.cacheFile);
+    }
+
+    @Benchmark
+    public void readSettings(Blackhole blackhole)
+    {
+        for (Field field : this.fields)
+        {
+            blackhole.consume(this.manager.readSettings(field));
+        }
+    }
+
+    @Benchmark
+    public void readSetting(Blackhole blackhole)
+    {
+        for (Field field : this.fields)
+        {
+            blackhole.consume(this.manager.readSetting(field, SerializedNameSetting.class));
+        }
+    }
+
+    @Benchmark
+    public void readSettingCached(Blackhole blackhole)
+    {
+        for (Field field : this.fields)
+        {
+            blackhole.consume(this.cachedManager.readSetting(field, SerializedNameSetting.class));
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void readSettingsContended(Blackhole blackhole)
+    {
+        this.readSettings(blackhole);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void readSettingContended(Blackhole blackhole)
+    {
+        this.readSetting(blackhole);
+    }
+}
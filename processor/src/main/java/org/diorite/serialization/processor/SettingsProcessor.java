@@ -0,0 +1,330 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.diorite.serialization.processor;
+
+import javax.annotation.Nullable;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic.Kind;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Generates {@code GeneratedSettings} table for each class with fields annotated by serialization annotations (own or gson ones). <br>
+ * Table of class {@code a.b.Type} is generated as {@code a.b.Type$$Settings}, it contains settings of all declared fields read in same
+ * order as built-in setting readers of {@code SettingsManager} do, serialization names and direct accessors of all fields that are
+ * accessible from same package. <br>
+ * Tables are not generated for private, local and anonymous classes, settings of these classes are read using reflection.
+ */
+@SupportedAnnotationTypes({SettingsProcessor.EXPOSE, SettingsProcessor.SINCE, SettingsProcessor.UNTIL, SettingsProcessor.SERIALIZED_NAME,
+                           SettingsProcessor.GSON_EXPOSE, SettingsProcessor.GSON_SINCE, SettingsProcessor.GSON_UNTIL,
+                           SettingsProcessor.GSON_SERIALIZED_NAME})
+public class SettingsProcessor extends AbstractProcessor
+{
+    static final String EXPOSE               = "org.diorite.serialization.annotations.Expose";
+    static final String SINCE                = "org.diorite.serialization.annotations.Since";
+    static final String UNTIL                = "org.diorite.serialization.annotations.Until";
+    static final String SERIALIZED_NAME      = "org.diorite.serialization.annotations.SerializedName";
+    static final String GSON_EXPOSE          = "com.google.gson.annotations.Expose";
+    static final String GSON_SINCE           = "com.google.gson.annotations.Since";
+    static final String GSON_UNTIL           = "com.google.gson.annotations.Until";
+    static final String GSON_SERIALIZED_NAME = "com.google.gson.annotations.SerializedName";
+
+    private static final String SUFFIX           = "$$Settings";
+    private static final String SETTINGS_PACKAGE = "org.diorite.serialization.setting.settings.";
+
+    private final Set<String> generated = new HashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion()
+    {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv)
+    {
+        Set<TypeElement> types = new LinkedHashSet<>();
+        for (TypeElement annotation : annotations)
+        {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation))
+            {
+                if (element.getKind() == ElementKind.FIELD)
+                {
+                    types.add((TypeElement) element.getEnclosingElement());
+                }
+            }
+        }
+        for (TypeElement type : types)
+        {
+            NestingKind nestingKind = type.getNestingKind();
+            if ((nestingKind == NestingKind.LOCAL) || (nestingKind == NestingKind.ANONYMOUS) || ! isAccessible(type))
+            {
+                // generated code can't reference these classes, their settings are still read using reflection.
+                this.processingEnv.getMessager().printMessage(Kind.NOTE, "Settings can't be generated for inaccessible class", type);
+                continue;
+            }
+            if (this.generated.add(type.getQualifiedName().toString()))
+            {
+                this.generate(type);
+            }
+        }
+        // other processors may also use these annotations.
+        return false;
+    }
+
+    private void generate(TypeElement type)
+    {
+        Elements elements = this.processingEnv.getElementUtils();
+        Types types = this.processingEnv.getTypeUtils();
+        String packageName = elements.getPackageOf(type).getQualifiedName().toString();
+        String binaryName = elements.getBinaryName(type).toString();
+        String simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1)) + SUFFIX;
+        String typeName = types.erasure(type.asType()).toString();
+
+        List<VariableElement> fields = new ArrayList<>();
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements()))
+        {
+            if (field.getKind() == ElementKind.FIELD)
+            {
+                fields.add(field);
+            }
+        }
+
+        StringBuilder names = new StringBuilder();
+        StringBuilder serializationNames = new StringBuilder();
+        StringBuilder settings = new StringBuilder();
+        StringBuilder getters = new StringBuilder();
+        StringBuilder setters = new StringBuilder();
+        StringBuilder getterCases = new StringBuilder();
+        StringBuilder setterCases = new StringBuilder();
+        for (int i = 0; i < fields.size(); i++)
+        {
+            VariableElement field = fields.get(i);
+            String separator = (i == 0) ? "" : ", ";
+            String name = field.getSimpleName().toString();
+            List<String> fieldSettings = new ArrayList<>(4);
+            String serializationName = this.readSettings(field, fieldSettings);
+
+            names.append(separator).append(elements.getConstantExpression(name));
+            serializationNames.append(separator)
+                              .append(elements.getConstantExpression((serializationName == null) ? name : serializationName));
+            settings.append("\n                  {").append(String.join(", ", fieldSettings)).append("},");
+
+            boolean getter = ! field.getModifiers().contains(Modifier.PRIVATE);
+            boolean setter = getter && ! field.getModifiers().contains(Modifier.FINAL);
+            String target = field.getModifiers().contains(Modifier.STATIC) ? typeName : "instance";
+            getters.append(separator).append(getter);
+            setters.append(separator).append(setter);
+            if (getter)
+            {
+                getterCases.append("            case ").append(i).append(":\n")
+                           .append("                return ").append(target).append('.').append(name).append(";\n");
+            }
+            if (setter)
+            {
+                String fieldType = types.erasure(field.asType()).toString();
+                setterCases.append("            case ").append(i).append(":\n")
+                           .append("                ").append(target).append('.').append(name).append(" = ")
+                           .append(fieldType.equals(Object.class.getName()) ? "" : ("(" + fieldType + ") ")).append("value;\n")
+                           .append("                return;\n");
+            }
+        }
+
+        String qualifiedName = packageName.isEmpty() ? simpleName : (packageName + "." + simpleName);
+        try (Writer writer = this.processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter())
+        {
+            if (! packageName.isEmpty())
+            {
+                writer.write("package " + packageName + ";\n\n");
+            }
+            writer.write("@javax.annotation.processing.Generated(\"" + SettingsProcessor.class.getName() + "\")\n" +
+                         "@SuppressWarnings({\"rawtypes\", \"unchecked\"})\n" +
+                         "public final class " + simpleName + " extends org.diorite.serialization.setting.GeneratedSettings<" + typeName +
+                         ">\n" +
+                         "{\n" +
+                         "    public " + simpleName + "()\n" +
+                         "    {\n" +
+                         "        super(" + typeName + ".class,\n" +
+                         "              new String[] {" + names + "},\n" +
+                         "              new String[] {" + serializationNames + "},\n" +
+                         "              new org.diorite.serialization.setting.Setting[][] {" + settings + "\n              },\n" +
+                         "              new boolean[] {" + getters + "},\n" +
+                         "              new boolean[] {" + setters + "});\n" +
+                         "    }\n" +
+                         "\n" +
+                         "    @Override\n" +
+                         "    public Object getValue(" + typeName + " instance, int index)\n" +
+                         "    {\n" +
+                         "        switch (index)\n" +
+                         "        {\n" +
+                         getterCases +
+                         "            default:\n" +
+                         "                throw new UnsupportedOperationException(\"No generated getter of \" + this.getName(index));\n" +
+                         "        }\n" +
+                         "    }\n" +
+                         "\n" +
+                         "    @Override\n" +
+                         "    public void setValue(" + typeName + " instance, int index, Object value)\n" +
+                         "    {\n" +
+                         "        switch (index)\n" +
+                         "        {\n" +
+                         setterCases +
+                         "            default:\n" +
+                         "                throw new UnsupportedOperationException(\"No generated setter of \" + this.getName(index));\n" +
+                         "        }\n" +
+                         "    }\n" +
+                         "}\n");
+        }
+        catch (IOException e)
+        {
+            this.processingEnv.getMessager().printMessage(Kind.ERROR, "Can't generate settings: " + e.getMessage(), type);
+        }
+    }
+
+    /**
+     * Appends source expressions of settings of given field, in same order of annotations as built-in setting readers use.
+     *
+     * @param field
+     *     field to read.
+     * @param settings
+     *     list of setting expressions.
+     *
+     * @return serialization name from serialized name annotation or null.
+     */
+    @Nullable
+    private String readSettings(VariableElement field, List<String> settings)
+    {
+        Elements elements = this.processingEnv.getElementUtils();
+        AnnotationMirror expose = this.findAnnotation(field, EXPOSE, GSON_EXPOSE);
+        if (expose != null)
+        {
+            settings.add(SETTINGS_PACKAGE + "ExposeSetting.of(" + this.getValue(expose, "serialize") + ", " +
+                         this.getValue(expose, "deserialize") + ")");
+        }
+        AnnotationMirror until = this.findAnnotation(field, UNTIL, GSON_UNTIL);
+        if (until != null)
+        {
+            settings.add(SETTINGS_PACKAGE + "UntilSetting.of(" + this.getStringValue(until, "value") + ")");
+        }
+        AnnotationMirror since = this.findAnnotation(field, SINCE, GSON_SINCE);
+        if (since != null)
+        {
+            settings.add(SETTINGS_PACKAGE + "SinceSetting.of(" + this.getStringValue(since, "value") + ")");
+        }
+        AnnotationMirror serializedName = this.findAnnotation(field, SERIALIZED_NAME, GSON_SERIALIZED_NAME);
+        if (serializedName == null)
+        {
+            return null;
+        }
+        StringBuilder alternate = new StringBuilder();
+        for (Object element : (List<?>) this.getValue(serializedName, "alternate"))
+        {
+            if (alternate.length() != 0)
+            {
+                alternate.append(", ");
+            }
+            alternate.append(elements.getConstantExpression(((AnnotationValue) element).getValue()));
+        }
+        settings.add(SETTINGS_PACKAGE + "SerializedNameSetting.of(" + this.getStringValue(serializedName, "value") + ", new String[] {" +
+                     alternate + "})");
+        return this.getValue(serializedName, "value").toString();
+    }
+
+    /**
+     * Returns first annotation of given types present on element, so own annotations have priority over gson ones.
+     */
+    @Nullable
+    private AnnotationMirror findAnnotation(Element element, String... names)
+    {
+        for (String name : names)
+        {
+            for (AnnotationMirror mirror : element.getAnnotationMirrors())
+            {
+                if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(name))
+                {
+                    return mirror;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns source literal of string value of given annotation member, own version annotations use strings and gson ones use doubles
+     * that are converted same way as by gson setting readers.
+     */
+    private String getStringValue(AnnotationMirror mirror, String name)
+    {
+        return this.processingEnv.getElementUtils().getConstantExpression(this.getValue(mirror, name).toString());
+    }
+
+    private Object getValue(AnnotationMirror mirror, String name)
+    {
+        Map<? extends ExecutableElement, ? extends AnnotationValue> values = this.processingEnv.getElementUtils()
+                                                                                              .getElementValuesWithDefaults(mirror);
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : values.entrySet())
+        {
+            if (entry.getKey().getSimpleName().contentEquals(name))
+            {
+                return entry.getValue().getValue();
+            }
+        }
+        throw new IllegalStateException("Missing " + name + " value of " + mirror);
+    }
+
+    private static boolean isAccessible(TypeElement type)
+    {
+        for (Element element = type; element instanceof TypeElement; element = element.getEnclosingElement())
+        {
+            if (element.getModifiers().contains(Modifier.PRIVATE))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
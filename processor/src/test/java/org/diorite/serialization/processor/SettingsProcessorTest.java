@@ -0,0 +1,299 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.processor;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SettingsProcessorTest
+{
+    /**
+     * Minimal versions of library classes used by generated code, so processor is tested without library on class path.
+     */
+    private static final String[][] LIBRARY = {
+        {"org.diorite.serialization.annotations.Expose",
+         "public @interface Expose { boolean serialize() default true; boolean deserialize() default true; }"},
+        {"org.diorite.serialization.annotations.Since", "public @interface Since { String value(); }"},
+        {"org.diorite.serialization.annotations.Until", "public @interface Until { String value(); }"},
+        {"org.diorite.serialization.annotations.SerializedName",
+         "public @interface SerializedName { String value(); String[] alternate() default {}; }"},
+        {"com.google.gson.annotations.Since", "public @interface Since { double value(); }"},
+        {"com.google.gson.annotations.SerializedName",
+         "public @interface SerializedName { String value(); String[] alternate() default {}; }"},
+        {"org.diorite.serialization.setting.Setting", "public interface Setting {}"},
+        {"org.diorite.serialization.setting.GeneratedSettings",
+         "public abstract class GeneratedSettings<T>\n" +
+         "{\n" +
+         "    public final String[] names, serializationNames;\n" +
+         "    public final Setting[][] settings;\n" +
+         "    public final boolean[] getters, setters;\n" +
+         "    protected GeneratedSettings(Class<T> type, String[] names, String[] serializationNames, Setting[][] settings,\n" +
+         "                                boolean[] getters, boolean[] setters)\n" +
+         "    {\n" +
+         "        this.names = names; this.serializationNames = serializationNames; this.settings = settings;\n" +
+         "        this.getters = getters; this.setters = setters;\n" +
+         "    }\n" +
+         "    public String getName(int index) { return this.names[index]; }\n" +
+         "    public abstract Object getValue(T instance, int index);\n" +
+         "    public abstract void setValue(T instance, int index, Object value);\n" +
+         "}"},
+        {"org.diorite.serialization.setting.settings.Value",
+         "public class Value implements org.diorite.serialization.setting.Setting\n" +
+         "{\n" +
+         "    public final String value;\n" +
+         "    public Value(String value) { this.value = value; }\n" +
+         "    public String toString() { return this.value; }\n" +
+         "}"},
+        {"org.diorite.serialization.setting.settings.ExposeSetting",
+         "public class ExposeSetting extends Value\n" +
+         "{\n" +
+         "    ExposeSetting(String value) { super(value); }\n" +
+         "    public static ExposeSetting of(boolean s, boolean d) { return new ExposeSetting(\"expose \" + s + \" \" + d); }\n" +
+         "}"},
+        {"org.diorite.serialization.setting.settings.SinceSetting",
+         "public class SinceSetting extends Value\n" +
+         "{\n" +
+         "    SinceSetting(String value) { super(value); }\n" +
+         "    public static SinceSetting of(String value) { return new SinceSetting(\"since \" + value); }\n" +
+         "}"},
+        {"org.diorite.serialization.setting.settings.UntilSetting",
+         "public class UntilSetting extends Value\n" +
+         "{\n" +
+         "    UntilSetting(String value) { super(value); }\n" +
+         "    public static UntilSetting of(String value) { return new UntilSetting(\"until \" + value); }\n" +
+         "}"},
+        {"org.diorite.serialization.setting.settings.SerializedNameSetting",
+         "public class SerializedNameSetting extends Value\n" +
+         "{\n" +
+         "    SerializedNameSetting(String value) { super(value); }\n" +
+         "    public static SerializedNameSetting of(String value, String[] alternate)\n" +
+         "    {\n" +
+         "        return new SerializedNameSetting(\"name \" + value + \" \" + java.util.Arrays.toString(alternate));\n" +
+         "    }\n" +
+         "}"}
+    };
+
+    private Path sources;
+    private Path classes;
+
+    @Before
+    public void createOutput() throws IOException
+    {
+        this.sources = Files.createTempDirectory("processor-sources");
+        this.classes = Files.createTempDirectory("processor-classes");
+    }
+
+    @After
+    public void deleteOutput() throws IOException
+    {
+        delete(this.sources);
+        delete(this.classes);
+    }
+
+    @Test
+    public void generatesSettingsTable() throws Exception
+    {
+        List<String> generated = this.compile("a.b.Model",
+                                              "package a.b;\n" +
+                                              "import org.diorite.serialization.annotations.*;\n" +
+                                              "public class Model\n" +
+                                              "{\n" +
+                                              "    @Expose(deserialize = false) @Until(\"2\") @Since(\"1.1\")\n" +
+                                              "    @SerializedName(value = \"n\", alternate = {\"old\"})\n" +
+                                              "    int number;\n" +
+                                              "    private String hidden;\n" +
+                                              "    final long constant = 1;\n" +
+                                              "    static Object shared;\n" +
+                                              "}\n");
+        assertEquals(1, generated.size());
+        assertTrue(generated.get(0), generated.get(0).startsWith("package a.b;"));
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[] {this.classes.toUri().toURL()}))
+        {
+            Class<?> type = loader.loadClass("a.b.Model");
+            Object table = loader.loadClass("a.b.Model$$Settings").getConstructor().newInstance();
+            assertArrayEquals(new String[] {"number", "hidden", "constant", "shared"}, (String[]) get(table, "names"));
+            assertArrayEquals(new String[] {"n", "hidden", "constant", "shared"}, (String[]) get(table, "serializationNames"));
+            assertArrayEquals(new boolean[] {true, false, true, true}, (boolean[]) get(table, "getters"));
+            assertArrayEquals(new boolean[] {true, false, false, true}, (boolean[]) get(table, "setters"));
+            // settings are listed in same order as built-in setting readers read them.
+            Object[][] settings = (Object[][]) get(table, "settings");
+            assertEquals("[expose true false, until 2, since 1.1, name n [old]]", Arrays.toString(settings[0]));
+            assertEquals(0, settings[1].length);
+
+            Object instance = type.getConstructor().newInstance();
+            Method getValue = table.getClass().getMethod("getValue", Object.class, int.class);
+            Method setValue = table.getClass().getMethod("setValue", Object.class, int.class, Object.class);
+            setValue.invoke(table, instance, 0, 5);
+            assertEquals(5, getValue.invoke(table, instance, 0));
+            assertEquals(1L, getValue.invoke(table, instance, 2));
+            setValue.invoke(table, null, 3, "shared");
+            assertEquals("shared", getValue.invoke(table, null, 3));
+            try
+            {
+                getValue.invoke(table, instance, 1);
+                fail("Private field can't have generated getter");
+            }
+            catch (InvocationTargetException e)
+            {
+                assertTrue(e.getCause() instanceof UnsupportedOperationException);
+            }
+        }
+    }
+
+    @Test
+    public void usesOwnAnnotationsBeforeGsonOnes() throws Exception
+    {
+        String generated = this.compile("Model",
+                                        "public class Model\n" +
+                                        "{\n" +
+                                        "    @com.google.gson.annotations.Since(1.5) int gson;\n" +
+                                        "    @com.google.gson.annotations.SerializedName(\"gson\")\n" +
+                                        "    @org.diorite.serialization.annotations.SerializedName(\"own\") int both;\n" +
+                                        "}\n")
+                               .get(0);
+
+        assertFalse(generated, generated.startsWith("package"));
+        assertTrue(generated, generated.contains("SinceSetting.of(\"1.5\")"));
+        assertTrue(generated, generated.contains("new String[] {\"gson\", \"own\"}"));
+    }
+
+    @Test
+    public void generatesTablesOfAccessibleNestedClassesOnly() throws Exception
+    {
+        List<String> generated = this.compile("a.Outer",
+                                              "package a;\n" +
+                                              "import org.diorite.serialization.annotations.Since;\n" +
+                                              "public class Outer\n" +
+                                              "{\n" +
+                                              "    static class Nested { @Since(\"1\") int value; }\n" +
+                                              "    private static class Hidden { @Since(\"1\") int value; }\n" +
+                                              "    void method() { class Local { @Since(\"1\") int value; } }\n" +
+                                              "}\n");
+
+        assertEquals(1, generated.size());
+        assertTrue(generated.get(0), generated.get(0).contains("public final class Outer$Nested$$Settings"));
+        assertTrue(generated.get(0), generated.get(0).contains("super(a.Outer.Nested.class,"));
+    }
+
+    /**
+     * Compiles given source with library classes and settings processor.
+     *
+     * @param name
+     *     qualified name of source class.
+     * @param source
+     *     source to compile.
+     *
+     * @return contents of generated sources.
+     */
+    private List<String> compile(String name, String source) throws IOException
+    {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        List<JavaFileObject> units = new ArrayList<>();
+        units.add(new Source(name, source));
+        for (String[] library : LIBRARY)
+        {
+            String packageName = library[0].substring(0, library[0].lastIndexOf('.'));
+            units.add(new Source(library[0], "package " + packageName + ";\n" + library[1] + "\n"));
+        }
+
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8))
+        {
+            fileManager.setLocationFromPaths(StandardLocation.SOURCE_OUTPUT, List.of(this.sources));
+            fileManager.setLocationFromPaths(StandardLocation.CLASS_OUTPUT, List.of(this.classes));
+            List<String> options = List.of("-Xlint:all,-processing", "-Werror");
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options, null, units);
+            task.setProcessors(List.of(new SettingsProcessor()));
+            boolean success = task.call();
+            assertTrue(diagnostics.getDiagnostics().toString(), success);
+        }
+
+        List<String> generated = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(this.sources))
+        {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile).sorted()::iterator)
+            {
+                generated.add(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+            }
+        }
+        return generated;
+    }
+
+    private static Object get(Object table, String field) throws ReflectiveOperationException
+    {
+        return table.getClass().getField(field).get(table);
+    }
+
+    private static void delete(Path directory) throws IOException
+    {
+        try (Stream<Path> files = Files.walk(directory))
+        {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private static final class Source extends SimpleJavaFileObject
+    {
+        private final String source;
+
+        private Source(String name, String source)
+        {
+            super(URI.create("string:///" + name.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this.source = source;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors)
+        {
+            return this.source;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization;
+
+import java.lang.reflect.Constructor;
+
+class ConstructorInstanceFactory implements InstanceFactory
+{
+    private final ClassValue<Constructor<?>> constructors = new ClassValue<>()
+    {
+        @Override
+        protected Constructor<?> computeValue(Class<?> type)
+        {
+            try
+            {
+                Constructor<?> constructor = type.getDeclaredConstructor();
+                constructor.setAccessible(true);
+                return constructor;
+            }
+            catch (NoSuchMethodException e)
+            {
+                throw new SerializationException("Missing no-args constructor in " + type.getName(), e);
+            }
+        }
+    };
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T create(Class<T> type)
+    {
+        try
+        {
+            return (T) this.constructors.get(type).newInstance();
+        }
+        catch (ReflectiveOperationException e)
+        {
+            throw new SerializationException("Can't create instance of " + type.getName(), e);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map from object identity to primitive int, used to track already written objects. <br>
+ * Keys are compared by reference and hashed using {@link System#identityHashCode(Object)}, values are stored in primitive array, so
+ * lookups and insertions do not allocate anything unless map needs to grow.
+ */
+public final class IdentityIntMap
+{
+    /**
+     * Value returned when key is not present in map.
+     */
+    public static final int NO_VALUE = - 1;
+
+    private Object[] keys;
+    private int[]    values;
+    private int      size;
+    private int      threshold;
+
+    public IdentityIntMap()
+    {
+        this(16);
+    }
+
+    public IdentityIntMap(int expectedSize)
+    {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 4) - 1) << 2;
+        this.keys = new Object[capacity];
+        this.values = new int[capacity];
+        this.threshold = capacity >>> 1;
+    }
+
+    private static int index(Object key, int mask)
+    {
+        int hash = System.identityHashCode(key) * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    /**
+     * @return amount of entries in this map.
+     */
+    public int size()
+    {
+        return this.size;
+    }
+
+    /**
+     * Returns value assigned to given key, or {@link #NO_VALUE} if key isn't present.
+     *
+     * @param key
+     *     key to find.
+     *
+     * @return value assigned to given key or {@link #NO_VALUE}.
+     */
+    public int get(Object key)
+    {
+        Object[] keys = this.keys;
+        int mask = keys.length - 1;
+        for (int i = index(key, mask); ; i = (i + 1) & mask)
+        {
+            Object current = keys[i];
+            if (current == key)
+            {
+                return this.values[i];
+            }
+            if (current == null)
+            {
+                return NO_VALUE;
+            }
+        }
+    }
+
+    /**
+     * Assigns given value to given key if key isn't present yet.
+     *
+     * @param key
+     *     key to insert.
+     * @param value
+     *     value to assign, must not be negative.
+     *
+     * @return value already assigned to given key, or {@link #NO_VALUE} if key was inserted.
+     */
+    public int putIfAbsent(Object key, int value)
+    {
+        Object[] keys = this.keys;
+        int mask = keys.length - 1;
+        int i = index(key, mask);
+        for (Object current = keys[i]; current != null; current = keys[i])
+        {
+            if (current == key)
+            {
+                return this.values[i];
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        this.values[i] = value;
+        if (++ this.size > this.threshold)
+        {
+            this.resize();
+        }
+        return NO_VALUE;
+    }
+
+    /**
+     * Removes all entries, allocated arrays are reused.
+     */
+    public void clear()
+    {
+        if (this.size != 0)
+        {
+            Arrays.fill(this.keys, null);
+            this.size = 0;
+        }
+    }
+
+    private void resize()
+    {
+        Object[] oldKeys = this.keys;
+        int[] oldValues = this.values;
+        int capacity = oldKeys.length << 1;
+        int mask = capacity - 1;
+        Object[] keys = new Object[capacity];
+        int[] values = new int[capacity];
+        for (int j = 0; j < oldKeys.length; j++)
+        {
+            Object key = oldKeys[j];
+            if (key == null)
+            {
+                continue;
+            }
+            int i = index(key, mask);
+            while (keys[i] != null)
+            {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = oldValues[j];
+        }
+        this.keys = keys;
+        this.values = values;
+        this.threshold = capacity >>> 1;
+    }
+}
@@ -22,32 +22,22 @@
  * SOFTWARE.
  */
 
-package org.diorite.serialization.setting.settings;
-
-import org.diorite.serialization.annotations.Until;
-import org.diorite.serialization.setting.Setting;
+package org.diorite.serialization;
 
 /**
- * Representation of {@link Until}
+ * Thrown when object can not be serialized or when serialized data is malformed.
  */
-public final class UntilSetting implements Setting, Until
+public class SerializationException extends RuntimeException
 {
-    private final String value;
-
-    public UntilSetting(String value)
-    {
-        this.value = value;
-    }
+    private static final long serialVersionUID = 0;
 
-    @Override
-    public String value()
+    public SerializationException(String message)
     {
-        return value;
+        super(message);
     }
 
-    @Override
-    public Class<Until> annotationType()
+    public SerializationException(String message, Throwable cause)
     {
-        return Until.class;
+        super(message, cause);
     }
 }
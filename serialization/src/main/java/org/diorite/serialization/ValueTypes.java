@@ -0,0 +1,162 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization;
+
+import org.diorite.serialization.setting.PropertySettings;
+
+import javax.annotation.Nullable;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Helper methods shared by serialization formats to handle container types and generic parameters.
+ */
+public final class ValueTypes
+{
+    private ValueTypes()
+    {
+    }
+
+    /**
+     * Returns settings of generic parameter of given index, or null if given settings are null or type does not have such parameter.
+     *
+     * @param settings
+     *     settings of generic type.
+     * @param index
+     *     index of parameter.
+     *
+     * @return settings of generic parameter or null.
+     */
+    @Nullable
+    public static PropertySettings parameter(@Nullable PropertySettings settings, int index)
+    {
+        if ((settings == null) || (settings.getGenericParameterCount() <= index))
+        {
+            return null;
+        }
+        return settings.getFieldConfiguration(index);
+    }
+
+    /**
+     * Returns raw type represented by given settings, or Object if settings are null.
+     *
+     * @param settings
+     *     settings of type.
+     *
+     * @return raw type represented by given settings.
+     */
+    public static Class<?> rawType(@Nullable PropertySettings settings)
+    {
+        return (settings == null) ? Object.class : settings.getRealType().getRawType();
+    }
+
+    /**
+     * Returns raw type of serializer of given settings, used to find custom codec of value, or given type if settings are null.
+     *
+     * @param type
+     *     raw type of value.
+     * @param settings
+     *     settings of value.
+     *
+     * @return raw serializer type.
+     */
+    public static Class<?> serializerType(Class<?> type, @Nullable PropertySettings settings)
+    {
+        return (settings == null) ? type : settings.getSerializerType().getRawType();
+    }
+
+    /**
+     * Creates new empty collection of given type, default implementations are used for interfaces and abstract types.
+     *
+     * @param type
+     *     type of collection.
+     * @param instanceFactory
+     *     factory used to create concrete types.
+     *
+     * @return new empty collection.
+     */
+    @SuppressWarnings("unchecked")
+    public static Collection<Object> createCollection(Class<?> type, InstanceFactory instanceFactory)
+    {
+        if (! type.isInterface() && ! Modifier.isAbstract(type.getModifiers()))
+        {
+            return (Collection<Object>) instanceFactory.create(type);
+        }
+        if (SortedSet.class.isAssignableFrom(type))
+        {
+            return new TreeSet<>();
+        }
+        if (Set.class.isAssignableFrom(type))
+        {
+            return new LinkedHashSet<>();
+        }
+        if (Queue.class.isAssignableFrom(type))
+        {
+            return new ArrayDeque<>();
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Creates new empty map of given type, default implementations are used for interfaces and abstract types.
+     *
+     * @param type
+     *     type of map.
+     * @param instanceFactory
+     *     factory used to create concrete types.
+     *
+     * @return new empty map.
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<Object, Object> createMap(Class<?> type, InstanceFactory instanceFactory)
+    {
+        if (! type.isInterface() && ! Modifier.isAbstract(type.getModifiers()))
+        {
+            return (Map<Object, Object>) instanceFactory.create(type);
+        }
+        if (SortedMap.class.isAssignableFrom(type))
+        {
+            return new TreeMap<>();
+        }
+        if (ConcurrentMap.class.isAssignableFrom(type))
+        {
+            return new ConcurrentHashMap<>();
+        }
+        return new LinkedHashMap<>();
+    }
+}
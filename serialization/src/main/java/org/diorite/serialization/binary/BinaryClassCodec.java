@@ -0,0 +1,151 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.binary;
+
+import org.diorite.serialization.codec.CodecRegistry;
+import org.diorite.serialization.codec.CodecSite;
+import org.diorite.serialization.plan.PropertyPlan;
+import org.diorite.serialization.setting.Property;
+import org.diorite.serialization.setting.PropertySettings;
+import org.diorite.serialization.setting.settings.SerializedNameSetting;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Precomputed binary data of single class: local schema used by writer, mapping of remote schemas used by reader and codec caches of
+ * each property.
+ *
+ * @param <T>
+ *     type of object.
+ */
+final class BinaryClassCodec<T>
+{
+    private static final int MAX_MAPPINGS = 32;
+
+    final PropertyPlan<T>                  writePlan;
+    final BinarySchema                     schema;
+    final CodecSite<BinaryValueCodec<?>>[] writeSites;
+    final PropertyPlan<T>                  readPlan;
+    final Class<?>[]                       readTypes;
+    final PropertySettings[]               readSettings;
+    final CodecSite<BinaryValueCodec<?>>[] readSites;
+
+    private final Map<String, Integer>     readIndices;
+    private final Map<BinarySchema, int[]> mappings;
+
+    BinaryClassCodec(PropertyPlan<T> writePlan, PropertyPlan<T> readPlan, CodecRegistry<BinaryValueCodec<?>> codecs, long fingerprint)
+    {
+        this.writePlan = writePlan;
+        String[] names = new String[writePlan.size()];
+        this.writeSites = newSites(names.length);
+        for (int i = 0; i < names.length; i++)
+        {
+            names[i] = writePlan.getName(i);
+            this.writeSites[i] = codecs.newSite();
+        }
+        this.schema = new BinarySchema(fingerprint, names);
+
+        this.readPlan = readPlan;
+        int size = readPlan.size();
+        this.readTypes = new Class<?>[size];
+        this.readSettings = new PropertySettings[size];
+        this.readSites = newSites(size);
+        this.readIndices = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++)
+        {
+            Property<T, ?> property = readPlan.getProperty(i);
+            this.readTypes[i] = property.getRawType();
+            this.readSettings[i] = property.getSettings();
+            this.readSites[i] = codecs.newSite();
+            SerializedNameSetting setting = property.getSetting(SerializedNameSetting.class);
+            if (setting != null)
+            {
+                for (String alternate : setting.alternate())
+                {
+                    this.readIndices.putIfAbsent(alternate, i);
+                }
+            }
+        }
+        // main names always win over alternates
+        for (int i = 0; i < size; i++)
+        {
+            this.readIndices.put(readPlan.getName(i), i);
+        }
+        // schemas come from peer, so only few recently used mappings are kept.
+        this.mappings = new LinkedHashMap<>(4, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<BinarySchema, int[]> eldest)
+            {
+                return this.size() > MAX_MAPPINGS;
+            }
+        };
+    }
+
+    /**
+     * Returns mapping from indices of given remote schema to indices of local read plan, -1 is used for unknown properties.
+     *
+     * @param remote
+     *     schema used by writer.
+     *
+     * @return mapping of indices.
+     */
+    int[] getMapping(BinarySchema remote)
+    {
+        int[] mapping;
+        synchronized (this.mappings)
+        {
+            mapping = this.mappings.get(remote);
+        }
+        if (mapping != null)
+        {
+            return mapping;
+        }
+        mapping = new int[remote.size()];
+        for (int i = 0; i < mapping.length; i++)
+        {
+            mapping[i] = this.readIndices.getOrDefault(remote.getName(i), - 1);
+        }
+        synchronized (this.mappings)
+        {
+            this.mappings.put(remote, mapping);
+        }
+        return mapping;
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static CodecSite<BinaryValueCodec<?>>[] newSites(int size)
+    {
+        return new CodecSite[size];
+    }
+
+    @SuppressWarnings("unchecked")
+    Property<T, Object> getReadProperty(int index)
+    {
+        return (Property<T, Object>) this.readPlan.getProperty(index);
+    }
+}
@@ -0,0 +1,1632 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.binary;
+
+import org.diorite.serialization.IdentityIntMap;
+import org.diorite.serialization.InstanceFactory;
+import org.diorite.serialization.SerializationException;
+import org.diorite.serialization.ValueTypes;
+import org.diorite.serialization.buffer.BufferPool;
+import org.diorite.serialization.codec.CodecRegistry;
+import org.diorite.serialization.codec.CodecSite;
+import org.diorite.serialization.collection.DoubleArrayList;
+import org.diorite.serialization.collection.IntArrayList;
+import org.diorite.serialization.collection.LongArrayList;
+import org.diorite.serialization.collection.ObjectLongHashMap;
+import org.diorite.serialization.collection.PrimitiveCollections;
+import org.diorite.serialization.delta.DirtyTracked;
+import org.diorite.serialization.delta.PropertySnapshot;
+import org.diorite.serialization.jfr.ClassMetadataEvent;
+import org.diorite.serialization.jfr.SerializationEvent;
+import org.diorite.serialization.plan.PlanDirection;
+import org.diorite.serialization.plan.PropertyPlan;
+import org.diorite.serialization.plan.PropertyPlanCompiler;
+import org.diorite.serialization.plan.SchemaFingerprints;
+import org.diorite.serialization.projection.PathProjection;
+import org.diorite.serialization.setting.PropertySettings;
+import org.diorite.serialization.setting.SettingsManager;
+
+import javax.annotation.Nullable;
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Compact binary serializer driven by compiled property plans. <br>
+ * Each class schema ({@link SchemaFingerprints fingerprint} of class and ordered property names) is written only once per output,
+ * objects then encode their properties as pairs of varint key and value, where key contains index of property in schema and wire type
+ * of value. Readers map remote indices to own properties by serialization names and
+ * {@link org.diorite.serialization.setting.settings.SerializedNameSetting} alternates, so writer and reader can use different versions
+ * of the same class. <br>
+ * If reference tracking is enabled each object is prefixed by varint, 0 for first occurrence of object and id + 1 for objects already
+ * written to the same output, so shared objects are written only once and cyclic graphs can be serialized. <br>
+ * Custom codecs registered in {@link #getCodecs()} are used before any built-in handling of values. <br>
+ * Codec is thread safe, single instance should be shared for given target version.
+ */
+public class BinaryCodec
+{
+    /**
+     * Zigzag encoded varint: integers, booleans and characters.
+     */
+    public static final int WIRE_VARINT  = 0;
+    /**
+     * 8 bytes: doubles.
+     */
+    public static final int WIRE_FIXED64 = 1;
+    /**
+     * 4 bytes: floats.
+     */
+    public static final int WIRE_FIXED32 = 2;
+    /**
+     * Length-prefixed bytes: strings, enums, big numbers and byte arrays.
+     */
+    public static final int WIRE_BYTES   = 3;
+    /**
+     * Schema reference followed by properties and 0 terminator.
+     */
+    public static final int WIRE_OBJECT  = 4;
+    /**
+     * Varint header followed by elements, header contains size shifted by one bit and lowest bit set if array is packed. Elements of
+     * packed array are written as single packed kind byte followed by raw values, other arrays contain tagged elements.
+     */
+    public static final int WIRE_ARRAY   = 5;
+    /**
+     * Varint size followed by tagged keys and values.
+     */
+    public static final int WIRE_MAP     = 6;
+    /**
+     * Null element of array or map.
+     */
+    public static final int WIRE_NULL    = 7;
+    /**
+     * Marker of end of batch written by {@link #serializeAll(Class, Iterable, BinaryOutput)}.
+     */
+    public static final int BATCH_END    = 8;
+
+    private static final String FORMAT            = "binary";
+    private static final int    MAX_KNOWN_SCHEMAS = 4096;
+
+    private static final int PACKED_SHORT      = 0;
+    private static final int PACKED_CHAR       = 1;
+    private static final int PACKED_INT        = 2;
+    private static final int PACKED_LONG       = 3;
+    private static final int PACKED_FLOAT      = 4;
+    private static final int PACKED_DOUBLE     = 5;
+    private static final int PACKED_BIG_ENDIAN = 0x80;
+
+    private static final Map<Class<?>, Class<?>> WRAPPERS = Map.of(boolean.class, Boolean.class, byte.class, Byte.class,
+                                                                    short.class, Short.class, char.class, Character.class,
+                                                                    int.class, Integer.class, long.class, Long.class,
+                                                                    float.class, Float.class, double.class, Double.class);
+
+    private final PropertyPlanCompiler planCompiler;
+    @Nullable
+    private final String               version;
+    private final InstanceFactory      instanceFactory;
+    private final BufferPool           bufferPool;
+    private final boolean              trackReferences;
+    private final ByteOrder            byteOrder;
+    private final SchemaFingerprints   fingerprints;
+
+    private final CodecRegistry<BinaryValueCodec<?>> codecs = new CodecRegistry<>();
+
+    // schemas of local classes, their fingerprints are trusted.
+    private final Map<Long, BinarySchema>         localSchemas = new ConcurrentHashMap<>(16);
+    private final Map<Long, BinarySchema>         knownSchemas = new ConcurrentHashMap<>(16);
+    private final ClassValue<BinaryClassCodec<?>> classCodecs  = new ClassValue<>()
+    {
+        @Override
+        protected BinaryClassCodec<?> computeValue(Class<?> type)
+        {
+            return BinaryCodec.this.createClassCodec(type);
+        }
+    };
+    private final ClassValue<Map<String, Object>> enumConstants = new ClassValue<>()
+    {
+        @Override
+        protected Map<String, Object> computeValue(Class<?> type)
+        {
+            Object[] constants = type.getEnumConstants();
+            Map<String, Object> map = new HashMap<>(constants.length * 2);
+            for (Object constant : constants)
+            {
+                map.put(((Enum<?>) constant).name(), constant);
+            }
+            return map;
+        }
+    };
+
+    public BinaryCodec(PropertyPlanCompiler planCompiler, @Nullable String version, InstanceFactory instanceFactory, BufferPool bufferPool,
+                       boolean trackReferences, ByteOrder byteOrder, SchemaFingerprints fingerprints)
+    {
+        this.planCompiler = planCompiler;
+        this.version = version;
+        this.instanceFactory = instanceFactory;
+        this.bufferPool = bufferPool;
+        this.trackReferences = trackReferences;
+        this.byteOrder = byteOrder;
+        this.fingerprints = fingerprints;
+    }
+
+    public BinaryCodec(PropertyPlanCompiler planCompiler, @Nullable String version, InstanceFactory instanceFactory, BufferPool bufferPool,
+                       boolean trackReferences, ByteOrder byteOrder)
+    {
+        this(planCompiler, version, instanceFactory, bufferPool, trackReferences, byteOrder,
+             new SchemaFingerprints(SettingsManager.INSTANCE, planCompiler.getPropertyProvider()));
+    }
+
+    public BinaryCodec(PropertyPlanCompiler planCompiler, @Nullable String version, InstanceFactory instanceFactory, BufferPool bufferPool,
+                       boolean trackReferences)
+    {
+        this(planCompiler, version, instanceFactory, bufferPool, trackReferences, ByteOrder.LITTLE_ENDIAN);
+    }
+
+    public BinaryCodec(PropertyPlanCompiler planCompiler, @Nullable String version, InstanceFactory instanceFactory, BufferPool bufferPool)
+    {
+        this(planCompiler, version, instanceFactory, bufferPool, false);
+    }
+
+    public BinaryCodec(PropertyPlanCompiler planCompiler, @Nullable String version, InstanceFactory instanceFactory)
+    {
+        this(planCompiler, version, instanceFactory, BufferPool.DEFAULT);
+    }
+
+    public BinaryCodec(PropertyPlanCompiler planCompiler, @Nullable String version)
+    {
+        this(planCompiler, version, InstanceFactory.DEFAULT);
+    }
+
+    public BinaryCodec(PropertyPlanCompiler planCompiler)
+    {
+        this(planCompiler, null);
+    }
+
+    /**
+     * @return plan compiler used by this codec.
+     */
+    public PropertyPlanCompiler getPlanCompiler()
+    {
+        return this.planCompiler;
+    }
+
+    /**
+     * @return target version of this codec, or null if properties aren't filtered by version.
+     */
+    @Nullable
+    public String getVersion()
+    {
+        return this.version;
+    }
+
+    /**
+     * @return pool of scratch buffers used by this codec.
+     */
+    public BufferPool getBufferPool()
+    {
+        return this.bufferPool;
+    }
+
+    /**
+     * @return true if shared and cyclic references are tracked by this codec.
+     */
+    public boolean isTrackingReferences()
+    {
+        return this.trackReferences;
+    }
+
+    /**
+     * @return fingerprints of classes written in schemas.
+     */
+    public SchemaFingerprints getFingerprints()
+    {
+        return this.fingerprints;
+    }
+
+    /**
+     * @return byte order used to write packed primitive arrays, readers accept both orders.
+     */
+    public ByteOrder getByteOrder()
+    {
+        return this.byteOrder;
+    }
+
+    /**
+     * Returns registry of custom codecs used by this codec, codecs are looked up by runtime class of written values and by serializer
+     * type of read values.
+     *
+     * @return registry of custom codecs.
+     */
+    public CodecRegistry<BinaryValueCodec<?>> getCodecs()
+    {
+        return this.codecs;
+    }
+
+    private <T> BinaryClassCodec<T> createClassCodec(Class<T> type)
+    {
+        ClassMetadataEvent event = new ClassMetadataEvent();
+        event.begin();
+        BinaryClassCodec<T> codec = new BinaryClassCodec<>(this.planCompiler.getPlan(type, PlanDirection.SERIALIZE, this.version),
+                                                           this.planCompiler.getPlan(type, PlanDirection.DESERIALIZE, this.version),
+                                                           this.codecs, this.schemaFingerprint(type));
+        this.localSchemas.putIfAbsent(codec.schema.getFingerprint(), codec.schema);
+        event.complete(type, FORMAT);
+        return codec;
+    }
+
+    /**
+     * Returns fingerprint of schema of given class, target version is included as it selects written properties.
+     */
+    private long schemaFingerprint(Class<?> type)
+    {
+        long fingerprint = this.fingerprints.get(type);
+        return (this.version == null) ? fingerprint : (fingerprint ^ (this.version.hashCode() * 0x9E3779B97F4A7C15L));
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> BinaryClassCodec<T> getClassCodec(Class<T> type)
+    {
+        return (BinaryClassCodec<T>) this.classCodecs.get(type);
+    }
+
+    /**
+     * Returns schema written by this codec for given class.
+     *
+     * @param type
+     *     type of object.
+     *
+     * @return schema of given class.
+     */
+    public BinarySchema getSchema(Class<?> type)
+    {
+        return this.getClassCodec(type).schema;
+    }
+
+    /**
+     * Serializes given value to binary format.
+     *
+     * @param value
+     *     value to serialize.
+     *
+     * @return serialized bytes.
+     */
+    public byte[] serialize(@Nullable Object value)
+    {
+        BinaryOutput output = new BinaryOutput(this.bufferPool, 1024);
+        try
+        {
+            this.serialize(value, output);
+            return output.toByteArray();
+        }
+        finally
+        {
+            output.release();
+        }
+    }
+
+    /**
+     * Serializes given value to given output, schemas already written to this output are not repeated.
+     *
+     * @param value
+     *     value to serialize.
+     * @param output
+     *     target output.
+     */
+    public void serialize(@Nullable Object value, BinaryOutput output)
+    {
+        SerializationEvent event = new SerializationEvent();
+        event.begin();
+        long start = output.getWritten();
+        this.writeValue(output, value);
+        event.complete(FORMAT, SerializationEvent.SERIALIZE, (value == null) ? null : value.getClass(), output.getWritten() - start);
+    }
+
+    /**
+     * Deserializes value of given type from binary format.
+     *
+     * @param type
+     *     type of value.
+     * @param data
+     *     serialized bytes.
+     * @param <T>
+     *     type of value.
+     *
+     * @return deserialized value.
+     */
+    @Nullable
+    public <T> T deserialize(Class<T> type, byte[] data)
+    {
+        return this.deserialize(type, new BinaryInput(data));
+    }
+
+    /**
+     * Deserializes value of given type from remaining bytes of given buffer, heap buffers are read without copying.
+     *
+     * @param type
+     *     type of value.
+     * @param buffer
+     *     serialized bytes.
+     * @param <T>
+     *     type of value.
+     *
+     * @return deserialized value.
+     */
+    @Nullable
+    public <T> T deserialize(Class<T> type, ByteBuffer buffer)
+    {
+        return this.deserialize(type, BinaryInput.of(buffer));
+    }
+
+    /**
+     * Deserializes next value of given type from given input.
+     *
+     * @param type
+     *     type of value.
+     * @param input
+     *     source input.
+     * @param <T>
+     *     type of value.
+     *
+     * @return deserialized value.
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public <T> T deserialize(Class<T> type, BinaryInput input)
+    {
+        SerializationEvent event = new SerializationEvent();
+        event.begin();
+        int start = input.getPosition();
+        T value = (T) this.readValue(input, input.readByte(), type, null);
+        event.complete(FORMAT, SerializationEvent.DESERIALIZE, type, input.getPosition() - start);
+        return value;
+    }
+
+    /**
+     * Deserializes value of given type from given data, reading only values selected by given projection. <br>
+     * All other values are skipped without decoding, their properties are left with values set by instance factory.
+     *
+     * @param type
+     *     type of value.
+     * @param data
+     *     serialized data.
+     * @param projection
+     *     projection of paths to read.
+     * @param <T>
+     *     type of value.
+     *
+     * @return deserialized value.
+     */
+    @Nullable
+    public <T> T deserialize(Class<T> type, byte[] data, PathProjection projection)
+    {
+        return this.deserialize(type, new BinaryInput(data), projection);
+    }
+
+    /**
+     * Deserializes value of given type from given input, reading only values selected by given projection. <br>
+     * All other values are skipped without decoding, their properties are left with values set by instance factory.
+     *
+     * @param type
+     *     type of value.
+     * @param input
+     *     source input.
+     * @param projection
+     *     projection of paths to read.
+     * @param <T>
+     *     type of value.
+     *
+     * @return deserialized value.
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public <T> T deserialize(Class<T> type, BinaryInput input, PathProjection projection)
+    {
+        SerializationEvent event = new SerializationEvent();
+        event.begin();
+        int start = input.getPosition();
+        T value = (T) this.readValue(input, input.readByte(), type, null, null, projection);
+        event.complete(FORMAT, SerializationEvent.DESERIALIZE, type, input.getPosition() - start);
+        return value;
+    }
+
+    /**
+     * Serializes all given objects followed by {@link #BATCH_END} marker, property plan of given type is resolved only once for whole
+     * batch and schema of type is written only once to given output. <br>
+     * Objects of other types than given one (like subtypes) are still written, but using their own plans.
+     *
+     * @param type
+     *     type of objects.
+     * @param objects
+     *     objects to serialize.
+     * @param out
+     *     target output.
+     * @param <T>
+     *     type of objects.
+     */
+    public <T> void serializeAll(Class<T> type, Iterable<? extends T> objects, BinaryOutput out)
+    {
+        BinaryClassCodec<T> codec = this.getClassCodec(type);
+        for (T object : objects)
+        {
+            if ((object != null) && (object.getClass() == type))
+            {
+                out.writeByte(WIRE_OBJECT);
+                this.writeObject(out, object, codec);
+            }
+            else
+            {
+                this.writeValue(out, object);
+            }
+        }
+        out.writeByte(BATCH_END);
+    }
+
+    /**
+     * Deserializes batch written by {@link #serializeAll(Class, Iterable, BinaryOutput)} and passes each object to given consumer.
+     *
+     * @param type
+     *     type of objects.
+     * @param in
+     *     source input.
+     * @param consumer
+     *     consumer of deserialized objects, null elements are passed as null.
+     * @param <T>
+     *     type of objects.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> void deserializeAll(Class<T> type, BinaryInput in, Consumer<? super T> consumer)
+    {
+        BinaryClassCodec<T> codec = this.getClassCodec(type);
+        for (int wireType = in.readByte(); wireType != BATCH_END; wireType = in.readByte())
+        {
+            if (wireType == WIRE_OBJECT)
+            {
+                consumer.accept(this.readObject(in, codec));
+            }
+            else
+            {
+                consumer.accept((T) this.readValue(in, wireType, type, null));
+            }
+        }
+    }
+
+    /**
+     * Deserializes batch written by {@link #serializeAll(Class, Iterable, BinaryOutput)}.
+     *
+     * @param type
+     *     type of objects.
+     * @param in
+     *     source input.
+     * @param <T>
+     *     type of objects.
+     *
+     * @return list of deserialized objects.
+     */
+    public <T> List<T> deserializeAll(Class<T> type, BinaryInput in)
+    {
+        List<T> result = new ArrayList<>();
+        this.deserializeAll(type, in, result::add);
+        return result;
+    }
+
+    /**
+     * Returns wire type used to encode given value.
+     *
+     * @param value
+     *     value to encode.
+     *
+     * @return wire type of value.
+     */
+    public static int wireType(@Nullable Object value)
+    {
+        if (value == null)
+        {
+            return WIRE_NULL;
+        }
+        if ((value instanceof Integer) || (value instanceof Long) || (value instanceof Short) || (value instanceof Byte) ||
+            (value instanceof Boolean) || (value instanceof Character))
+        {
+            return WIRE_VARINT;
+        }
+        if (value instanceof Double)
+        {
+            return WIRE_FIXED64;
+        }
+        if (value instanceof Float)
+        {
+            return WIRE_FIXED32;
+        }
+        if ((value instanceof CharSequence) || (value instanceof Enum) || (value instanceof BigDecimal) || (value instanceof BigInteger) ||
+            (value instanceof byte[]))
+        {
+            return WIRE_BYTES;
+        }
+        if ((value instanceof Collection) || value.getClass().isArray())
+        {
+            return WIRE_ARRAY;
+        }
+        if (value instanceof Map)
+        {
+            return WIRE_MAP;
+        }
+        return WIRE_OBJECT;
+    }
+
+    /**
+     * Writes wire type of given value followed by its payload.
+     *
+     * @param out
+     *     target output.
+     * @param value
+     *     value to write.
+     */
+    public void writeValue(BinaryOutput out, @Nullable Object value)
+    {
+        this.writeValue(out, 0, value, null);
+    }
+
+    /**
+     * Writes varint of given key combined with wire type of value, followed by payload of value.
+     */
+    @SuppressWarnings("unchecked")
+    private void writeValue(BinaryOutput out, int key, @Nullable Object value, @Nullable CodecSite<BinaryValueCodec<?>> site)
+    {
+        if (value == null)
+        {
+            out.writeVarInt(key | WIRE_NULL);
+            return;
+        }
+        Class<?> type = value.getClass();
+        BinaryValueCodec<Object> custom = (BinaryValueCodec<Object>) ((site == null) ? this.codecs.get(type) : site.get(type));
+        if (custom != null)
+        {
+            out.writeVarInt(key | custom.getWireType());
+            custom.write(this, out, value);
+            return;
+        }
+        int wireType = wireType(value);
+        out.writeVarInt(key | wireType);
+        this.writePayload(out, value, wireType);
+    }
+
+    private void writePayload(BinaryOutput out, Object value, int wireType)
+    {
+        switch (wireType)
+        {
+            case WIRE_VARINT:
+                if (value instanceof Boolean)
+                {
+                    out.writeZigZagLong(((Boolean) value) ? 1 : 0);
+                }
+                else if (value instanceof Character)
+                {
+                    out.writeZigZagLong((Character) value);
+                }
+                else
+                {
+                    out.writeZigZagLong(((Number) value).longValue());
+                }
+                break;
+            case WIRE_FIXED64:
+                out.writeDouble((Double) value);
+                break;
+            case WIRE_FIXED32:
+                out.writeFloat((Float) value);
+                break;
+            case WIRE_BYTES:
+                if (value instanceof byte[])
+                {
+                    out.writeByteArray((byte[]) value);
+                }
+                else if (value instanceof Enum)
+                {
+                    out.writeString(((Enum<?>) value).name());
+                }
+                else if (value instanceof CharSequence)
+                {
+                    out.writeString((CharSequence) value);
+                }
+                else
+                {
+                    out.writeString(value.toString());
+                }
+                break;
+            case WIRE_ARRAY:
+                this.writeArray(out, value);
+                break;
+            case WIRE_MAP:
+                Map<?, ?> map = (Map<?, ?>) value;
+                out.writeVarInt(map.size());
+                if (map instanceof ObjectLongHashMap)
+                {
+                    ObjectLongHashMap<?> longMap = (ObjectLongHashMap<?>) map;
+                    for (int slot = longMap.nextSlot(0); slot >= 0; slot = longMap.nextSlot(slot + 1))
+                    {
+                        this.writeValue(out, longMap.keyAt(slot));
+                        out.writeByte(WIRE_VARINT);
+                        out.writeZigZagLong(longMap.valueAt(slot));
+                    }
+                    break;
+                }
+                for (Map.Entry<?, ?> entry : map.entrySet())
+                {
+                    this.writeValue(out, entry.getKey());
+                    this.writeValue(out, entry.getValue());
+                }
+                break;
+            case WIRE_OBJECT:
+                this.writeObject(out, value);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown wire type: " + wireType);
+        }
+    }
+
+    private void writeArray(BinaryOutput out, Object value)
+    {
+        if (this.writePackedArray(out, value))
+        {
+            return;
+        }
+        if (value instanceof Collection)
+        {
+            Collection<?> collection = (Collection<?>) value;
+            out.writeVarInt(collection.size() << 1);
+            for (Object element : collection)
+            {
+                this.writeValue(out, element);
+            }
+        }
+        else if (value instanceof Object[])
+        {
+            Object[] array = (Object[]) value;
+            out.writeVarInt(array.length << 1);
+            for (Object element : array)
+            {
+                this.writeValue(out, element);
+            }
+        }
+        else
+        {
+            int length = Array.getLength(value);
+            out.writeVarInt(length << 1);
+            for (int i = 0; i < length; i++)
+            {
+                this.writeValue(out, Array.get(value, i));
+            }
+        }
+    }
+
+    private boolean writePackedArray(BinaryOutput out, Object value)
+    {
+        int order = (this.byteOrder == ByteOrder.BIG_ENDIAN) ? PACKED_BIG_ENDIAN : 0;
+        if (value instanceof IntArrayList)
+        {
+            IntArrayList list = (IntArrayList) value;
+            writePackedHeader(out, list.size(), PACKED_INT | order);
+            out.writeInts(list.elements(), list.size(), this.byteOrder);
+        }
+        else if (value instanceof LongArrayList)
+        {
+            LongArrayList list = (LongArrayList) value;
+            writePackedHeader(out, list.size(), PACKED_LONG | order);
+            out.writeLongs(list.elements(), list.size(), this.byteOrder);
+        }
+        else if (value instanceof DoubleArrayList)
+        {
+            DoubleArrayList list = (DoubleArrayList) value;
+            writePackedHeader(out, list.size(), PACKED_DOUBLE | order);
+            out.writeDoubles(list.elements(), list.size(), this.byteOrder);
+        }
+        else if (value instanceof int[])
+        {
+            int[] array = (int[]) value;
+            writePackedHeader(out, array.length, PACKED_INT | order);
+            out.writeInts(array, this.byteOrder);
+        }
+        else if (value instanceof long[])
+        {
+            long[] array = (long[]) value;
+            writePackedHeader(out, array.length, PACKED_LONG | order);
+            out.writeLongs(array, this.byteOrder);
+        }
+        else if (value instanceof double[])
+        {
+            double[] array = (double[]) value;
+            writePackedHeader(out, array.length, PACKED_DOUBLE | order);
+            out.writeDoubles(array, this.byteOrder);
+        }
+        else if (value instanceof float[])
+        {
+            float[] array = (float[]) value;
+            writePackedHeader(out, array.length, PACKED_FLOAT | order);
+            out.writeFloats(array, this.byteOrder);
+        }
+        else if (value instanceof short[])
+        {
+            short[] array = (short[]) value;
+            writePackedHeader(out, array.length, PACKED_SHORT | order);
+            out.writeShorts(array, this.byteOrder);
+        }
+        else if (value instanceof char[])
+        {
+            char[] array = (char[]) value;
+            writePackedHeader(out, array.length, PACKED_CHAR | order);
+            out.writeChars(array, this.byteOrder);
+        }
+        else
+        {
+            return false;
+        }
+        return true;
+    }
+
+    private static void writePackedHeader(BinaryOutput out, int length, int kind)
+    {
+        out.writeVarInt((length << 1) | 1);
+        out.writeByte(kind);
+    }
+
+    /**
+     * Writes given object using property plan of its class, schema of class is written before object if this is first object of this
+     * class in given output.
+     *
+     * @param out
+     *     target output.
+     * @param object
+     *     object to write.
+     * @param <T>
+     *     type of object.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> void writeObject(BinaryOutput out, T object)
+    {
+        this.writeObject(out, object, this.getClassCodec((Class<T>) object.getClass()));
+    }
+
+    <T> void writeObject(BinaryOutput out, T object, BinaryClassCodec<T> codec)
+    {
+        if (this.trackReferences)
+        {
+            IdentityIntMap references = out.getReferences();
+            int id = references.putIfAbsent(object, references.size());
+            if (id != IdentityIntMap.NO_VALUE)
+            {
+                out.writeVarInt(id + 1);
+                return;
+            }
+            out.writeVarInt(0);
+        }
+        this.writeSchemaReference(out, codec.writePlan.getType(), codec.schema);
+        PropertyPlan<T> plan = codec.writePlan;
+        for (int i = 0, size = plan.size(); i < size; i++)
+        {
+            Object value = plan.getProperty(i).getValue(object);
+            if (value != null)
+            {
+                this.writeValue(out, (i + 1) << 3, value, codec.writeSites[i]);
+            }
+        }
+        out.writeVarInt(0);
+    }
+
+    /**
+     * Captures current values of serialized properties of given object, used to write deltas of that object.
+     *
+     * @param object
+     *     object to capture.
+     * @param <T>
+     *     type of object.
+     *
+     * @return snapshot of object.
+     *
+     * @see #writeDelta(BinaryOutput, Object, PropertySnapshot)
+     */
+    @SuppressWarnings("unchecked")
+    public <T> PropertySnapshot<T> snapshot(T object)
+    {
+        return PropertySnapshot.capture(this.getClassCodec((Class<T>) object.getClass()).writePlan, object);
+    }
+
+    /**
+     * Writes object with only these properties of given object that were changed since given snapshot was updated, properties
+     * changed to null are written using {@link #WIRE_NULL} wire type. <br>
+     * Snapshot is updated with written values, so next delta will only contain later changes.
+     *
+     * @param out
+     *     target output.
+     * @param object
+     *     object to write.
+     * @param snapshot
+     *     snapshot of previously written values.
+     * @param <T>
+     *     type of object.
+     *
+     * @see #applyDelta(BinaryInput, Object)
+     */
+    @SuppressWarnings("unchecked")
+    public <T> void writeDelta(BinaryOutput out, T object, PropertySnapshot<T> snapshot)
+    {
+        BinaryClassCodec<T> codec = this.getClassCodec((Class<T>) object.getClass());
+        PropertyPlan<T> plan = codec.writePlan;
+        if (snapshot.getPlan() != plan)
+        {
+            throw new IllegalArgumentException("Snapshot was not captured by this codec: " + snapshot.getPlan());
+        }
+        this.writeSchemaReference(out, plan.getType(), codec.schema);
+        for (int i = 0, size = plan.size(); i < size; i++)
+        {
+            Object value = plan.getProperty(i).getValue(object);
+            if (snapshot.update(i, value))
+            {
+                this.writeDeltaProperty(out, i, value);
+            }
+        }
+        out.writeVarInt(0);
+    }
+
+    /**
+     * Writes object with only these properties of given object that are marked as changed by that object, and clears its set of
+     * changed properties. Properties changed to null are written using {@link #WIRE_NULL} wire type.
+     *
+     * @param out
+     *     target output.
+     * @param object
+     *     object to write.
+     * @param <T>
+     *     type of object.
+     *
+     * @see #applyDelta(BinaryInput, Object)
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends DirtyTracked> void writeDirty(BinaryOutput out, T object)
+    {
+        BinaryClassCodec<T> codec = this.getClassCodec((Class<T>) object.getClass());
+        PropertyPlan<T> plan = codec.writePlan;
+        BitSet dirty = object.getDirtyProperties();
+        this.writeSchemaReference(out, plan.getType(), codec.schema);
+        for (int source = dirty.nextSetBit(0); source >= 0; source = dirty.nextSetBit(source + 1))
+        {
+            int i = plan.indexOfSource(source);
+            if (i >= 0)
+            {
+                this.writeDeltaProperty(out, i, plan.getProperty(i).getValue(object));
+            }
+        }
+        out.writeVarInt(0);
+        dirty.clear();
+    }
+
+    private void writeDeltaProperty(BinaryOutput out, int index, @Nullable Object value)
+    {
+        this.writeValue(out, (index + 1) << 3, value, null);
+    }
+
+    private void writeSchemaReference(BinaryOutput out, Class<?> type, BinarySchema schema)
+    {
+        Map<Class<?>, Integer> schemaIds = out.getSchemaIds();
+        Integer id = schemaIds.get(type);
+        if (id != null)
+        {
+            out.writeVarInt(id << 1);
+            return;
+        }
+        id = schemaIds.size();
+        schemaIds.put(type, id);
+        out.writeVarInt((id << 1) | 1);
+        out.writeFixedLong(schema.getFingerprint());
+        out.writeVarInt(schema.size());
+        for (int i = 0, size = schema.size(); i < size; i++)
+        {
+            out.writeString(schema.getName(i));
+        }
+    }
+
+    private BinarySchema readSchemaReference(BinaryInput in)
+    {
+        int reference = in.readVarInt();
+        int id = reference >>> 1;
+        List<BinarySchema> schemas = in.getSchemas();
+        if ((reference & 1) == 0)
+        {
+            if (id >= schemas.size())
+            {
+                throw new SerializationException("Unknown schema reference: " + id + ", position: " + in.getPosition());
+            }
+            return schemas.get(id);
+        }
+        if (id != schemas.size())
+        {
+            throw new SerializationException("Unexpected schema id: " + id + ", position: " + in.getPosition());
+        }
+        long fingerprint = in.readFixedLong();
+        int size = this.readSize(in);
+        BinarySchema local = this.localSchemas.get(fingerprint);
+        BinarySchema schema = (local != null) ? local : this.knownSchemas.get(fingerprint);
+        if ((schema == null) || (schema.size() != size) || ! matchNames(in, schema))
+        {
+            String[] names = new String[size];
+            for (int i = 0; i < size; i++)
+            {
+                names[i] = in.readString();
+            }
+            // fingerprint is sent by peer, schema with fingerprint of local class must have the same names.
+            if (local != null)
+            {
+                throw new SerializationException("Schema fingerprint does not match its names: " + Arrays.toString(names) + ", position: " +
+                                                 in.getPosition());
+            }
+            boolean collision = schema != null;
+            schema = new BinarySchema(fingerprint, names);
+            if (! collision && (this.knownSchemas.size() < MAX_KNOWN_SCHEMAS))
+            {
+                this.knownSchemas.putIfAbsent(fingerprint, schema);
+            }
+        }
+        schemas.add(schema);
+        return schema;
+    }
+
+    /**
+     * Compares names of known schema with names in stream without decoding them, stream is moved after names if they are equal
+     * and left unchanged otherwise.
+     */
+    private static boolean matchNames(BinaryInput in, BinarySchema schema)
+    {
+        int start = in.getPosition();
+        for (int i = 0, size = schema.size(); i < size; i++)
+        {
+            if (! in.readStringEquals(schema.getEncodedName(i)))
+            {
+                in.rewind(start);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads payload of given wire type as value of given type.
+     *
+     * @param in
+     *     source input.
+     * @param wireType
+     *     wire type of value.
+     * @param type
+     *     raw type of value.
+     * @param settings
+     *     settings of value, used to find types of collection elements, or null if unknown.
+     *
+     * @return read value.
+     */
+    @Nullable
+    public Object readValue(BinaryInput in, int wireType, Class<?> type, @Nullable PropertySettings settings)
+    {
+        return this.readValue(in, wireType, type, settings, null, null);
+    }
+
+    /**
+     * Reads payload of given wire type as value of given type, if projection state is given only parts of value selected by it are
+     * decoded.
+     */
+    @Nullable
+    private Object readValue(BinaryInput in, int wireType, Class<?> type, @Nullable PropertySettings settings,
+                             @Nullable CodecSite<BinaryValueCodec<?>> site, @Nullable PathProjection projection)
+    {
+        if ((projection != null) && projection.isComplete())
+        {
+            projection = null;
+        }
+        if ((wireType != WIRE_NULL) && ! this.codecs.isEmpty())
+        {
+            Class<?> serializerType = ValueTypes.serializerType(type, settings);
+            BinaryValueCodec<?> custom = (site == null) ? this.codecs.get(serializerType) : site.get(serializerType);
+            if (custom != null)
+            {
+                return custom.read(this, in, wireType, type, settings);
+            }
+        }
+        switch (wireType)
+        {
+            case WIRE_NULL:
+                return null;
+            case WIRE_VARINT:
+                return convertVarint(in.readZigZagLong(), type);
+            case WIRE_FIXED64:
+                double doubleValue = in.readDouble();
+                return ((type == float.class) || (type == Float.class)) ? (Object) (float) doubleValue : doubleValue;
+            case WIRE_FIXED32:
+                float floatValue = in.readFloat();
+                return ((type == double.class) || (type == Double.class)) ? (Object) (double) floatValue : floatValue;
+            case WIRE_BYTES:
+                return this.readBytes(in, type);
+            case WIRE_ARRAY:
+                return this.readArray(in, type, settings, (projection == null) ? null : projection.getElements());
+            case WIRE_MAP:
+                return this.readMap(in, type, settings, projection);
+            case WIRE_OBJECT:
+                if ((type == Object.class) || Map.class.isAssignableFrom(type))
+                {
+                    return this.readObjectAsMap(in, projection);
+                }
+                BinaryClassCodec<?> codec = this.getClassCodec(type);
+                return this.readObject(in, codec, (projection == null) ? null : projection.compile(codec.readPlan, null));
+            default:
+                throw new SerializationException("Unknown wire type: " + wireType + ", position: " + in.getPosition());
+        }
+    }
+
+    /**
+     * Checks if value read from data can be stored as given type, values of unexpected wire type are read as default type of that wire
+     * type, so corrupted or incompatible data is rejected here instead of failing when value is stored.
+     */
+    @Nullable
+    private static Object checkType(BinaryInput in, @Nullable Object value, Class<?> type)
+    {
+        if ((value != null) && ! type.isInstance(value) && ! (type.isPrimitive() && (WRAPPERS.get(type) == value.getClass())))
+        {
+            throw new SerializationException("Can't read " + value.getClass().getName() + " as " + type.getName() + ", position: " +
+                                             in.getPosition());
+        }
+        return value;
+    }
+
+    private static Object convertVarint(long value, Class<?> type)
+    {
+        if ((type == int.class) || (type == Integer.class))
+        {
+            return (int) checkRange(value, Integer.MIN_VALUE, Integer.MAX_VALUE, type);
+        }
+        if ((type == long.class) || (type == Long.class) || (type == Object.class) || (type == Number.class))
+        {
+            return value;
+        }
+        if ((type == boolean.class) || (type == Boolean.class))
+        {
+            return value != 0;
+        }
+        if ((type == short.class) || (type == Short.class))
+        {
+            return (short) checkRange(value, Short.MIN_VALUE, Short.MAX_VALUE, type);
+        }
+        if ((type == byte.class) || (type == Byte.class))
+        {
+            return (byte) checkRange(value, Byte.MIN_VALUE, Byte.MAX_VALUE, type);
+        }
+        if ((type == char.class) || (type == Character.class))
+        {
+            return (char) checkRange(value, Character.MIN_VALUE, Character.MAX_VALUE, type);
+        }
+        if ((type == double.class) || (type == Double.class))
+        {
+            return (double) value;
+        }
+        if ((type == float.class) || (type == Float.class))
+        {
+            return (float) value;
+        }
+        throw new SerializationException("Can't read integer value as " + type.getName());
+    }
+
+    private static long checkRange(long value, long min, long max, Class<?> type)
+    {
+        if ((value < min) || (value > max))
+        {
+            throw new SerializationException("Number " + value + " does not fit in " + type.getName());
+        }
+        return value;
+    }
+
+    private Object readBytes(BinaryInput in, Class<?> type)
+    {
+        if (type == byte[].class)
+        {
+            return in.readByteArray();
+        }
+        if (type.isEnum())
+        {
+            String name = in.readString();
+            Object constant = this.enumConstants.get(type).get(name);
+            if (constant == null)
+            {
+                throw new SerializationException("Unknown constant of " + type.getName() + ": " + name);
+            }
+            return constant;
+        }
+        String string = in.readString();
+        if ((type == char.class) || (type == Character.class))
+        {
+            if (string.length() != 1)
+            {
+                throw new SerializationException("Expected single character, but found: " + string);
+            }
+            return string.charAt(0);
+        }
+        if (type == BigDecimal.class)
+        {
+            return new BigDecimal(string);
+        }
+        if (type == BigInteger.class)
+        {
+            return new BigInteger(string);
+        }
+        return string;
+    }
+
+    private Object readArray(BinaryInput in, Class<?> type, @Nullable PropertySettings settings, @Nullable PathProjection elements)
+    {
+        if (! type.isArray() && (type != Object.class) && ! Collection.class.isAssignableFrom(type))
+        {
+            throw new SerializationException("Can't read array as " + type.getName() + ", position: " + in.getPosition());
+        }
+        int header = in.readVarInt();
+        if ((header & 1) != 0)
+        {
+            Object packed = readPackedArray(in, header >>> 1);
+            if (type == packed.getClass())
+            {
+                return packed;
+            }
+            if (PrimitiveCollections.canWrap(type, ValueTypes.parameter(settings, 0), packed))
+            {
+                return PrimitiveCollections.wrap(packed);
+            }
+            return this.convertPackedArray(packed, type, settings);
+        }
+        int size = checkSize(in, header >>> 1);
+        PropertySettings elementSettings = ValueTypes.parameter(settings, 0);
+        if (type.isArray())
+        {
+            Class<?> componentType = type.getComponentType();
+            Object array = Array.newInstance(componentType, size);
+            for (int i = 0; i < size; i++)
+            {
+                Object element = this.readValue(in, in.readByte(), componentType, elementSettings, null, elements);
+                if ((element != null) || ! componentType.isPrimitive())
+                {
+                    Array.set(array, i, checkType(in, element, componentType));
+                }
+            }
+            return array;
+        }
+        Collection<Object> collection = this.createCollection(type, elementSettings, size);
+        Class<?> elementType = ValueTypes.rawType(elementSettings);
+        if (PrimitiveCollections.isPrimitiveBacked(collection))
+        {
+            // declared specialized list might have no element settings.
+            elementType = PrimitiveCollections.elementType(collection);
+        }
+        for (int i = 0; i < size; i++)
+        {
+            Object element = this.readValue(in, in.readByte(), elementType, elementSettings, null, elements);
+            if ((element == null) && PrimitiveCollections.isPrimitiveBacked(collection))
+            {
+                // primitive-backed list can't store nulls, so rest of elements is read to boxed collection.
+                collection = PrimitiveCollections.toBoxed(collection, type, this.instanceFactory);
+            }
+            collection.add(element);
+        }
+        return collection;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Collection<Object> createCollection(Class<?> type, @Nullable PropertySettings elementSettings, int size)
+    {
+        if (type == Object.class)
+        {
+            return new ArrayList<>(size);
+        }
+        Object specialized = PrimitiveCollections.createList(type, elementSettings);
+        return (specialized != null) ? (Collection<Object>) specialized : ValueTypes.createCollection(type, this.instanceFactory);
+    }
+
+    private Map<?, ?> readMap(BinaryInput in, Class<?> type, @Nullable PropertySettings settings, @Nullable PathProjection projection)
+    {
+        if ((type != Object.class) && ! Map.class.isAssignableFrom(type))
+        {
+            throw new SerializationException("Can't read map as " + type.getName() + ", position: " + in.getPosition());
+        }
+        int size = this.readSize(in);
+        PropertySettings keySettings = ValueTypes.parameter(settings, 0);
+        PropertySettings valueSettings = ValueTypes.parameter(settings, 1);
+        Class<?> keyType = ValueTypes.rawType(keySettings);
+        Class<?> valueType = ValueTypes.rawType(valueSettings);
+        ObjectLongHashMap<Object> longMap = (type == Object.class) ? null : PrimitiveCollections.createMap(type, valueSettings);
+        Map<Object, Object> map = null;
+        if (longMap == null)
+        {
+            map = (type == Object.class) ? new LinkedHashMap<>(size * 2) : ValueTypes.createMap(type, this.instanceFactory);
+        }
+        for (int i = 0; i < size; i++)
+        {
+            Object key = this.readValue(in, in.readByte(), keyType, keySettings);
+            int wireType = in.readByte();
+            PathProjection child = (projection == null) ? null : projection.getChild(keyName(key));
+            if ((projection != null) && (child == null))
+            {
+                this.skipValue(in, wireType);
+                continue;
+            }
+            if (map == null)
+            {
+                if (wireType == WIRE_VARINT)
+                {
+                    longMap.putLong(key, in.readZigZagLong());
+                    continue;
+                }
+                Object value = this.readValue(in, wireType, valueType, valueSettings, null, child);
+                if (value != null)
+                {
+                    longMap.put(key, (Long) value);
+                    continue;
+                }
+                // primitive-backed map can't store nulls, so rest of entries is read to boxed map.
+                map = PrimitiveCollections.toBoxed(longMap, type, this.instanceFactory);
+                map.put(key, null);
+                continue;
+            }
+            map.put(key, this.readValue(in, wireType, valueType, valueSettings, null, child));
+        }
+        return (map != null) ? map : longMap;
+    }
+
+    private static String keyName(@Nullable Object key)
+    {
+        return (key instanceof Enum) ? ((Enum<?>) key).name() : String.valueOf(key);
+    }
+
+    private int readSize(BinaryInput in)
+    {
+        return checkSize(in, in.readVarInt());
+    }
+
+    private static int checkSize(BinaryInput in, int size)
+    {
+        // each element uses at least one byte
+        if ((size < 0) || (size > in.remaining()))
+        {
+            throw new SerializationException("Invalid size: " + size + ", position: " + in.getPosition());
+        }
+        return size;
+    }
+
+    private static Object readPackedArray(BinaryInput in, int length)
+    {
+        int kind = in.readByte() & 0xFF;
+        ByteOrder order = ((kind & PACKED_BIG_ENDIAN) != 0) ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+        switch (kind & ~ PACKED_BIG_ENDIAN)
+        {
+            case PACKED_SHORT:
+                return in.readShorts(length, order);
+            case PACKED_CHAR:
+                return in.readChars(length, order);
+            case PACKED_INT:
+                return in.readInts(length, order);
+            case PACKED_LONG:
+                return in.readLongs(length, order);
+            case PACKED_FLOAT:
+                return in.readFloats(length, order);
+            case PACKED_DOUBLE:
+                return in.readDoubles(length, order);
+            default:
+                throw new SerializationException("Unknown packed array kind: " + kind + ", position: " + in.getPosition());
+        }
+    }
+
+    private static int packedWidth(int kind)
+    {
+        switch (kind & ~ PACKED_BIG_ENDIAN)
+        {
+            case PACKED_SHORT:
+            case PACKED_CHAR:
+                return 2;
+            case PACKED_INT:
+            case PACKED_FLOAT:
+                return 4;
+            case PACKED_LONG:
+            case PACKED_DOUBLE:
+                return 8;
+            default:
+                throw new SerializationException("Unknown packed array kind: " + kind);
+        }
+    }
+
+    /**
+     * Converts packed array to different array or collection type, used when type of property was changed.
+     */
+    private Object convertPackedArray(Object packed, Class<?> type, @Nullable PropertySettings settings)
+    {
+        int length = Array.getLength(packed);
+        if (type.isArray())
+        {
+            Class<?> componentType = type.getComponentType();
+            Object array = Array.newInstance(componentType, length);
+            for (int i = 0; i < length; i++)
+            {
+                Array.set(array, i, convertPackedElement(Array.get(packed, i), componentType));
+            }
+            return array;
+        }
+        PropertySettings elementSettings = ValueTypes.parameter(settings, 0);
+        Collection<Object> collection = this.createCollection(type, elementSettings, length);
+        Class<?> elementType = ValueTypes.rawType(elementSettings);
+        for (int i = 0; i < length; i++)
+        {
+            collection.add(convertPackedElement(Array.get(packed, i), elementType));
+        }
+        return collection;
+    }
+
+    private static Object convertPackedElement(Object element, Class<?> type)
+    {
+        if ((element instanceof Double) || (element instanceof Float))
+        {
+            Number number = (Number) element;
+            if ((type == float.class) || (type == Float.class))
+            {
+                return number.floatValue();
+            }
+            if ((type == double.class) || (type == Double.class))
+            {
+                return number.doubleValue();
+            }
+            if ((type == Object.class) || (type == Number.class))
+            {
+                return element;
+            }
+            throw new SerializationException("Can't read floating point value as " + type.getName());
+        }
+        if (element instanceof Character)
+        {
+            return convertVarint((Character) element, type);
+        }
+        return convertVarint(((Number) element).longValue(), type);
+    }
+
+    /**
+     * Reads object of given type, properties are mapped from schema used by writer to local properties by their names.
+     *
+     * @param in
+     *     source input.
+     * @param type
+     *     type of object.
+     * @param <T>
+     *     type of object.
+     *
+     * @return read object.
+     */
+    public <T> T readObject(BinaryInput in, Class<T> type)
+    {
+        return this.readObject(in, this.getClassCodec(type));
+    }
+
+    <T> T readObject(BinaryInput in, BinaryClassCodec<T> codec)
+    {
+        return this.readObject(in, codec, null);
+    }
+
+    private <T> T readObject(BinaryInput in, BinaryClassCodec<T> codec, @Nullable PathProjection[] transitions)
+    {
+        Class<T> type = codec.readPlan.getType();
+        if (this.trackReferences)
+        {
+            int reference = in.readVarInt();
+            if (reference != 0)
+            {
+                return type.cast(this.readReference(in, reference, type));
+            }
+        }
+        T instance = this.instanceFactory.create(type);
+        if (this.trackReferences)
+        {
+            // registered before properties are read, so cyclic references to this object can be resolved.
+            in.getReferences().add(instance);
+        }
+        this.readProperties(in, codec, instance, transitions);
+        return instance;
+    }
+
+    @Nullable
+    private Object readReference(BinaryInput in, int reference, Class<?> type)
+    {
+        List<Object> references = in.getReferences();
+        if (reference > references.size())
+        {
+            throw new SerializationException("Invalid reference: " + reference + ", position: " + in.getPosition());
+        }
+        Object object = references.get(reference - 1);
+        if ((object != null) && ! type.isInstance(object))
+        {
+            throw new SerializationException("Reference " + reference + " points to " + object.getClass().getName() + " instead of " +
+                                             type.getName() + ", position: " + in.getPosition());
+        }
+        return object;
+    }
+
+    /**
+     * Reads delta written by {@link #writeDelta(BinaryOutput, Object, PropertySnapshot)} or
+     * {@link #writeDirty(BinaryOutput, DirtyTracked)} and writes read values to given object. <br>
+     * Any object written by {@link #writeObject(BinaryOutput, Object)} can be applied this way, missing properties are left unchanged.
+     *
+     * @param in
+     *     source input.
+     * @param target
+     *     object to update.
+     * @param <T>
+     *     type of object.
+     *
+     * @return updated object.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T applyDelta(BinaryInput in, T target)
+    {
+        this.readProperties(in, this.getClassCodec((Class<T>) target.getClass()), target, null);
+        return target;
+    }
+
+    /**
+     * Reads properties of object, if transitions of projection are given, properties without next state are skipped.
+     */
+    private <T> void readProperties(BinaryInput in, BinaryClassCodec<T> codec, T instance, @Nullable PathProjection[] transitions)
+    {
+        int[] mapping = codec.getMapping(this.readSchemaReference(in));
+        for (int key = in.readVarInt(); key != 0; key = in.readVarInt())
+        {
+            int remoteIndex = (key >>> 3) - 1;
+            int wireType = key & 7;
+            int index = ((remoteIndex >= 0) && (remoteIndex < mapping.length)) ? mapping[remoteIndex] : - 1;
+            if ((index < 0) || ((transitions != null) && (transitions[index] == null)))
+            {
+                this.skipValue(in, wireType);
+                continue;
+            }
+            Class<?> propertyType = codec.readTypes[index];
+            PathProjection projection = (transitions == null) ? null : transitions[index];
+            Object value = this.readValue(in, wireType, propertyType, codec.readSettings[index], codec.readSites[index], projection);
+            if ((value != null) || ! propertyType.isPrimitive())
+            {
+                codec.getReadProperty(index).setValue(instance, checkType(in, value, propertyType));
+            }
+        }
+    }
+
+    @Nullable
+    private Object readObjectAsMap(BinaryInput in, @Nullable PathProjection projection)
+    {
+        if (this.trackReferences)
+        {
+            int reference = in.readVarInt();
+            if (reference != 0)
+            {
+                return this.readReference(in, reference, Object.class);
+            }
+        }
+        BinarySchema schema = this.readSchemaReference(in);
+        Map<String, Object> map = new LinkedHashMap<>(schema.size() * 2);
+        if (this.trackReferences)
+        {
+            in.getReferences().add(map);
+        }
+        for (int key = in.readVarInt(); key != 0; key = in.readVarInt())
+        {
+            int remoteIndex = (key >>> 3) - 1;
+            if ((remoteIndex < 0) || (remoteIndex >= schema.size()))
+            {
+                throw new SerializationException("Invalid property index: " + remoteIndex + ", position: " + in.getPosition());
+            }
+            String name = schema.getName(remoteIndex);
+            PathProjection child = (projection == null) ? null : projection.getChild(name);
+            if ((projection != null) && (child == null))
+            {
+                this.skipValue(in, key & 7);
+                continue;
+            }
+            map.put(name, this.readValue(in, key & 7, Object.class, null, null, child));
+        }
+        return map;
+    }
+
+    /**
+     * Skips payload of given wire type, schemas declared inside skipped value are still registered.
+     *
+     * @param in
+     *     source input.
+     * @param wireType
+     *     wire type of value.
+     */
+    public void skipValue(BinaryInput in, int wireType)
+    {
+        switch (wireType)
+        {
+            case WIRE_NULL:
+                break;
+            case WIRE_VARINT:
+                in.skipVarLong();
+                break;
+            case WIRE_FIXED64:
+                in.skip(8);
+                break;
+            case WIRE_FIXED32:
+                in.skip(4);
+                break;
+            case WIRE_BYTES:
+                in.skipLengthPrefixed();
+                break;
+            case WIRE_ARRAY:
+                int header = in.readVarInt();
+                if ((header & 1) != 0)
+                {
+                    long bytes = (long) (header >>> 1) * packedWidth(in.readByte() & 0xFF);
+                    if (bytes > in.remaining())
+                    {
+                        throw new SerializationException("Invalid size: " + (header >>> 1) + ", position: " + in.getPosition());
+                    }
+                    in.skip((int) bytes);
+                    break;
+                }
+                for (int i = 0, size = checkSize(in, header >>> 1); i < size; i++)
+                {
+                    this.skipValue(in, in.readByte());
+                }
+                break;
+            case WIRE_MAP:
+                for (int i = 0, size = this.readSize(in); i < size; i++)
+                {
+                    this.skipValue(in, in.readByte());
+                    this.skipValue(in, in.readByte());
+                }
+                break;
+            case WIRE_OBJECT:
+                if (this.trackReferences)
+                {
+                    if (in.readVarInt() != 0)
+                    {
+                        break;
+                    }
+                    // skipped objects still use an id, later references to them are read as null.
+                    in.getReferences().add(null);
+                }
+                this.readSchemaReference(in);
+                for (int key = in.readVarInt(); key != 0; key = in.readVarInt())
+                {
+                    this.skipValue(in, key & 7);
+                }
+                break;
+            default:
+                throw new SerializationException("Unknown wire type: " + wireType + ", position: " + in.getPosition());
+        }
+    }
+}
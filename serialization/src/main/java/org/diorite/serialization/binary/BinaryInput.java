@@ -0,0 +1,424 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.binary;
+
+import org.diorite.serialization.SerializationException;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Input of binary format working directly over byte array, see {@link BinaryOutput} for description of encoding. <br>
+ * Input remembers schemas read from stream, so later objects can reference them by id.
+ */
+public final class BinaryInput
+{
+    private static final VarHandle LONGS     = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long      HIGH_BITS = 0x8080808080808080L;
+
+    private final byte[] data;
+    private final int    limit;
+    private       int    position;
+
+    private final List<BinarySchema> schemas    = new ArrayList<>(8);
+    private final List<Object>       references = new ArrayList<>(0);
+
+    public BinaryInput(byte[] data)
+    {
+        this(data, 0, data.length);
+    }
+
+    public BinaryInput(byte[] data, int offset, int length)
+    {
+        if ((offset < 0) || (length < 0) || ((offset + length) > data.length))
+        {
+            throw new IndexOutOfBoundsException("offset: " + offset + ", length: " + length + ", size: " + data.length);
+        }
+        this.data = data;
+        this.position = offset;
+        this.limit = offset + length;
+    }
+
+    /**
+     * Creates input over remaining bytes of given buffer, heap buffers are used without copying. <br>
+     * Position of given buffer is not changed.
+     *
+     * @param buffer
+     *     source buffer.
+     *
+     * @return input over given buffer.
+     */
+    public static BinaryInput of(ByteBuffer buffer)
+    {
+        if (buffer.hasArray())
+        {
+            return new BinaryInput(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        }
+        byte[] copy = new byte[buffer.remaining()];
+        buffer.duplicate().get(copy);
+        return new BinaryInput(copy);
+    }
+
+    /**
+     * @return current position in source array.
+     */
+    public int getPosition()
+    {
+        return this.position;
+    }
+
+    /**
+     * @return amount of remaining bytes.
+     */
+    public int remaining()
+    {
+        return this.limit - this.position;
+    }
+
+    /**
+     * @return true if there is more data to read.
+     */
+    public boolean hasRemaining()
+    {
+        return this.position < this.limit;
+    }
+
+    List<BinarySchema> getSchemas()
+    {
+        return this.schemas;
+    }
+
+    List<Object> getReferences()
+    {
+        return this.references;
+    }
+
+    private void require(int bytes)
+    {
+        // compared against remaining bytes, so hostile lengths can not overflow position.
+        if ((bytes < 0) || (bytes > (this.limit - this.position)))
+        {
+            throw new SerializationException("Unexpected end of data at position " + this.position + ", required " + bytes + " bytes");
+        }
+    }
+
+    public void skip(int bytes)
+    {
+        this.require(bytes);
+        this.position += bytes;
+    }
+
+    public int readByte()
+    {
+        this.require(1);
+        return this.data[this.position++];
+    }
+
+    public int readVarInt()
+    {
+        byte[] data = this.data;
+        int result = 0;
+        for (int shift = 0; shift < 35; shift += 7)
+        {
+            this.require(1);
+            byte b = data[this.position++];
+            result |= (b & 0x7F) << shift;
+            if (b >= 0)
+            {
+                return result;
+            }
+        }
+        throw new SerializationException("Malformed varint at position " + this.position);
+    }
+
+    public long readVarLong()
+    {
+        byte[] data = this.data;
+        long result = 0;
+        for (int shift = 0; shift < 70; shift += 7)
+        {
+            this.require(1);
+            byte b = data[this.position++];
+            result |= (long) (b & 0x7F) << shift;
+            if (b >= 0)
+            {
+                return result;
+            }
+        }
+        throw new SerializationException("Malformed varint at position " + this.position);
+    }
+
+    /**
+     * Skips varint without decoding it, last byte of varint is found by checking eight bytes at once.
+     */
+    public void skipVarLong()
+    {
+        if ((this.limit - this.position) >= 8)
+        {
+            long last = ~ (long) LONGS.get(this.data, this.position) & HIGH_BITS;
+            if (last != 0)
+            {
+                this.position += (Long.numberOfTrailingZeros(last) >>> 3) + 1;
+                return;
+            }
+        }
+        this.readVarLong();
+    }
+
+    public int readZigZagInt()
+    {
+        int value = this.readVarInt();
+        return (value >>> 1) ^ - (value & 1);
+    }
+
+    public long readZigZagLong()
+    {
+        long value = this.readVarLong();
+        return (value >>> 1) ^ - (value & 1);
+    }
+
+    public int readFixedInt()
+    {
+        this.require(4);
+        byte[] data = this.data;
+        int position = this.position;
+        this.position = position + 4;
+        return (data[position] & 0xFF) | ((data[position + 1] & 0xFF) << 8) | ((data[position + 2] & 0xFF) << 16) |
+               ((data[position + 3] & 0xFF) << 24);
+    }
+
+    public long readFixedLong()
+    {
+        return (this.readFixedInt() & 0xFFFFFFFFL) | ((long) this.readFixedInt() << 32);
+    }
+
+    public float readFloat()
+    {
+        return Float.intBitsToFloat(this.readFixedInt());
+    }
+
+    public double readDouble()
+    {
+        return Double.longBitsToDouble(this.readFixedLong());
+    }
+
+    /**
+     * Reads length-prefixed byte array.
+     *
+     * @return read bytes.
+     */
+    public byte[] readByteArray()
+    {
+        int length = this.readVarInt();
+        this.require(length);
+        byte[] bytes = new byte[length];
+        System.arraycopy(this.data, this.position, bytes, 0, length);
+        this.position += length;
+        return bytes;
+    }
+
+    private int requireValues(int length, int shift)
+    {
+        if ((length < 0) || (length > ((this.limit - this.position) >>> shift)))
+        {
+            throw new SerializationException("Unexpected end of data at position " + this.position + ", required " + length + " values");
+        }
+        return length;
+    }
+
+    private ByteBuffer view(int length, int shift, ByteOrder order)
+    {
+        return ByteBuffer.wrap(this.data, this.position, length << shift).order(order);
+    }
+
+    /**
+     * Reads given amount of values using single bulk copy.
+     *
+     * @param length
+     *     amount of values to read.
+     * @param order
+     *     byte order of values.
+     *
+     * @return read values.
+     */
+    public short[] readShorts(int length, ByteOrder order)
+    {
+        short[] values = new short[this.requireValues(length, 1)];
+        this.view(length, 1, order).asShortBuffer().get(values);
+        this.position += length << 1;
+        return values;
+    }
+
+    /**
+     * Reads given amount of values using single bulk copy.
+     *
+     * @param length
+     *     amount of values to read.
+     * @param order
+     *     byte order of values.
+     *
+     * @return read values.
+     */
+    public char[] readChars(int length, ByteOrder order)
+    {
+        char[] values = new char[this.requireValues(length, 1)];
+        this.view(length, 1, order).asCharBuffer().get(values);
+        this.position += length << 1;
+        return values;
+    }
+
+    /**
+     * Reads given amount of values using single bulk copy.
+     *
+     * @param length
+     *     amount of values to read.
+     * @param order
+     *     byte order of values.
+     *
+     * @return read values.
+     */
+    public int[] readInts(int length, ByteOrder order)
+    {
+        int[] values = new int[this.requireValues(length, 2)];
+        this.view(length, 2, order).asIntBuffer().get(values);
+        this.position += length << 2;
+        return values;
+    }
+
+    /**
+     * Reads given amount of values using single bulk copy.
+     *
+     * @param length
+     *     amount of values to read.
+     * @param order
+     *     byte order of values.
+     *
+     * @return read values.
+     */
+    public long[] readLongs(int length, ByteOrder order)
+    {
+        long[] values = new long[this.requireValues(length, 3)];
+        this.view(length, 3, order).asLongBuffer().get(values);
+        this.position += length << 3;
+        return values;
+    }
+
+    /**
+     * Reads given amount of values using single bulk copy.
+     *
+     * @param length
+     *     amount of values to read.
+     * @param order
+     *     byte order of values.
+     *
+     * @return read values.
+     */
+    public float[] readFloats(int length, ByteOrder order)
+    {
+        float[] values = new float[this.requireValues(length, 2)];
+        this.view(length, 2, order).asFloatBuffer().get(values);
+        this.position += length << 2;
+        return values;
+    }
+
+    /**
+     * Reads given amount of values using single bulk copy.
+     *
+     * @param length
+     *     amount of values to read.
+     * @param order
+     *     byte order of values.
+     *
+     * @return read values.
+     */
+    public double[] readDoubles(int length, ByteOrder order)
+    {
+        double[] values = new double[this.requireValues(length, 3)];
+        this.view(length, 3, order).asDoubleBuffer().get(values);
+        this.position += length << 3;
+        return values;
+    }
+
+    /**
+     * Reads length-prefixed UTF-8 encoded string.
+     *
+     * @return read string.
+     */
+    public String readString()
+    {
+        int length = this.readVarInt();
+        this.require(length);
+        String string = new String(this.data, this.position, length, StandardCharsets.UTF_8);
+        this.position += length;
+        return string;
+    }
+
+    /**
+     * Reads length-prefixed string and checks if its UTF-8 bytes are equal to given ones, without decoding it. <br>
+     * Position is moved after string even if it is not equal.
+     *
+     * @param expected
+     *     expected UTF-8 bytes of string.
+     *
+     * @return true if read string is equal to expected one.
+     */
+    boolean readStringEquals(byte[] expected)
+    {
+        int length = this.readVarInt();
+        this.require(length);
+        int position = this.position;
+        this.position = position + length;
+        return Arrays.equals(this.data, position, position + length, expected, 0, expected.length);
+    }
+
+    /**
+     * Moves back to given position, used to read again data that was already skipped.
+     *
+     * @param position
+     *     position previously returned by {@link #getPosition()}.
+     */
+    void rewind(int position)
+    {
+        if ((position < 0) || (position > this.position))
+        {
+            throw new IllegalArgumentException("Can't rewind to " + position + " from " + this.position);
+        }
+        this.position = position;
+    }
+
+    /**
+     * Skips length-prefixed string or byte array.
+     */
+    public void skipLengthPrefixed()
+    {
+        this.skip(this.readVarInt());
+    }
+}
@@ -0,0 +1,559 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.binary;
+
+import org.diorite.serialization.IdentityIntMap;
+import org.diorite.serialization.buffer.BufferPool;
+import org.diorite.serialization.buffer.ChunkConsumer;
+
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Growable output buffer of binary format. <br>
+ * Integers are written as unsigned or zigzag encoded varints, fixed size numbers use little endian byte order and strings are written as
+ * length-prefixed UTF-8 bytes. <br>
+ * Output also remembers which class schemas were already written, so each schema is written only once per output.
+ */
+public final class BinaryOutput
+{
+    private static final byte[] EMPTY = {};
+
+    @Nullable
+    private final BufferPool    pool;
+    private       byte[]        buffer;
+    private       int           position;
+    private       long          consumed;
+    @Nullable
+    private final ChunkConsumer consumer;
+    private final int           chunkSize;
+
+    private final Map<Class<?>, Integer> schemaIds = new IdentityHashMap<>(8);
+    @Nullable
+    private       IdentityIntMap         references;
+
+    public BinaryOutput()
+    {
+        this(256);
+    }
+
+    public BinaryOutput(int initialCapacity)
+    {
+        this.pool = null;
+        this.buffer = new byte[Math.max(initialCapacity, 16)];
+        this.consumer = null;
+        this.chunkSize = 0;
+    }
+
+    /**
+     * Creates output that takes its buffers from given pool, {@link #release()} should be called when output is no longer needed.
+     *
+     * @param pool
+     *     pool of buffers.
+     * @param initialCapacity
+     *     minimal initial capacity.
+     */
+    public BinaryOutput(BufferPool pool, int initialCapacity)
+    {
+        this.pool = pool;
+        this.buffer = pool.acquire(Math.max(initialCapacity, 16));
+        this.consumer = null;
+        this.chunkSize = 0;
+    }
+
+    /**
+     * Creates streaming output that passes each filled chunk of output to given consumer instead of growing its buffer, so memory used by
+     * output does not depend on size of written data. <br>
+     * Methods that access written data, like {@link #toByteArray()}, only see bytes that were not passed to consumer yet.
+     *
+     * @param pool
+     *     pool of buffers, used to acquire new chunks.
+     * @param chunkSize
+     *     size of single chunk.
+     * @param consumer
+     *     consumer of filled chunks.
+     *
+     * @see #flush()
+     */
+    public BinaryOutput(BufferPool pool, int chunkSize, ChunkConsumer consumer)
+    {
+        this.pool = pool;
+        this.chunkSize = Math.max(chunkSize, 16);
+        this.buffer = pool.acquire(this.chunkSize);
+        this.consumer = consumer;
+    }
+
+    /**
+     * Ensures that buffer can store given amount of additional bytes.
+     *
+     * @param bytes
+     *     amount of bytes to be written.
+     */
+    public void ensureCapacity(int bytes)
+    {
+        int required = this.position + bytes;
+        if (required > this.buffer.length)
+        {
+            if ((this.consumer != null) && (this.position > 0))
+            {
+                this.flush();
+                if (bytes <= this.buffer.length)
+                {
+                    return;
+                }
+                required = bytes;
+            }
+            int newCapacity = Math.max(required, this.buffer.length << 1);
+            if (this.pool == null)
+            {
+                this.buffer = Arrays.copyOf(this.buffer, newCapacity);
+                return;
+            }
+            byte[] newBuffer = this.pool.acquire(newCapacity);
+            System.arraycopy(this.buffer, 0, newBuffer, 0, this.position);
+            this.pool.release(this.buffer);
+            this.buffer = newBuffer;
+        }
+    }
+
+    /**
+     * Passes all not yet consumed bytes to chunk consumer of this output, does nothing if output isn't streaming.
+     */
+    public void flush()
+    {
+        if ((this.consumer == null) || (this.position == 0))
+        {
+            return;
+        }
+        assert this.pool != null;
+        byte[] chunk = this.buffer;
+        int length = this.position;
+        this.buffer = this.pool.acquire(this.chunkSize);
+        this.position = 0;
+        this.consumed += length;
+        this.consumer.accept(chunk, length);
+    }
+
+    /**
+     * Returns buffer of this output to its pool, output must not be used after this method is called. <br>
+     * Does nothing if output isn't backed by pool.
+     */
+    public void release()
+    {
+        if (this.pool != null)
+        {
+            this.pool.release(this.buffer);
+            this.buffer = EMPTY;
+            this.position = 0;
+        }
+    }
+
+    /**
+     * @return amount of written bytes.
+     */
+    public int size()
+    {
+        return this.position;
+    }
+
+    /**
+     * @return total amount of bytes written to this output, including bytes already passed to chunk consumer.
+     */
+    public long getWritten()
+    {
+        return this.consumed + this.position;
+    }
+
+    /**
+     * Returns internal buffer of this output, only first {@link #size()} bytes are valid.
+     *
+     * @return internal buffer of this output.
+     */
+    public byte[] getBuffer()
+    {
+        return this.buffer;
+    }
+
+    /**
+     * Removes all written data and forgets written schemas and references, internal buffer is reused.
+     */
+    public void reset()
+    {
+        this.position = 0;
+        this.consumed = 0;
+        this.schemaIds.clear();
+        if (this.references != null)
+        {
+            this.references.clear();
+        }
+    }
+
+    /**
+     * @return copy of written bytes.
+     */
+    public byte[] toByteArray()
+    {
+        return Arrays.copyOf(this.buffer, this.position);
+    }
+
+    /**
+     * Copies written bytes to given buffer.
+     *
+     * @param target
+     *     target buffer.
+     */
+    public void writeTo(ByteBuffer target)
+    {
+        target.put(this.buffer, 0, this.position);
+    }
+
+    Map<Class<?>, Integer> getSchemaIds()
+    {
+        return this.schemaIds;
+    }
+
+    IdentityIntMap getReferences()
+    {
+        if (this.references == null)
+        {
+            this.references = new IdentityIntMap();
+        }
+        return this.references;
+    }
+
+    public void writeByte(int value)
+    {
+        this.ensureCapacity(1);
+        this.buffer[this.position++] = (byte) value;
+    }
+
+    public void writeBytes(byte[] bytes, int offset, int length)
+    {
+        this.ensureCapacity(length);
+        System.arraycopy(bytes, offset, this.buffer, this.position, length);
+        this.position += length;
+    }
+
+    /**
+     * Writes length-prefixed byte array.
+     *
+     * @param bytes
+     *     bytes to write.
+     */
+    public void writeByteArray(byte[] bytes)
+    {
+        this.writeVarInt(bytes.length);
+        this.writeBytes(bytes, 0, bytes.length);
+    }
+
+    private ByteBuffer view(int bytes, ByteOrder order)
+    {
+        this.ensureCapacity(bytes);
+        return ByteBuffer.wrap(this.buffer, this.position, bytes).order(order);
+    }
+
+    /**
+     * Writes all values of given array using single bulk copy, without length prefix.
+     *
+     * @param values
+     *     values to write.
+     * @param order
+     *     byte order of written values.
+     */
+    public void writeShorts(short[] values, ByteOrder order)
+    {
+        int bytes = values.length << 1;
+        this.view(bytes, order).asShortBuffer().put(values);
+        this.position += bytes;
+    }
+
+    /**
+     * Writes all values of given array using single bulk copy, without length prefix.
+     *
+     * @param values
+     *     values to write.
+     * @param order
+     *     byte order of written values.
+     */
+    public void writeChars(char[] values, ByteOrder order)
+    {
+        int bytes = values.length << 1;
+        this.view(bytes, order).asCharBuffer().put(values);
+        this.position += bytes;
+    }
+
+    /**
+     * Writes all values of given array using single bulk copy, without length prefix.
+     *
+     * @param values
+     *     values to write.
+     * @param order
+     *     byte order of written values.
+     */
+    public void writeInts(int[] values, ByteOrder order)
+    {
+        this.writeInts(values, values.length, order);
+    }
+
+    /**
+     * Writes first values of given array using single bulk copy, without length prefix.
+     *
+     * @param values
+     *     values to write.
+     * @param length
+     *     amount of values to write.
+     * @param order
+     *     byte order of written values.
+     */
+    public void writeInts(int[] values, int length, ByteOrder order)
+    {
+        int bytes = length << 2;
+        this.view(bytes, order).asIntBuffer().put(values, 0, length);
+        this.position += bytes;
+    }
+
+    /**
+     * Writes all values of given array using single bulk copy, without length prefix.
+     *
+     * @param values
+     *     values to write.
+     * @param order
+     *     byte order of written values.
+     */
+    public void writeLongs(long[] values, ByteOrder order)
+    {
+        this.writeLongs(values, values.length, order);
+    }
+
+    /**
+     * Writes first values of given array using single bulk copy, without length prefix.
+     *
+     * @param values
+     *     values to write.
+     * @param length
+     *     amount of values to write.
+     * @param order
+     *     byte order of written values.
+     */
+    public void writeLongs(long[] values, int length, ByteOrder order)
+    {
+        int bytes = length << 3;
+        this.view(bytes, order).asLongBuffer().put(values, 0, length);
+        this.position += bytes;
+    }
+
+    /**
+     * Writes all values of given array using single bulk copy, without length prefix.
+     *
+     * @param values
+     *     values to write.
+     * @param order
+     *     byte order of written values.
+     */
+    public void writeFloats(float[] values, ByteOrder order)
+    {
+        int bytes = values.length << 2;
+        this.view(bytes, order).asFloatBuffer().put(values);
+        this.position += bytes;
+    }
+
+    /**
+     * Writes all values of given array using single bulk copy, without length prefix.
+     *
+     * @param values
+     *     values to write.
+     * @param order
+     *     byte order of written values.
+     */
+    public void writeDoubles(double[] values, ByteOrder order)
+    {
+        this.writeDoubles(values, values.length, order);
+    }
+
+    /**
+     * Writes first values of given array using single bulk copy, without length prefix.
+     *
+     * @param values
+     *     values to write.
+     * @param length
+     *     amount of values to write.
+     * @param order
+     *     byte order of written values.
+     */
+    public void writeDoubles(double[] values, int length, ByteOrder order)
+    {
+        int bytes = length << 3;
+        this.view(bytes, order).asDoubleBuffer().put(values, 0, length);
+        this.position += bytes;
+    }
+
+    public void writeVarInt(int value)
+    {
+        this.ensureCapacity(5);
+        byte[] buffer = this.buffer;
+        int position = this.position;
+        while ((value & ~ 0x7F) != 0)
+        {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        this.position = position;
+    }
+
+    public void writeVarLong(long value)
+    {
+        this.ensureCapacity(10);
+        byte[] buffer = this.buffer;
+        int position = this.position;
+        while ((value & ~ 0x7FL) != 0)
+        {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        this.position = position;
+    }
+
+    public void writeZigZagInt(int value)
+    {
+        this.writeVarInt((value << 1) ^ (value >> 31));
+    }
+
+    public void writeZigZagLong(long value)
+    {
+        this.writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    public void writeFixedInt(int value)
+    {
+        this.ensureCapacity(4);
+        byte[] buffer = this.buffer;
+        int position = this.position;
+        buffer[position] = (byte) value;
+        buffer[position + 1] = (byte) (value >>> 8);
+        buffer[position + 2] = (byte) (value >>> 16);
+        buffer[position + 3] = (byte) (value >>> 24);
+        this.position = position + 4;
+    }
+
+    public void writeFixedLong(long value)
+    {
+        this.writeFixedInt((int) value);
+        this.writeFixedInt((int) (value >>> 32));
+    }
+
+    public void writeFloat(float value)
+    {
+        this.writeFixedInt(Float.floatToRawIntBits(value));
+    }
+
+    public void writeDouble(double value)
+    {
+        this.writeFixedLong(Double.doubleToRawLongBits(value));
+    }
+
+    /**
+     * Writes length-prefixed UTF-8 encoded string.
+     *
+     * @param value
+     *     string to write.
+     */
+    public void writeString(CharSequence value)
+    {
+        int length = value.length();
+        int bytes = utf8Length(value);
+        this.writeVarInt(bytes);
+        this.ensureCapacity(bytes);
+        byte[] buffer = this.buffer;
+        int position = this.position;
+        for (int i = 0; i < length; i++)
+        {
+            char c = value.charAt(i);
+            if (c < 0x80)
+            {
+                buffer[position++] = (byte) c;
+            }
+            else if (c < 0x800)
+            {
+                buffer[position++] = (byte) (0xC0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+            else if (Character.isHighSurrogate(c) && ((i + 1) < length) && Character.isLowSurrogate(value.charAt(i + 1)))
+            {
+                int codePoint = Character.toCodePoint(c, value.charAt(++ i));
+                buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            }
+            else if (Character.isSurrogate(c))
+            {
+                // lone surrogate, can't be encoded in UTF-8
+                buffer[position++] = '?';
+            }
+            else
+            {
+                buffer[position++] = (byte) (0xE0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        this.position = position;
+    }
+
+    private static int utf8Length(CharSequence value)
+    {
+        int length = value.length();
+        int bytes = length;
+        for (int i = 0; i < length; i++)
+        {
+            char c = value.charAt(i);
+            if (c < 0x80)
+            {
+                continue;
+            }
+            if (c < 0x800)
+            {
+                bytes += 1;
+            }
+            else if (Character.isHighSurrogate(c) && ((i + 1) < length) && Character.isLowSurrogate(value.charAt(i + 1)))
+            {
+                // 2 chars -> 4 bytes
+                bytes += 2;
+                i++;
+            }
+            else if (! Character.isSurrogate(c))
+            {
+                bytes += 2;
+            }
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.binary;
+
+import org.diorite.serialization.plan.SchemaFingerprints;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Ordered list of property names written by binary format together with 64-bit fingerprint of class, computed by
+ * {@link SchemaFingerprints}. <br>
+ * Properties are encoded by their index in this list, so readers with different version of class can map them back by names.
+ */
+public final class BinarySchema
+{
+    private final long     fingerprint;
+    private final String[] names;
+    private final byte[][] encodedNames;
+
+    public BinarySchema(long fingerprint, String[] names)
+    {
+        this.fingerprint = fingerprint;
+        this.names = names.clone();
+        this.encodedNames = new byte[names.length][];
+        for (int i = 0; i < names.length; i++)
+        {
+            this.encodedNames[i] = names[i].getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * @return fingerprint of this schema.
+     */
+    public long getFingerprint()
+    {
+        return this.fingerprint;
+    }
+
+    /**
+     * @return amount of properties in this schema.
+     */
+    public int size()
+    {
+        return this.names.length;
+    }
+
+    /**
+     * Returns name of property at given index.
+     *
+     * @param index
+     *     index of property.
+     *
+     * @return name of property.
+     */
+    public String getName(int index)
+    {
+        return this.names[index];
+    }
+
+    /**
+     * Returns UTF-8 encoded name of property at given index, returned array must not be modified.
+     *
+     * @param index
+     *     index of property.
+     *
+     * @return encoded name of property.
+     */
+    byte[] getEncodedName(int index)
+    {
+        return this.encodedNames[index];
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o)
+        {
+            return true;
+        }
+        if (! (o instanceof BinarySchema))
+        {
+            return false;
+        }
+        BinarySchema that = (BinarySchema) o;
+        return (this.fingerprint == that.fingerprint) && Arrays.equals(this.names, that.names);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Long.hashCode(this.fingerprint);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "BinarySchema{" + Long.toHexString(this.fingerprint) + ", " + Arrays.toString(this.names) + "}";
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.binary;
+
+import org.diorite.serialization.setting.PropertySettings;
+
+import javax.annotation.Nullable;
+
+/**
+ * Custom binary codec of values, registered in {@link BinaryCodec#getCodecs()} and used instead of built-in handling of values. <br>
+ * Codec writes only payload of value, payload must use format of wire type returned by {@link #getWireType()}, so readers without this
+ * codec can still skip it. Nulls are handled by {@link BinaryCodec} and never passed to codec.
+ *
+ * @param <T>
+ *     type of values.
+ */
+public interface BinaryValueCodec<T>
+{
+    /**
+     * Returns wire type of payload written by this codec, one of {@link BinaryCodec#WIRE_VARINT}, {@link BinaryCodec#WIRE_FIXED64},
+     * {@link BinaryCodec#WIRE_FIXED32}, {@link BinaryCodec#WIRE_BYTES}, {@link BinaryCodec#WIRE_ARRAY} or {@link BinaryCodec#WIRE_MAP}.
+     *
+     * @return wire type of payload.
+     */
+    int getWireType();
+
+    /**
+     * Writes payload of given value.
+     *
+     * @param codec
+     *     codec used to write nested values.
+     * @param out
+     *     target output.
+     * @param value
+     *     value to write.
+     */
+    void write(BinaryCodec codec, BinaryOutput out, T value);
+
+    /**
+     * Reads payload written by {@link #write(BinaryCodec, BinaryOutput, Object)}.
+     *
+     * @param codec
+     *     codec used to read nested values.
+     * @param in
+     *     source input.
+     * @param wireType
+     *     wire type of payload.
+     * @param type
+     *     declared raw type of value.
+     * @param settings
+     *     settings of value, or null if unknown.
+     *
+     * @return read value.
+     */
+    @Nullable
+    T read(BinaryCodec codec, BinaryInput in, int wireType, Class<?> type, @Nullable PropertySettings settings);
+}
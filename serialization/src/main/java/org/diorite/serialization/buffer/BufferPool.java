@@ -0,0 +1,309 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.buffer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Striped pool of byte arrays used as scratch space by encoders and decoders. <br>
+ * Buffers are grouped in power of two size classes, and each thread uses one of stripes selected by its id, so threads rarely compete
+ * for the same lock. Amount of bytes retained by pool is limited, buffers above the limit or above maximal size class are simply left
+ * to garbage collector. <br>
+ * In debug mode pool remembers where each outstanding buffer was acquired, so leaked buffers can be found with {@link #getLeaks()}.
+ * Debug mode can be enabled globally using {@value #DEBUG_PROPERTY} system property.
+ */
+public final class BufferPool
+{
+    /**
+     * System property used to enable debug mode of default pools.
+     */
+    public static final String DEBUG_PROPERTY = "org.diorite.serialization.buffer.debug";
+
+    /**
+     * Size of smallest size class.
+     */
+    public static final int MIN_BUFFER_SIZE = 256;
+
+    /**
+     * Shared pool used by default by all codecs.
+     */
+    public static final BufferPool DEFAULT = create();
+
+    private static final int MIN_SHIFT         = Integer.numberOfTrailingZeros(MIN_BUFFER_SIZE);
+    private static final int BUFFERS_PER_CLASS = 8;
+
+    private final int        maxBufferSize;
+    private final long       maxRetainedBytes;
+    private final Stripe[]   stripes;
+    private final int        stripeMask;
+    private final AtomicLong retainedBytes = new AtomicLong();
+    private final boolean    debug;
+
+    private final Map<byte[], Throwable> outstanding;
+
+    /**
+     * Creates new buffer pool.
+     *
+     * @param maxBufferSize
+     *     maximal size of pooled buffer, rounded up to power of two.
+     * @param maxRetainedBytes
+     *     maximal amount of bytes retained by all stripes.
+     * @param stripes
+     *     amount of stripes, rounded up to power of two.
+     * @param debug
+     *     true if leak detection should be enabled.
+     */
+    public BufferPool(int maxBufferSize, long maxRetainedBytes, int stripes, boolean debug)
+    {
+        if ((maxBufferSize < MIN_BUFFER_SIZE) || (maxBufferSize > (1 << 30)))
+        {
+            throw new IllegalArgumentException("Invalid max buffer size: " + maxBufferSize);
+        }
+        if (stripes <= 0)
+        {
+            throw new IllegalArgumentException("Stripes must be positive: " + stripes);
+        }
+        this.maxBufferSize = roundUp(maxBufferSize);
+        this.maxRetainedBytes = maxRetainedBytes;
+        int stripeCount = roundUp(stripes);
+        int sizeClasses = sizeClass(this.maxBufferSize) + 1;
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++)
+        {
+            this.stripes[i] = new Stripe(sizeClasses);
+        }
+        this.stripeMask = stripeCount - 1;
+        this.debug = debug;
+        this.outstanding = debug ? new IdentityHashMap<>() : Collections.emptyMap();
+    }
+
+    /**
+     * Creates pool with default settings: buffers up to 1MB, up to 64MB of retained bytes, 2 stripes per available processor and debug
+     * mode enabled if {@value #DEBUG_PROPERTY} system property is set to true.
+     *
+     * @return new buffer pool.
+     */
+    public static BufferPool create()
+    {
+        return new BufferPool(1 << 20, 64L << 20, Runtime.getRuntime().availableProcessors() * 2, Boolean.getBoolean(DEBUG_PROPERTY));
+    }
+
+    private static int roundUp(int value)
+    {
+        return (value <= 1) ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+
+    private static int sizeClass(int size)
+    {
+        return (size <= MIN_BUFFER_SIZE) ? 0 : ((32 - Integer.numberOfLeadingZeros(size - 1)) - MIN_SHIFT);
+    }
+
+    /**
+     * @return maximal size of pooled buffer.
+     */
+    public int getMaxBufferSize()
+    {
+        return this.maxBufferSize;
+    }
+
+    /**
+     * @return amount of bytes currently retained by this pool.
+     */
+    public long getRetainedBytes()
+    {
+        return this.retainedBytes.get();
+    }
+
+    /**
+     * @return true if leak detection is enabled.
+     */
+    public boolean isDebug()
+    {
+        return this.debug;
+    }
+
+    private Stripe stripe()
+    {
+        return this.stripes[(int) Thread.currentThread().getId() & this.stripeMask];
+    }
+
+    /**
+     * Returns buffer of at least given size, buffer might contain garbage data from previous usage.
+     *
+     * @param minSize
+     *     minimal size of buffer.
+     *
+     * @return buffer of at least given size.
+     */
+    public byte[] acquire(int minSize)
+    {
+        if (minSize > this.maxBufferSize)
+        {
+            return new byte[minSize];
+        }
+        int sizeClass = sizeClass(minSize);
+        byte[] buffer = this.stripe().poll(sizeClass);
+        if (buffer == null)
+        {
+            buffer = new byte[MIN_BUFFER_SIZE << sizeClass];
+        }
+        else
+        {
+            this.retainedBytes.addAndGet(- buffer.length);
+        }
+        if (this.debug)
+        {
+            synchronized (this.outstanding)
+            {
+                this.outstanding.put(buffer, new Throwable("Buffer of " + buffer.length + " bytes acquired here"));
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * Returns given buffer to pool, buffer must not be used after this method is called.
+     *
+     * @param buffer
+     *     buffer to release.
+     *
+     * @throws IllegalStateException
+     *     in debug mode, if buffer was already released.
+     */
+    public void release(byte[] buffer)
+    {
+        int length = buffer.length;
+        if ((length < MIN_BUFFER_SIZE) || (length > this.maxBufferSize) || (Integer.bitCount(length) != 1))
+        {
+            return;
+        }
+        if (this.debug)
+        {
+            synchronized (this.outstanding)
+            {
+                if (this.outstanding.remove(buffer) == null)
+                {
+                    throw new IllegalStateException("Buffer released twice or not acquired from this pool");
+                }
+            }
+        }
+        if (this.retainedBytes.addAndGet(length) > this.maxRetainedBytes)
+        {
+            this.retainedBytes.addAndGet(- length);
+            return;
+        }
+        if (! this.stripe().offer(sizeClass(length), buffer))
+        {
+            this.retainedBytes.addAndGet(- length);
+        }
+    }
+
+    /**
+     * Returns stack traces of acquisition of all buffers that were not released yet, always empty if debug mode is disabled.
+     *
+     * @return stack traces of outstanding buffers.
+     */
+    public List<Throwable> getLeaks()
+    {
+        if (! this.debug)
+        {
+            return Collections.emptyList();
+        }
+        synchronized (this.outstanding)
+        {
+            return new ArrayList<>(this.outstanding.values());
+        }
+    }
+
+    /**
+     * Removes all retained buffers.
+     */
+    public void clear()
+    {
+        for (Stripe stripe : this.stripes)
+        {
+            this.retainedBytes.addAndGet(- stripe.clear());
+        }
+    }
+
+    private static final class Stripe
+    {
+        private final byte[][][] buffers;
+        private final int[]      sizes;
+
+        private Stripe(int sizeClasses)
+        {
+            this.buffers = new byte[sizeClasses][BUFFERS_PER_CLASS][];
+            this.sizes = new int[sizeClasses];
+        }
+
+        synchronized byte[] poll(int sizeClass)
+        {
+            int size = this.sizes[sizeClass];
+            if (size == 0)
+            {
+                return null;
+            }
+            byte[][] stack = this.buffers[sizeClass];
+            byte[] buffer = stack[--size];
+            stack[size] = null;
+            this.sizes[sizeClass] = size;
+            return buffer;
+        }
+
+        synchronized boolean offer(int sizeClass, byte[] buffer)
+        {
+            int size = this.sizes[sizeClass];
+            if (size == BUFFERS_PER_CLASS)
+            {
+                return false;
+            }
+            this.buffers[sizeClass][size] = buffer;
+            this.sizes[sizeClass] = size + 1;
+            return true;
+        }
+
+        synchronized long clear()
+        {
+            long bytes = 0;
+            for (int sizeClass = 0; sizeClass < this.buffers.length; sizeClass++)
+            {
+                byte[][] stack = this.buffers[sizeClass];
+                for (int i = 0; i < this.sizes[sizeClass]; i++)
+                {
+                    bytes += stack[i].length;
+                    stack[i] = null;
+                }
+                this.sizes[sizeClass] = 0;
+            }
+            return bytes;
+        }
+    }
+}
@@ -22,32 +22,22 @@
  * SOFTWARE.
  */
 
-package org.diorite.serialization.setting.settings;
-
-import org.diorite.serialization.annotations.Since;
-import org.diorite.serialization.setting.Setting;
+package org.diorite.serialization.buffer;
 
 /**
- * Representation of {@link Since}
+ * Receiver of filled chunks of streaming writer.
  */
-public final class SinceSetting implements Setting, Since
+@FunctionalInterface
+public interface ChunkConsumer
 {
-    private final String value;
-
-    public SinceSetting(String value)
-    {
-        this.value = value;
-    }
-
-    @Override
-    public String value()
-    {
-        return value;
-    }
-
-    @Override
-    public Class<Since> annotationType()
-    {
-        return Since.class;
-    }
+    /**
+     * Accepts filled chunk of output, ownership of given array is transferred to this consumer, so it should be released to pool of
+     * writer after its content is consumed.
+     *
+     * @param chunk
+     *     array with written bytes.
+     * @param length
+     *     amount of valid bytes at the beginning of array.
+     */
+    void accept(byte[] chunk, int length);
 }
@@ -0,0 +1,574 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.channel;
+
+import org.diorite.serialization.SerializationException;
+import org.diorite.serialization.binary.BinaryCodec;
+import org.diorite.serialization.binary.BinaryOutput;
+import org.diorite.serialization.buffer.BufferPool;
+import org.diorite.serialization.json.JsonByteWriter;
+import org.diorite.serialization.json.JsonCodec;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Streams serialized value to channel without creating whole output in memory. <br>
+ * Value is encoded by separate task into chunks of fixed size, and only limited amount of chunks can wait for channel, so encoding is
+ * suspended when channel can't keep up and resumed when chunks are consumed. Memory used by single sink is bounded by
+ * {@code (maxChunks + 2) * chunkSize}, independently of size of written value. <br>
+ * Encoder is resumed by consumer each time chunk is taken, without any polling. Suspended encoder waits using
+ * {@link ForkJoinPool#managedBlock(ForkJoinPool.ManagedBlocker)}, so fork-join pools compensate it with spare thread. Writes to
+ * {@link AsynchronousFileChannel} are driven only by completion callbacks and never wait for encoder. <br>
+ * Methods writing to channel must not be invoked concurrently.
+ */
+public final class ChannelSink
+{
+    /**
+     * Default size of single chunk.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 16 * 1024;
+
+    /**
+     * Default amount of chunks that can wait for channel.
+     */
+    public static final int DEFAULT_MAX_CHUNKS = 4;
+
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+    private final BufferPool                pool;
+    private final BlockingQueue<ByteBuffer> chunks;
+    @Nullable
+    private final Runnable                  readyListener;
+    private final Object                    demand  = new Object();
+    // continuation of asynchronous write waiting for next chunk.
+    private final AtomicReference<Runnable> pending = new AtomicReference<>();
+
+    private volatile boolean   cancelled;
+    @Nullable
+    private volatile Throwable failure;
+
+    @Nullable
+    private ByteBuffer current;
+    private boolean    finished;
+    private long       written;
+
+    private ChannelSink(BufferPool pool, int maxChunks, @Nullable Runnable readyListener)
+    {
+        this.pool = pool;
+        this.chunks = new ArrayBlockingQueue<>(Math.max(maxChunks, 1) + 1);
+        this.readyListener = readyListener;
+    }
+
+    /**
+     * Starts encoding of given value to JSON using given executor.
+     *
+     * @param codec
+     *     codec used to encode value.
+     * @param value
+     *     value to encode.
+     * @param executor
+     *     executor used to run encoding task.
+     *
+     * @return sink of encoded value.
+     */
+    public static ChannelSink json(JsonCodec codec, @Nullable Object value, Executor executor)
+    {
+        return json(codec, value, executor, DEFAULT_CHUNK_SIZE, DEFAULT_MAX_CHUNKS, null);
+    }
+
+    /**
+     * Starts encoding of given value to JSON using given executor.
+     *
+     * @param codec
+     *     codec used to encode value.
+     * @param value
+     *     value to encode.
+     * @param executor
+     *     executor used to run encoding task.
+     * @param chunkSize
+     *     size of single chunk.
+     * @param maxChunks
+     *     amount of chunks that can wait for channel before encoding is suspended.
+     * @param readyListener
+     *     listener invoked by encoding task each time new chunk is ready, can be used to register interest in writing to selector.
+     *
+     * @return sink of encoded value.
+     */
+    public static ChannelSink json(JsonCodec codec, @Nullable Object value, Executor executor, int chunkSize, int maxChunks,
+                                   @Nullable Runnable readyListener)
+    {
+        BufferPool pool = codec.getBufferPool();
+        ChannelSink sink = new ChannelSink(pool, maxChunks, readyListener);
+        executor.execute(() -> sink.produce(() -> sink.writeJson(codec, value, chunkSize)));
+        return sink;
+    }
+
+    /**
+     * Starts encoding of given value to binary format using given executor.
+     *
+     * @param codec
+     *     codec used to encode value.
+     * @param value
+     *     value to encode.
+     * @param executor
+     *     executor used to run encoding task.
+     *
+     * @return sink of encoded value.
+     */
+    public static ChannelSink binary(BinaryCodec codec, @Nullable Object value, Executor executor)
+    {
+        return binary(codec, value, executor, DEFAULT_CHUNK_SIZE, DEFAULT_MAX_CHUNKS, null);
+    }
+
+    /**
+     * Starts encoding of given value to binary format using given executor.
+     *
+     * @param codec
+     *     codec used to encode value.
+     * @param value
+     *     value to encode.
+     * @param executor
+     *     executor used to run encoding task.
+     * @param chunkSize
+     *     size of single chunk.
+     * @param maxChunks
+     *     amount of chunks that can wait for channel before encoding is suspended.
+     * @param readyListener
+     *     listener invoked by encoding task each time new chunk is ready, can be used to register interest in writing to selector.
+     *
+     * @return sink of encoded value.
+     */
+    public static ChannelSink binary(BinaryCodec codec, @Nullable Object value, Executor executor, int chunkSize, int maxChunks,
+                                     @Nullable Runnable readyListener)
+    {
+        BufferPool pool = codec.getBufferPool();
+        ChannelSink sink = new ChannelSink(pool, maxChunks, readyListener);
+        executor.execute(() -> sink.produce(() -> sink.writeBinary(codec, value, chunkSize)));
+        return sink;
+    }
+
+    private void writeJson(JsonCodec codec, @Nullable Object value, int chunkSize)
+    {
+        JsonByteWriter writer = new JsonByteWriter(this.pool, chunkSize, this::offer);
+        try
+        {
+            codec.writeValue(writer, value);
+            writer.flush();
+        }
+        finally
+        {
+            writer.release();
+        }
+    }
+
+    private void writeBinary(BinaryCodec codec, @Nullable Object value, int chunkSize)
+    {
+        BinaryOutput output = new BinaryOutput(this.pool, chunkSize, this::offer);
+        try
+        {
+            codec.writeValue(output, value);
+            output.flush();
+        }
+        finally
+        {
+            output.release();
+        }
+    }
+
+    private void produce(Runnable encoding)
+    {
+        try
+        {
+            encoding.run();
+        }
+        catch (CancellationException e)
+        {
+            return;
+        }
+        catch (Throwable e)
+        {
+            this.failure = e;
+        }
+        try
+        {
+            this.put(END);
+        }
+        catch (CancellationException ignored)
+        {
+        }
+    }
+
+    private void offer(byte[] chunk, int length)
+    {
+        this.put(ByteBuffer.wrap(chunk, 0, length));
+    }
+
+    /**
+     * Queues given chunk, chunk that isn't queued because sink is cancelled is released here. Queued chunks are released only by thread
+     * that takes them from queue, so chunk queued concurrently with {@link #cancel()} is released exactly once.
+     */
+    private void put(ByteBuffer chunk)
+    {
+        if (this.cancelled)
+        {
+            this.release(chunk);
+            throw new CancellationException("Channel sink was cancelled");
+        }
+        if (! this.chunks.offer(chunk))
+        {
+            Demand demand = new Demand(chunk);
+            try
+            {
+                ForkJoinPool.managedBlock(demand);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                if (! demand.queued)
+                {
+                    this.release(chunk);
+                }
+                throw new CancellationException("Encoding was interrupted");
+            }
+            if (! demand.queued)
+            {
+                this.release(chunk);
+                throw new CancellationException("Channel sink was cancelled");
+            }
+        }
+        if (this.cancelled)
+        {
+            // cancel() might have drained queue before this chunk was added.
+            this.releaseQueued();
+            throw new CancellationException("Channel sink was cancelled");
+        }
+        Runnable continuation = this.pending.getAndSet(null);
+        if (continuation != null)
+        {
+            continuation.run();
+        }
+        if (this.readyListener != null)
+        {
+            this.readyListener.run();
+        }
+    }
+
+    /**
+     * Signals encoder waiting for free space, invoked by consumer after chunk is taken.
+     */
+    private void signalDemand()
+    {
+        synchronized (this.demand)
+        {
+            this.demand.notifyAll();
+        }
+    }
+
+    /**
+     * Waits until given chunk can be queued or sink is cancelled, consumer notifies it each time chunk is taken.
+     */
+    private final class Demand implements ForkJoinPool.ManagedBlocker
+    {
+        private final ByteBuffer chunk;
+        private       boolean    queued;
+
+        private Demand(ByteBuffer chunk)
+        {
+            this.chunk = chunk;
+        }
+
+        @Override
+        public boolean isReleasable()
+        {
+            if (ChannelSink.this.cancelled)
+            {
+                return true;
+            }
+            this.queued = ChannelSink.this.chunks.offer(this.chunk);
+            return this.queued;
+        }
+
+        @Override
+        public boolean block() throws InterruptedException
+        {
+            Object demand = ChannelSink.this.demand;
+            synchronized (demand)
+            {
+                while (! this.isReleasable())
+                {
+                    demand.wait();
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * @return true if whole value was written to channel.
+     */
+    public boolean isFinished()
+    {
+        return this.finished;
+    }
+
+    /**
+     * @return amount of bytes written to channel so far.
+     */
+    public long getWritten()
+    {
+        return this.written;
+    }
+
+    /**
+     * Writes as many encoded bytes as possible to given channel without waiting, suitable for non-blocking channels. <br>
+     * Method returns false when channel can't accept more bytes or next chunk isn't encoded yet, and should be invoked again later.
+     *
+     * @param channel
+     *     target channel.
+     *
+     * @return true if whole value was written.
+     *
+     * @throws IOException
+     *     if write fails or value can't be encoded.
+     */
+    public boolean writeTo(WritableByteChannel channel) throws IOException
+    {
+        return this.transfer(channel, false);
+    }
+
+    /**
+     * Writes whole value to given blocking channel, waiting for encoder when needed.
+     *
+     * @param channel
+     *     target channel, must be in blocking mode.
+     *
+     * @return amount of written bytes.
+     *
+     * @throws IOException
+     *     if write fails or value can't be encoded.
+     */
+    public long writeFully(WritableByteChannel channel) throws IOException
+    {
+        this.transfer(channel, true);
+        return this.written;
+    }
+
+    /**
+     * Writes whole value to given file channel starting at given position, each next chunk is written after previous write completes.
+     *
+     * @param channel
+     *     target channel.
+     * @param position
+     *     position in file.
+     * @param executor
+     *     executor used to continue writing after previous write completes or next chunk is encoded.
+     *
+     * @return future completed with amount of written bytes.
+     */
+    public CompletableFuture<Long> writeTo(AsynchronousFileChannel channel, long position, Executor executor)
+    {
+        CompletableFuture<Long> result = new CompletableFuture<>();
+        executor.execute(() -> this.writeNext(channel, position, executor, result));
+        return result;
+    }
+
+    private void writeNext(AsynchronousFileChannel channel, long position, Executor executor, CompletableFuture<Long> result)
+    {
+        if (this.cancelled)
+        {
+            result.completeExceptionally(new CancellationException("Channel sink was cancelled"));
+            return;
+        }
+        ByteBuffer next;
+        try
+        {
+            next = this.nextChunk(false);
+            if ((next == null) && ! this.finished)
+            {
+                // next chunk isn't encoded yet, encoder will run continuation after it queues one.
+                Runnable continuation = () -> executor.execute(() -> this.writeNext(channel, position, executor, result));
+                this.pending.set(continuation);
+                next = this.nextChunk(false);
+                if (((next == null) && ! this.finished) || ! this.pending.compareAndSet(continuation, null))
+                {
+                    return;
+                }
+            }
+        }
+        catch (IOException | RuntimeException e)
+        {
+            result.completeExceptionally(e);
+            return;
+        }
+        ByteBuffer chunk = next;
+        if (chunk == null)
+        {
+            result.complete(this.written);
+            return;
+        }
+        channel.write(chunk, position, null, new CompletionHandler<Integer, Void>()
+        {
+            @Override
+            public void completed(Integer count, @Nullable Void attachment)
+            {
+                ChannelSink.this.written += count;
+                if (! chunk.hasRemaining())
+                {
+                    ChannelSink.this.releaseCurrent();
+                }
+                executor.execute(() -> ChannelSink.this.writeNext(channel, position + count, executor, result));
+            }
+
+            @Override
+            public void failed(Throwable exception, @Nullable Void attachment)
+            {
+                ChannelSink.this.cancel();
+                result.completeExceptionally(exception);
+            }
+        });
+    }
+
+    private boolean transfer(WritableByteChannel channel, boolean block) throws IOException
+    {
+        while (! this.finished)
+        {
+            ByteBuffer chunk = this.nextChunk(block);
+            if (chunk == null)
+            {
+                return this.finished;
+            }
+            this.written += channel.write(chunk);
+            if (chunk.hasRemaining())
+            {
+                if (! block)
+                {
+                    return false;
+                }
+                continue;
+            }
+            this.releaseCurrent();
+        }
+        return true;
+    }
+
+    @Nullable
+    private ByteBuffer nextChunk(boolean block) throws IOException
+    {
+        if ((this.current != null) || this.finished)
+        {
+            return this.current;
+        }
+        ByteBuffer chunk;
+        try
+        {
+            chunk = block ? this.chunks.take() : this.chunks.poll();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for encoder");
+        }
+        if (chunk == null)
+        {
+            return null;
+        }
+        this.signalDemand();
+        if (chunk != END)
+        {
+            this.current = chunk;
+            return chunk;
+        }
+        this.finished = true;
+        Throwable failure = this.failure;
+        if (failure instanceof RuntimeException)
+        {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error)
+        {
+            throw (Error) failure;
+        }
+        if (failure != null)
+        {
+            throw new SerializationException("Encoding failed", failure);
+        }
+        return null;
+    }
+
+    private void releaseCurrent()
+    {
+        ByteBuffer current = this.current;
+        if (current != null)
+        {
+            this.current = null;
+            this.pool.release(current.array());
+        }
+    }
+
+    /**
+     * Stops encoding and releases all encoded chunks, should be invoked when channel is closed before whole value is written.
+     */
+    public void cancel()
+    {
+        this.cancelled = true;
+        this.signalDemand();
+        Runnable continuation = this.pending.getAndSet(null);
+        if (continuation != null)
+        {
+            continuation.run();
+        }
+        this.releaseCurrent();
+        this.releaseQueued();
+    }
+
+    private void releaseQueued()
+    {
+        for (ByteBuffer chunk = this.chunks.poll(); chunk != null; chunk = this.chunks.poll())
+        {
+            this.release(chunk);
+        }
+    }
+
+    private void release(ByteBuffer chunk)
+    {
+        if (chunk != END)
+        {
+            this.pool.release(chunk.array());
+        }
+    }
+}
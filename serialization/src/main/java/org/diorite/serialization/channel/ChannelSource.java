@@ -0,0 +1,255 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.channel;
+
+import org.diorite.serialization.SerializationException;
+import org.diorite.serialization.binary.BinaryInput;
+import org.diorite.serialization.buffer.BufferPool;
+import org.diorite.serialization.json.JsonByteReader;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Collects serialized data from channel into pooled buffer, so it can be decoded without intermediate copies. <br>
+ * Data is read until end of stream, so source should be used with files or connections that are closed after each document. Amount of
+ * collected bytes is limited, to protect against unbounded input. <br>
+ * {@link #release()} should be invoked after data is decoded, readers created by this source must not be used after that.
+ */
+public final class ChannelSource
+{
+    /**
+     * Default limit of collected bytes.
+     */
+    public static final int DEFAULT_MAX_LENGTH = 64 << 20;
+
+    private static final byte[] EMPTY = {};
+
+    private final BufferPool pool;
+    private final int        maxLength;
+    // used after limit is reached, to check if stream ends or has more bytes.
+    private final ByteBuffer probe = ByteBuffer.allocate(1);
+    private       byte[]     buffer;
+    private       int        size;
+    private       boolean    finished;
+
+    public ChannelSource(BufferPool pool, int maxLength)
+    {
+        this.pool = pool;
+        this.maxLength = maxLength;
+        this.buffer = pool.acquire(Math.min(8192, maxLength));
+    }
+
+    public ChannelSource()
+    {
+        this(BufferPool.DEFAULT, DEFAULT_MAX_LENGTH);
+    }
+
+    /**
+     * @return true if end of stream was reached.
+     */
+    public boolean isFinished()
+    {
+        return this.finished;
+    }
+
+    /**
+     * @return amount of collected bytes.
+     */
+    public int size()
+    {
+        return this.size;
+    }
+
+    /**
+     * Returns internal buffer of this source, only first {@link #size()} bytes are valid.
+     *
+     * @return internal buffer of this source.
+     */
+    public byte[] getBuffer()
+    {
+        return this.buffer;
+    }
+
+    /**
+     * Reads all bytes currently available in given channel without waiting, suitable for non-blocking channels.
+     *
+     * @param channel
+     *     source channel.
+     *
+     * @return true if end of stream was reached.
+     *
+     * @throws IOException
+     *     if read fails.
+     */
+    public boolean readFrom(ReadableByteChannel channel) throws IOException
+    {
+        while (! this.finished)
+        {
+            int read = channel.read(this.prepare());
+            if (read < 0)
+            {
+                this.finished = true;
+            }
+            else if (read == 0)
+            {
+                return false;
+            }
+            else
+            {
+                this.advance(read);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads all bytes until end of stream from given blocking channel.
+     *
+     * @param channel
+     *     source channel, must be in blocking mode.
+     *
+     * @return this source.
+     *
+     * @throws IOException
+     *     if read fails.
+     */
+    public ChannelSource readFully(ReadableByteChannel channel) throws IOException
+    {
+        while (! this.readFrom(channel))
+        {
+            Thread.onSpinWait();
+        }
+        return this;
+    }
+
+    /**
+     * Reads all bytes from given file channel, starting at given position.
+     *
+     * @param channel
+     *     source channel.
+     * @param position
+     *     position in file.
+     *
+     * @return future completed with this source after end of file is reached.
+     */
+    public CompletableFuture<ChannelSource> readFrom(AsynchronousFileChannel channel, long position)
+    {
+        CompletableFuture<ChannelSource> result = new CompletableFuture<>();
+        this.readNext(channel, position, result);
+        return result;
+    }
+
+    private void readNext(AsynchronousFileChannel channel, long position, CompletableFuture<ChannelSource> result)
+    {
+        channel.read(this.prepare(), position, null, new CompletionHandler<Integer, Void>()
+        {
+            @Override
+            public void completed(Integer read, @Nullable Void attachment)
+            {
+                if (read < 0)
+                {
+                    ChannelSource.this.finished = true;
+                    result.complete(ChannelSource.this);
+                    return;
+                }
+                try
+                {
+                    ChannelSource.this.advance(read);
+                }
+                catch (SerializationException e)
+                {
+                    result.completeExceptionally(e);
+                    return;
+                }
+                ChannelSource.this.readNext(channel, position + read, result);
+            }
+
+            @Override
+            public void failed(Throwable exception, @Nullable Void attachment)
+            {
+                result.completeExceptionally(exception);
+            }
+        });
+    }
+
+    private ByteBuffer prepare()
+    {
+        if (this.size >= this.maxLength)
+        {
+            // data of exactly max length is valid, so one more byte is read only to check if stream ends there.
+            this.probe.clear();
+            return this.probe;
+        }
+        if (this.size == this.buffer.length)
+        {
+            byte[] newBuffer = this.pool.acquire((int) Math.min(this.maxLength, (long) this.size << 1));
+            System.arraycopy(this.buffer, 0, newBuffer, 0, this.size);
+            this.pool.release(this.buffer);
+            this.buffer = newBuffer;
+        }
+        return ByteBuffer.wrap(this.buffer, this.size, Math.min(this.buffer.length, this.maxLength) - this.size);
+    }
+
+    private void advance(int read)
+    {
+        if (this.size >= this.maxLength)
+        {
+            throw new SerializationException("Data exceeds limit of " + this.maxLength + " bytes");
+        }
+        this.size += read;
+    }
+
+    /**
+     * @return JSON reader over collected bytes.
+     */
+    public JsonByteReader toJsonReader()
+    {
+        return new JsonByteReader(this.buffer, 0, this.size);
+    }
+
+    /**
+     * @return binary input over collected bytes.
+     */
+    public BinaryInput toBinaryInput()
+    {
+        return new BinaryInput(this.buffer, 0, this.size);
+    }
+
+    /**
+     * Returns buffer of this source to its pool.
+     */
+    public void release()
+    {
+        this.pool.release(this.buffer);
+        this.buffer = EMPTY;
+        this.size = 0;
+    }
+}
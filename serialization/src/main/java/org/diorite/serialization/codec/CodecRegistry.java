@@ -0,0 +1,222 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.codec;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * Registry of custom codecs used instead of built-in handling of values. <br>
+ * Codec can be registered for exact type only, or for type and all of its subtypes and implementations. Codec of concrete class is
+ * resolved once and cached in {@link ClassValue}, exact registration always wins, then hierarchy registrations of superclasses are
+ * checked starting from closest one, and then hierarchy registrations of interfaces in breadth-first order. <br>
+ * Registry is thread safe, but codecs should be registered before registry is used, as each registration invalidates all cached
+ * lookups.
+ *
+ * @param <C>
+ *     type of codecs.
+ */
+public final class CodecRegistry<C>
+{
+    private static final Object NONE = new Object();
+
+    private final Map<Class<?>, C> exact     = new IdentityHashMap<>(16);
+    private final Map<Class<?>, C> hierarchy = new IdentityHashMap<>(16);
+
+    private volatile boolean            empty   = true;
+    private volatile int                version;
+    private volatile ClassValue<Object> lookups = this.createLookups();
+
+    private ClassValue<Object> createLookups()
+    {
+        return new ClassValue<>()
+        {
+            @Override
+            protected Object computeValue(Class<?> type)
+            {
+                C codec = CodecRegistry.this.resolve(type);
+                return (codec == null) ? NONE : codec;
+            }
+        };
+    }
+
+    /**
+     * Registers codec for given exact type, subtypes of given type will not use this codec.
+     *
+     * @param type
+     *     exact type of values.
+     * @param codec
+     *     codec to use.
+     */
+    public synchronized void register(Class<?> type, C codec)
+    {
+        this.exact.put(type, codec);
+        this.invalidate();
+    }
+
+    /**
+     * Registers codec for given type and all of its subtypes, or all implementations if given type is an interface.
+     *
+     * @param type
+     *     base type of values.
+     * @param codec
+     *     codec to use.
+     */
+    public synchronized void registerHierarchy(Class<?> type, C codec)
+    {
+        this.hierarchy.put(type, codec);
+        this.invalidate();
+    }
+
+    /**
+     * Removes all codecs registered for given type.
+     *
+     * @param type
+     *     type to remove.
+     */
+    public synchronized void unregister(Class<?> type)
+    {
+        if ((this.exact.remove(type) != null) | (this.hierarchy.remove(type) != null))
+        {
+            this.invalidate();
+        }
+    }
+
+    private void invalidate()
+    {
+        this.empty = this.exact.isEmpty() && this.hierarchy.isEmpty();
+        this.lookups = this.createLookups();
+        this.version++;
+    }
+
+    /**
+     * Returns true if there are no registered codecs, so all lookups can be skipped.
+     *
+     * @return true if registry is empty.
+     */
+    public boolean isEmpty()
+    {
+        return this.empty;
+    }
+
+    /**
+     * Returns version of registry, changed on each registration, used to invalidate caches of {@link CodecSite} instances.
+     *
+     * @return version of registry.
+     */
+    public int getVersion()
+    {
+        return this.version;
+    }
+
+    /**
+     * Returns codec that should be used for values of given class, or null if built-in handling should be used.
+     *
+     * @param type
+     *     class of value.
+     *
+     * @return codec for given class or null.
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public C get(Class<?> type)
+    {
+        if (this.empty)
+        {
+            return null;
+        }
+        Object codec = this.lookups.get(type);
+        return (codec == NONE) ? null : (C) codec;
+    }
+
+    /**
+     * Creates new inline cache for single call site, like single property of class.
+     *
+     * @return new call site cache.
+     */
+    public CodecSite<C> newSite()
+    {
+        return new CodecSite<>(this);
+    }
+
+    /**
+     * @return unmodifiable set of types with any registered codec.
+     */
+    public synchronized Set<Class<?>> getRegisteredTypes()
+    {
+        Set<Class<?>> types = new HashSet<>(this.exact.keySet());
+        types.addAll(this.hierarchy.keySet());
+        return Collections.unmodifiableSet(types);
+    }
+
+    @Nullable
+    private synchronized C resolve(Class<?> type)
+    {
+        C codec = this.exact.get(type);
+        if (codec != null)
+        {
+            return codec;
+        }
+        if (this.hierarchy.isEmpty())
+        {
+            return null;
+        }
+        for (Class<?> current = type; current != null; current = current.getSuperclass())
+        {
+            codec = this.hierarchy.get(current);
+            if (codec != null)
+            {
+                return codec;
+            }
+        }
+        Queue<Class<?>> interfaces = new ArrayDeque<>(8);
+        for (Class<?> current = type; current != null; current = current.getSuperclass())
+        {
+            Collections.addAll(interfaces, current.getInterfaces());
+        }
+        Set<Class<?>> visited = new HashSet<>(16);
+        while (! interfaces.isEmpty())
+        {
+            Class<?> current = interfaces.poll();
+            if (! visited.add(current))
+            {
+                continue;
+            }
+            codec = this.hierarchy.get(current);
+            if (codec != null)
+            {
+                return codec;
+            }
+            Collections.addAll(interfaces, current.getInterfaces());
+        }
+        return null;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.codec;
+
+import javax.annotation.Nullable;
+
+/**
+ * Inline cache of codec lookups for single call site, like single property of class. <br>
+ * Site remembers codecs of two most recently used classes, so properties with one or two runtime classes are dispatched with single
+ * reference comparison. After too many misses site is considered megamorphic and all lookups go directly to {@link ClassValue} of
+ * registry. <br>
+ * Site is thread safe, cached entries are immutable, so in worst case concurrent update only causes additional lookup.
+ *
+ * @param <C>
+ *     type of codecs.
+ */
+public final class CodecSite<C>
+{
+    /**
+     * Amount of cache misses after which site stops caching.
+     */
+    public static final int MEGAMORPHIC_THRESHOLD = 16;
+
+    private final CodecRegistry<C> registry;
+
+    @Nullable
+    private Entry<C> first;
+    @Nullable
+    private Entry<C> second;
+    private int      misses;
+
+    CodecSite(CodecRegistry<C> registry)
+    {
+        this.registry = registry;
+    }
+
+    /**
+     * @return registry used by this site.
+     */
+    public CodecRegistry<C> getRegistry()
+    {
+        return this.registry;
+    }
+
+    /**
+     * Returns codec that should be used for values of given class, or null if built-in handling should be used.
+     *
+     * @param type
+     *     class of value.
+     *
+     * @return codec for given class or null.
+     */
+    @Nullable
+    public C get(Class<?> type)
+    {
+        CodecRegistry<C> registry = this.registry;
+        if (registry.isEmpty())
+        {
+            return null;
+        }
+        int version = registry.getVersion();
+        Entry<C> entry = this.first;
+        if ((entry != null) && (entry.type == type) && (entry.version == version))
+        {
+            return entry.codec;
+        }
+        entry = this.second;
+        if ((entry != null) && (entry.type == type) && (entry.version == version))
+        {
+            return entry.codec;
+        }
+        C codec = registry.get(type);
+        if (this.misses < MEGAMORPHIC_THRESHOLD)
+        {
+            this.misses++;
+            this.second = this.first;
+            this.first = new Entry<>(type, codec, version);
+        }
+        return codec;
+    }
+
+    /**
+     * @return true if this site stopped caching lookups.
+     */
+    public boolean isMegamorphic()
+    {
+        return this.misses >= MEGAMORPHIC_THRESHOLD;
+    }
+
+    private static final class Entry<C>
+    {
+        private final Class<?> type;
+        @Nullable
+        private final C        codec;
+        private final int      version;
+
+        private Entry(Class<?> type, @Nullable C codec, int version)
+        {
+            this.type = type;
+            this.codec = codec;
+            this.version = version;
+        }
+    }
+}
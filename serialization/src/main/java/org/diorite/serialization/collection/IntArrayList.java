@@ -0,0 +1,208 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.collection;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * Growable list of {@code int} values backed by primitive array, boxed {@link java.util.List} methods are supported, but primitive
+ * methods like {@link #getInt(int)} and {@link #addInt(int)} should be used to avoid boxing. <br>
+ * Null elements are not supported.
+ */
+public final class IntArrayList extends AbstractList<Integer> implements RandomAccess
+{
+    private static final int[] EMPTY = {};
+
+    private int[] elements;
+    private int   size;
+
+    public IntArrayList()
+    {
+        this.elements = EMPTY;
+    }
+
+    public IntArrayList(int initialCapacity)
+    {
+        this.elements = (initialCapacity == 0) ? EMPTY : new int[initialCapacity];
+    }
+
+    private IntArrayList(int[] elements, int size)
+    {
+        this.elements = elements;
+        this.size = size;
+    }
+
+    /**
+     * Creates list that uses given array as its storage, array must not be modified by caller after this method is invoked.
+     *
+     * @param elements
+     *     elements of list.
+     *
+     * @return list backed by given array.
+     */
+    public static IntArrayList wrap(int[] elements)
+    {
+        return new IntArrayList(elements, elements.length);
+    }
+
+    /**
+     * Returns internal array of this list, only first {@link #size()} values are valid.
+     *
+     * @return internal array of this list.
+     */
+    public int[] elements()
+    {
+        return this.elements;
+    }
+
+    @Override
+    public int size()
+    {
+        return this.size;
+    }
+
+    private void checkIndex(int index)
+    {
+        if ((index < 0) || (index >= this.size))
+        {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + this.size);
+        }
+    }
+
+    private void grow(int minCapacity)
+    {
+        if (minCapacity > this.elements.length)
+        {
+            this.elements = Arrays.copyOf(this.elements, Math.max(minCapacity, Math.max(this.elements.length << 1, 8)));
+        }
+    }
+
+    public int getInt(int index)
+    {
+        this.checkIndex(index);
+        return this.elements[index];
+    }
+
+    public int setInt(int index, int value)
+    {
+        this.checkIndex(index);
+        int previous = this.elements[index];
+        this.elements[index] = value;
+        return previous;
+    }
+
+    public void addInt(int value)
+    {
+        if (this.size == this.elements.length)
+        {
+            this.grow(this.size + 1);
+        }
+        this.elements[this.size++] = value;
+        this.modCount++;
+    }
+
+    public void addInt(int index, int value)
+    {
+        if ((index < 0) || (index > this.size))
+        {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + this.size);
+        }
+        this.grow(this.size + 1);
+        System.arraycopy(this.elements, index, this.elements, index + 1, this.size - index);
+        this.elements[index] = value;
+        this.size++;
+        this.modCount++;
+    }
+
+    public int removeInt(int index)
+    {
+        this.checkIndex(index);
+        int previous = this.elements[index];
+        System.arraycopy(this.elements, index + 1, this.elements, index, this.size - index - 1);
+        this.size--;
+        this.modCount++;
+        return previous;
+    }
+
+    /**
+     * @return copy of values of this list.
+     */
+    public int[] toIntArray()
+    {
+        return Arrays.copyOf(this.elements, this.size);
+    }
+
+    @Override
+    public Integer get(int index)
+    {
+        return this.getInt(index);
+    }
+
+    @Override
+    public Integer set(int index, Integer element)
+    {
+        return this.setInt(index, element);
+    }
+
+    @Override
+    public boolean add(Integer element)
+    {
+        this.addInt(element);
+        return true;
+    }
+
+    @Override
+    public void add(int index, Integer element)
+    {
+        this.addInt(index, element);
+    }
+
+    @Override
+    public Integer remove(int index)
+    {
+        return this.removeInt(index);
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Integer> collection)
+    {
+        this.grow(this.size + collection.size());
+        for (Integer element : collection)
+        {
+            this.addInt(element);
+        }
+        return ! collection.isEmpty();
+    }
+
+    @Override
+    public void clear()
+    {
+        this.size = 0;
+        this.modCount++;
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.collection;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * Growable list of {@code long} values backed by primitive array, boxed {@link java.util.List} methods are supported, but primitive
+ * methods like {@link #getLong(int)} and {@link #addLong(long)} should be used to avoid boxing. <br>
+ * Null elements are not supported.
+ */
+public final class LongArrayList extends AbstractList<Long> implements RandomAccess
+{
+    private static final long[] EMPTY = {};
+
+    private long[] elements;
+    private int    size;
+
+    public LongArrayList()
+    {
+        this.elements = EMPTY;
+    }
+
+    public LongArrayList(int initialCapacity)
+    {
+        this.elements = (initialCapacity == 0) ? EMPTY : new long[initialCapacity];
+    }
+
+    private LongArrayList(long[] elements, int size)
+    {
+        this.elements = elements;
+        this.size = size;
+    }
+
+    /**
+     * Creates list that uses given array as its storage, array must not be modified by caller after this method is invoked.
+     *
+     * @param elements
+     *     elements of list.
+     *
+     * @return list backed by given array.
+     */
+    public static LongArrayList wrap(long[] elements)
+    {
+        return new LongArrayList(elements, elements.length);
+    }
+
+    /**
+     * Returns internal array of this list, only first {@link #size()} values are valid.
+     *
+     * @return internal array of this list.
+     */
+    public long[] elements()
+    {
+        return this.elements;
+    }
+
+    @Override
+    public int size()
+    {
+        return this.size;
+    }
+
+    private void checkIndex(int index)
+    {
+        if ((index < 0) || (index >= this.size))
+        {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + this.size);
+        }
+    }
+
+    private void grow(int minCapacity)
+    {
+        if (minCapacity > this.elements.length)
+        {
+            this.elements = Arrays.copyOf(this.elements, Math.max(minCapacity, Math.max(this.elements.length << 1, 8)));
+        }
+    }
+
+    public long getLong(int index)
+    {
+        this.checkIndex(index);
+        return this.elements[index];
+    }
+
+    public long setLong(int index, long value)
+    {
+        this.checkIndex(index);
+        long previous = this.elements[index];
+        this.elements[index] = value;
+        return previous;
+    }
+
+    public void addLong(long value)
+    {
+        if (this.size == this.elements.length)
+        {
+            this.grow(this.size + 1);
+        }
+        this.elements[this.size++] = value;
+        this.modCount++;
+    }
+
+    public void addLong(int index, long value)
+    {
+        if ((index < 0) || (index > this.size))
+        {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + this.size);
+        }
+        this.grow(this.size + 1);
+        System.arraycopy(this.elements, index, this.elements, index + 1, this.size - index);
+        this.elements[index] = value;
+        this.size++;
+        this.modCount++;
+    }
+
+    public long removeLong(int index)
+    {
+        this.checkIndex(index);
+        long previous = this.elements[index];
+        System.arraycopy(this.elements, index + 1, this.elements, index, this.size - index - 1);
+        this.size--;
+        this.modCount++;
+        return previous;
+    }
+
+    /**
+     * @return copy of values of this list.
+     */
+    public long[] toLongArray()
+    {
+        return Arrays.copyOf(this.elements, this.size);
+    }
+
+    @Override
+    public Long get(int index)
+    {
+        return this.getLong(index);
+    }
+
+    @Override
+    public Long set(int index, Long element)
+    {
+        return this.setLong(index, element);
+    }
+
+    @Override
+    public boolean add(Long element)
+    {
+        this.addLong(element);
+        return true;
+    }
+
+    @Override
+    public void add(int index, Long element)
+    {
+        this.addLong(index, element);
+    }
+
+    @Override
+    public Long remove(int index)
+    {
+        return this.removeLong(index);
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Long> collection)
+    {
+        this.grow(this.size + collection.size());
+        for (Long element : collection)
+        {
+            this.addLong(element);
+        }
+        return ! collection.isEmpty();
+    }
+
+    @Override
+    public void clear()
+    {
+        this.size = 0;
+        this.modCount++;
+    }
+}
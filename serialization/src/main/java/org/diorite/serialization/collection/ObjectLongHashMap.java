@@ -0,0 +1,349 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.collection;
+
+import javax.annotation.Nullable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Open addressing hash map with {@code long} values stored in primitive array, boxed {@link Map} methods are supported, but primitive
+ * methods like {@link #getLong(Object, long)} and {@link #putLong(Object, long)} should be used to avoid boxing. <br>
+ * Null keys and null values are not supported, iterators of this map do not support removal.
+ *
+ * @param <K>
+ *     type of keys.
+ */
+public final class ObjectLongHashMap<K> extends AbstractMap<K, Long>
+{
+    private Object[] keys;
+    private long[]   values;
+    private int      size;
+    private int      threshold;
+
+    public ObjectLongHashMap()
+    {
+        this(8);
+    }
+
+    public ObjectLongHashMap(int expectedSize)
+    {
+        int capacity = Integer.highestOneBit((Math.max(expectedSize, 2) * 4 / 3) - 1) << 1;
+        this.keys = new Object[capacity];
+        this.values = new long[capacity];
+        this.threshold = (capacity * 3) >>> 2;
+    }
+
+    private static int index(Object key, int mask)
+    {
+        int hash = key.hashCode() * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private int find(Object key)
+    {
+        Object[] keys = this.keys;
+        int mask = keys.length - 1;
+        for (int i = index(key, mask); ; i = (i + 1) & mask)
+        {
+            Object current = keys[i];
+            if (current == null)
+            {
+                return - 1;
+            }
+            if ((current == key) || current.equals(key))
+            {
+                return i;
+            }
+        }
+    }
+
+    @Override
+    public int size()
+    {
+        return this.size;
+    }
+
+    @Override
+    public boolean containsKey(@Nullable Object key)
+    {
+        return (key != null) && (this.find(key) >= 0);
+    }
+
+    /**
+     * Returns value assigned to given key, or given default value if key isn't present.
+     *
+     * @param key
+     *     key to find.
+     * @param defaultValue
+     *     value returned if key isn't present.
+     *
+     * @return value assigned to given key or default value.
+     */
+    public long getLong(Object key, long defaultValue)
+    {
+        int slot = this.find(key);
+        return (slot < 0) ? defaultValue : this.values[slot];
+    }
+
+    /**
+     * Assigns given value to given key.
+     *
+     * @param key
+     *     key of value.
+     * @param value
+     *     value to assign.
+     */
+    public void putLong(K key, long value)
+    {
+        Objects.requireNonNull(key, "key");
+        Object[] keys = this.keys;
+        int mask = keys.length - 1;
+        int i = index(key, mask);
+        for (Object current = keys[i]; current != null; current = keys[i])
+        {
+            if ((current == key) || current.equals(key))
+            {
+                this.values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        this.values[i] = value;
+        if (++ this.size > this.threshold)
+        {
+            this.resize();
+        }
+    }
+
+    /**
+     * Invokes given consumer for each entry of this map, without boxing values.
+     *
+     * @param consumer
+     *     consumer of entries.
+     */
+    public void forEachLong(ObjLongConsumer<? super K> consumer)
+    {
+        for (int slot = this.nextSlot(0); slot >= 0; slot = this.nextSlot(slot + 1))
+        {
+            consumer.accept(this.keyAt(slot), this.values[slot]);
+        }
+    }
+
+    /**
+     * Returns index of first used slot at or after given index, or -1 if there are no more used slots. <br>
+     * Used together with {@link #keyAt(int)} and {@link #valueAt(int)} to iterate over map without creating any objects.
+     *
+     * @param from
+     *     first slot to check.
+     *
+     * @return index of used slot or -1.
+     */
+    public int nextSlot(int from)
+    {
+        Object[] keys = this.keys;
+        for (int i = from; i < keys.length; i++)
+        {
+            if (keys[i] != null)
+            {
+                return i;
+            }
+        }
+        return - 1;
+    }
+
+    /**
+     * Returns key stored in given used slot.
+     *
+     * @param slot
+     *     index of slot.
+     *
+     * @return key stored in given slot.
+     */
+    @SuppressWarnings("unchecked")
+    public K keyAt(int slot)
+    {
+        return (K) this.keys[slot];
+    }
+
+    /**
+     * Returns value stored in given used slot.
+     *
+     * @param slot
+     *     index of slot.
+     *
+     * @return value stored in given slot.
+     */
+    public long valueAt(int slot)
+    {
+        return this.values[slot];
+    }
+
+    @Nullable
+    @Override
+    public Long get(@Nullable Object key)
+    {
+        int slot = (key == null) ? - 1 : this.find(key);
+        return (slot < 0) ? null : this.values[slot];
+    }
+
+    @Nullable
+    @Override
+    public Long put(K key, Long value)
+    {
+        Long previous = this.get(key);
+        this.putLong(key, value);
+        return previous;
+    }
+
+    @Nullable
+    @Override
+    public Long remove(@Nullable Object key)
+    {
+        int slot = (key == null) ? - 1 : this.find(key);
+        if (slot < 0)
+        {
+            return null;
+        }
+        long previous = this.values[slot];
+        this.removeSlot(slot);
+        return previous;
+    }
+
+    private void removeSlot(int slot)
+    {
+        Object[] keys = this.keys;
+        int mask = keys.length - 1;
+        int gap = slot;
+        // backward shift, so no tombstones are needed.
+        for (int i = (slot + 1) & mask; keys[i] != null; i = (i + 1) & mask)
+        {
+            int ideal = index(keys[i], mask);
+            if (((i - ideal) & mask) >= ((i - gap) & mask))
+            {
+                keys[gap] = keys[i];
+                this.values[gap] = this.values[i];
+                gap = i;
+            }
+        }
+        keys[gap] = null;
+        this.size--;
+    }
+
+    @Override
+    public void clear()
+    {
+        Arrays.fill(this.keys, null);
+        this.size = 0;
+    }
+
+    private void resize()
+    {
+        Object[] oldKeys = this.keys;
+        long[] oldValues = this.values;
+        int capacity = oldKeys.length << 1;
+        int mask = capacity - 1;
+        Object[] keys = new Object[capacity];
+        long[] values = new long[capacity];
+        for (int j = 0; j < oldKeys.length; j++)
+        {
+            Object key = oldKeys[j];
+            if (key == null)
+            {
+                continue;
+            }
+            int i = index(key, mask);
+            while (keys[i] != null)
+            {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = oldValues[j];
+        }
+        this.keys = keys;
+        this.values = values;
+        this.threshold = (capacity * 3) >>> 2;
+    }
+
+    @Override
+    public Set<Entry<K, Long>> entrySet()
+    {
+        return new AbstractSet<>()
+        {
+            @Override
+            public Iterator<Entry<K, Long>> iterator()
+            {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size()
+            {
+                return ObjectLongHashMap.this.size;
+            }
+        };
+    }
+
+    private final class EntryIterator implements Iterator<Entry<K, Long>>
+    {
+        private int next = ObjectLongHashMap.this.nextSlot(0);
+
+        @Override
+        public boolean hasNext()
+        {
+            return this.next >= 0;
+        }
+
+        @Override
+        public Entry<K, Long> next()
+        {
+            int slot = this.next;
+            if (slot < 0)
+            {
+                throw new NoSuchElementException();
+            }
+            this.next = ObjectLongHashMap.this.nextSlot(slot + 1);
+            return new SimpleEntry<>(ObjectLongHashMap.this.keyAt(slot), ObjectLongHashMap.this.values[slot])
+            {
+                private static final long serialVersionUID = 0;
+
+                @Override
+                public Long setValue(Long value)
+                {
+                    ObjectLongHashMap.this.values[slot] = value;
+                    return super.setValue(value);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.collection;
+
+import org.diorite.serialization.InstanceFactory;
+import org.diorite.serialization.SerializationException;
+import org.diorite.serialization.ValueTypes;
+import org.diorite.serialization.setting.PropertySettings;
+
+import javax.annotation.Nullable;
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Selects primitive-backed collection implementations for declared collection types, using generic parameters of type. <br>
+ * Specialized collection is only used if declared type is an interface or abstract type implemented by it, so {@literal List<Integer>}
+ * or {@literal Collection<Integer>} are decoded to {@link IntArrayList}, but {@literal ArrayList<Integer>} is left unchanged. Declared
+ * specialized types are always used, even without generic parameters. <br>
+ * Specialized collections can't store nulls, so codecs copy already decoded data to boxed collection when null is found.
+ */
+public final class PrimitiveCollections
+{
+    private PrimitiveCollections()
+    {
+    }
+
+    private static boolean permits(Class<?> declared, Class<?> implementation)
+    {
+        if (declared == implementation)
+        {
+            return true;
+        }
+        return (declared != Object.class) && (declared.isInterface() || Modifier.isAbstract(declared.getModifiers())) &&
+               declared.isAssignableFrom(implementation);
+    }
+
+    /**
+     * Creates empty primitive-backed list for given declared type, or returns null if there is no specialized list for that type.
+     *
+     * @param type
+     *     declared type of collection.
+     * @param elementSettings
+     *     settings of element type.
+     *
+     * @return new specialized list or null.
+     */
+    @Nullable
+    public static Object createList(Class<?> type, @Nullable PropertySettings elementSettings)
+    {
+        if (type == IntArrayList.class)
+        {
+            return new IntArrayList();
+        }
+        if (type == LongArrayList.class)
+        {
+            return new LongArrayList();
+        }
+        if (type == DoubleArrayList.class)
+        {
+            return new DoubleArrayList();
+        }
+        Class<?> elementType = ValueTypes.rawType(elementSettings);
+        if ((elementType == Integer.class) && permits(type, IntArrayList.class))
+        {
+            return new IntArrayList();
+        }
+        if ((elementType == Long.class) && permits(type, LongArrayList.class))
+        {
+            return new LongArrayList();
+        }
+        if ((elementType == Double.class) && permits(type, DoubleArrayList.class))
+        {
+            return new DoubleArrayList();
+        }
+        return null;
+    }
+
+    /**
+     * Returns true if values of given packed array can be used as storage of list of given declared type.
+     *
+     * @param type
+     *     declared type of collection.
+     * @param elementSettings
+     *     settings of element type.
+     * @param array
+     *     primitive array.
+     *
+     * @return true if given array can be wrapped.
+     */
+    public static boolean canWrap(Class<?> type, @Nullable PropertySettings elementSettings, Object array)
+    {
+        Object list = createList(type, elementSettings);
+        return ((list instanceof IntArrayList) && (array instanceof int[])) ||
+               ((list instanceof LongArrayList) && (array instanceof long[])) ||
+               ((list instanceof DoubleArrayList) && (array instanceof double[]));
+    }
+
+    /**
+     * Wraps given primitive array in matching primitive-backed list.
+     *
+     * @param array
+     *     int, long or double array.
+     *
+     * @return list backed by given array.
+     */
+    public static Object wrap(Object array)
+    {
+        if (array instanceof int[])
+        {
+            return IntArrayList.wrap((int[]) array);
+        }
+        if (array instanceof long[])
+        {
+            return LongArrayList.wrap((long[]) array);
+        }
+        if (array instanceof double[])
+        {
+            return DoubleArrayList.wrap((double[]) array);
+        }
+        throw new IllegalArgumentException("Unsupported array type: " + array.getClass().getName());
+    }
+
+    /**
+     * Returns boxed type of elements of given primitive-backed list.
+     *
+     * @param list
+     *     list created by {@link #createList(Class, PropertySettings)}.
+     *
+     * @return type of elements.
+     */
+    public static Class<?> elementType(Collection<?> list)
+    {
+        if (list instanceof IntArrayList)
+        {
+            return Integer.class;
+        }
+        if (list instanceof LongArrayList)
+        {
+            return Long.class;
+        }
+        if (list instanceof DoubleArrayList)
+        {
+            return Double.class;
+        }
+        throw new IllegalArgumentException("Unsupported list type: " + list.getClass().getName());
+    }
+
+    /**
+     * Returns true if given collection is one of primitive-backed lists, that can't store null elements.
+     *
+     * @param collection
+     *     collection to check.
+     *
+     * @return true if given collection is primitive-backed list.
+     */
+    public static boolean isPrimitiveBacked(Collection<?> collection)
+    {
+        return (collection instanceof IntArrayList) || (collection instanceof LongArrayList) || (collection instanceof DoubleArrayList);
+    }
+
+    /**
+     * Copies elements of given specialized list to new boxed collection of given declared type, used when decoded data contains null
+     * element that can not be stored in primitive-backed list.
+     *
+     * @param list
+     *     specialized list created by {@link #createList(Class, PropertySettings)}.
+     * @param type
+     *     declared type of collection.
+     * @param instanceFactory
+     *     factory used to create concrete types.
+     *
+     * @return new boxed collection with same elements.
+     *
+     * @throws SerializationException
+     *     if declared type is specialized list itself.
+     */
+    public static Collection<Object> toBoxed(Collection<?> list, Class<?> type, InstanceFactory instanceFactory)
+    {
+        if (type == list.getClass())
+        {
+            throw new SerializationException("Null element can't be stored in " + type.getName());
+        }
+        Collection<Object> collection = ValueTypes.createCollection(type, instanceFactory);
+        collection.addAll(list);
+        return collection;
+    }
+
+    /**
+     * Copies entries of given specialized map to new boxed map of given declared type, used when decoded data contains null value
+     * that can not be stored in primitive-backed map.
+     *
+     * @param map
+     *     specialized map created by {@link #createMap(Class, PropertySettings)}.
+     * @param type
+     *     declared type of map.
+     * @param instanceFactory
+     *     factory used to create concrete types.
+     *
+     * @return new boxed map with same entries.
+     *
+     * @throws SerializationException
+     *     if declared type is specialized map itself.
+     */
+    public static Map<Object, Object> toBoxed(Map<?, ?> map, Class<?> type, InstanceFactory instanceFactory)
+    {
+        if (type == map.getClass())
+        {
+            throw new SerializationException("Null value can't be stored in " + type.getName());
+        }
+        Map<Object, Object> boxed = ValueTypes.createMap(type, instanceFactory);
+        boxed.putAll(map);
+        return boxed;
+    }
+
+    /**
+     * Creates empty map with primitive values for given declared type, or returns null if there is no specialized map for that type.
+     *
+     * @param type
+     *     declared type of map.
+     * @param valueSettings
+     *     settings of value type.
+     *
+     * @return new specialized map or null.
+     */
+    @Nullable
+    public static ObjectLongHashMap<Object> createMap(Class<?> type, @Nullable PropertySettings valueSettings)
+    {
+        if (type == ObjectLongHashMap.class)
+        {
+            return new ObjectLongHashMap<>();
+        }
+        if ((ValueTypes.rawType(valueSettings) == Long.class) && permits(type, ObjectLongHashMap.class))
+        {
+            return new ObjectLongHashMap<>();
+        }
+        return null;
+    }
+}
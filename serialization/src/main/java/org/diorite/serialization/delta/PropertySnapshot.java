@@ -0,0 +1,139 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.delta;
+
+import org.diorite.serialization.plan.PropertyPlan;
+
+import javax.annotation.Nullable;
+import java.lang.reflect.Array;
+import java.util.Objects;
+
+/**
+ * Retained values of all properties of serialization plan, used to find out which properties were changed since last delta. <br>
+ * Values are compared using {@link Objects#deepEquals(Object, Object)}, arrays are copied when stored, but other mutable values like
+ * collections are stored by reference, so they should be replaced instead of modified in place to be detected as changed.
+ *
+ * @param <T>
+ *     type of object.
+ */
+public final class PropertySnapshot<T>
+{
+    private final PropertyPlan<T> plan;
+    private final Object[]        values;
+
+    private PropertySnapshot(PropertyPlan<T> plan)
+    {
+        this.plan = plan;
+        this.values = new Object[plan.size()];
+    }
+
+    /**
+     * Captures values of all properties of given plan.
+     *
+     * @param plan
+     *     serialization plan of object.
+     * @param object
+     *     object to capture.
+     * @param <T>
+     *     type of object.
+     *
+     * @return new snapshot.
+     */
+    public static <T> PropertySnapshot<T> capture(PropertyPlan<T> plan, T object)
+    {
+        PropertySnapshot<T> snapshot = new PropertySnapshot<>(plan);
+        snapshot.update(object);
+        return snapshot;
+    }
+
+    /**
+     * @return plan used by this snapshot.
+     */
+    public PropertyPlan<T> getPlan()
+    {
+        return this.plan;
+    }
+
+    /**
+     * Returns retained value of property at given plan index.
+     *
+     * @param index
+     *     index of property in plan.
+     *
+     * @return retained value.
+     */
+    @Nullable
+    public Object getValue(int index)
+    {
+        return this.values[index];
+    }
+
+    /**
+     * Compares given value with retained value of property at given plan index, and retains new value if it was changed.
+     *
+     * @param index
+     *     index of property in plan.
+     * @param value
+     *     current value of property.
+     *
+     * @return true if value was changed.
+     */
+    public boolean update(int index, @Nullable Object value)
+    {
+        if (Objects.deepEquals(this.values[index], value))
+        {
+            return false;
+        }
+        this.values[index] = copy(value);
+        return true;
+    }
+
+    /**
+     * Retains current values of all properties of given object.
+     *
+     * @param object
+     *     object to capture.
+     */
+    public void update(T object)
+    {
+        for (int i = 0; i < this.values.length; i++)
+        {
+            this.values[i] = copy(this.plan.getProperty(i).getValue(object));
+        }
+    }
+
+    @Nullable
+    private static Object copy(@Nullable Object value)
+    {
+        if ((value == null) || ! value.getClass().isArray())
+        {
+            return value;
+        }
+        int length = Array.getLength(value);
+        Object copy = Array.newInstance(value.getClass().getComponentType(), length);
+        System.arraycopy(value, 0, copy, 0, length);
+        return copy;
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.diorite.serialization.gson;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.internal.$Gson$Types;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import org.diorite.serialization.InstanceFactory;
+import org.diorite.serialization.plan.PropertyPlan;
+import org.diorite.serialization.setting.Property;
+import org.diorite.serialization.setting.settings.SerializedNameSetting;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Gson adapter of single class, property names, name lookup table and gson adapters of each property are resolved once when adapter
+ * is created.
+ *
+ * @param <T>
+ *     type of object.
+ */
+final class PlanTypeAdapter<T> extends TypeAdapter<T>
+{
+    private final Gson                 gson;
+    private final InstanceFactory      instanceFactory;
+    private final PropertyPlan<T>      writePlan;
+    private final TypeAdapter<?>[]     writeAdapters;
+    private final boolean[]            writeDynamic;
+    private final PropertyPlan<T>      readPlan;
+    private final TypeAdapter<?>[]     readAdapters;
+    private final boolean[]            readPrimitive;
+    private final Map<String, Integer> readNames;
+
+    PlanTypeAdapter(Gson gson, TypeToken<T> typeToken, PropertyPlan<T> writePlan, PropertyPlan<T> readPlan, InstanceFactory instanceFactory)
+    {
+        this.gson = gson;
+        this.instanceFactory = instanceFactory;
+
+        this.writePlan = writePlan;
+        this.writeAdapters = new TypeAdapter<?>[writePlan.size()];
+        this.writeDynamic = new boolean[writePlan.size()];
+        for (int i = 0; i < this.writeAdapters.length; i++)
+        {
+            TypeToken<?> propertyType = TypeToken.get(getGenericType(typeToken, writePlan.getProperty(i)));
+            this.writeAdapters[i] = gson.getAdapter(propertyType);
+            this.writeDynamic[i] = isDynamic(propertyType.getRawType());
+        }
+
+        this.readPlan = readPlan;
+        int size = readPlan.size();
+        this.readAdapters = new TypeAdapter<?>[size];
+        this.readPrimitive = new boolean[size];
+        this.readNames = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++)
+        {
+            Property<T, ?> property = readPlan.getProperty(i);
+            this.readAdapters[i] = gson.getAdapter(TypeToken.get(getGenericType(typeToken, property)));
+            this.readPrimitive[i] = property.getRawType().isPrimitive();
+            SerializedNameSetting setting = property.getSetting(SerializedNameSetting.class);
+            if (setting != null)
+            {
+                for (String alternate : setting.alternate())
+                {
+                    this.readNames.putIfAbsent(alternate, i);
+                }
+            }
+        }
+        // primary names always win with alternates of other properties.
+        for (int i = 0; i < size; i++)
+        {
+            this.readNames.put(readPlan.getName(i), i);
+        }
+    }
+
+    /**
+     * Returns type of property with type variables resolved using given type of object, so property of type {@code T} in
+     * {@code Box<String>} uses adapter of strings. Raw type of property is used if variable can't be resolved.
+     */
+    private static Type getGenericType(TypeToken<?> typeToken, Property<?, ?> property)
+    {
+        Type type = $Gson$Types.resolve(typeToken.getType(), typeToken.getRawType(), property.getGenericType());
+        return (type instanceof TypeVariable) ? property.getRawType() : type;
+    }
+
+    private static boolean isDynamic(Class<?> type)
+    {
+        if (type == Object.class)
+        {
+            return true;
+        }
+        if (type.isPrimitive() || type.isArray() || Collection.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type))
+        {
+            return false;
+        }
+        return type.isInterface() || Modifier.isAbstract(type.getModifiers());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void write(JsonWriter out, @Nullable T value) throws IOException
+    {
+        if (value == null)
+        {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        for (int i = 0, size = this.writePlan.size(); i < size; i++)
+        {
+            Object propertyValue = ((Property<T, Object>) this.writePlan.getProperty(i)).getValue(value);
+            if (propertyValue == null)
+            {
+                if (out.getSerializeNulls())
+                {
+                    out.name(this.writePlan.getName(i));
+                    out.nullValue();
+                }
+                continue;
+            }
+            out.name(this.writePlan.getName(i));
+            TypeAdapter<Object> adapter = (TypeAdapter<Object>) this.writeAdapters[i];
+            if (this.writeDynamic[i])
+            {
+                adapter = (TypeAdapter<Object>) this.gson.getAdapter(propertyValue.getClass());
+            }
+            adapter.write(out, propertyValue);
+        }
+        out.endObject();
+    }
+
+    @Override
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public T read(JsonReader in) throws IOException
+    {
+        if (in.peek() == JsonToken.NULL)
+        {
+            in.nextNull();
+            return null;
+        }
+        T instance = this.instanceFactory.create(this.readPlan.getType());
+        in.beginObject();
+        while (in.hasNext())
+        {
+            Integer index = this.readNames.get(in.nextName());
+            if (index == null)
+            {
+                in.skipValue();
+                continue;
+            }
+            int i = index;
+            Object value = this.readAdapters[i].read(in);
+            if ((value == null) && this.readPrimitive[i])
+            {
+                continue;
+            }
+            ((Property<T, Object>) this.readPlan.getProperty(i)).setValue(instance, value);
+        }
+        in.endObject();
+        return instance;
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.diorite.serialization.gson;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import org.diorite.serialization.InstanceFactory;
+import org.diorite.serialization.plan.PlanDirection;
+import org.diorite.serialization.plan.PropertyPlanCompiler;
+
+import javax.annotation.Nullable;
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * {@link TypeAdapterFactory} that creates adapters backed by compiled {@link org.diorite.serialization.plan.PropertyPlan}s, so property
+ * scanning, expose/version filtering and name resolution is done once per class by {@link PropertyPlanCompiler} instead of by gson
+ * reflection. <br>
+ * Existing gson based code can switch to it with single registration:
+ * <pre>{@code
+ * Gson gson = new GsonBuilder().registerTypeAdapterFactory(new PlanTypeAdapterFactory(planCompiler)).create();
+ * }</pre>
+ * Only plain object types are handled, primitives, strings, enums, arrays, collections, maps, abstract types and JDK classes are
+ * left to other factories registered in gson.
+ */
+public class PlanTypeAdapterFactory implements TypeAdapterFactory
+{
+    private final PropertyPlanCompiler planCompiler;
+    @Nullable
+    private final String               version;
+    private final InstanceFactory      instanceFactory;
+
+    public PlanTypeAdapterFactory(PropertyPlanCompiler planCompiler, @Nullable String version, InstanceFactory instanceFactory)
+    {
+        this.planCompiler = planCompiler;
+        this.version = version;
+        this.instanceFactory = instanceFactory;
+    }
+
+    public PlanTypeAdapterFactory(PropertyPlanCompiler planCompiler, @Nullable String version)
+    {
+        this(planCompiler, version, InstanceFactory.DEFAULT);
+    }
+
+    public PlanTypeAdapterFactory(PropertyPlanCompiler planCompiler)
+    {
+        this(planCompiler, null);
+    }
+
+    /**
+     * @return plan compiler used by this factory.
+     */
+    public PropertyPlanCompiler getPlanCompiler()
+    {
+        return this.planCompiler;
+    }
+
+    /**
+     * @return target version of created adapters, or null if properties aren't filtered by version.
+     */
+    @Nullable
+    public String getVersion()
+    {
+        return this.version;
+    }
+
+    /**
+     * @return instance factory used by created adapters.
+     */
+    public InstanceFactory getInstanceFactory()
+    {
+        return this.instanceFactory;
+    }
+
+    @Override
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> typeToken)
+    {
+        Class<T> type = (Class<T>) typeToken.getRawType();
+        if (! this.isSupported(type))
+        {
+            return null;
+        }
+        return new PlanTypeAdapter<>(gson, typeToken, this.planCompiler.getPlan(type, PlanDirection.SERIALIZE, this.version),
+                                     this.planCompiler.getPlan(type, PlanDirection.DESERIALIZE, this.version), this.instanceFactory);
+    }
+
+    /**
+     * Returns true if this factory should create adapter for given type.
+     *
+     * @param type
+     *     type to check.
+     *
+     * @return true if type is plain object type handled by this factory.
+     */
+    protected boolean isSupported(Class<?> type)
+    {
+        if (type.isPrimitive() || type.isArray() || type.isEnum() || type.isInterface() || type.isAnonymousClass() || type.isLocalClass() ||
+            Modifier.isAbstract(type.getModifiers()) || (type == Object.class))
+        {
+            return false;
+        }
+        if (Collection.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type))
+        {
+            return false;
+        }
+        String name = type.getName();
+        return ! name.startsWith("java.") && ! name.startsWith("javax.") && ! name.startsWith("com.google.gson.");
+    }
+}
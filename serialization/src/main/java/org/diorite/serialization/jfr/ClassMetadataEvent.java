@@ -0,0 +1,71 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.diorite.serialization.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Emitted when codec builds metadata of single class: compiled plans, encoded names and codec caches.
+ */
+@Name("org.diorite.serialization.ClassMetadata")
+@Label("Class Metadata Build")
+@Category({"Diorite", "Serialization"})
+@Description("Metadata of class was built by codec")
+@Enabled(false)
+@Threshold("0 ms")
+@StackTrace(false)
+public final class ClassMetadataEvent extends Event
+{
+    @Label("Type")
+    private Class<?> type;
+    @Label("Format")
+    private String   format;
+
+    /**
+     * Ends timing of this event and commits it if it is enabled and exceeds threshold.
+     *
+     * @param type
+     *     type of described class.
+     * @param format
+     *     name of codec format.
+     */
+    public void complete(Class<?> type, String format)
+    {
+        if (this.shouldCommit())
+        {
+            this.type = type;
+            this.format = format;
+            this.commit();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.diorite.serialization.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import org.diorite.serialization.plan.PlanDirection;
+
+import javax.annotation.Nullable;
+
+/**
+ * Emitted when property plan of single class, direction and version is compiled.
+ */
+@Name("org.diorite.serialization.PlanCompilation")
+@Label("Plan Compilation")
+@Category({"Diorite", "Serialization"})
+@Description("Property plan was compiled")
+@Enabled(false)
+@Threshold("0 ms")
+@StackTrace(false)
+public final class PlanCompilationEvent extends Event
+{
+    @Label("Type")
+    private Class<?> type;
+    @Label("Direction")
+    private String   direction;
+    @Label("Version")
+    private String   version;
+    @Label("Properties")
+    private int      properties;
+
+    /**
+     * Ends timing of this event and commits it if it is enabled and exceeds threshold.
+     *
+     * @param type
+     *     type of compiled class.
+     * @param direction
+     *     direction of plan.
+     * @param version
+     *     target version of plan or null.
+     * @param properties
+     *     amount of properties included in plan.
+     */
+    public void complete(Class<?> type, PlanDirection direction, @Nullable String version, int properties)
+    {
+        if (this.shouldCommit())
+        {
+            this.type = type;
+            this.direction = direction.name();
+            this.version = version;
+            this.properties = properties;
+            this.commit();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.diorite.serialization.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+import javax.annotation.Nullable;
+
+/**
+ * Emitted when root object is serialized or deserialized by codec, with amount of written or read bytes.
+ */
+@Name("org.diorite.serialization.Serialization")
+@Label("Serialization")
+@Category({"Diorite", "Serialization"})
+@Description("Root object was serialized or deserialized")
+@Enabled(false)
+@Threshold("1 ms")
+@StackTrace(false)
+public final class SerializationEvent extends Event
+{
+    /**
+     * Name of serialize operation.
+     */
+    public static final String SERIALIZE   = "serialize";
+    /**
+     * Name of deserialize operation.
+     */
+    public static final String DESERIALIZE = "deserialize";
+
+    @Label("Format")
+    private String   format;
+    @Label("Operation")
+    private String   operation;
+    @Label("Type")
+    private Class<?> type;
+    @Label("Bytes")
+    @DataAmount
+    private long     bytes;
+
+    /**
+     * Ends timing of this event and commits it if it is enabled and exceeds threshold.
+     *
+     * @param format
+     *     name of codec format.
+     * @param operation
+     *     {@link #SERIALIZE} or {@link #DESERIALIZE}.
+     * @param type
+     *     type of root object, or null for null values.
+     * @param bytes
+     *     amount of written or read bytes.
+     */
+    public void complete(String format, String operation, @Nullable Class<?> type, long bytes)
+    {
+        if (this.shouldCommit())
+        {
+            this.format = format;
+            this.operation = operation;
+            this.type = type;
+            this.bytes = bytes;
+            this.commit();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.diorite.serialization.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+import java.lang.reflect.AnnotatedElement;
+
+/**
+ * Emitted when setting is read from annotated element using registered setting readers, reads served by generated tables or cache are
+ * not reported.
+ */
+@Name("org.diorite.serialization.SettingRead")
+@Label("Setting Read")
+@Category({"Diorite", "Serialization"})
+@Description("Setting was read using registered setting readers")
+@Enabled(false)
+@Threshold("10 us")
+@StackTrace(false)
+public final class SettingReadEvent extends Event
+{
+    @Label("Setting Type")
+    private Class<?> settingType;
+    @Label("Element")
+    private String   element;
+    @Label("Found")
+    private boolean  found;
+
+    /**
+     * Ends timing of this event and commits it if it is enabled and exceeds threshold.
+     *
+     * @param settingType
+     *     type of read setting.
+     * @param element
+     *     annotated element setting was read from.
+     * @param found
+     *     if setting was present.
+     */
+    public void complete(Class<?> settingType, AnnotatedElement element, boolean found)
+    {
+        if (this.shouldCommit())
+        {
+            this.settingType = settingType;
+            this.element = element.toString();
+            this.found = found;
+            this.commit();
+        }
+    }
+}
@@ -0,0 +1,761 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.json;
+
+import org.diorite.serialization.SerializationException;
+
+import javax.annotation.Nullable;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming JSON reader working directly over UTF-8 bytes. <br>
+ * Property names and enum constants can be matched against {@link JsonNameTable} without creating any strings, values are decoded
+ * directly from source bytes. <br>
+ * Skipped values are only scanned for nesting and string boundaries, eight bytes at once, without decoding any of them.
+ */
+public final class JsonByteReader
+{
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final long ONES        = 0x0101010101010101L;
+    private static final long HIGH_BITS   = 0x8080808080808080L;
+    private static final long QUOTES      = 0x2222222222222222L;
+    private static final long BACKSLASHES = 0x5C5C5C5C5C5C5C5CL;
+    // '[' and ']' differ from '{' and '}' only by 0x20 bit.
+    private static final long BRACKET_BIT = 0x2020202020202020L;
+    private static final long OPENINGS    = 0x7B7B7B7B7B7B7B7BL;
+    private static final long CLOSINGS    = 0x7D7D7D7D7D7D7D7DL;
+
+    private final byte[] data;
+    private final int    offset;
+    private final int    limit;
+    private       int    position;
+
+    private int    lastStart;
+    private int    lastLength;
+    @Nullable
+    private String lastEscaped;
+
+    @Nullable
+    private List<Object> references;
+
+    public JsonByteReader(byte[] data)
+    {
+        this(data, 0, data.length);
+    }
+
+    public JsonByteReader(byte[] data, int offset, int length)
+    {
+        if ((offset < 0) || (length < 0) || ((offset + length) > data.length))
+        {
+            throw new IndexOutOfBoundsException("offset: " + offset + ", length: " + length + ", size: " + data.length);
+        }
+        this.data = data;
+        this.offset = offset;
+        this.position = offset;
+        this.limit = offset + length;
+    }
+
+    /**
+     * Creates reader over remaining bytes of given buffer, heap buffers are used without copying. <br>
+     * Position of given buffer is not changed.
+     *
+     * @param buffer
+     *     source buffer.
+     *
+     * @return reader over given buffer.
+     */
+    public static JsonByteReader of(ByteBuffer buffer)
+    {
+        if (buffer.hasArray())
+        {
+            return new JsonByteReader(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        }
+        byte[] copy = new byte[buffer.remaining()];
+        buffer.duplicate().get(copy);
+        return new JsonByteReader(copy);
+    }
+
+    /**
+     * @return current position in source array.
+     */
+    public int getPosition()
+    {
+        return this.position;
+    }
+
+    /**
+     * @return end position of source data (exclusive).
+     */
+    public int getLimit()
+    {
+        return this.limit;
+    }
+
+    byte[] getData()
+    {
+        return this.data;
+    }
+
+    List<Object> getReferences()
+    {
+        if (this.references == null)
+        {
+            this.references = new ArrayList<>(16);
+        }
+        return this.references;
+    }
+
+    SerializationException error(String expected)
+    {
+        return new SerializationException("Expected " + expected + " at position " + this.position);
+    }
+
+    int skipWhitespace()
+    {
+        byte[] data = this.data;
+        int position = this.position;
+        int limit = this.limit;
+        while (position < limit)
+        {
+            byte b = data[position];
+            if ((b != ' ') && (b != '\n') && (b != '\r') && (b != '\t'))
+            {
+                this.position = position;
+                return b;
+            }
+            position++;
+        }
+        this.position = position;
+        return - 1;
+    }
+
+    private void expect(char c)
+    {
+        if (this.skipWhitespace() != c)
+        {
+            throw this.error("'" + c + "'");
+        }
+        this.position++;
+    }
+
+    /**
+     * Returns type of next value without consuming it.
+     *
+     * @return type of next value.
+     */
+    public JsonToken peek()
+    {
+        int c = this.skipWhitespace();
+        switch (c)
+        {
+            case - 1:
+                return JsonToken.END_DOCUMENT;
+            case '{':
+                return JsonToken.BEGIN_OBJECT;
+            case '}':
+                return JsonToken.END_OBJECT;
+            case '[':
+                return JsonToken.BEGIN_ARRAY;
+            case ']':
+                return JsonToken.END_ARRAY;
+            case '"':
+                return JsonToken.STRING;
+            case 't':
+            case 'f':
+                return JsonToken.BOOLEAN;
+            case 'n':
+                return JsonToken.NULL;
+            default:
+                if ((c == '-') || ((c >= '0') && (c <= '9')))
+                {
+                    return JsonToken.NUMBER;
+                }
+                throw this.error("value");
+        }
+    }
+
+    public void beginObject()
+    {
+        this.expect('{');
+    }
+
+    public void endObject()
+    {
+        this.expect('}');
+    }
+
+    public void beginArray()
+    {
+        this.expect('[');
+    }
+
+    public void endArray()
+    {
+        this.expect(']');
+    }
+
+    /**
+     * Checks that only whitespace is left in source data, so nothing follows last read value.
+     *
+     * @throws SerializationException
+     *     if there is anything other than whitespace left.
+     */
+    public void endDocument()
+    {
+        if (this.skipWhitespace() != - 1)
+        {
+            throw this.error("end of document");
+        }
+    }
+
+    /**
+     * Returns true if current object or array has more elements, separating comma is consumed by this method. <br>
+     * Every element except first one must be preceded by comma, leading and trailing commas are not allowed.
+     *
+     * @return true if current object or array has more elements.
+     *
+     * @throws SerializationException
+     *     if separating comma is missing or misplaced.
+     */
+    public boolean hasNext()
+    {
+        int c = this.skipWhitespace();
+        if (c == ',')
+        {
+            if (isElementStart(this.previousToken()))
+            {
+                throw this.error("value");
+            }
+            this.position++;
+            int next = this.skipWhitespace();
+            if ((next == '}') || (next == ']') || (next == ','))
+            {
+                throw this.error("value");
+            }
+            return true;
+        }
+        if ((c == '}') || (c == ']') || (c == - 1))
+        {
+            return false;
+        }
+        if (! isElementStart(this.previousToken()))
+        {
+            throw this.error("','");
+        }
+        return true;
+    }
+
+    private static boolean isElementStart(int previous)
+    {
+        return (previous == '[') || (previous == '{') || (previous == ',') || (previous == - 1);
+    }
+
+    /**
+     * Returns last non-whitespace byte before current position, so separator can be checked without tracking nesting of values.
+     */
+    private int previousToken()
+    {
+        byte[] data = this.data;
+        for (int i = this.position - 1; i >= this.offset; i--)
+        {
+            byte b = data[i];
+            if ((b != ' ') && (b != '\n') && (b != '\r') && (b != '\t'))
+            {
+                return b;
+            }
+        }
+        return - 1;
+    }
+
+    /**
+     * Reads next string and returns its index in given table, string is matched directly from source bytes if it does not contain any
+     * escape sequences.
+     *
+     * @param table
+     *     table of known strings.
+     *
+     * @return index of string or -1 if string isn't in given table.
+     */
+    public int nextStringIndex(JsonNameTable table)
+    {
+        this.expect('"');
+        byte[] data = this.data;
+        int start = this.position;
+        int hash = 0;
+        for (int i = start; i < this.limit; i++)
+        {
+            byte b = data[i];
+            if (b == '"')
+            {
+                this.position = i + 1;
+                this.lastStart = start;
+                this.lastLength = i - start;
+                this.lastEscaped = null;
+                return table.find(data, start, i - start, hash ^ (hash >>> 16));
+            }
+            if (b == '\\')
+            {
+                this.position = start - 1;
+                String string = this.nextString();
+                this.lastEscaped = string;
+                return table.indexOf(string);
+            }
+            hash = (31 * hash) + b;
+        }
+        throw this.error("'\"'");
+    }
+
+    /**
+     * Reads next property name and returns its index in given table.
+     *
+     * @param table
+     *     table of known names.
+     *
+     * @return index of name or -1 if name isn't in given table.
+     *
+     * @see #nextStringIndex(JsonNameTable)
+     */
+    public int nextNameIndex(JsonNameTable table)
+    {
+        int index = this.nextStringIndex(table);
+        this.expect(':');
+        return index;
+    }
+
+    /**
+     * Returns last string matched by {@link #nextStringIndex(JsonNameTable)} or {@link #nextNameIndex(JsonNameTable)}.
+     *
+     * @return last matched string.
+     */
+    public String lastString()
+    {
+        if (this.lastEscaped != null)
+        {
+            return this.lastEscaped;
+        }
+        return new String(this.data, this.lastStart, this.lastLength, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads next property name.
+     *
+     * @return name of property.
+     */
+    public String nextName()
+    {
+        String name = this.nextString();
+        this.expect(':');
+        return name;
+    }
+
+    public String nextString()
+    {
+        this.expect('"');
+        byte[] data = this.data;
+        int start = this.position;
+        for (int i = start; i < this.limit; i++)
+        {
+            byte b = data[i];
+            if (b == '"')
+            {
+                this.position = i + 1;
+                return new String(data, start, i - start, StandardCharsets.UTF_8);
+            }
+            if (b == '\\')
+            {
+                return this.nextEscapedString(start, i);
+            }
+        }
+        throw this.error("'\"'");
+    }
+
+    private String nextEscapedString(int start, int escape)
+    {
+        byte[] data = this.data;
+        StringBuilder builder = new StringBuilder((escape - start) + 16);
+        int runStart = start;
+        int i = escape;
+        while (i < this.limit)
+        {
+            byte b = data[i];
+            if (b == '"')
+            {
+                builder.append(new String(data, runStart, i - runStart, StandardCharsets.UTF_8));
+                this.position = i + 1;
+                return builder.toString();
+            }
+            if (b != '\\')
+            {
+                i++;
+                continue;
+            }
+            builder.append(new String(data, runStart, i - runStart, StandardCharsets.UTF_8));
+            if ((i + 1) >= this.limit)
+            {
+                break;
+            }
+            byte escaped = data[i + 1];
+            i += 2;
+            switch (escaped)
+            {
+                case 'n':
+                    builder.append('\n');
+                    break;
+                case 'r':
+                    builder.append('\r');
+                    break;
+                case 't':
+                    builder.append('\t');
+                    break;
+                case 'b':
+                    builder.append('\b');
+                    break;
+                case 'f':
+                    builder.append('\f');
+                    break;
+                case 'u':
+                    if ((i + 4) > this.limit)
+                    {
+                        this.position = i;
+                        throw this.error("unicode escape");
+                    }
+                    int c = 0;
+                    for (int end = i + 4; i < end; i++)
+                    {
+                        int digit = Character.digit(data[i], 16);
+                        if (digit < 0)
+                        {
+                            this.position = i;
+                            throw this.error("hex digit");
+                        }
+                        c = (c << 4) | digit;
+                    }
+                    builder.append((char) c);
+                    break;
+                default:
+                    builder.append((char) escaped);
+            }
+            runStart = i;
+        }
+        this.position = this.limit;
+        throw this.error("'\"'");
+    }
+
+    public boolean nextBoolean()
+    {
+        int c = this.skipWhitespace();
+        if ((c == 't') && this.matchLiteral("true"))
+        {
+            return true;
+        }
+        if ((c == 'f') && this.matchLiteral("false"))
+        {
+            return false;
+        }
+        throw this.error("boolean");
+    }
+
+    public void nextNull()
+    {
+        if ((this.skipWhitespace() != 'n') || ! this.matchLiteral("null"))
+        {
+            throw this.error("null");
+        }
+    }
+
+    private boolean matchLiteral(String literal)
+    {
+        int length = literal.length();
+        if ((this.position + length) > this.limit)
+        {
+            return false;
+        }
+        for (int i = 0; i < length; i++)
+        {
+            if (this.data[this.position + i] != literal.charAt(i))
+            {
+                return false;
+            }
+        }
+        this.position += length;
+        return true;
+    }
+
+    public int nextInt()
+    {
+        long value = this.nextLong();
+        if ((int) value != value)
+        {
+            throw new SerializationException("Number " + value + " does not fit in int, position: " + this.position);
+        }
+        return (int) value;
+    }
+
+    public short nextShort()
+    {
+        long value = this.nextLong();
+        if ((short) value != value)
+        {
+            throw new SerializationException("Number " + value + " does not fit in short, position: " + this.position);
+        }
+        return (short) value;
+    }
+
+    public byte nextByte()
+    {
+        long value = this.nextLong();
+        if ((byte) value != value)
+        {
+            throw new SerializationException("Number " + value + " does not fit in byte, position: " + this.position);
+        }
+        return (byte) value;
+    }
+
+    public long nextLong()
+    {
+        int c = this.skipWhitespace();
+        byte[] data = this.data;
+        int start = this.position;
+        int i = start;
+        boolean negative = c == '-';
+        if (negative)
+        {
+            i++;
+        }
+        int digitsStart = i;
+        long value = 0;
+        while (i < this.limit)
+        {
+            byte b = data[i];
+            if ((b < '0') || (b > '9'))
+            {
+                break;
+            }
+            value = (value * 10) + (b - '0');
+            i++;
+        }
+        int digits = i - digitsStart;
+        if (digits == 0)
+        {
+            throw this.error("number");
+        }
+        if ((i < this.limit) && ((data[i] == '.') || (data[i] == 'e') || (data[i] == 'E')))
+        {
+            double fraction = this.nextDouble();
+            if ((long) fraction != fraction)
+            {
+                throw new SerializationException("Number " + fraction + " is not an integer, position: " + start);
+            }
+            return (long) fraction;
+        }
+        if (digits > 18)
+        {
+            try
+            {
+                long parsed = Long.parseLong(new String(data, start, i - start, StandardCharsets.ISO_8859_1));
+                this.position = i;
+                return parsed;
+            }
+            catch (NumberFormatException e)
+            {
+                throw this.error("number");
+            }
+        }
+        this.position = i;
+        return negative ? - value : value;
+    }
+
+    public double nextDouble()
+    {
+        this.skipWhitespace();
+        byte[] data = this.data;
+        int start = this.position;
+        int i = start;
+        boolean integer = true;
+        while (i < this.limit)
+        {
+            byte b = data[i];
+            if ((b >= '0') && (b <= '9'))
+            {
+                i++;
+            }
+            else if ((b == '-') || (b == '+') || (b == '.') || (b == 'e') || (b == 'E'))
+            {
+                integer &= (b == '-') && (i == start);
+                i++;
+            }
+            else
+            {
+                break;
+            }
+        }
+        if (i == start)
+        {
+            throw this.error("number");
+        }
+        if (integer && ((i - start) <= 16))
+        {
+            return this.nextLong();
+        }
+        this.position = i;
+        try
+        {
+            return Double.parseDouble(new String(data, start, i - start, StandardCharsets.ISO_8859_1));
+        }
+        catch (NumberFormatException e)
+        {
+            this.position = start;
+            throw this.error("number");
+        }
+    }
+
+    /**
+     * Skips next value, including all nested values.
+     */
+    public void skipValue()
+    {
+        int c = this.skipWhitespace();
+        if (c == '"')
+        {
+            this.position = this.skipString(this.position + 1);
+            return;
+        }
+        if ((c != '{') && (c != '['))
+        {
+            this.skipLiteral();
+            return;
+        }
+        byte[] data = this.data;
+        int limit = this.limit;
+        int depth = 0;
+        int i = this.position;
+        while (i < limit)
+        {
+            if ((i + 8) <= limit)
+            {
+                long word = (long) LONGS.get(data, i);
+                long bracketWord = word | BRACKET_BIT;
+                long found = matches(word, QUOTES) | matches(bracketWord, OPENINGS) | matches(bracketWord, CLOSINGS);
+                if (found == 0)
+                {
+                    i += 8;
+                    continue;
+                }
+                i += Long.numberOfTrailingZeros(found) >>> 3;
+            }
+            byte b = data[i++];
+            if (b == '"')
+            {
+                i = this.skipString(i);
+            }
+            else if ((b == '{') || (b == '['))
+            {
+                depth++;
+            }
+            else if (((b == '}') || (b == ']')) && (--depth == 0))
+            {
+                this.position = i;
+                return;
+            }
+        }
+        this.position = this.limit;
+        throw this.error("end of " + ((c == '{') ? "object" : "array"));
+    }
+
+    private int skipString(int from)
+    {
+        byte[] data = this.data;
+        int limit = this.limit;
+        int i = from;
+        while ((i + 8) <= limit)
+        {
+            long word = (long) LONGS.get(data, i);
+            long found = matches(word, QUOTES) | matches(word, BACKSLASHES);
+            if (found == 0)
+            {
+                i += 8;
+                continue;
+            }
+            i += Long.numberOfTrailingZeros(found) >>> 3;
+            if (data[i] == '"')
+            {
+                return i + 1;
+            }
+            // skip escaped character
+            i += 2;
+        }
+        for (; i < limit; i++)
+        {
+            byte b = data[i];
+            if (b == '"')
+            {
+                return i + 1;
+            }
+            if (b == '\\')
+            {
+                i++;
+            }
+        }
+        this.position = this.limit;
+        throw this.error("'\"'");
+    }
+
+    /**
+     * Returns word with high bit set in bytes of given word equal to byte of given pattern, lowest set bit is always exact, higher bits
+     * might be false positives.
+     */
+    private static long matches(long word, long pattern)
+    {
+        long x = word ^ pattern;
+        return (x - ONES) & ~ x & HIGH_BITS;
+    }
+
+    private void skipLiteral()
+    {
+        byte[] data = this.data;
+        int i = this.position;
+        while (i < this.limit)
+        {
+            byte b = data[i];
+            if ((b == ',') || (b == '}') || (b == ']') || (b == ' ') || (b == '\n') || (b == '\r') || (b == '\t'))
+            {
+                break;
+            }
+            i++;
+        }
+        if (i == this.position)
+        {
+            throw this.error("value");
+        }
+        this.position = i;
+    }
+}
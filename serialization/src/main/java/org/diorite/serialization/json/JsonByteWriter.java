@@ -0,0 +1,464 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.json;
+
+import org.diorite.serialization.IdentityIntMap;
+import org.diorite.serialization.SerializationException;
+import org.diorite.serialization.buffer.BufferPool;
+import org.diorite.serialization.buffer.ChunkConsumer;
+
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Streaming JSON writer that encodes values directly to UTF-8 bytes in growable buffer. <br>
+ * Writer does not validate structure of document, it is responsibility of caller to write separators in valid places.
+ */
+public final class JsonByteWriter
+{
+    private static final byte[] HEX      = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
+    private static final byte[] NULL     = {'n', 'u', 'l', 'l'};
+    private static final byte[] TRUE     = {'t', 'r', 'u', 'e'};
+    private static final byte[] FALSE    = {'f', 'a', 'l', 's', 'e'};
+    private static final byte[] MIN_LONG = Long.toString(Long.MIN_VALUE).getBytes();
+    private static final byte[] EMPTY    = {};
+
+    @Nullable
+    private final BufferPool    pool;
+    private       byte[]        buffer;
+    private       int           position;
+    private       long          consumed;
+    @Nullable
+    private final ChunkConsumer consumer;
+    private final int           chunkSize;
+
+    @Nullable
+    private IdentityIntMap references;
+
+    public JsonByteWriter()
+    {
+        this(256);
+    }
+
+    public JsonByteWriter(int initialCapacity)
+    {
+        this.pool = null;
+        this.buffer = new byte[Math.max(initialCapacity, 16)];
+        this.consumer = null;
+        this.chunkSize = 0;
+    }
+
+    /**
+     * Creates writer that takes its buffers from given pool, {@link #release()} should be called when writer is no longer needed.
+     *
+     * @param pool
+     *     pool of buffers.
+     * @param initialCapacity
+     *     minimal initial capacity.
+     */
+    public JsonByteWriter(BufferPool pool, int initialCapacity)
+    {
+        this.pool = pool;
+        this.buffer = pool.acquire(Math.max(initialCapacity, 16));
+        this.consumer = null;
+        this.chunkSize = 0;
+    }
+
+    /**
+     * Creates streaming writer that passes each filled chunk of output to given consumer instead of growing its buffer, so memory used by
+     * writer does not depend on size of written data. <br>
+     * Methods that access written data, like {@link #toByteArray()}, only see bytes that were not passed to consumer yet.
+     *
+     * @param pool
+     *     pool of buffers, used to acquire new chunks.
+     * @param chunkSize
+     *     size of single chunk.
+     * @param consumer
+     *     consumer of filled chunks.
+     *
+     * @see #flush()
+     */
+    public JsonByteWriter(BufferPool pool, int chunkSize, ChunkConsumer consumer)
+    {
+        this.pool = pool;
+        this.chunkSize = Math.max(chunkSize, 16);
+        this.buffer = pool.acquire(this.chunkSize);
+        this.consumer = consumer;
+    }
+
+    /**
+     * Ensures that buffer can store given amount of additional bytes.
+     *
+     * @param bytes
+     *     amount of bytes to be written.
+     */
+    public void ensureCapacity(int bytes)
+    {
+        int required = this.position + bytes;
+        if (required > this.buffer.length)
+        {
+            if ((this.consumer != null) && (this.position > 0))
+            {
+                this.flush();
+                if (bytes <= this.buffer.length)
+                {
+                    return;
+                }
+                required = bytes;
+            }
+            int newCapacity = Math.max(required, this.buffer.length << 1);
+            if (this.pool == null)
+            {
+                this.buffer = Arrays.copyOf(this.buffer, newCapacity);
+                return;
+            }
+            byte[] newBuffer = this.pool.acquire(newCapacity);
+            System.arraycopy(this.buffer, 0, newBuffer, 0, this.position);
+            this.pool.release(this.buffer);
+            this.buffer = newBuffer;
+        }
+    }
+
+    /**
+     * Passes all not yet consumed bytes to chunk consumer of this writer, does nothing if writer isn't streaming.
+     */
+    public void flush()
+    {
+        if ((this.consumer == null) || (this.position == 0))
+        {
+            return;
+        }
+        assert this.pool != null;
+        byte[] chunk = this.buffer;
+        int length = this.position;
+        this.buffer = this.pool.acquire(this.chunkSize);
+        this.position = 0;
+        this.consumed += length;
+        this.consumer.accept(chunk, length);
+    }
+
+    /**
+     * Returns buffer of this writer to its pool, writer must not be used after this method is called. <br>
+     * Does nothing if writer isn't backed by pool.
+     */
+    public void release()
+    {
+        if (this.pool != null)
+        {
+            this.pool.release(this.buffer);
+            this.buffer = EMPTY;
+            this.position = 0;
+        }
+    }
+
+    /**
+     * @return amount of written bytes.
+     */
+    public int size()
+    {
+        return this.position;
+    }
+
+    /**
+     * @return total amount of bytes written to this writer, including bytes already passed to chunk consumer.
+     */
+    public long getWritten()
+    {
+        return this.consumed + this.position;
+    }
+
+    /**
+     * Returns internal buffer of this writer, only first {@link #size()} bytes are valid.
+     *
+     * @return internal buffer of this writer.
+     */
+    public byte[] getBuffer()
+    {
+        return this.buffer;
+    }
+
+    /**
+     * Removes all written data and forgets written references, internal buffer is reused.
+     */
+    public void reset()
+    {
+        this.position = 0;
+        this.consumed = 0;
+        if (this.references != null)
+        {
+            this.references.clear();
+        }
+    }
+
+    IdentityIntMap getReferences()
+    {
+        if (this.references == null)
+        {
+            this.references = new IdentityIntMap();
+        }
+        return this.references;
+    }
+
+    /**
+     * @return copy of written bytes.
+     */
+    public byte[] toByteArray()
+    {
+        return Arrays.copyOf(this.buffer, this.position);
+    }
+
+    /**
+     * Copies written bytes to given buffer.
+     *
+     * @param target
+     *     target buffer.
+     */
+    public void writeTo(ByteBuffer target)
+    {
+        target.put(this.buffer, 0, this.position);
+    }
+
+    public void writeRaw(byte b)
+    {
+        this.ensureCapacity(1);
+        this.buffer[this.position++] = b;
+    }
+
+    public void writeRaw(byte[] bytes)
+    {
+        this.writeRaw(bytes, 0, bytes.length);
+    }
+
+    public void writeRaw(byte[] bytes, int offset, int length)
+    {
+        this.ensureCapacity(length);
+        System.arraycopy(bytes, offset, this.buffer, this.position, length);
+        this.position += length;
+    }
+
+    public void beginObject()
+    {
+        this.writeRaw((byte) '{');
+    }
+
+    public void endObject()
+    {
+        this.writeRaw((byte) '}');
+    }
+
+    public void beginArray()
+    {
+        this.writeRaw((byte) '[');
+    }
+
+    public void endArray()
+    {
+        this.writeRaw((byte) ']');
+    }
+
+    public void writeComma()
+    {
+        this.writeRaw((byte) ',');
+    }
+
+    public void writeColon()
+    {
+        this.writeRaw((byte) ':');
+    }
+
+    public void writeNull()
+    {
+        this.writeRaw(NULL);
+    }
+
+    public void writeBoolean(boolean value)
+    {
+        this.writeRaw(value ? TRUE : FALSE);
+    }
+
+    public void writeInt(int value)
+    {
+        this.writeLong(value);
+    }
+
+    public void writeLong(long value)
+    {
+        if (value == Long.MIN_VALUE)
+        {
+            this.writeRaw(MIN_LONG);
+            return;
+        }
+        this.ensureCapacity(20);
+        byte[] buffer = this.buffer;
+        if (value < 0)
+        {
+            buffer[this.position++] = '-';
+            value = - value;
+        }
+        int digits = 1;
+        for (long i = value; i >= 10; i /= 10)
+        {
+            digits++;
+        }
+        int end = this.position + digits;
+        for (int i = end - 1; i >= this.position; i--)
+        {
+            buffer[i] = (byte) ('0' + (value % 10));
+            value /= 10;
+        }
+        this.position = end;
+    }
+
+    public void writeDouble(double value)
+    {
+        if (Double.isNaN(value) || Double.isInfinite(value))
+        {
+            throw new SerializationException(value + " is not a valid JSON number");
+        }
+        if ((value == (long) value) && (Math.abs(value) < 1e15) && ((value != 0) || (1 / value > 0)))
+        {
+            this.writeLong((long) value);
+            return;
+        }
+        this.writeAscii(Double.toString(value));
+    }
+
+    public void writeFloat(float value)
+    {
+        if (Float.isNaN(value) || Float.isInfinite(value))
+        {
+            throw new SerializationException(value + " is not a valid JSON number");
+        }
+        if ((value == (long) value) && (Math.abs(value) < 1e7f) && ((value != 0) || (1 / value > 0)))
+        {
+            this.writeLong((long) value);
+            return;
+        }
+        this.writeAscii(Float.toString(value));
+    }
+
+    /**
+     * Writes given ascii text as raw value, without quotes or escaping.
+     *
+     * @param ascii
+     *     ascii text to write.
+     */
+    public void writeAscii(CharSequence ascii)
+    {
+        int length = ascii.length();
+        this.ensureCapacity(length);
+        byte[] buffer = this.buffer;
+        int position = this.position;
+        for (int i = 0; i < length; i++)
+        {
+            buffer[position++] = (byte) ascii.charAt(i);
+        }
+        this.position = position;
+    }
+
+    /**
+     * Writes given text as quoted and escaped JSON string.
+     *
+     * @param value
+     *     text to write.
+     */
+    public void writeString(CharSequence value)
+    {
+        int length = value.length();
+        // worst case: every char is escaped as \\uXXXX
+        this.ensureCapacity((length * 6) + 2);
+        byte[] buffer = this.buffer;
+        int position = this.position;
+        buffer[position++] = '"';
+        for (int i = 0; i < length; i++)
+        {
+            char c = value.charAt(i);
+            if (c < 0x80)
+            {
+                if ((c >= 0x20) && (c != '"') && (c != '\\'))
+                {
+                    buffer[position++] = (byte) c;
+                    continue;
+                }
+                buffer[position++] = '\\';
+                switch (c)
+                {
+                    case '"':
+                    case '\\':
+                        buffer[position++] = (byte) c;
+                        break;
+                    case '\n':
+                        buffer[position++] = 'n';
+                        break;
+                    case '\r':
+                        buffer[position++] = 'r';
+                        break;
+                    case '\t':
+                        buffer[position++] = 't';
+                        break;
+                    case '\b':
+                        buffer[position++] = 'b';
+                        break;
+                    case '\f':
+                        buffer[position++] = 'f';
+                        break;
+                    default:
+                        buffer[position++] = 'u';
+                        buffer[position++] = '0';
+                        buffer[position++] = '0';
+                        buffer[position++] = HEX[c >> 4];
+                        buffer[position++] = HEX[c & 0xF];
+                }
+            }
+            else if (c < 0x800)
+            {
+                buffer[position++] = (byte) (0xC0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+            else if (Character.isHighSurrogate(c) && ((i + 1) < length) && Character.isLowSurrogate(value.charAt(i + 1)))
+            {
+                int codePoint = Character.toCodePoint(c, value.charAt(++ i));
+                buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            }
+            else if (Character.isSurrogate(c))
+            {
+                // lone surrogate, can't be encoded in UTF-8
+                buffer[position++] = '?';
+            }
+            else
+            {
+                buffer[position++] = (byte) (0xE0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        buffer[position++] = '"';
+        this.position = position;
+    }
+}
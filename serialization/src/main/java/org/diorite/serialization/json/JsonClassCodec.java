@@ -0,0 +1,111 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.json;
+
+import org.diorite.serialization.codec.CodecRegistry;
+import org.diorite.serialization.codec.CodecSite;
+import org.diorite.serialization.plan.PropertyPlan;
+import org.diorite.serialization.setting.Property;
+import org.diorite.serialization.setting.PropertySettings;
+import org.diorite.serialization.setting.settings.SerializedNameSetting;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Precomputed JSON data of single class: encoded property names used by writer, name table used by reader and codec caches of each
+ * property.
+ *
+ * @param <T>
+ *     type of object.
+ */
+final class JsonClassCodec<T>
+{
+    final PropertyPlan<T>                writePlan;
+    final byte[][]                       writeNames;
+    final CodecSite<JsonValueCodec<?>>[] writeSites;
+    final PropertyPlan<T>                readPlan;
+    final JsonNameTable                  readNames;
+    final Class<?>[]                     readTypes;
+    final PropertySettings[]             readSettings;
+    final CodecSite<JsonValueCodec<?>>[] readSites;
+
+    JsonClassCodec(PropertyPlan<T> writePlan, PropertyPlan<T> readPlan, CodecRegistry<JsonValueCodec<?>> codecs)
+    {
+        this.writePlan = writePlan;
+        this.writeNames = new byte[writePlan.size()][];
+        this.writeSites = newSites(writePlan.size());
+        JsonByteWriter writer = new JsonByteWriter(64);
+        for (int i = 0; i < this.writeNames.length; i++)
+        {
+            writer.reset();
+            writer.writeString(writePlan.getName(i));
+            writer.writeColon();
+            this.writeNames[i] = writer.toByteArray();
+            this.writeSites[i] = codecs.newSite();
+        }
+
+        this.readPlan = readPlan;
+        int size = readPlan.size();
+        Map<String, Integer> names = new LinkedHashMap<>(size * 2);
+        this.readTypes = new Class<?>[size];
+        this.readSettings = new PropertySettings[size];
+        this.readSites = newSites(size);
+        for (int i = 0; i < size; i++)
+        {
+            Property<T, ?> property = readPlan.getProperty(i);
+            this.readTypes[i] = property.getRawType();
+            this.readSettings[i] = property.getSettings();
+            this.readSites[i] = codecs.newSite();
+            SerializedNameSetting setting = property.getSetting(SerializedNameSetting.class);
+            if (setting != null)
+            {
+                for (String alternate : setting.alternate())
+                {
+                    names.putIfAbsent(alternate, i);
+                }
+            }
+        }
+        // main names always win over alternates
+        for (int i = 0; i < size; i++)
+        {
+            names.put(readPlan.getName(i), i);
+        }
+        this.readNames = new JsonNameTable(names.keySet().toArray(new String[names.size()]),
+                                           names.values().stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static CodecSite<JsonValueCodec<?>>[] newSites(int size)
+    {
+        return new CodecSite[size];
+    }
+
+    @SuppressWarnings("unchecked")
+    Property<T, Object> getReadProperty(int index)
+    {
+        return (Property<T, Object>) this.readPlan.getProperty(index);
+    }
+}
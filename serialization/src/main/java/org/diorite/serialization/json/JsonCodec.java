@@ -0,0 +1,1797 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.json;
+
+import org.diorite.serialization.IdentityIntMap;
+import org.diorite.serialization.InstanceFactory;
+import org.diorite.serialization.SerializationException;
+import org.diorite.serialization.ValueTypes;
+import org.diorite.serialization.buffer.BufferPool;
+import org.diorite.serialization.codec.CodecRegistry;
+import org.diorite.serialization.codec.CodecSite;
+import org.diorite.serialization.collection.DoubleArrayList;
+import org.diorite.serialization.collection.IntArrayList;
+import org.diorite.serialization.collection.LongArrayList;
+import org.diorite.serialization.collection.ObjectLongHashMap;
+import org.diorite.serialization.collection.PrimitiveCollections;
+import org.diorite.serialization.delta.DirtyTracked;
+import org.diorite.serialization.delta.PropertySnapshot;
+import org.diorite.serialization.jfr.ClassMetadataEvent;
+import org.diorite.serialization.jfr.SerializationEvent;
+import org.diorite.serialization.naming.PropertyResolutionStrategy;
+import org.diorite.serialization.plan.PlanDirection;
+import org.diorite.serialization.plan.PropertyPlan;
+import org.diorite.serialization.plan.PropertyPlanCompiler;
+import org.diorite.serialization.projection.PathProjection;
+import org.diorite.serialization.setting.Property;
+import org.diorite.serialization.setting.PropertySettings;
+
+import javax.annotation.Nullable;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * JSON serializer driven by compiled property plans. <br>
+ * Objects are written by iterating over {@link PropertyPlan} of their class, using precomputed and pre-encoded property names, and read
+ * by matching names from source bytes against precomputed name table, so no intermediate tree is ever created. <br>
+ * If reference tracking is enabled first occurrence of each object starts with {@code "@id"} property and each later occurrence is
+ * written as {@code {"@ref":id}}, so shared objects are written only once and cyclic graphs can be serialized. <br>
+ * Custom codecs registered in {@link #getCodecs()} are used before any built-in handling of values. <br>
+ * Codec is thread safe, single instance should be shared for given target version.
+ */
+public class JsonCodec
+{
+    private static final String FORMAT = "json";
+
+    private static final byte[] COLUMNS_TOKEN = "{\"columns\":".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ROWS_TOKEN    = ",\"rows\":".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ID_TOKEN      = "{\"@id\":".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] REF_TOKEN     = "{\"@ref\":".getBytes(StandardCharsets.US_ASCII);
+
+    private static final JsonNameTable REFERENCE_NAMES = new JsonNameTable("@id", "@ref");
+    private static final int           ID_NAME         = 0;
+    private static final int           REF_NAME        = 1;
+
+    private final PropertyPlanCompiler       planCompiler;
+    @Nullable
+    private final String                     version;
+    private final InstanceFactory            instanceFactory;
+    @Nullable
+    private final PropertyResolutionStrategy resolutionStrategy;
+    private final BufferPool                 bufferPool;
+    private final boolean                    trackReferences;
+
+    private final CodecRegistry<JsonValueCodec<?>> codecs = new CodecRegistry<>();
+
+    private final ClassValue<JsonClassCodec<?>> classCodecs = new ClassValue<>()
+    {
+        @Override
+        protected JsonClassCodec<?> computeValue(Class<?> type)
+        {
+            return JsonCodec.this.createClassCodec(type);
+        }
+    };
+    private final ClassValue<EnumTable>         enumTables  = new ClassValue<>()
+    {
+        @Override
+        protected EnumTable computeValue(Class<?> type)
+        {
+            return new EnumTable(type);
+        }
+    };
+
+    private final PropertyWriter<JsonByteWriter> propertyWriter = new PropertyWriter<>()
+    {
+        @Override
+        public JsonByteWriter getWriter(JsonByteWriter target)
+        {
+            return target;
+        }
+
+        @Override
+        public void writeValue(JsonByteWriter target, Object value, CodecSite<JsonValueCodec<?>> site)
+        {
+            JsonCodec.this.writeValue(target, value, site);
+        }
+    };
+
+    public JsonCodec(PropertyPlanCompiler planCompiler, @Nullable String version, InstanceFactory instanceFactory,
+                     @Nullable PropertyResolutionStrategy resolutionStrategy, BufferPool bufferPool, boolean trackReferences)
+    {
+        this.planCompiler = planCompiler;
+        this.version = version;
+        this.instanceFactory = instanceFactory;
+        this.resolutionStrategy = resolutionStrategy;
+        this.bufferPool = bufferPool;
+        this.trackReferences = trackReferences;
+    }
+
+    public JsonCodec(PropertyPlanCompiler planCompiler, @Nullable String version, InstanceFactory instanceFactory,
+                     @Nullable PropertyResolutionStrategy resolutionStrategy, BufferPool bufferPool)
+    {
+        this(planCompiler, version, instanceFactory, resolutionStrategy, bufferPool, false);
+    }
+
+    public JsonCodec(PropertyPlanCompiler planCompiler, @Nullable String version, InstanceFactory instanceFactory,
+                     @Nullable PropertyResolutionStrategy resolutionStrategy)
+    {
+        this(planCompiler, version, instanceFactory, resolutionStrategy, BufferPool.DEFAULT);
+    }
+
+    public JsonCodec(PropertyPlanCompiler planCompiler, @Nullable String version)
+    {
+        this(planCompiler, version, InstanceFactory.DEFAULT, null);
+    }
+
+    public JsonCodec(PropertyPlanCompiler planCompiler)
+    {
+        this(planCompiler, null);
+    }
+
+    /**
+     * @return plan compiler used by this codec.
+     */
+    public PropertyPlanCompiler getPlanCompiler()
+    {
+        return this.planCompiler;
+    }
+
+    /**
+     * @return target version of this codec, or null if properties aren't filtered by version.
+     */
+    @Nullable
+    public String getVersion()
+    {
+        return this.version;
+    }
+
+    /**
+     * @return instance factory used by this codec.
+     */
+    public InstanceFactory getInstanceFactory()
+    {
+        return this.instanceFactory;
+    }
+
+    /**
+     * @return pool of scratch buffers used by this codec.
+     */
+    public BufferPool getBufferPool()
+    {
+        return this.bufferPool;
+    }
+
+    /**
+     * @return true if shared and cyclic references are tracked by this codec.
+     */
+    public boolean isTrackingReferences()
+    {
+        return this.trackReferences;
+    }
+
+    /**
+     * Returns registry of custom codecs used by this codec, codecs are looked up by runtime class of written values and by serializer
+     * type of read values.
+     *
+     * @return registry of custom codecs.
+     */
+    public CodecRegistry<JsonValueCodec<?>> getCodecs()
+    {
+        return this.codecs;
+    }
+
+    private <T> JsonClassCodec<T> createClassCodec(Class<T> type)
+    {
+        ClassMetadataEvent event = new ClassMetadataEvent();
+        event.begin();
+        JsonClassCodec<T> codec = new JsonClassCodec<>(this.planCompiler.getPlan(type, PlanDirection.SERIALIZE, this.version),
+                                                       this.planCompiler.getPlan(type, PlanDirection.DESERIALIZE, this.version),
+                                                       this.codecs);
+        event.complete(type, FORMAT);
+        return codec;
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> JsonClassCodec<T> getClassCodec(Class<T> type)
+    {
+        return (JsonClassCodec<T>) this.classCodecs.get(type);
+    }
+
+    /**
+     * Serializes given object to JSON.
+     *
+     * @param object
+     *     object to serialize.
+     *
+     * @return UTF-8 encoded JSON.
+     */
+    public byte[] serialize(@Nullable Object object)
+    {
+        JsonByteWriter writer = new JsonByteWriter(this.bufferPool, 1024);
+        try
+        {
+            this.serialize(object, writer);
+            return writer.toByteArray();
+        }
+        finally
+        {
+            writer.release();
+        }
+    }
+
+    /**
+     * Serializes given object to JSON using given writer.
+     *
+     * @param object
+     *     object to serialize.
+     * @param writer
+     *     target writer.
+     */
+    public void serialize(@Nullable Object object, JsonByteWriter writer)
+    {
+        SerializationEvent event = new SerializationEvent();
+        event.begin();
+        long start = writer.getWritten();
+        this.writeValue(writer, object);
+        event.complete(FORMAT, SerializationEvent.SERIALIZE, (object == null) ? null : object.getClass(), writer.getWritten() - start);
+    }
+
+    /**
+     * Deserializes object of given type from UTF-8 encoded JSON, data must contain single value.
+     *
+     * @param type
+     *     type of object.
+     * @param data
+     *     UTF-8 encoded JSON.
+     * @param <T>
+     *     type of object.
+     *
+     * @return deserialized object.
+     *
+     * @throws SerializationException
+     *     if data is not valid JSON, or if anything other than whitespace follows deserialized value.
+     */
+    @Nullable
+    public <T> T deserialize(Class<T> type, byte[] data)
+    {
+        return this.deserializeDocument(type, new JsonByteReader(data));
+    }
+
+    /**
+     * Deserializes object of given type from remaining bytes of given buffer, heap buffers are read without copying. <br>
+     * Remaining bytes must contain single value.
+     *
+     * @param type
+     *     type of object.
+     * @param buffer
+     *     UTF-8 encoded JSON.
+     * @param <T>
+     *     type of object.
+     *
+     * @return deserialized object.
+     *
+     * @throws SerializationException
+     *     if data is not valid JSON, or if anything other than whitespace follows deserialized value.
+     */
+    @Nullable
+    public <T> T deserialize(Class<T> type, ByteBuffer buffer)
+    {
+        return this.deserializeDocument(type, JsonByteReader.of(buffer));
+    }
+
+    @Nullable
+    private <T> T deserializeDocument(Class<T> type, JsonByteReader reader)
+    {
+        T value = this.deserialize(type, reader);
+        reader.endDocument();
+        return value;
+    }
+
+    /**
+     * Deserializes object of given type from given reader.
+     *
+     * @param type
+     *     type of object.
+     * @param reader
+     *     source reader.
+     * @param <T>
+     *     type of object.
+     *
+     * @return deserialized object.
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public <T> T deserialize(Class<T> type, JsonByteReader reader)
+    {
+        SerializationEvent event = new SerializationEvent();
+        event.begin();
+        int start = reader.getPosition();
+        T value = (T) this.readValue(reader, type, null);
+        event.complete(FORMAT, SerializationEvent.DESERIALIZE, type, reader.getPosition() - start);
+        return value;
+    }
+
+    /**
+     * Deserializes object of given type from UTF-8 encoded JSON, reading only values selected by given projection. <br>
+     * All other values are skipped without decoding, their properties are left with values set by instance factory.
+     *
+     * @param type
+     *     type of object.
+     * @param data
+     *     UTF-8 encoded JSON.
+     * @param projection
+     *     projection of paths to read.
+     * @param <T>
+     *     type of object.
+     *
+     * @return deserialized object.
+     */
+    @Nullable
+    public <T> T deserialize(Class<T> type, byte[] data, PathProjection projection)
+    {
+        JsonByteReader reader = new JsonByteReader(data);
+        T value = this.deserialize(type, reader, projection);
+        reader.endDocument();
+        return value;
+    }
+
+    /**
+     * Deserializes object of given type from given reader, reading only values selected by given projection. <br>
+     * All other values are skipped without decoding, their properties are left with values set by instance factory.
+     *
+     * @param type
+     *     type of object.
+     * @param reader
+     *     source reader.
+     * @param projection
+     *     projection of paths to read.
+     * @param <T>
+     *     type of object.
+     *
+     * @return deserialized object.
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public <T> T deserialize(Class<T> type, JsonByteReader reader, PathProjection projection)
+    {
+        SerializationEvent event = new SerializationEvent();
+        event.begin();
+        int start = reader.getPosition();
+        T value = (T) this.readProjected(reader, type, null, null, projection);
+        event.complete(FORMAT, SerializationEvent.DESERIALIZE, type, reader.getPosition() - start);
+        return value;
+    }
+
+    /**
+     * Serializes all given objects as single JSON array, property plan of given type is resolved only once for whole batch and all
+     * objects are encoded into given, reusable writer. <br>
+     * Objects of other types than given one (like subtypes) are still written, but using their own plans.
+     *
+     * @param type
+     *     type of objects.
+     * @param objects
+     *     objects to serialize.
+     * @param out
+     *     target writer.
+     * @param <T>
+     *     type of objects.
+     */
+    public <T> void serializeAll(Class<T> type, Iterable<? extends T> objects, JsonByteWriter out)
+    {
+        JsonClassCodec<T> codec = this.getClassCodec(type);
+        out.beginArray();
+        boolean first = true;
+        for (T object : objects)
+        {
+            if (! first)
+            {
+                out.writeComma();
+            }
+            first = false;
+            if ((object != null) && (object.getClass() == type))
+            {
+                this.writeObject(out, object, codec);
+            }
+            else
+            {
+                this.writeValue(out, object);
+            }
+        }
+        out.endArray();
+    }
+
+    /**
+     * Deserializes JSON array of objects of given type and passes each object to given consumer, property plan is resolved only once for
+     * whole batch.
+     *
+     * @param type
+     *     type of objects.
+     * @param in
+     *     source reader.
+     * @param consumer
+     *     consumer of deserialized objects, null elements are passed as null.
+     * @param <T>
+     *     type of objects.
+     */
+    public <T> void deserializeAll(Class<T> type, JsonByteReader in, Consumer<? super T> consumer)
+    {
+        JsonClassCodec<T> codec = this.getClassCodec(type);
+        in.beginArray();
+        while (in.hasNext())
+        {
+            if (in.peek() == JsonToken.NULL)
+            {
+                in.nextNull();
+                consumer.accept(null);
+                continue;
+            }
+            consumer.accept(this.readObject(in, codec));
+        }
+        in.endArray();
+    }
+
+    /**
+     * Deserializes JSON array of objects of given type.
+     *
+     * @param type
+     *     type of objects.
+     * @param in
+     *     source reader.
+     * @param <T>
+     *     type of objects.
+     *
+     * @return list of deserialized objects.
+     *
+     * @see #deserializeAll(Class, JsonByteReader, Consumer)
+     */
+    public <T> List<T> deserializeAll(Class<T> type, JsonByteReader in)
+    {
+        List<T> result = new ArrayList<>();
+        this.deserializeAll(type, in, result::add);
+        return result;
+    }
+
+    /**
+     * Serializes all given objects in columnar layout, where property names are written only once for whole batch: <br>
+     * {@code {"columns":["a","b"],"rows":[[1,"x"],[2,null]]}} <br>
+     * Each row contains value of each serialized property in order of columns, missing values are written as null.
+     *
+     * @param type
+     *     exact type of all objects.
+     * @param objects
+     *     objects to serialize.
+     * @param out
+     *     target writer.
+     * @param <T>
+     *     type of objects.
+     *
+     * @throws IllegalArgumentException
+     *     if any object is of different type than given one.
+     */
+    public <T> void serializeAllColumnar(Class<T> type, Iterable<? extends T> objects, JsonByteWriter out)
+    {
+        JsonClassCodec<T> codec = this.getClassCodec(type);
+        PropertyPlan<T> plan = codec.writePlan;
+        int size = plan.size();
+        out.writeRaw(COLUMNS_TOKEN);
+        out.beginArray();
+        for (int i = 0; i < size; i++)
+        {
+            if (i != 0)
+            {
+                out.writeComma();
+            }
+            out.writeString(plan.getName(i));
+        }
+        out.endArray();
+        out.writeRaw(ROWS_TOKEN);
+        out.beginArray();
+        boolean first = true;
+        for (T object : objects)
+        {
+            if (! first)
+            {
+                out.writeComma();
+            }
+            first = false;
+            if (object == null)
+            {
+                out.writeNull();
+                continue;
+            }
+            if (object.getClass() != type)
+            {
+                throw new IllegalArgumentException("Expected " + type.getName() + " but found " + object.getClass().getName());
+            }
+            out.beginArray();
+            for (int i = 0; i < size; i++)
+            {
+                if (i != 0)
+                {
+                    out.writeComma();
+                }
+                this.writeValue(out, plan.getProperty(i).getValue(object), codec.writeSites[i]);
+            }
+            out.endArray();
+        }
+        out.endArray();
+        out.endObject();
+    }
+
+    /**
+     * Deserializes objects written in columnar layout by {@link #serializeAllColumnar(Class, Iterable, JsonByteWriter)}, columns are
+     * mapped to properties only once for whole batch, so columns written by other version of class are also supported.
+     *
+     * @param type
+     *     type of objects.
+     * @param in
+     *     source reader.
+     * @param consumer
+     *     consumer of deserialized objects, null rows are passed as null.
+     * @param <T>
+     *     type of objects.
+     */
+    public <T> void deserializeAllColumnar(Class<T> type, JsonByteReader in, Consumer<? super T> consumer)
+    {
+        JsonClassCodec<T> codec = this.getClassCodec(type);
+        int[] columns = null;
+        in.beginObject();
+        while (in.hasNext())
+        {
+            String name = in.nextName();
+            if ("columns".equals(name))
+            {
+                columns = new int[codec.readPlan.size()];
+                int size = 0;
+                in.beginArray();
+                while (in.hasNext())
+                {
+                    if (size == columns.length)
+                    {
+                        columns = Arrays.copyOf(columns, (size << 1) + 1);
+                    }
+                    columns[size++] = in.nextStringIndex(codec.readNames);
+                }
+                in.endArray();
+                columns = Arrays.copyOf(columns, size);
+            }
+            else if ("rows".equals(name))
+            {
+                if (columns == null)
+                {
+                    throw new SerializationException("Columns must be defined before rows, position: " + in.getPosition());
+                }
+                this.readRows(in, codec, columns, consumer);
+            }
+            else
+            {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+    }
+
+    private <T> void readRows(JsonByteReader in, JsonClassCodec<T> codec, int[] columns, Consumer<? super T> consumer)
+    {
+        in.beginArray();
+        while (in.hasNext())
+        {
+            if (in.peek() == JsonToken.NULL)
+            {
+                in.nextNull();
+                consumer.accept(null);
+                continue;
+            }
+            T instance = this.instanceFactory.create(codec.readPlan.getType());
+            in.beginArray();
+            for (int column = 0; in.hasNext(); column++)
+            {
+                int index = (column < columns.length) ? columns[column] : - 1;
+                if (index < 0)
+                {
+                    in.skipValue();
+                    continue;
+                }
+                Class<?> propertyType = codec.readTypes[index];
+                Object value = this.readValue(in, propertyType, codec.readSettings[index], codec.readSites[index]);
+                if ((value != null) || ! propertyType.isPrimitive())
+                {
+                    codec.getReadProperty(index).setValue(instance, value);
+                }
+            }
+            in.endArray();
+            consumer.accept(instance);
+        }
+        in.endArray();
+    }
+
+    /**
+     * Creates lazy view of JSON object, only structure of document is scanned and each property is decoded on first access. <br>
+     * Given array must not be modified while returned object is in use.
+     *
+     * @param type
+     *     type of object.
+     * @param data
+     *     UTF-8 encoded JSON object.
+     * @param <T>
+     *     type of object.
+     *
+     * @return lazy view of object.
+     */
+    public <T> LazyObject<T> deserializeLazy(Class<T> type, byte[] data)
+    {
+        return this.deserializeLazy(type, new JsonByteReader(data));
+    }
+
+    /**
+     * Creates lazy view of JSON object from remaining bytes of given buffer, heap buffers are used without copying.
+     *
+     * @param type
+     *     type of object.
+     * @param buffer
+     *     UTF-8 encoded JSON object.
+     * @param <T>
+     *     type of object.
+     *
+     * @return lazy view of object.
+     *
+     * @see #deserializeLazy(Class, byte[])
+     */
+    public <T> LazyObject<T> deserializeLazy(Class<T> type, ByteBuffer buffer)
+    {
+        return this.deserializeLazy(type, JsonByteReader.of(buffer));
+    }
+
+    /**
+     * Creates lazy view of next JSON object from given reader, reader is moved after the object.
+     *
+     * @param type
+     *     type of object.
+     * @param reader
+     *     source reader.
+     * @param <T>
+     *     type of object.
+     *
+     * @return lazy view of object.
+     *
+     * @throws IllegalStateException
+     *     if this codec tracks references.
+     * @see #deserializeLazy(Class, byte[])
+     */
+    public <T> LazyObject<T> deserializeLazy(Class<T> type, JsonByteReader reader)
+    {
+        if (this.trackReferences)
+        {
+            throw new IllegalStateException("Lazy objects can't be used when references are tracked");
+        }
+        return new LazyObject<>(this, this.getClassCodec(type), reader);
+    }
+
+    /**
+     * Writes any supported value: null, strings, numbers, booleans, characters, enums, arrays, collections, maps and objects described by
+     * properties.
+     *
+     * @param out
+     *     target writer.
+     * @param value
+     *     value to write.
+     */
+    public void writeValue(JsonByteWriter out, @Nullable Object value)
+    {
+        this.writeValue(out, value, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    void writeValue(JsonByteWriter out, @Nullable Object value, @Nullable CodecSite<JsonValueCodec<?>> site)
+    {
+        if (value == null)
+        {
+            out.writeNull();
+            return;
+        }
+        JsonValueCodec<Object> custom = (JsonValueCodec<Object>) this.findCodec(value.getClass(), site);
+        if (custom != null)
+        {
+            custom.write(this, out, value);
+        }
+        else if (value instanceof String)
+        {
+            out.writeString((String) value);
+        }
+        else if (value instanceof Number)
+        {
+            writeNumber(out, (Number) value);
+        }
+        else if (value instanceof Boolean)
+        {
+            out.writeBoolean((Boolean) value);
+        }
+        else if (value instanceof Character)
+        {
+            out.writeString(value.toString());
+        }
+        else if (value instanceof Enum)
+        {
+            out.writeString(((Enum<?>) value).name());
+        }
+        else if (value instanceof Collection)
+        {
+            this.writeCollection(out, (Collection<?>) value);
+        }
+        else if (value instanceof Map)
+        {
+            this.writeMap(out, (Map<?, ?>) value);
+        }
+        else if (value.getClass().isArray())
+        {
+            this.writeArray(out, value);
+        }
+        else
+        {
+            this.writeObject(out, value);
+        }
+    }
+
+    /**
+     * Returns custom codec registered for given runtime class, or null if built-in handling should be used.
+     *
+     * @param type
+     *     runtime class of value.
+     * @param site
+     *     codec cache of property, or null to use registry directly.
+     *
+     * @return custom codec or null.
+     */
+    @Nullable
+    JsonValueCodec<?> findCodec(Class<?> type, @Nullable CodecSite<JsonValueCodec<?>> site)
+    {
+        return (site == null) ? this.codecs.get(type) : site.get(type);
+    }
+
+    /**
+     * Writes given object using property plan of its class.
+     *
+     * @param out
+     *     target writer.
+     * @param object
+     *     object to write.
+     * @param <T>
+     *     type of object.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> void writeObject(JsonByteWriter out, T object)
+    {
+        this.writeObject(out, object, this.getClassCodec((Class<T>) object.getClass()));
+    }
+
+    <T> void writeObject(JsonByteWriter out, T object, JsonClassCodec<T> codec)
+    {
+        boolean first = true;
+        if (this.trackReferences)
+        {
+            IdentityIntMap references = out.getReferences();
+            int id = references.putIfAbsent(object, references.size());
+            if (id != IdentityIntMap.NO_VALUE)
+            {
+                out.writeRaw(REF_TOKEN);
+                out.writeInt(id);
+                out.endObject();
+                return;
+            }
+            out.writeRaw(ID_TOKEN);
+            out.writeInt(references.size() - 1);
+            first = false;
+        }
+        else
+        {
+            out.beginObject();
+        }
+        this.writeProperties(object, codec, first, out, this.propertyWriter);
+        out.endObject();
+    }
+
+    /**
+     * Writes names and values of all non-null properties of given object, without enclosing braces. <br>
+     * Writer is taken from given target before each property, so target can switch writers while values are written.
+     */
+    <T, W> void writeProperties(T object, JsonClassCodec<T> codec, boolean first, W target, PropertyWriter<W> writer)
+    {
+        PropertyPlan<T> plan = codec.writePlan;
+        byte[][] names = codec.writeNames;
+        for (int i = 0, size = plan.size(); i < size; i++)
+        {
+            Object value = plan.getProperty(i).getValue(object);
+            if (value == null)
+            {
+                continue;
+            }
+            JsonByteWriter out = writer.getWriter(target);
+            if (! first)
+            {
+                out.writeComma();
+            }
+            first = false;
+            out.writeRaw(names[i]);
+            writer.writeValue(target, value, codec.writeSites[i]);
+        }
+    }
+
+    /**
+     * Captures current values of serialized properties of given object, used to write deltas of that object.
+     *
+     * @param object
+     *     object to capture.
+     * @param <T>
+     *     type of object.
+     *
+     * @return snapshot of object.
+     *
+     * @see #writeDelta(JsonByteWriter, Object, PropertySnapshot)
+     */
+    @SuppressWarnings("unchecked")
+    public <T> PropertySnapshot<T> snapshot(T object)
+    {
+        return PropertySnapshot.capture(this.getClassCodec((Class<T>) object.getClass()).writePlan, object);
+    }
+
+    /**
+     * Writes JSON object with only these properties of given object that were changed since given snapshot was updated, properties
+     * changed to null are written as explicit nulls. <br>
+     * Snapshot is updated with written values, so next delta will only contain later changes.
+     *
+     * @param out
+     *     target writer.
+     * @param object
+     *     object to write.
+     * @param snapshot
+     *     snapshot of previously written values.
+     * @param <T>
+     *     type of object.
+     *
+     * @see #applyDelta(JsonByteReader, Object)
+     */
+    @SuppressWarnings("unchecked")
+    public <T> void writeDelta(JsonByteWriter out, T object, PropertySnapshot<T> snapshot)
+    {
+        JsonClassCodec<T> codec = this.getClassCodec((Class<T>) object.getClass());
+        PropertyPlan<T> plan = codec.writePlan;
+        if (snapshot.getPlan() != plan)
+        {
+            throw new IllegalArgumentException("Snapshot was not captured by this codec: " + snapshot.getPlan());
+        }
+        out.beginObject();
+        boolean first = true;
+        for (int i = 0, size = plan.size(); i < size; i++)
+        {
+            Object value = plan.getProperty(i).getValue(object);
+            if (snapshot.update(i, value))
+            {
+                this.writeDeltaProperty(out, codec.writeNames[i], value, first);
+                first = false;
+            }
+        }
+        out.endObject();
+    }
+
+    /**
+     * Writes JSON object with only these properties of given object that are marked as changed by that object, and clears its set of
+     * changed properties. Properties changed to null are written as explicit nulls.
+     *
+     * @param out
+     *     target writer.
+     * @param object
+     *     object to write.
+     * @param <T>
+     *     type of object.
+     *
+     * @see #applyDelta(JsonByteReader, Object)
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends DirtyTracked> void writeDirty(JsonByteWriter out, T object)
+    {
+        JsonClassCodec<T> codec = this.getClassCodec((Class<T>) object.getClass());
+        PropertyPlan<T> plan = codec.writePlan;
+        BitSet dirty = object.getDirtyProperties();
+        out.beginObject();
+        boolean first = true;
+        for (int source = dirty.nextSetBit(0); source >= 0; source = dirty.nextSetBit(source + 1))
+        {
+            int i = plan.indexOfSource(source);
+            if (i >= 0)
+            {
+                this.writeDeltaProperty(out, codec.writeNames[i], plan.getProperty(i).getValue(object), first);
+                first = false;
+            }
+        }
+        out.endObject();
+        dirty.clear();
+    }
+
+    private void writeDeltaProperty(JsonByteWriter out, byte[] name, @Nullable Object value, boolean first)
+    {
+        if (! first)
+        {
+            out.writeComma();
+        }
+        out.writeRaw(name);
+        this.writeValue(out, value);
+    }
+
+    private static void writeNumber(JsonByteWriter out, Number value)
+    {
+        if ((value instanceof Integer) || (value instanceof Long) || (value instanceof Short) || (value instanceof Byte))
+        {
+            out.writeLong(value.longValue());
+        }
+        else if (value instanceof Double)
+        {
+            out.writeDouble(value.doubleValue());
+        }
+        else if (value instanceof Float)
+        {
+            out.writeFloat(value.floatValue());
+        }
+        else
+        {
+            out.writeAscii(value.toString());
+        }
+    }
+
+    private void writeCollection(JsonByteWriter out, Collection<?> collection)
+    {
+        out.beginArray();
+        if (collection instanceof IntArrayList)
+        {
+            writeInts(out, ((IntArrayList) collection).elements(), 0, collection.size());
+            out.endArray();
+            return;
+        }
+        if (collection instanceof LongArrayList)
+        {
+            writeLongs(out, ((LongArrayList) collection).elements(), 0, collection.size());
+            out.endArray();
+            return;
+        }
+        if (collection instanceof DoubleArrayList)
+        {
+            writeDoubles(out, ((DoubleArrayList) collection).elements(), 0, collection.size());
+            out.endArray();
+            return;
+        }
+        boolean first = true;
+        for (Object element : collection)
+        {
+            if (! first)
+            {
+                out.writeComma();
+            }
+            first = false;
+            this.writeValue(out, element);
+        }
+        out.endArray();
+    }
+
+    private void writeMap(JsonByteWriter out, Map<?, ?> map)
+    {
+        out.beginObject();
+        if (map instanceof ObjectLongHashMap)
+        {
+            ObjectLongHashMap<?> longMap = (ObjectLongHashMap<?>) map;
+            boolean first = true;
+            for (int slot = longMap.nextSlot(0); slot >= 0; slot = longMap.nextSlot(slot + 1))
+            {
+                if (! first)
+                {
+                    out.writeComma();
+                }
+                first = false;
+                writeMapEntry(out, longMap, slot);
+            }
+            out.endObject();
+            return;
+        }
+        boolean first = true;
+        for (Map.Entry<?, ?> entry : map.entrySet())
+        {
+            if (! first)
+            {
+                out.writeComma();
+            }
+            first = false;
+            this.writeMapEntry(out, entry);
+        }
+        out.endObject();
+    }
+
+    void writeMapEntry(JsonByteWriter out, Map.Entry<?, ?> entry)
+    {
+        writeMapKey(out, entry.getKey());
+        this.writeValue(out, entry.getValue());
+    }
+
+    static void writeMapEntry(JsonByteWriter out, ObjectLongHashMap<?> map, int slot)
+    {
+        writeMapKey(out, map.keyAt(slot));
+        out.writeLong(map.valueAt(slot));
+    }
+
+    private static void writeMapKey(JsonByteWriter out, Object key)
+    {
+        out.writeString((key instanceof Enum) ? ((Enum<?>) key).name() : String.valueOf(key));
+        out.writeColon();
+    }
+
+    /**
+     * Returns true if given value is written as object described by properties.
+     */
+    static boolean isPropertyObject(Object value)
+    {
+        return ! ((value instanceof String) || (value instanceof Number) || (value instanceof Boolean) || (value instanceof Character) ||
+                  (value instanceof Enum) || (value instanceof Collection) || (value instanceof Map) || value.getClass().isArray());
+    }
+
+    private void writeArray(JsonByteWriter out, Object array)
+    {
+        out.beginArray();
+        if (array instanceof int[])
+        {
+            writeInts(out, (int[]) array, 0, ((int[]) array).length);
+        }
+        else if (array instanceof long[])
+        {
+            writeLongs(out, (long[]) array, 0, ((long[]) array).length);
+        }
+        else if (array instanceof double[])
+        {
+            writeDoubles(out, (double[]) array, 0, ((double[]) array).length);
+        }
+        else if (array instanceof Object[])
+        {
+            Object[] objects = (Object[]) array;
+            for (int i = 0; i < objects.length; i++)
+            {
+                if (i != 0)
+                {
+                    out.writeComma();
+                }
+                this.writeValue(out, objects[i]);
+            }
+        }
+        else
+        {
+            for (int i = 0, length = Array.getLength(array); i < length; i++)
+            {
+                if (i != 0)
+                {
+                    out.writeComma();
+                }
+                this.writeValue(out, Array.get(array, i));
+            }
+        }
+        out.endArray();
+    }
+
+    static void writeInts(JsonByteWriter out, int[] values, int from, int to)
+    {
+        for (int i = from; i < to; i++)
+        {
+            if (i != from)
+            {
+                out.writeComma();
+            }
+            out.writeInt(values[i]);
+        }
+    }
+
+    static void writeLongs(JsonByteWriter out, long[] values, int from, int to)
+    {
+        for (int i = from; i < to; i++)
+        {
+            if (i != from)
+            {
+                out.writeComma();
+            }
+            out.writeLong(values[i]);
+        }
+    }
+
+    static void writeDoubles(JsonByteWriter out, double[] values, int from, int to)
+    {
+        for (int i = from; i < to; i++)
+        {
+            if (i != from)
+            {
+                out.writeComma();
+            }
+            out.writeDouble(values[i]);
+        }
+    }
+
+    /**
+     * Reads value of given type.
+     *
+     * @param in
+     *     source reader.
+     * @param type
+     *     raw type of value.
+     * @param settings
+     *     settings of value, used to find types of collection elements, or null if unknown.
+     *
+     * @return read value.
+     */
+    @Nullable
+    public Object readValue(JsonByteReader in, Class<?> type, @Nullable PropertySettings settings)
+    {
+        return this.readValue(in, type, settings, null);
+    }
+
+    @Nullable
+    Object readValue(JsonByteReader in, Class<?> type, @Nullable PropertySettings settings, @Nullable CodecSite<JsonValueCodec<?>> site)
+    {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL)
+        {
+            in.nextNull();
+            return null;
+        }
+        if (! this.codecs.isEmpty())
+        {
+            Class<?> serializerType = ValueTypes.serializerType(type, settings);
+            JsonValueCodec<?> custom = (site == null) ? this.codecs.get(serializerType) : site.get(serializerType);
+            if (custom != null)
+            {
+                return custom.read(this, in, type, settings);
+            }
+        }
+        if (type == String.class)
+        {
+            return in.nextString();
+        }
+        if ((type == int.class) || (type == Integer.class))
+        {
+            return in.nextInt();
+        }
+        if ((type == long.class) || (type == Long.class))
+        {
+            return in.nextLong();
+        }
+        if ((type == double.class) || (type == Double.class))
+        {
+            return in.nextDouble();
+        }
+        if ((type == boolean.class) || (type == Boolean.class))
+        {
+            return in.nextBoolean();
+        }
+        if ((type == float.class) || (type == Float.class))
+        {
+            return (float) in.nextDouble();
+        }
+        if ((type == short.class) || (type == Short.class))
+        {
+            return in.nextShort();
+        }
+        if ((type == byte.class) || (type == Byte.class))
+        {
+            return in.nextByte();
+        }
+        if ((type == char.class) || (type == Character.class))
+        {
+            String string = in.nextString();
+            if (string.length() != 1)
+            {
+                throw new SerializationException("Expected single character, but found: " + string);
+            }
+            return string.charAt(0);
+        }
+        if (type.isEnum())
+        {
+            return this.readEnum(in, type);
+        }
+        if (type.isArray())
+        {
+            return this.readArray(in, type.getComponentType(), ValueTypes.parameter(settings, 0));
+        }
+        if (Collection.class.isAssignableFrom(type))
+        {
+            return this.readCollection(in, type, ValueTypes.parameter(settings, 0));
+        }
+        if (Map.class.isAssignableFrom(type))
+        {
+            return this.readMap(in, type, ValueTypes.parameter(settings, 0), ValueTypes.parameter(settings, 1));
+        }
+        if ((type == Object.class) || (token != JsonToken.BEGIN_OBJECT))
+        {
+            return this.readDynamic(in);
+        }
+        return this.readObject(in, type);
+    }
+
+    /**
+     * Reads object of given type using its property plan.
+     *
+     * @param in
+     *     source reader.
+     * @param type
+     *     type of object.
+     * @param <T>
+     *     type of object.
+     *
+     * @return read object.
+     */
+    public <T> T readObject(JsonByteReader in, Class<T> type)
+    {
+        return this.readObject(in, this.getClassCodec(type));
+    }
+
+    <T> T readObject(JsonByteReader in, JsonClassCodec<T> codec)
+    {
+        return this.readObject(in, codec, null);
+    }
+
+    private <T> T readObject(JsonByteReader in, JsonClassCodec<T> codec, @Nullable PathProjection[] transitions)
+    {
+        Class<T> type = codec.readPlan.getType();
+        if (! this.trackReferences)
+        {
+            T instance = this.instanceFactory.create(type);
+            in.beginObject();
+            this.readRemainingProperties(in, codec, instance, transitions);
+            return instance;
+        }
+        in.beginObject();
+        int name = in.hasNext() ? in.nextNameIndex(REFERENCE_NAMES) : - 1;
+        if (name < 0)
+        {
+            throw in.error("\"@id\" or \"@ref\" as first property of object");
+        }
+        int id = in.nextInt();
+        if (name == REF_NAME)
+        {
+            Object object = resolveReference(in, id);
+            if (! type.isInstance(object))
+            {
+                throw new SerializationException("Reference " + id + " points to " + object.getClass().getName() + " instead of " +
+                                                 type.getName() + ", position: " + in.getPosition());
+            }
+            return type.cast(object);
+        }
+        T instance = this.instanceFactory.create(type);
+        // registered before properties are read, so cyclic references to this object can be resolved.
+        registerReference(in, id, instance);
+        this.readRemainingProperties(in, codec, instance, transitions);
+        return instance;
+    }
+
+    private static Object resolveReference(JsonByteReader in, int id)
+    {
+        in.endObject();
+        List<Object> references = in.getReferences();
+        Object object = ((id >= 0) && (id < references.size())) ? references.get(id) : null;
+        if (object == null)
+        {
+            throw new SerializationException("Unknown reference: " + id + ", position: " + in.getPosition());
+        }
+        return object;
+    }
+
+    private static void registerReference(JsonByteReader in, int id, Object object)
+    {
+        if (id < 0)
+        {
+            throw new SerializationException("Invalid reference id: " + id + ", position: " + in.getPosition());
+        }
+        List<Object> references = in.getReferences();
+        while (references.size() <= id)
+        {
+            references.add(null);
+        }
+        references.set(id, object);
+    }
+
+    /**
+     * Reads delta written by {@link #writeDelta(JsonByteWriter, Object, PropertySnapshot)} or
+     * {@link #writeDirty(JsonByteWriter, DirtyTracked)} and writes read values to given object. <br>
+     * Any JSON object can be applied this way, properties missing in JSON are left unchanged.
+     *
+     * @param in
+     *     source reader.
+     * @param target
+     *     object to update.
+     * @param <T>
+     *     type of object.
+     *
+     * @return updated object.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T applyDelta(JsonByteReader in, T target)
+    {
+        this.readProperties(in, this.getClassCodec((Class<T>) target.getClass()), target);
+        return target;
+    }
+
+    private <T> void readProperties(JsonByteReader in, JsonClassCodec<T> codec, T instance)
+    {
+        in.beginObject();
+        this.readRemainingProperties(in, codec, instance, null);
+    }
+
+    /**
+     * Reads properties until end of object, if transitions of projection are given, properties without next state are skipped.
+     */
+    private <T> void readRemainingProperties(JsonByteReader in, JsonClassCodec<T> codec, T instance, @Nullable PathProjection[] transitions)
+    {
+        boolean[] resolved = this.newResolved(codec);
+        while (in.hasNext())
+        {
+            int index = in.nextNameIndex(codec.readNames);
+            if ((index < 0) && (resolved != null))
+            {
+                index = this.resolve(codec, in.lastString(), resolved);
+            }
+            if ((index < 0) || ((transitions != null) && (transitions[index] == null)))
+            {
+                in.skipValue();
+                continue;
+            }
+            if (resolved != null)
+            {
+                resolved[index] = true;
+            }
+            Class<?> propertyType = codec.readTypes[index];
+            Object value = (transitions == null) ? this.readValue(in, propertyType, codec.readSettings[index], codec.readSites[index])
+                                                 : this.readProjected(in, propertyType, codec.readSettings[index], codec.readSites[index],
+                                                                      transitions[index]);
+            if ((value != null) || ! propertyType.isPrimitive())
+            {
+                codec.getReadProperty(index).setValue(instance, value);
+            }
+        }
+        in.endObject();
+    }
+
+    /**
+     * Reads value of given type, but only parts of value selected by given projection state are decoded.
+     */
+    @Nullable
+    private Object readProjected(JsonByteReader in, Class<?> type, @Nullable PropertySettings settings,
+                                 @Nullable CodecSite<JsonValueCodec<?>> site, @Nullable PathProjection projection)
+    {
+        if ((projection == null) || projection.isComplete())
+        {
+            return this.readValue(in, type, settings, site);
+        }
+        JsonToken token = in.peek();
+        if ((token != JsonToken.BEGIN_OBJECT) && (token != JsonToken.BEGIN_ARRAY))
+        {
+            return this.readValue(in, type, settings, site);
+        }
+        // custom codecs and reference tracking of dynamic values always need whole value.
+        if (((type == Object.class) && this.trackReferences) ||
+            (! this.codecs.isEmpty() && (this.codecs.get(ValueTypes.serializerType(type, settings)) != null)))
+        {
+            return this.readValue(in, type, settings, site);
+        }
+        if (token == JsonToken.BEGIN_ARRAY)
+        {
+            return this.readProjectedArray(in, type, settings, site, projection.getElements());
+        }
+        if ((type == Object.class) || Map.class.isAssignableFrom(type))
+        {
+            return this.readProjectedMap(in, type, settings, projection);
+        }
+        JsonClassCodec<?> codec = this.getClassCodec(type);
+        return this.readObject(in, codec, projection.compile(codec.readPlan, this.resolutionStrategy));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object readProjectedArray(JsonByteReader in, Class<?> type, @Nullable PropertySettings settings,
+                                      @Nullable CodecSite<JsonValueCodec<?>> site, PathProjection elements)
+    {
+        PropertySettings elementSettings = ValueTypes.parameter(settings, 0);
+        if ((type.isArray() && type.getComponentType().isPrimitive()) || (PrimitiveCollections.createList(type, elementSettings) != null))
+        {
+            return this.readValue(in, type, settings, site);
+        }
+        Class<?> elementType = type.isArray() ? type.getComponentType() : ValueTypes.rawType(elementSettings);
+        List<Object> list = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext())
+        {
+            list.add(this.readProjected(in, elementType, elementSettings, null, elements));
+        }
+        in.endArray();
+        if (type.isArray())
+        {
+            return list.toArray((Object[]) Array.newInstance(elementType, list.size()));
+        }
+        if (type == Object.class)
+        {
+            return list;
+        }
+        Collection<Object> collection = ValueTypes.createCollection(type, this.instanceFactory);
+        collection.addAll(list);
+        return collection;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<?, ?> readProjectedMap(JsonByteReader in, Class<?> type, @Nullable PropertySettings settings, PathProjection projection)
+    {
+        PropertySettings keySettings = ValueTypes.parameter(settings, 0);
+        PropertySettings valueSettings = ValueTypes.parameter(settings, 1);
+        Class<?> keyType = ValueTypes.rawType(keySettings);
+        Class<?> valueType = ValueTypes.rawType(valueSettings);
+        Map<Object, Object> map;
+        if (type == Object.class)
+        {
+            map = new LinkedHashMap<>();
+        }
+        else
+        {
+            Map<?, ?> longMap = PrimitiveCollections.createMap(type, valueSettings);
+            map = (longMap != null) ? (Map<Object, Object>) longMap : ValueTypes.createMap(type, this.instanceFactory);
+        }
+        in.beginObject();
+        while (in.hasNext())
+        {
+            String name = in.nextName();
+            PathProjection child = projection.getChild(name);
+            if (child == null)
+            {
+                in.skipValue();
+                continue;
+            }
+            map.put(this.convertKey(name, keyType), this.readProjected(in, valueType, valueSettings, null, child));
+        }
+        in.endObject();
+        return map;
+    }
+
+    /**
+     * Returns array used to track properties that were already read, so resolution strategy only gets unresolved properties, or null if
+     * this codec does not use resolution strategy.
+     */
+    @Nullable
+    boolean[] newResolved(JsonClassCodec<?> codec)
+    {
+        return (this.resolutionStrategy == null) ? null : new boolean[codec.readPlan.size()];
+    }
+
+    /**
+     * Resolves unknown name to index of one of unresolved properties using resolution strategy of this codec.
+     */
+    int resolve(JsonClassCodec<?> codec, String name, boolean[] resolved)
+    {
+        assert this.resolutionStrategy != null;
+        PropertyPlan<?> plan = codec.readPlan;
+        Map<String, Property<?, ?>> unresolved = new LinkedHashMap<>(plan.size());
+        for (int i = 0; i < resolved.length; i++)
+        {
+            if (! resolved[i])
+            {
+                unresolved.put(plan.getName(i), plan.getProperty(i));
+            }
+        }
+        Property<?, ?> property = this.resolutionStrategy.resolveProperty(name, unresolved);
+        if (property == null)
+        {
+            return - 1;
+        }
+        for (int i = 0; i < resolved.length; i++)
+        {
+            if (plan.getProperty(i) == property)
+            {
+                return i;
+            }
+        }
+        throw new SerializationException("Resolution strategy returned unknown property: " + property.getRawName());
+    }
+
+    private Object readEnum(JsonByteReader in, Class<?> type)
+    {
+        EnumTable table = this.enumTables.get(type);
+        int index = in.nextStringIndex(table.names);
+        if (index < 0)
+        {
+            throw new SerializationException("Unknown constant of " + type.getName() + ": " + in.lastString());
+        }
+        return table.constants[index];
+    }
+
+    private Object readArray(JsonByteReader in, Class<?> componentType, @Nullable PropertySettings settings)
+    {
+        in.beginArray();
+        if (componentType == int.class)
+        {
+            int[] ints = new int[16];
+            int size = 0;
+            while (in.hasNext())
+            {
+                if (size == ints.length)
+                {
+                    ints = Arrays.copyOf(ints, size << 1);
+                }
+                ints[size++] = in.nextInt();
+            }
+            in.endArray();
+            return Arrays.copyOf(ints, size);
+        }
+        if (componentType == long.class)
+        {
+            long[] longs = new long[16];
+            int size = 0;
+            while (in.hasNext())
+            {
+                if (size == longs.length)
+                {
+                    longs = Arrays.copyOf(longs, size << 1);
+                }
+                longs[size++] = in.nextLong();
+            }
+            in.endArray();
+            return Arrays.copyOf(longs, size);
+        }
+        if (componentType == double.class)
+        {
+            double[] doubles = new double[16];
+            int size = 0;
+            while (in.hasNext())
+            {
+                if (size == doubles.length)
+                {
+                    doubles = Arrays.copyOf(doubles, size << 1);
+                }
+                doubles[size++] = in.nextDouble();
+            }
+            in.endArray();
+            return Arrays.copyOf(doubles, size);
+        }
+        List<Object> elements = new ArrayList<>();
+        while (in.hasNext())
+        {
+            elements.add(this.readValue(in, componentType, settings));
+        }
+        in.endArray();
+        Object array = Array.newInstance(componentType, elements.size());
+        for (int i = 0; i < elements.size(); i++)
+        {
+            Array.set(array, i, elements.get(i));
+        }
+        return array;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Collection<Object> readCollection(JsonByteReader in, Class<?> type, @Nullable PropertySettings elementSettings)
+    {
+        Object specialized = PrimitiveCollections.createList(type, elementSettings);
+        Collection<Object> collection =
+            (specialized != null) ? (Collection<Object>) specialized : ValueTypes.createCollection(type, this.instanceFactory);
+        Class<?> elementType = ValueTypes.rawType(elementSettings);
+        in.beginArray();
+        while (in.hasNext())
+        {
+            if (specialized != null)
+            {
+                if (in.peek() != JsonToken.NULL)
+                {
+                    readPrimitiveElement(in, specialized);
+                    continue;
+                }
+                // primitive-backed list can't store nulls, so rest of elements is read to boxed collection.
+                collection = PrimitiveCollections.toBoxed(collection, type, this.instanceFactory);
+                specialized = null;
+            }
+            collection.add(this.readValue(in, elementType, elementSettings));
+        }
+        in.endArray();
+        return collection;
+    }
+
+    /**
+     * Reads single number directly to given primitive-backed list, without boxing it.
+     */
+    private static void readPrimitiveElement(JsonByteReader in, Object list)
+    {
+        if (list instanceof IntArrayList)
+        {
+            ((IntArrayList) list).addInt(in.nextInt());
+        }
+        else if (list instanceof LongArrayList)
+        {
+            ((LongArrayList) list).addLong(in.nextLong());
+        }
+        else
+        {
+            ((DoubleArrayList) list).addDouble(in.nextDouble());
+        }
+    }
+
+    private Map<?, ?> readMap(JsonByteReader in, Class<?> type, @Nullable PropertySettings keySettings,
+                              @Nullable PropertySettings valueSettings)
+    {
+        Class<?> keyType = ValueTypes.rawType(keySettings);
+        Class<?> valueType = ValueTypes.rawType(valueSettings);
+        ObjectLongHashMap<Object> longMap = PrimitiveCollections.createMap(type, valueSettings);
+        Map<Object, Object> map = (longMap == null) ? ValueTypes.createMap(type, this.instanceFactory) : null;
+        in.beginObject();
+        while (in.hasNext())
+        {
+            Object key = this.convertKey(in.nextName(), keyType);
+            if (map == null)
+            {
+                if (in.peek() != JsonToken.NULL)
+                {
+                    longMap.putLong(key, in.nextLong());
+                    continue;
+                }
+                // primitive-backed map can't store nulls, so rest of entries is read to boxed map.
+                map = PrimitiveCollections.toBoxed(longMap, type, this.instanceFactory);
+            }
+            map.put(key, this.readValue(in, valueType, valueSettings));
+        }
+        in.endObject();
+        return (map != null) ? map : longMap;
+    }
+
+    @Nullable
+    private Object readDynamic(JsonByteReader in)
+    {
+        switch (in.peek())
+        {
+            case BEGIN_OBJECT:
+                Map<String, Object> map = new LinkedHashMap<>();
+                in.beginObject();
+                boolean first = true;
+                while (in.hasNext())
+                {
+                    String name = in.nextName();
+                    if (first && this.trackReferences)
+                    {
+                        if (name.equals("@ref"))
+                        {
+                            return resolveReference(in, in.nextInt());
+                        }
+                        if (name.equals("@id"))
+                        {
+                            registerReference(in, in.nextInt(), map);
+                            first = false;
+                            continue;
+                        }
+                    }
+                    first = false;
+                    map.put(name, this.readDynamic(in));
+                }
+                in.endObject();
+                return map;
+            case BEGIN_ARRAY:
+                List<Object> list = new ArrayList<>();
+                in.beginArray();
+                while (in.hasNext())
+                {
+                    list.add(this.readDynamic(in));
+                }
+                in.endArray();
+                return list;
+            case STRING:
+                return in.nextString();
+            case NUMBER:
+                return in.nextDouble();
+            case BOOLEAN:
+                return in.nextBoolean();
+            case NULL:
+                in.nextNull();
+                return null;
+            default:
+                throw in.error("value");
+        }
+    }
+
+    private Object convertKey(String key, Class<?> type)
+    {
+        if ((type == String.class) || (type == Object.class) || (type == CharSequence.class))
+        {
+            return key;
+        }
+        try
+        {
+            if ((type == Integer.class) || (type == int.class))
+            {
+                return Integer.valueOf(key);
+            }
+            if ((type == Long.class) || (type == long.class))
+            {
+                return Long.valueOf(key);
+            }
+            if ((type == Double.class) || (type == double.class))
+            {
+                return Double.valueOf(key);
+            }
+        }
+        catch (NumberFormatException e)
+        {
+            throw new SerializationException("Invalid map key for " + type.getName() + ": " + key, e);
+        }
+        if ((type == Boolean.class) || (type == boolean.class))
+        {
+            return Boolean.valueOf(key);
+        }
+        if (type.isEnum())
+        {
+            EnumTable table = this.enumTables.get(type);
+            int index = table.names.indexOf(key);
+            if (index < 0)
+            {
+                throw new SerializationException("Unknown constant of " + type.getName() + ": " + key);
+            }
+            return table.constants[index];
+        }
+        throw new SerializationException("Unsupported map key type: " + type.getName());
+    }
+
+    /**
+     * Target of values written by {@link #writeProperties(Object, JsonClassCodec, boolean, Object, PropertyWriter)}.
+     *
+     * @param <W>
+     *     type of target.
+     */
+    interface PropertyWriter<W>
+    {
+        /**
+         * @return writer that next property name should be written to.
+         */
+        JsonByteWriter getWriter(W target);
+
+        /**
+         * Writes value of property.
+         */
+        void writeValue(W target, Object value, CodecSite<JsonValueCodec<?>> site);
+    }
+
+    private static final class EnumTable
+    {
+        private final Object[]      constants;
+        private final JsonNameTable names;
+
+        private EnumTable(Class<?> type)
+        {
+            this.constants = type.getEnumConstants();
+            String[] names = new String[this.constants.length];
+            for (int i = 0; i < names.length; i++)
+            {
+                names[i] = ((Enum<?>) this.constants[i]).name();
+            }
+            this.names = new JsonNameTable(names);
+        }
+    }
+}
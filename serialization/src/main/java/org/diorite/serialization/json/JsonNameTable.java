@@ -0,0 +1,148 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.json;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Immutable hash table of UTF-8 encoded names, used to match names directly from source bytes without creating strings. <br>
+ * Multiple names can point to the same index, so alternate names of single property can be stored in one table.
+ */
+public final class JsonNameTable
+{
+    private final byte[][] keys;
+    private final int[]    values;
+    private final int      mask;
+
+    /**
+     * Creates name table where each name is mapped to its index in given array.
+     *
+     * @param names
+     *     names to store.
+     */
+    public JsonNameTable(String... names)
+    {
+        this(names, indices(names.length));
+    }
+
+    /**
+     * Creates name table where each name is mapped to index from second array.
+     *
+     * @param names
+     *     names to store.
+     * @param indices
+     *     index of each name.
+     */
+    public JsonNameTable(String[] names, int[] indices)
+    {
+        if (names.length != indices.length)
+        {
+            throw new IllegalArgumentException("Names and indices must have the same length");
+        }
+        int capacity = Integer.highestOneBit(Math.max(names.length, 1) * 2 + 1) << 1;
+        this.keys = new byte[capacity][];
+        this.values = new int[capacity];
+        this.mask = capacity - 1;
+        for (int i = 0; i < names.length; i++)
+        {
+            byte[] key = names[i].getBytes(StandardCharsets.UTF_8);
+            int slot = hash(key, 0, key.length) & this.mask;
+            while (this.keys[slot] != null)
+            {
+                if (Arrays.equals(this.keys[slot], key))
+                {
+                    break;
+                }
+                slot = (slot + 1) & this.mask;
+            }
+            this.keys[slot] = key;
+            this.values[slot] = indices[i];
+        }
+    }
+
+    private static int[] indices(int size)
+    {
+        int[] indices = new int[size];
+        for (int i = 0; i < size; i++)
+        {
+            indices[i] = i;
+        }
+        return indices;
+    }
+
+    static int hash(byte[] bytes, int offset, int length)
+    {
+        int hash = 0;
+        for (int i = offset, end = offset + length; i < end; i++)
+        {
+            hash = (31 * hash) + bytes[i];
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Finds index of name stored in given byte range, hash must be computed by same algorithm as used by this table.
+     *
+     * @param bytes
+     *     source bytes.
+     * @param offset
+     *     offset of name.
+     * @param length
+     *     length of name in bytes.
+     * @param hash
+     *     hash of name.
+     *
+     * @return index of name or -1 if name isn't in this table.
+     */
+    int find(byte[] bytes, int offset, int length, int hash)
+    {
+        int slot = hash & this.mask;
+        byte[] key;
+        while ((key = this.keys[slot]) != null)
+        {
+            if ((key.length == length) && Arrays.equals(key, 0, length, bytes, offset, offset + length))
+            {
+                return this.values[slot];
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        return - 1;
+    }
+
+    /**
+     * Finds index of given name.
+     *
+     * @param name
+     *     name to find.
+     *
+     * @return index of name or -1 if name isn't in this table.
+     */
+    public int indexOf(String name)
+    {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        return this.find(bytes, 0, bytes.length, hash(bytes, 0, bytes.length));
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.json;
+
+import org.diorite.serialization.SerializationException;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Decodes large top-level JSON arrays in parallel. <br>
+ * Boundaries of all elements are found by fast structural scan first, then ranges of elements are decoded independently on fork-join
+ * pool, each using the same {@link JsonCodec}. Returned elements are always in source order.
+ */
+public class JsonParallelDecoder
+{
+    /**
+     * Default minimal amount of elements decoded by single task.
+     */
+    public static final int DEFAULT_MIN_CHUNK_SIZE = 256;
+
+    private final JsonCodec    codec;
+    private final ForkJoinPool pool;
+    private final int          minChunkSize;
+
+    public JsonParallelDecoder(JsonCodec codec, ForkJoinPool pool, int minChunkSize)
+    {
+        if (minChunkSize <= 0)
+        {
+            throw new IllegalArgumentException("Chunk size must be positive: " + minChunkSize);
+        }
+        this.codec = codec;
+        this.pool = pool;
+        this.minChunkSize = minChunkSize;
+    }
+
+    public JsonParallelDecoder(JsonCodec codec)
+    {
+        this(codec, ForkJoinPool.commonPool(), DEFAULT_MIN_CHUNK_SIZE);
+    }
+
+    /**
+     * Decodes top-level JSON array of elements of given type.
+     *
+     * @param elementType
+     *     type of array elements.
+     * @param data
+     *     UTF-8 encoded JSON array.
+     * @param <T>
+     *     type of array elements.
+     *
+     * @return unmodifiable list of decoded elements, in source order.
+     */
+    public <T> List<T> decodeArray(Class<T> elementType, byte[] data)
+    {
+        return this.decodeArray(elementType, new JsonByteReader(data));
+    }
+
+    /**
+     * Decodes top-level JSON array of elements of given type from remaining bytes of given buffer.
+     *
+     * @param elementType
+     *     type of array elements.
+     * @param buffer
+     *     UTF-8 encoded JSON array.
+     * @param <T>
+     *     type of array elements.
+     *
+     * @return unmodifiable list of decoded elements, in source order.
+     */
+    public <T> List<T> decodeArray(Class<T> elementType, ByteBuffer buffer)
+    {
+        return this.decodeArray(elementType, JsonByteReader.of(buffer));
+    }
+
+    /**
+     * Decodes next JSON array of elements of given type from given reader, reader is moved after the array.
+     *
+     * @param elementType
+     *     type of array elements.
+     * @param reader
+     *     source reader.
+     * @param <T>
+     *     type of array elements.
+     *
+     * @return unmodifiable list of decoded elements, in source order.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> decodeArray(Class<T> elementType, JsonByteReader reader)
+    {
+        if (this.codec.isTrackingReferences())
+        {
+            // references can point to elements decoded by other tasks, so array must be decoded sequentially.
+            List<Object> results = new ArrayList<>();
+            reader.beginArray();
+            while (reader.hasNext())
+            {
+                results.add(this.codec.readValue(reader, elementType, null));
+            }
+            reader.endArray();
+            return Collections.unmodifiableList((List<T>) results);
+        }
+        int[] bounds = scan(reader);
+        int size = bounds.length >>> 1;
+        Object[] results = new Object[size];
+        if (size > 0)
+        {
+            int parallelism = Math.max(this.pool.getParallelism(), 1);
+            int chunkSize = Math.max(this.minChunkSize, size / (parallelism * 4));
+            DecodeTask task = new DecodeTask(reader.getData(), bounds, elementType, results, 0, size, chunkSize);
+            if (size <= chunkSize)
+            {
+                task.compute();
+            }
+            else
+            {
+                this.pool.invoke(task);
+            }
+        }
+        return Collections.unmodifiableList((List<T>) Arrays.asList(results));
+    }
+
+    /**
+     * Finds bounds of all elements of next array, returned array contains start and end position of each element.
+     */
+    private static int[] scan(JsonByteReader reader)
+    {
+        int[] bounds = new int[64];
+        int size = 0;
+        reader.beginArray();
+        while (reader.hasNext())
+        {
+            if ((size + 2) > bounds.length)
+            {
+                bounds = Arrays.copyOf(bounds, bounds.length << 1);
+            }
+            reader.skipWhitespace();
+            bounds[size++] = reader.getPosition();
+            reader.skipValue();
+            bounds[size++] = reader.getPosition();
+        }
+        reader.endArray();
+        return Arrays.copyOf(bounds, size);
+    }
+
+    private final class DecodeTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 0;
+
+        private final byte[]   data;
+        private final int[]    bounds;
+        private final Class<?> elementType;
+        private final Object[] results;
+        private final int      from;
+        private final int      to;
+        private final int      chunkSize;
+
+        private DecodeTask(byte[] data, int[] bounds, Class<?> elementType, Object[] results, int from, int to, int chunkSize)
+        {
+            this.data = data;
+            this.bounds = bounds;
+            this.elementType = elementType;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if ((this.to - this.from) > this.chunkSize)
+            {
+                int middle = (this.from + this.to) >>> 1;
+                invokeAll(new DecodeTask(this.data, this.bounds, this.elementType, this.results, this.from, middle, this.chunkSize),
+                          new DecodeTask(this.data, this.bounds, this.elementType, this.results, middle, this.to, this.chunkSize));
+                return;
+            }
+            JsonCodec codec = JsonParallelDecoder.this.codec;
+            for (int i = this.from; i < this.to; i++)
+            {
+                int start = this.bounds[i << 1];
+                int end = this.bounds[(i << 1) + 1];
+                JsonByteReader reader = new JsonByteReader(this.data, start, end - start);
+                this.results[i] = codec.readValue(reader, this.elementType, null);
+                if (reader.skipWhitespace() != - 1)
+                {
+                    throw new SerializationException("Unexpected data after element " + i + " at position " + reader.getPosition());
+                }
+            }
+        }
+    }
+}
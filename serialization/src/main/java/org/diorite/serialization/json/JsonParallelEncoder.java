@@ -0,0 +1,444 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.json;
+
+import org.diorite.serialization.codec.CodecSite;
+import org.diorite.serialization.collection.DoubleArrayList;
+import org.diorite.serialization.collection.IntArrayList;
+import org.diorite.serialization.collection.LongArrayList;
+import org.diorite.serialization.collection.ObjectLongHashMap;
+import org.diorite.serialization.json.JsonCodec.PropertyWriter;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Encodes large object graphs to JSON in parallel. <br>
+ * Object tree is walked sequentially, but each large collection, object array or map found in it is split into chunks that are encoded
+ * into separate segment buffers on fork-join pool. Segments are then joined in order, or written to channel using single gathering
+ * write. Values with custom codec registered in {@link JsonCodec#getCodecs()} are never split and are written by that codec. <br>
+ * Output is always identical to output of {@link JsonCodec#serialize(Object)}.
+ */
+public class JsonParallelEncoder
+{
+    /**
+     * Default minimal amount of elements encoded by single task.
+     */
+    public static final int DEFAULT_MIN_CHUNK_SIZE = 256;
+
+    private final JsonCodec    codec;
+    private final ForkJoinPool pool;
+    private final int          minChunkSize;
+
+    private final PropertyWriter<Segments> propertyWriter = new PropertyWriter<>()
+    {
+        @Override
+        public JsonByteWriter getWriter(Segments target)
+        {
+            return target.current;
+        }
+
+        @Override
+        public void writeValue(Segments target, Object value, CodecSite<JsonValueCodec<?>> site)
+        {
+            JsonParallelEncoder.this.emit(target, value, site);
+        }
+    };
+
+    public JsonParallelEncoder(JsonCodec codec, ForkJoinPool pool, int minChunkSize)
+    {
+        if (minChunkSize <= 0)
+        {
+            throw new IllegalArgumentException("Chunk size must be positive: " + minChunkSize);
+        }
+        this.codec = codec;
+        this.pool = pool;
+        this.minChunkSize = minChunkSize;
+    }
+
+    public JsonParallelEncoder(JsonCodec codec)
+    {
+        this(codec, ForkJoinPool.commonPool(), DEFAULT_MIN_CHUNK_SIZE);
+    }
+
+    /**
+     * Encodes given value and returns ordered segments of output.
+     *
+     * @param value
+     *     value to encode.
+     *
+     * @return ordered segments of encoded value.
+     */
+    public ByteBuffer[] encodeSegments(@Nullable Object value)
+    {
+        Segments segments = new Segments();
+        if (this.codec.isTrackingReferences())
+        {
+            // ids depend on order of written objects, so whole graph must be written sequentially.
+            this.codec.writeValue(segments.current, value);
+        }
+        else
+        {
+            this.emit(segments, value, null);
+        }
+        return segments.finish();
+    }
+
+    /**
+     * Encodes given value to JSON.
+     *
+     * @param value
+     *     value to encode.
+     *
+     * @return UTF-8 encoded JSON.
+     */
+    public byte[] encode(@Nullable Object value)
+    {
+        ByteBuffer[] segments = this.encodeSegments(value);
+        int size = 0;
+        for (ByteBuffer segment : segments)
+        {
+            size += segment.remaining();
+        }
+        ByteBuffer result = ByteBuffer.allocate(size);
+        for (ByteBuffer segment : segments)
+        {
+            result.put(segment);
+        }
+        return result.array();
+    }
+
+    /**
+     * Encodes given value to JSON and writes all segments to given channel using gathering writes. <br>
+     * Method returns after all bytes are written, so channel should be in blocking mode.
+     *
+     * @param value
+     *     value to encode.
+     * @param channel
+     *     target channel.
+     *
+     * @return amount of written bytes.
+     *
+     * @throws IOException
+     *     if write fails.
+     */
+    public long encode(@Nullable Object value, GatheringByteChannel channel) throws IOException
+    {
+        ByteBuffer[] segments = this.encodeSegments(value);
+        long written = 0;
+        int offset = 0;
+        while (offset < segments.length)
+        {
+            written += channel.write(segments, offset, segments.length - offset);
+            while ((offset < segments.length) && ! segments[offset].hasRemaining())
+            {
+                offset++;
+            }
+        }
+        return written;
+    }
+
+    private void emit(Segments segments, @Nullable Object value, @Nullable CodecSite<JsonValueCodec<?>> site)
+    {
+        if ((value == null) || (this.codec.findCodec(value.getClass(), site) != null))
+        {
+            // custom codecs decide how value is written, so value is never split if codec is registered for it.
+            this.codec.writeValue(segments.current, value, site);
+        }
+        else if ((value instanceof Collection) && (((Collection<?>) value).size() >= (this.minChunkSize << 1)))
+        {
+            this.emitCollection(segments, (Collection<?>) value);
+        }
+        else if ((value instanceof Object[]) && (((Object[]) value).length >= (this.minChunkSize << 1)))
+        {
+            Object[] elements = (Object[]) value;
+            this.emitChunks(segments, elements.length, this.chunkSize(elements.length), false,
+                            (from, to) -> new EncodeTask(elements, from, to, false));
+        }
+        else if ((value instanceof Map) && (((Map<?, ?>) value).size() >= (this.minChunkSize << 1)))
+        {
+            this.emitMap(segments, (Map<?, ?>) value);
+        }
+        else if (JsonCodec.isPropertyObject(value))
+        {
+            this.emitObject(segments, value);
+        }
+        else
+        {
+            this.codec.writeValue(segments.current, value, site);
+        }
+    }
+
+    private <T> void emitObject(Segments segments, T object)
+    {
+        @SuppressWarnings("unchecked")
+        JsonClassCodec<T> classCodec = this.codec.getClassCodec((Class<T>) object.getClass());
+        segments.current.beginObject();
+        this.codec.writeProperties(object, classCodec, true, segments, this.propertyWriter);
+        segments.current.endObject();
+    }
+
+    private void emitCollection(Segments segments, Collection<?> collection)
+    {
+        int size = collection.size();
+        int chunkSize = this.chunkSize(size);
+        // backing arrays of primitive lists are split directly, so elements are never boxed.
+        Object primitives = primitiveElements(collection);
+        if (primitives != null)
+        {
+            this.emitChunks(segments, size, chunkSize, false, (from, to) -> new PrimitiveTask(primitives, from, to));
+            return;
+        }
+        Object[] elements = collection.toArray();
+        this.emitChunks(segments, elements.length, chunkSize, false, (from, to) -> new EncodeTask(elements, from, to, false));
+    }
+
+    /**
+     * Returns backing array of primitive list, or null if given collection isn't a primitive list.
+     */
+    @Nullable
+    private static Object primitiveElements(Collection<?> collection)
+    {
+        if (collection instanceof IntArrayList)
+        {
+            return ((IntArrayList) collection).elements();
+        }
+        if (collection instanceof LongArrayList)
+        {
+            return ((LongArrayList) collection).elements();
+        }
+        if (collection instanceof DoubleArrayList)
+        {
+            return ((DoubleArrayList) collection).elements();
+        }
+        return null;
+    }
+
+    private void emitMap(Segments segments, Map<?, ?> map)
+    {
+        int size = map.size();
+        int chunkSize = this.chunkSize(size);
+        if (map instanceof ObjectLongHashMap)
+        {
+            // only first slot of each chunk is found here, entries are read from slots by tasks, so values are never boxed.
+            ObjectLongHashMap<?> longMap = (ObjectLongHashMap<?>) map;
+            int[] firstSlots = new int[((size + chunkSize) - 1) / chunkSize];
+            int index = 0;
+            for (int slot = longMap.nextSlot(0); slot >= 0; slot = longMap.nextSlot(slot + 1), index++)
+            {
+                if ((index % chunkSize) == 0)
+                {
+                    firstSlots[index / chunkSize] = slot;
+                }
+            }
+            this.emitChunks(segments, size, chunkSize, true,
+                            (from, to) -> new LongMapTask(longMap, firstSlots[from / chunkSize], from, to));
+            return;
+        }
+        Object[] entries = map.entrySet().toArray();
+        this.emitChunks(segments, entries.length, chunkSize, true, (from, to) -> new EncodeTask(entries, from, to, true));
+    }
+
+    private int chunkSize(int length)
+    {
+        int parallelism = Math.max(this.pool.getParallelism(), 1);
+        return Math.max(this.minChunkSize, length / (parallelism * 4));
+    }
+
+    private void emitChunks(Segments segments, int length, int chunkSize, boolean entries, ChunkTasks tasks)
+    {
+        if (entries)
+        {
+            segments.current.beginObject();
+        }
+        else
+        {
+            segments.current.beginArray();
+        }
+        for (int from = 0; from < length; from += chunkSize)
+        {
+            segments.fork(this.pool.submit(tasks.create(from, Math.min(from + chunkSize, length))));
+        }
+        if (entries)
+        {
+            segments.current.endObject();
+        }
+        else
+        {
+            segments.current.endArray();
+        }
+    }
+
+    @FunctionalInterface
+    private interface ChunkTasks
+    {
+        Callable<JsonByteWriter> create(int from, int to);
+    }
+
+    private final class EncodeTask implements Callable<JsonByteWriter>
+    {
+        private final Object[] elements;
+        private final int      from;
+        private final int      to;
+        private final boolean  entries;
+
+        private EncodeTask(Object[] elements, int from, int to, boolean entries)
+        {
+            this.elements = elements;
+            this.from = from;
+            this.to = to;
+            this.entries = entries;
+        }
+
+        @Override
+        public JsonByteWriter call()
+        {
+            JsonCodec codec = JsonParallelEncoder.this.codec;
+            JsonByteWriter writer = new JsonByteWriter(1024);
+            for (int i = this.from; i < this.to; i++)
+            {
+                if (i != 0)
+                {
+                    writer.writeComma();
+                }
+                if (this.entries)
+                {
+                    codec.writeMapEntry(writer, (Map.Entry<?, ?>) this.elements[i]);
+                }
+                else
+                {
+                    codec.writeValue(writer, this.elements[i]);
+                }
+            }
+            return writer;
+        }
+    }
+
+    private static final class PrimitiveTask implements Callable<JsonByteWriter>
+    {
+        private final Object elements;
+        private final int    from;
+        private final int    to;
+
+        private PrimitiveTask(Object elements, int from, int to)
+        {
+            this.elements = elements;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public JsonByteWriter call()
+        {
+            JsonByteWriter writer = new JsonByteWriter(1024);
+            if (this.from != 0)
+            {
+                writer.writeComma();
+            }
+            if (this.elements instanceof int[])
+            {
+                JsonCodec.writeInts(writer, (int[]) this.elements, this.from, this.to);
+            }
+            else if (this.elements instanceof long[])
+            {
+                JsonCodec.writeLongs(writer, (long[]) this.elements, this.from, this.to);
+            }
+            else
+            {
+                JsonCodec.writeDoubles(writer, (double[]) this.elements, this.from, this.to);
+            }
+            return writer;
+        }
+    }
+
+    private static final class LongMapTask implements Callable<JsonByteWriter>
+    {
+        private final ObjectLongHashMap<?> map;
+        private final int                  firstSlot;
+        private final int                  from;
+        private final int                  to;
+
+        private LongMapTask(ObjectLongHashMap<?> map, int firstSlot, int from, int to)
+        {
+            this.map = map;
+            this.firstSlot = firstSlot;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public JsonByteWriter call()
+        {
+            JsonByteWriter writer = new JsonByteWriter(1024);
+            int slot = this.firstSlot;
+            for (int i = this.from; i < this.to; i++, slot = this.map.nextSlot(slot + 1))
+            {
+                if (i != 0)
+                {
+                    writer.writeComma();
+                }
+                JsonCodec.writeMapEntry(writer, this.map, slot);
+            }
+            return writer;
+        }
+    }
+
+    private static final class Segments
+    {
+        private final List<Object>   parts   = new ArrayList<>();
+        private       JsonByteWriter current = new JsonByteWriter(1024);
+
+        void fork(ForkJoinTask<JsonByteWriter> task)
+        {
+            this.parts.add(this.current);
+            this.parts.add(task);
+            this.current = new JsonByteWriter(256);
+        }
+
+        @SuppressWarnings("unchecked")
+        ByteBuffer[] finish()
+        {
+            this.parts.add(this.current);
+            ByteBuffer[] buffers = new ByteBuffer[this.parts.size()];
+            for (int i = 0; i < buffers.length; i++)
+            {
+                Object part = this.parts.get(i);
+                JsonByteWriter writer =
+                    (part instanceof ForkJoinTask) ? ((ForkJoinTask<JsonByteWriter>) part).join() : (JsonByteWriter) part;
+                buffers[i] = ByteBuffer.wrap(writer.getBuffer(), 0, writer.size());
+            }
+            return buffers;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.json;
+
+import org.diorite.serialization.setting.PropertySettings;
+
+import javax.annotation.Nullable;
+
+/**
+ * Custom JSON codec of values, registered in {@link JsonCodec#getCodecs()} and used instead of built-in handling of values. <br>
+ * Codec must write and read exactly one JSON value, nulls are handled by {@link JsonCodec} and never passed to codec. Codec can use
+ * given {@link JsonCodec} to write and read nested values, but it can't delegate value of own type back to it.
+ *
+ * @param <T>
+ *     type of values.
+ */
+public interface JsonValueCodec<T>
+{
+    /**
+     * Writes given value as single JSON value.
+     *
+     * @param codec
+     *     codec used to write nested values.
+     * @param out
+     *     target writer.
+     * @param value
+     *     value to write.
+     */
+    void write(JsonCodec codec, JsonByteWriter out, T value);
+
+    /**
+     * Reads single JSON value written by {@link #write(JsonCodec, JsonByteWriter, Object)}.
+     *
+     * @param codec
+     *     codec used to read nested values.
+     * @param in
+     *     source reader.
+     * @param type
+     *     declared raw type of value.
+     * @param settings
+     *     settings of value, or null if unknown.
+     *
+     * @return read value.
+     */
+    @Nullable
+    T read(JsonCodec codec, JsonByteReader in, Class<?> type, @Nullable PropertySettings settings);
+}
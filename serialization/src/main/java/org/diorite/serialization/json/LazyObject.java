@@ -0,0 +1,246 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.json;
+
+import org.diorite.serialization.SerializationException;
+import org.diorite.serialization.plan.PropertyPlan;
+import org.diorite.serialization.setting.Property;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+
+/**
+ * Lazily decoded JSON object. <br>
+ * Creating lazy object only performs structural scan of source document to find where value of each known property starts and ends,
+ * values are decoded using type of property when they are read for the first time, so partial reads only pay for properties that are
+ * used. <br>
+ * Source bytes are not copied, so they must not be modified while lazy object is in use. This class is not thread safe.
+ *
+ * @param <T>
+ *     type of object.
+ */
+public final class LazyObject<T>
+{
+    private static final Object NOT_DECODED = new Object();
+
+    private final JsonCodec         codec;
+    private final JsonClassCodec<T> classCodec;
+    private final byte[]            data;
+    private final int[]             starts;
+    private final int[]             ends;
+    private final Object[]          values;
+
+    LazyObject(JsonCodec codec, JsonClassCodec<T> classCodec, JsonByteReader reader)
+    {
+        this.codec = codec;
+        this.classCodec = classCodec;
+        this.data = reader.getData();
+        int size = classCodec.readPlan.size();
+        this.starts = new int[size];
+        this.ends = new int[size];
+        this.values = new Object[size];
+        Arrays.fill(this.starts, - 1);
+        Arrays.fill(this.values, NOT_DECODED);
+
+        boolean[] resolved = codec.newResolved(classCodec);
+        reader.beginObject();
+        while (reader.hasNext())
+        {
+            int index = reader.nextNameIndex(classCodec.readNames);
+            if ((index < 0) && (resolved != null))
+            {
+                index = codec.resolve(classCodec, reader.lastString(), resolved);
+            }
+            reader.skipWhitespace();
+            int start = reader.getPosition();
+            reader.skipValue();
+            if (index >= 0)
+            {
+                if (resolved != null)
+                {
+                    resolved[index] = true;
+                }
+                this.starts[index] = start;
+                this.ends[index] = reader.getPosition();
+            }
+        }
+        reader.endObject();
+    }
+
+    /**
+     * @return type of object.
+     */
+    public Class<T> getType()
+    {
+        return this.classCodec.readPlan.getType();
+    }
+
+    /**
+     * Returns index of property with given serialization name or alternate name, or -1 if there is no such property.
+     *
+     * @param name
+     *     name of property.
+     *
+     * @return index of property or -1.
+     */
+    public int indexOf(String name)
+    {
+        return this.classCodec.readNames.indexOf(name);
+    }
+
+    /**
+     * Returns true if source document contains value of property with given index.
+     *
+     * @param index
+     *     index of property in read plan.
+     *
+     * @return true if source document contains value of property.
+     */
+    public boolean has(int index)
+    {
+        return this.starts[index] >= 0;
+    }
+
+    /**
+     * Returns true if source document contains value of property with given name.
+     *
+     * @param name
+     *     name of property.
+     *
+     * @return true if source document contains value of property.
+     */
+    public boolean has(String name)
+    {
+        int index = this.indexOf(name);
+        return (index >= 0) && this.has(index);
+    }
+
+    /**
+     * Returns decoded value of property with given index, value is decoded on first access and cached.
+     *
+     * @param index
+     *     index of property in read plan.
+     *
+     * @return decoded value or null if property isn't present.
+     */
+    @Nullable
+    public Object get(int index)
+    {
+        Object value = this.values[index];
+        if (value != NOT_DECODED)
+        {
+            return value;
+        }
+        int start = this.starts[index];
+        if (start < 0)
+        {
+            value = null;
+        }
+        else
+        {
+            JsonByteReader reader = new JsonByteReader(this.data, start, this.ends[index] - start);
+            value = this.codec.readValue(reader, this.classCodec.readTypes[index], this.classCodec.readSettings[index],
+                                         this.classCodec.readSites[index]);
+        }
+        this.values[index] = value;
+        return value;
+    }
+
+    /**
+     * Returns decoded value of property with given name.
+     *
+     * @param name
+     *     serialization or alternate name of property.
+     *
+     * @return decoded value or null if property isn't present.
+     *
+     * @throws IllegalArgumentException
+     *     if there is no such property.
+     */
+    @Nullable
+    public Object get(String name)
+    {
+        int index = this.indexOf(name);
+        if (index < 0)
+        {
+            throw new IllegalArgumentException("Unknown property: " + name + " in " + this.getType().getName());
+        }
+        return this.get(index);
+    }
+
+    /**
+     * Returns decoded value of given property.
+     *
+     * @param property
+     *     property to read.
+     * @param <V>
+     *     type of property.
+     *
+     * @return decoded value or null if property isn't present.
+     *
+     * @throws IllegalArgumentException
+     *     if given property isn't deserialized for this type.
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public <V> V get(Property<T, V> property)
+    {
+        PropertyPlan<T> plan = this.classCodec.readPlan;
+        for (int i = 0, size = plan.size(); i < size; i++)
+        {
+            if (plan.getProperty(i) == property)
+            {
+                return (V) this.get(i);
+            }
+        }
+        throw new IllegalArgumentException("Property " + property.getRawName() + " isn't deserialized in " + this.getType().getName());
+    }
+
+    /**
+     * Creates full instance of object, decoding all properties that weren't decoded yet.
+     *
+     * @return decoded object.
+     *
+     * @throws SerializationException
+     *     if object can not be created.
+     */
+    public T materialize()
+    {
+        T instance = this.codec.getInstanceFactory().create(this.getType());
+        for (int i = 0; i < this.starts.length; i++)
+        {
+            if (this.starts[i] < 0)
+            {
+                continue;
+            }
+            Object value = this.get(i);
+            if ((value != null) || ! this.classCodec.readTypes[i].isPrimitive())
+            {
+                this.classCodec.getReadProperty(i).setValue(instance, value);
+            }
+        }
+        return instance;
+    }
+}
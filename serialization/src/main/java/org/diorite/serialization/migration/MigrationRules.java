@@ -0,0 +1,216 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.migration;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Flattened migration rules from one version to another, created by {@link VersionMigrator#getRules(String, String)}. <br>
+ * Rules are immutable, so single instance can be used to migrate multiple documents in parallel. <br>
+ * Rules are only applied to properties of root object, nested objects and arrays are copied as they are.
+ */
+public final class MigrationRules
+{
+    private final Map<String, String> renames;
+    private final Set<String>         drops;
+    private final Map<String, Object> defaults;
+    private final Set<String>         renameTargets;
+
+    MigrationRules(Map<String, String> renames, Set<String> drops, Map<String, Object> defaults)
+    {
+        this.renames = renames;
+        this.drops = drops;
+        this.defaults = defaults;
+        this.renameTargets = new HashSet<>(renames.values());
+    }
+
+    /**
+     * @return true if this rules don't change anything in migrated documents.
+     */
+    public boolean isIdentity()
+    {
+        return this.renames.isEmpty() && this.drops.isEmpty() && this.defaults.isEmpty();
+    }
+
+    /**
+     * @return unmodifiable map of renamed properties, where key is old name and value is new name.
+     */
+    public Map<String, String> getRenames()
+    {
+        return Collections.unmodifiableMap(this.renames);
+    }
+
+    /**
+     * @return unmodifiable set of dropped property names.
+     */
+    public Set<String> getDrops()
+    {
+        return Collections.unmodifiableSet(this.drops);
+    }
+
+    /**
+     * @return unmodifiable map of default values added when property is missing.
+     */
+    public Map<String, Object> getDefaults()
+    {
+        return Collections.unmodifiableMap(this.defaults);
+    }
+
+    /**
+     * Migrates single document from given reader to given writer, values are copied token by token so document is never fully
+     * materialized in memory. <br>
+     * Only properties of root object are renamed, dropped or defaulted.
+     *
+     * @param in
+     *     source of document.
+     * @param out
+     *     target of migrated document.
+     *
+     * @throws IOException
+     *     if reading or writing fails, or if renamed property collides with other property of document.
+     */
+    public void migrate(JsonReader in, JsonWriter out) throws IOException
+    {
+        if (in.peek() != JsonToken.BEGIN_OBJECT)
+        {
+            copyValue(in, out);
+            return;
+        }
+        boolean trackNames = ! this.defaults.isEmpty() || ! this.renames.isEmpty();
+        Set<String> written = trackNames ? new HashSet<>() : Collections.emptySet();
+        in.beginObject();
+        out.beginObject();
+        while (in.hasNext())
+        {
+            String name = in.nextName();
+            if (this.drops.contains(name))
+            {
+                in.skipValue();
+                continue;
+            }
+            String renamed = this.renames.get(name);
+            if (renamed != null)
+            {
+                name = renamed;
+            }
+            if (trackNames && ! written.add(name) && ((renamed != null) || this.renameTargets.contains(name)))
+            {
+                throw new IOException("Renamed property '" + name + "' collides with existing property at " + in.getPath());
+            }
+            out.name(name);
+            copyValue(in, out);
+        }
+        for (Map.Entry<String, Object> entry : this.defaults.entrySet())
+        {
+            if (! written.contains(entry.getKey()))
+            {
+                out.name(entry.getKey());
+                writeDefault(out, entry.getValue());
+            }
+        }
+        in.endObject();
+        out.endObject();
+    }
+
+    static void copyValue(JsonReader in, JsonWriter out) throws IOException
+    {
+        int depth = 0;
+        do
+        {
+            switch (in.peek())
+            {
+                case BEGIN_ARRAY:
+                    in.beginArray();
+                    out.beginArray();
+                    depth++;
+                    break;
+                case END_ARRAY:
+                    in.endArray();
+                    out.endArray();
+                    depth--;
+                    break;
+                case BEGIN_OBJECT:
+                    in.beginObject();
+                    out.beginObject();
+                    depth++;
+                    break;
+                case END_OBJECT:
+                    in.endObject();
+                    out.endObject();
+                    depth--;
+                    break;
+                case NAME:
+                    out.name(in.nextName());
+                    break;
+                case STRING:
+                    out.value(in.nextString());
+                    break;
+                case NUMBER:
+                    // raw number text is copied to keep original precision.
+                    out.jsonValue(in.nextString());
+                    break;
+                case BOOLEAN:
+                    out.value(in.nextBoolean());
+                    break;
+                case NULL:
+                    in.nextNull();
+                    out.nullValue();
+                    break;
+                case END_DOCUMENT:
+                    throw new IOException("Unexpected end of document");
+            }
+        }
+        while (depth > 0);
+    }
+
+    static void writeDefault(JsonWriter out, @Nullable Object value) throws IOException
+    {
+        if (value == null)
+        {
+            out.nullValue();
+        }
+        else if (value instanceof Boolean)
+        {
+            out.value((Boolean) value);
+        }
+        else if (value instanceof Number)
+        {
+            out.value((Number) value);
+        }
+        else
+        {
+            out.value(value.toString());
+        }
+    }
+}
@@ -0,0 +1,318 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.migration;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import org.diorite.serialization.setting.Property;
+import org.diorite.serialization.setting.settings.SerializedNameSetting;
+import org.diorite.serialization.version.VersionComparator;
+import org.diorite.serialization.version.VersionComparator.CompareResult;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Registry of per-version document transforms. <br>
+ * Each transform is registered for version that introduced it, and when document is migrated from one version to other all transforms
+ * from versions after source version and up to target version are applied in order. <br>
+ * Transforms are flattened to single {@link MigrationRules} instance for each pair of versions, so migration is done in single streaming
+ * pass over document.
+ */
+public class VersionMigrator
+{
+    private final VersionComparator           versionComparator;
+    private final Map<String, Step>           steps = new HashMap<>();
+    private final Map<String, MigrationRules> rules = new HashMap<>();
+
+    public VersionMigrator(VersionComparator versionComparator)
+    {
+        this.versionComparator = versionComparator;
+    }
+
+    public VersionMigrator()
+    {
+        this(VersionComparator.DEFAULT);
+    }
+
+    /**
+     * @return version comparator used by this migrator.
+     */
+    public VersionComparator getVersionComparator()
+    {
+        return this.versionComparator;
+    }
+
+    /**
+     * Register rename of property introduced in given version.
+     *
+     * @param version
+     *     version that introduced this change.
+     * @param from
+     *     old name of property.
+     * @param to
+     *     new name of property.
+     */
+    public void rename(String version, String from, String to)
+    {
+        synchronized (this.steps)
+        {
+            this.step(version).changes.add(new Change(ChangeType.RENAME, from, to));
+        }
+    }
+
+    /**
+     * Register rename of all alternate names of given properties from {@link SerializedNameSetting} to their serialization name.
+     *
+     * @param version
+     *     version that introduced this change.
+     * @param properties
+     *     properties to read alternate names from.
+     */
+    public void renameAlternates(String version, Iterable<? extends Property<?, ?>> properties)
+    {
+        for (Property<?, ?> property : properties)
+        {
+            SerializedNameSetting setting = property.getSetting(SerializedNameSetting.class);
+            if (setting == null)
+            {
+                continue;
+            }
+            String name = property.getSerializationName();
+            for (String alternate : setting.alternate())
+            {
+                if (! alternate.equals(name))
+                {
+                    this.rename(version, alternate, name);
+                }
+            }
+        }
+    }
+
+    /**
+     * Register removal of property in given version.
+     *
+     * @param version
+     *     version that introduced this change.
+     * @param name
+     *     name of removed property.
+     */
+    public void drop(String version, String name)
+    {
+        synchronized (this.steps)
+        {
+            this.step(version).changes.add(new Change(ChangeType.DROP, name, null));
+        }
+    }
+
+    /**
+     * Register default value of property added in given version, value will be written to document if property is missing. <br>
+     * Only null, strings, numbers and booleans are supported.
+     *
+     * @param version
+     *     version that introduced this change.
+     * @param name
+     *     name of added property.
+     * @param value
+     *     default value of property.
+     */
+    public void defaultValue(String version, String name, @Nullable Object value)
+    {
+        if ((value != null) && ! (value instanceof String) && ! (value instanceof Number) && ! (value instanceof Boolean))
+        {
+            throw new IllegalArgumentException("Unsupported default value type: " + value.getClass().getName());
+        }
+        synchronized (this.steps)
+        {
+            this.step(version).changes.add(new Change(ChangeType.DEFAULT, name, value));
+        }
+    }
+
+    /**
+     * Returns flattened rules used to migrate document from given version to given version, rules are cached until next change is
+     * registered.
+     *
+     * @param fromVersion
+     *     version of source document.
+     * @param toVersion
+     *     target version.
+     *
+     * @return flattened migration rules.
+     */
+    public MigrationRules getRules(String fromVersion, String toVersion)
+    {
+        String key = fromVersion + '\0' + toVersion;
+        synchronized (this.steps)
+        {
+            return this.rules.computeIfAbsent(key, k -> this.compile(fromVersion, toVersion));
+        }
+    }
+
+    /**
+     * Migrates single document from given version to given version.
+     *
+     * @param in
+     *     source of document.
+     * @param out
+     *     target of migrated document.
+     * @param fromVersion
+     *     version of source document.
+     * @param toVersion
+     *     target version.
+     *
+     * @throws IOException
+     *     if reading or writing fails.
+     */
+    public void migrate(JsonReader in, JsonWriter out, String fromVersion, String toVersion) throws IOException
+    {
+        this.getRules(fromVersion, toVersion).migrate(in, out);
+    }
+
+    private Step step(String version)
+    {
+        this.rules.clear();
+        return this.steps.computeIfAbsent(version, Step::new);
+    }
+
+    private MigrationRules compile(String fromVersion, String toVersion)
+    {
+        List<Step> selected = new ArrayList<>(this.steps.size());
+        for (Step step : this.steps.values())
+        {
+            if (this.versionComparator.isAfter(fromVersion, step.version) && ! this.versionComparator.isAfter(toVersion, step.version))
+            {
+                selected.add(step);
+            }
+        }
+        selected.sort((a, b) ->
+        {
+            CompareResult result = this.versionComparator.compare(a.version, b.version);
+            return (result == CompareResult.EQUALS) ? 0 : ((result == CompareResult.AFTER) ? - 1 : 1);
+        });
+
+        // source name -> current name
+        Map<String, String> renames = new HashMap<>();
+        Set<String> drops = new HashSet<>();
+        Map<String, Object> defaults = new HashMap<>();
+        for (Step step : selected)
+        {
+            for (Change change : step.changes)
+            {
+                String name = change.name;
+                switch (change.type)
+                {
+                    case RENAME:
+                    {
+                        String to = (String) change.value;
+                        boolean chained = false;
+                        for (Map.Entry<String, String> entry : renames.entrySet())
+                        {
+                            if (entry.getValue().equals(name))
+                            {
+                                entry.setValue(to);
+                                chained = true;
+                            }
+                        }
+                        if (! chained)
+                        {
+                            renames.put(name, to);
+                        }
+                        if (defaults.containsKey(name))
+                        {
+                            defaults.put(to, defaults.remove(name));
+                        }
+                        break;
+                    }
+                    case DROP:
+                    {
+                        boolean chained = false;
+                        for (Iterator<Map.Entry<String, String>> iterator = renames.entrySet().iterator(); iterator.hasNext(); )
+                        {
+                            Map.Entry<String, String> entry = iterator.next();
+                            if (entry.getValue().equals(name))
+                            {
+                                // renamed property is dropped under its source name
+                                drops.add(entry.getKey());
+                                iterator.remove();
+                                chained = true;
+                            }
+                        }
+                        if (! chained)
+                        {
+                            drops.add(name);
+                        }
+                        defaults.remove(name);
+                        break;
+                    }
+                    case DEFAULT:
+                        defaults.put(name, change.value);
+                        break;
+                }
+            }
+        }
+        renames.entrySet().removeIf(entry -> entry.getKey().equals(entry.getValue()));
+        return new MigrationRules(renames, drops, defaults);
+    }
+
+    private enum ChangeType
+    {
+        RENAME,
+        DROP,
+        DEFAULT
+    }
+
+    private static final class Change
+    {
+        private final ChangeType type;
+        private final String     name;
+        @Nullable
+        private final Object     value;
+
+        private Change(ChangeType type, String name, @Nullable Object value)
+        {
+            this.type = type;
+            this.name = name;
+            this.value = value;
+        }
+    }
+
+    private static final class Step
+    {
+        private final String       version;
+        private final List<Change> changes = new ArrayList<>(4);
+
+        private Step(String version)
+        {
+            this.version = version;
+        }
+    }
+}
@@ -7,23 +7,31 @@ import org.diorite.serialization.setting.Property;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
 
 public final class StandardFieldNamingStrategies
 {
     public static final PropertyNamingStrategy IDENTITY                          = Property::getRawName;
-    public static final PropertyNamingStrategy LOWER_CASE                        = (p) -> p.getRawName().toLowerCase();
-    public static final PropertyNamingStrategy UPPER_CASE                        = (p) -> p.getRawName().toUpperCase();
-    public static final PropertyNamingStrategy UPPER_CAMEL_CASE                  = (p) -> transform(p.getRawName(), '\0', true, true);
-    public static final PropertyNamingStrategy CAMEL_CASE                        = (p) -> transform(p.getRawName(), '\0', false, true);
-    public static final PropertyNamingStrategy UPPER_CAMEL_CASE_WITH_SPACES      = (p) -> transform(p.getRawName(), ' ', true, true);
-    public static final PropertyNamingStrategy CAMEL_CASE_WITH_SPACES            = (p) -> transform(p.getRawName(), ' ', false, true);
-    public static final PropertyNamingStrategy LOWER_CASE_WITH_SPACES            = (p) -> transform(p.getRawName(), ' ', false, false);
-    public static final PropertyNamingStrategy UPPER_CAMEL_CASE_WITH_UNDERSCORES = (p) -> transform(p.getRawName(), '_', true, true);
-    public static final PropertyNamingStrategy CAMEL_CASE_WITH_UNDERSCORES       = (p) -> transform(p.getRawName(), '_', false, true);
-    public static final PropertyNamingStrategy LOWER_CASE_WITH_UNDERSCORES       = (p) -> transform(p.getRawName(), '_', false, false);
-    public static final PropertyNamingStrategy UPPER_CAMEL_CASE_WITH_HYPHEN      = (p) -> transform(p.getRawName(), '-', true, true);
-    public static final PropertyNamingStrategy CAMEL_CASE_WITH_HYPHEN            = (p) -> transform(p.getRawName(), '-', false, true);
-    public static final PropertyNamingStrategy LOWER_CASE_WITH_HYPHEN            = (p) -> transform(p.getRawName(), '-', false, false);
+    public static final PropertyNamingStrategy LOWER_CASE                        = cached(String::toLowerCase);
+    public static final PropertyNamingStrategy UPPER_CASE                        = cached(String::toUpperCase);
+    public static final PropertyNamingStrategy UPPER_CAMEL_CASE                  = cached((name) -> transform(name, '\0', true, true));
+    public static final PropertyNamingStrategy CAMEL_CASE                        = cached((name) -> transform(name, '\0', false, true));
+    public static final PropertyNamingStrategy UPPER_CAMEL_CASE_WITH_SPACES      = cached((name) -> transform(name, ' ', true, true));
+    public static final PropertyNamingStrategy CAMEL_CASE_WITH_SPACES            = cached((name) -> transform(name, ' ', false, true));
+    public static final PropertyNamingStrategy LOWER_CASE_WITH_SPACES            = cached((name) -> transform(name, ' ', false, false));
+    public static final PropertyNamingStrategy UPPER_CAMEL_CASE_WITH_UNDERSCORES = cached((name) -> transform(name, '_', true, true));
+    public static final PropertyNamingStrategy CAMEL_CASE_WITH_UNDERSCORES       = cached((name) -> transform(name, '_', false, true));
+    public static final PropertyNamingStrategy LOWER_CASE_WITH_UNDERSCORES       = cached((name) -> transform(name, '_', false, false));
+    public static final PropertyNamingStrategy UPPER_CAMEL_CASE_WITH_HYPHEN      = cached((name) -> transform(name, '-', true, true));
+    public static final PropertyNamingStrategy CAMEL_CASE_WITH_HYPHEN            = cached((name) -> transform(name, '-', false, true));
+    public static final PropertyNamingStrategy LOWER_CASE_WITH_HYPHEN            = cached((name) -> transform(name, '-', false, false));
+
+    /**
+     * Max number of translated names remembered by single naming strategy.
+     */
+    private static final int MAX_CACHED_NAMES = 4096;
 
     private static final char[] splitChars = {' ', '-', '.', ',', '_', '/', '\\', '=', '+', ':', ';'};
 
@@ -32,6 +40,11 @@ public final class StandardFieldNamingStrategies
         Arrays.sort(splitChars);
     }
 
+    private static PropertyNamingStrategy cached(UnaryOperator<String> transformer)
+    {
+        return new CachedNamingStrategy(transformer);
+    }
+
     private static List<String> splitToWords(String rawName)
     {
         int length = rawName.length();
@@ -176,4 +189,35 @@ public final class StandardFieldNamingStrategies
         }
         return wordBuilder.toString();
     }
+
+    /**
+     * Naming strategy that remembers translated names by raw property name, so each name is translated only once instead of once per
+     * compiled plan or serialized object.
+     */
+    private static final class CachedNamingStrategy implements PropertyNamingStrategy
+    {
+        private final UnaryOperator<String> transformer;
+        private final Map<String, String>   names = new ConcurrentHashMap<>(64);
+
+        private CachedNamingStrategy(UnaryOperator<String> transformer)
+        {
+            this.transformer = transformer;
+        }
+
+        @Override
+        public String translateName(Property<?, ?> property)
+        {
+            String rawName = property.getRawName();
+            String name = this.names.get(rawName);
+            if (name == null)
+            {
+                name = this.transformer.apply(rawName);
+                if (this.names.size() < MAX_CACHED_NAMES)
+                {
+                    this.names.putIfAbsent(rawName, name);
+                }
+            }
+            return name;
+        }
+    }
 }
@@ -0,0 +1,72 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.plan;
+
+import org.diorite.serialization.setting.Property.Accessor;
+import org.diorite.serialization.setting.settings.ExposeSetting;
+
+/**
+ * Direction of compiled property plan.
+ */
+public enum PlanDirection
+{
+    SERIALIZE(Accessor.GETTER)
+        {
+            @Override
+            public boolean isExposed(ExposeSetting setting) { return setting.serialize(); }
+        },
+    DESERIALIZE(Accessor.SETTER)
+        {
+            @Override
+            public boolean isExposed(ExposeSetting setting) { return setting.deserialize(); }
+        };
+
+    private final Accessor accessor;
+
+    PlanDirection(Accessor accessor)
+    {
+        this.accessor = accessor;
+    }
+
+    /**
+     * Returns accessor used by this direction to check property modifiers.
+     *
+     * @return accessor used by this direction.
+     */
+    public Accessor getAccessor()
+    {
+        return this.accessor;
+    }
+
+    /**
+     * Returns true if given expose setting allows property to be used in this direction.
+     *
+     * @param setting
+     *     expose setting of property.
+     *
+     * @return true if property is exposed in this direction.
+     */
+    public abstract boolean isExposed(ExposeSetting setting);
+}
@@ -0,0 +1,194 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.plan;
+
+import org.diorite.serialization.setting.Property;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Compiled list of properties of single class that should be used for given direction and target version. <br>
+ * All filtering (expose settings, static/transient modifiers and version ranges) is already done, so each property in plan should be
+ * used without any additional checks.
+ *
+ * @param <T>
+ *     type of declaration.
+ */
+public final class PropertyPlan<T>
+{
+    private final Class<T>         type;
+    private final PlanDirection    direction;
+    @Nullable
+    private final String           version;
+    private final Property<T, ?>[] properties;
+    private final String[]         names;
+    private final int[]            sourceIndices;
+    private final int[]            planIndices;
+
+    PropertyPlan(Class<T> type, PlanDirection direction, @Nullable String version, Property<T, ?>[] properties, int[] sourceIndices,
+                 int sourceSize)
+    {
+        this.type = type;
+        this.direction = direction;
+        this.version = version;
+        this.properties = properties;
+        this.sourceIndices = sourceIndices;
+        this.planIndices = new int[sourceSize];
+        Arrays.fill(this.planIndices, - 1);
+        for (int i = 0; i < sourceIndices.length; i++)
+        {
+            this.planIndices[sourceIndices[i]] = i;
+        }
+        this.names = new String[properties.length];
+        for (int i = 0; i < properties.length; i++)
+        {
+            this.names[i] = properties[i].getSerializationName();
+        }
+    }
+
+    /**
+     * @return type of compiled class.
+     */
+    public Class<T> getType()
+    {
+        return this.type;
+    }
+
+    /**
+     * @return direction of this plan.
+     */
+    public PlanDirection getDirection()
+    {
+        return this.direction;
+    }
+
+    /**
+     * @return target version of this plan, or null if plan isn't filtered by version.
+     */
+    @Nullable
+    public String getVersion()
+    {
+        return this.version;
+    }
+
+    /**
+     * @return amount of included properties.
+     */
+    public int size()
+    {
+        return this.properties.length;
+    }
+
+    /**
+     * Returns property at given index.
+     *
+     * @param index
+     *     index of property.
+     *
+     * @return property at given index.
+     */
+    public Property<T, ?> getProperty(int index)
+    {
+        return this.properties[index];
+    }
+
+    /**
+     * Returns serialization name of property at given index.
+     *
+     * @param index
+     *     index of property.
+     *
+     * @return serialization name of property at given index.
+     */
+    public String getName(int index)
+    {
+        return this.names[index];
+    }
+
+    /**
+     * Returns index of property at given plan index in list returned by {@link org.diorite.serialization.setting.PropertyProvider}.
+     *
+     * @param index
+     *     index of property in this plan.
+     *
+     * @return index of property in source list.
+     */
+    public int getSourceIndex(int index)
+    {
+        return this.sourceIndices[index];
+    }
+
+    /**
+     * Returns index in this plan of property at given index in list returned by
+     * {@link org.diorite.serialization.setting.PropertyProvider}, or -1 if that property isn't included in this plan.
+     *
+     * @param sourceIndex
+     *     index of property in source list.
+     *
+     * @return index of property in this plan or -1.
+     */
+    public int indexOfSource(int sourceIndex)
+    {
+        return ((sourceIndex >= 0) && (sourceIndex < this.planIndices.length)) ? this.planIndices[sourceIndex] : - 1;
+    }
+
+    /**
+     * Returns index of property with given serialization name, or -1 if there is no such property.
+     *
+     * @param name
+     *     serialization name of property.
+     *
+     * @return index of property or -1.
+     */
+    public int indexOf(String name)
+    {
+        for (int i = 0; i < this.names.length; i++)
+        {
+            if (this.names[i].equals(name))
+            {
+                return i;
+            }
+        }
+        return - 1;
+    }
+
+    /**
+     * @return unmodifiable list of included properties.
+     */
+    public List<Property<T, ?>> getProperties()
+    {
+        return Collections.unmodifiableList(Arrays.asList(this.properties));
+    }
+
+    @Override
+    public String toString()
+    {
+        return "PropertyPlan{" + this.type.getName() + ", " + this.direction + ", version=" + this.version + ", " +
+               Arrays.toString(this.names) + "}";
+    }
+}
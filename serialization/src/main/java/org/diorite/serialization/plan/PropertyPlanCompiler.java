@@ -0,0 +1,325 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.plan;
+
+import org.diorite.serialization.jfr.PlanCompilationEvent;
+import org.diorite.serialization.setting.Property;
+import org.diorite.serialization.setting.Property.Accessor;
+import org.diorite.serialization.setting.PropertyProvider;
+import org.diorite.serialization.setting.settings.ExposeSetting;
+import org.diorite.serialization.setting.settings.SinceSetting;
+import org.diorite.serialization.setting.settings.UntilSetting;
+import org.diorite.serialization.version.VersionComparator;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Compiles and caches {@link PropertyPlan} instances, so all property filtering is done only once per class, direction and target
+ * version instead of once per serialized object. <br>
+ * Cached plans are stored per class in {@link ClassValue}, so lookups do not lock nor allocate, and cache does not keep classes alive
+ * after they were evicted. When cache is full, oldest compiled plans are evicted while new plans are added.
+ */
+public class PropertyPlanCompiler
+{
+    /**
+     * Default limit of cached plans.
+     */
+    public static final int DEFAULT_CACHE_SIZE = 1024;
+
+    private final PropertyProvider  propertyProvider;
+    private final VersionComparator versionComparator;
+    private final int               cacheSize;
+    private final Queue<CachedPlan> cachedPlans = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger     cachedCount = new AtomicInteger();
+
+    private volatile ClassValue<ClassPlans> classPlans = newClassPlans();
+
+    public PropertyPlanCompiler(PropertyProvider propertyProvider, VersionComparator versionComparator, int cacheSize)
+    {
+        if (cacheSize <= 0)
+        {
+            throw new IllegalArgumentException("Cache size must be positive: " + cacheSize);
+        }
+        this.propertyProvider = propertyProvider;
+        this.versionComparator = versionComparator;
+        this.cacheSize = cacheSize;
+    }
+
+    public PropertyPlanCompiler(PropertyProvider propertyProvider, VersionComparator versionComparator)
+    {
+        this(propertyProvider, versionComparator, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @return property provider used by this compiler.
+     */
+    public PropertyProvider getPropertyProvider()
+    {
+        return this.propertyProvider;
+    }
+
+    /**
+     * @return version comparator used by this compiler.
+     */
+    public VersionComparator getVersionComparator()
+    {
+        return this.versionComparator;
+    }
+
+    /**
+     * Returns cached plan for given class, direction and target version, plan is compiled if it isn't cached yet.
+     *
+     * @param type
+     *     type of object.
+     * @param direction
+     *     direction of plan.
+     * @param version
+     *     target version, or null to skip version checks.
+     * @param <T>
+     *     type of object.
+     *
+     * @return compiled plan.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> PropertyPlan<T> getPlan(Class<T> type, PlanDirection direction, @Nullable String version)
+    {
+        ClassPlans plans = this.classPlans.get(type);
+        PropertyPlan<?> plan = plans.get(direction, version);
+        if (plan != null)
+        {
+            return (PropertyPlan<T>) plan;
+        }
+        // in worst case same plan will be compiled twice, but only one of them is cached.
+        PropertyPlan<T> compiled = this.compile(type, direction, version);
+        PropertyPlan<?> previous = plans.putIfAbsent(direction, version, compiled);
+        if (previous != null)
+        {
+            return (PropertyPlan<T>) previous;
+        }
+        this.cachedPlans.add(new CachedPlan(plans, direction, version));
+        if (this.cachedCount.incrementAndGet() > this.cacheSize)
+        {
+            this.evictOldest();
+        }
+        return compiled;
+    }
+
+    private void evictOldest()
+    {
+        CachedPlan eldest = this.cachedPlans.poll();
+        if (eldest != null)
+        {
+            this.cachedCount.decrementAndGet();
+            eldest.plans.remove(eldest.direction, eldest.version);
+        }
+    }
+
+    /**
+     * Compiles new plan for given class, direction and target version, without using cache.
+     *
+     * @param type
+     *     type of object.
+     * @param direction
+     *     direction of plan.
+     * @param version
+     *     target version, or null to skip version checks.
+     * @param <T>
+     *     type of object.
+     *
+     * @return compiled plan.
+     */
+    public <T> PropertyPlan<T> compile(Class<T> type, PlanDirection direction, @Nullable String version)
+    {
+        PlanCompilationEvent event = new PlanCompilationEvent();
+        event.begin();
+        List<? extends Property<T, ?>> properties = this.propertyProvider.getProperties(type);
+        List<Property<T, ?>> included = new ArrayList<>(properties.size());
+        int[] sourceIndices = new int[properties.size()];
+        for (int i = 0, size = properties.size(); i < size; i++)
+        {
+            Property<T, ?> property = properties.get(i);
+            if (this.isIncluded(property, direction, version))
+            {
+                sourceIndices[included.size()] = i;
+                included.add(property);
+            }
+        }
+        @SuppressWarnings({"rawtypes", "unchecked"})
+        Property<T, ?>[] array = included.toArray(new Property[included.size()]);
+        PropertyPlan<T> plan = new PropertyPlan<>(type, direction, version, array, Arrays.copyOf(sourceIndices, included.size()),
+                                                  properties.size());
+        event.complete(type, direction, version, plan.size());
+        return plan;
+    }
+
+    /**
+     * Returns true if given property should be used in given direction for given target version.
+     *
+     * @param property
+     *     property to check.
+     * @param direction
+     *     direction of plan.
+     * @param version
+     *     target version, or null to skip version checks.
+     *
+     * @return true if property should be included in plan.
+     */
+    protected boolean isIncluded(Property<?, ?> property, PlanDirection direction, @Nullable String version)
+    {
+        Accessor accessor = direction.getAccessor();
+        if (property.isStatic(accessor) || property.isTransient(accessor) || property.isSynthetic(accessor))
+        {
+            return false;
+        }
+        ExposeSetting expose = property.getSetting(ExposeSetting.class);
+        if ((expose != null) && ! direction.isExposed(expose))
+        {
+            return false;
+        }
+        if (version == null)
+        {
+            return true;
+        }
+        SinceSetting since = property.getSetting(SinceSetting.class);
+        if ((since != null) && this.versionComparator.isAfter(version, since.value()))
+        {
+            return false;
+        }
+        UntilSetting until = property.getSetting(UntilSetting.class);
+        return (until == null) || this.versionComparator.isAfter(version, until.value());
+    }
+
+    /**
+     * Removes all cached plans.
+     */
+    public void invalidateAll()
+    {
+        this.classPlans = newClassPlans();
+        while (this.cachedCount.get() > 0)
+        {
+            this.evictOldest();
+        }
+    }
+
+    private static ClassValue<ClassPlans> newClassPlans()
+    {
+        return new ClassValue<>()
+        {
+            @Override
+            protected ClassPlans computeValue(Class<?> type)
+            {
+                return new ClassPlans();
+            }
+        };
+    }
+
+    /**
+     * Key of cached plan, keys stored in cache are never modified, only {@link #lookupKey} is set again for each lookup.
+     */
+    /**
+     * Cached plans of single class, plans without target version are stored separately as they can't be map keys.
+     */
+    private static final class ClassPlans
+    {
+        private static final PlanDirection[] DIRECTIONS = PlanDirection.values();
+
+        private final AtomicReferenceArray<PropertyPlan<?>> unversioned = new AtomicReferenceArray<>(DIRECTIONS.length);
+        private final List<Map<String, PropertyPlan<?>>>    versioned   = new ArrayList<>(DIRECTIONS.length);
+
+        private ClassPlans()
+        {
+            for (int i = 0; i < DIRECTIONS.length; i++)
+            {
+                this.versioned.add(new ConcurrentHashMap<>(4));
+            }
+        }
+
+        @Nullable
+        PropertyPlan<?> get(PlanDirection direction, @Nullable String version)
+        {
+            if (version == null)
+            {
+                return this.unversioned.get(direction.ordinal());
+            }
+            return this.versioned.get(direction.ordinal()).get(version);
+        }
+
+        @Nullable
+        PropertyPlan<?> putIfAbsent(PlanDirection direction, @Nullable String version, PropertyPlan<?> plan)
+        {
+            if (version == null)
+            {
+                int index = direction.ordinal();
+                while (! this.unversioned.compareAndSet(index, null, plan))
+                {
+                    PropertyPlan<?> current = this.unversioned.get(index);
+                    if (current != null)
+                    {
+                        return current;
+                    }
+                }
+                return null;
+            }
+            return this.versioned.get(direction.ordinal()).putIfAbsent(version, plan);
+        }
+
+        void remove(PlanDirection direction, @Nullable String version)
+        {
+            if (version == null)
+            {
+                this.unversioned.set(direction.ordinal(), null);
+                return;
+            }
+            this.versioned.get(direction.ordinal()).remove(version);
+        }
+    }
+
+    /**
+     * Plan added to cache, used to evict plans in order of their compilation.
+     */
+    private static final class CachedPlan
+    {
+        private final ClassPlans    plans;
+        private final PlanDirection direction;
+        @Nullable
+        private final String        version;
+
+        private CachedPlan(ClassPlans plans, PlanDirection direction, @Nullable String version)
+        {
+            this.plans = plans;
+            this.direction = direction;
+            this.version = version;
+        }
+    }
+}
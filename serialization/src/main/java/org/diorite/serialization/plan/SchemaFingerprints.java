@@ -0,0 +1,273 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.plan;
+
+import org.diorite.serialization.setting.Property;
+import org.diorite.serialization.setting.Property.Accessor;
+import org.diorite.serialization.setting.PropertyProvider;
+import org.diorite.serialization.setting.PropertySettings;
+import org.diorite.serialization.setting.Setting;
+import org.diorite.serialization.setting.SettingsManager;
+
+import javax.annotation.Nullable;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Computes and caches stable 64-bit fingerprints of serialization shape of classes. <br>
+ * Fingerprint covers ordered properties of class, their serialization names, modifiers used by plans, type trees of
+ * {@link PropertySettings} and values of all settings types registered in {@link SettingsManager}, so two classes with the same
+ * fingerprint are serialized in the same way, and fingerprint can be used as cache key of serialized data or precomputed decoders, and
+ * to check compatibility with remote peers without exchanging full schema. <br>
+ * Fingerprint does not depend on hash codes of objects or iteration order of hash based collections, so it is the same across JVM runs
+ * as long as classes and settings are unchanged.
+ */
+public final class SchemaFingerprints
+{
+    private static final long FNV_OFFSET = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME  = 0x100000001B3L;
+
+    private static final int SEPARATOR = 0xFF;
+    private static final int NULL      = 0xFE;
+
+    private final SettingsManager  settingsManager;
+    private final PropertyProvider propertyProvider;
+
+    private volatile ClassValue<Long> fingerprints = this.createFingerprints();
+    private volatile long             configurationHash;
+
+    public SchemaFingerprints(SettingsManager settingsManager, PropertyProvider propertyProvider)
+    {
+        this.settingsManager = settingsManager;
+        this.propertyProvider = propertyProvider;
+        this.configurationHash = settingsManager.getConfigurationHash();
+    }
+
+    private ClassValue<Long> createFingerprints()
+    {
+        return new ClassValue<>()
+        {
+            @Override
+            protected Long computeValue(Class<?> type)
+            {
+                return SchemaFingerprints.this.compute(type);
+            }
+        };
+    }
+
+    /**
+     * @return settings manager used to find settings included in fingerprints.
+     */
+    public SettingsManager getSettingsManager()
+    {
+        return this.settingsManager;
+    }
+
+    /**
+     * @return property provider used to find properties of classes.
+     */
+    public PropertyProvider getPropertyProvider()
+    {
+        return this.propertyProvider;
+    }
+
+    /**
+     * Returns cached fingerprint of given class, fingerprint is computed if it isn't cached yet. <br>
+     * All cached fingerprints are dropped when configuration of settings manager changes, as it changes settings of properties.
+     *
+     * @param type
+     *     type to check.
+     *
+     * @return fingerprint of given class.
+     */
+    public long get(Class<?> type)
+    {
+        long configurationHash = this.settingsManager.getConfigurationHash();
+        if (configurationHash != this.configurationHash)
+        {
+            this.fingerprints = this.createFingerprints();
+            this.configurationHash = configurationHash;
+        }
+        return this.fingerprints.get(type);
+    }
+
+    /**
+     * Computes new fingerprint of given class, without using cache.
+     *
+     * @param type
+     *     type to check.
+     *
+     * @return fingerprint of given class.
+     */
+    public long compute(Class<?> type)
+    {
+        List<Class<? extends Setting>> settingTypes = new ArrayList<>(this.settingsManager.getSettingTypes());
+        settingTypes.sort(Comparator.comparing(Class::getName));
+        Hasher hasher = new Hasher();
+        hasher.add(type.getName());
+        for (Property<?, ?> property : this.propertyProvider.getProperties(type))
+        {
+            hasher.add(property.getRawName());
+            hasher.add(property.getSerializationName());
+            hasher.add(property.isStatic(Accessor.GETTER), property.isStatic(Accessor.SETTER));
+            hasher.add(property.isTransient(Accessor.GETTER), property.isTransient(Accessor.SETTER));
+            hasher.add(property.isSynthetic(Accessor.GETTER), property.isSynthetic(Accessor.SETTER));
+            addType(hasher, property.getSettings());
+            for (Class<? extends Setting> settingType : settingTypes)
+            {
+                Setting setting = property.getSetting(settingType);
+                if (setting != null)
+                {
+                    hasher.add(settingType.getName());
+                    addSetting(hasher, setting);
+                }
+            }
+            hasher.separator();
+        }
+        return hasher.hash;
+    }
+
+    private static void addType(Hasher hasher, @Nullable PropertySettings settings)
+    {
+        if (settings == null)
+        {
+            hasher.addNull();
+            return;
+        }
+        hasher.add(settings.getRealType().getType().getTypeName());
+        hasher.add(settings.getSerializerType().getType().getTypeName());
+        for (int i = 0, size = settings.getGenericParameterCount(); i < size; i++)
+        {
+            addType(hasher, settings.getFieldConfiguration(i));
+        }
+        hasher.separator();
+    }
+
+    /**
+     * Settings that implement annotation interface are hashed by values of annotation members, other settings must provide stable
+     * {@link Object#toString()}.
+     */
+    private static void addSetting(Hasher hasher, Setting setting)
+    {
+        if (! (setting instanceof Annotation))
+        {
+            hasher.add(setting.toString());
+            return;
+        }
+        Method[] members = ((Annotation) setting).annotationType().getDeclaredMethods();
+        List<Method> sorted = new ArrayList<>(members.length);
+        for (Method member : members)
+        {
+            if (member.getParameterCount() == 0)
+            {
+                sorted.add(member);
+            }
+        }
+        sorted.sort(Comparator.comparing(Method::getName));
+        for (Method member : sorted)
+        {
+            hasher.add(member.getName());
+            try
+            {
+                addValue(hasher, member.invoke(setting));
+            }
+            catch (IllegalAccessException | InvocationTargetException e)
+            {
+                throw new IllegalStateException("Can't read value of setting: " + setting.getClass().getName(), e);
+            }
+        }
+    }
+
+    private static void addValue(Hasher hasher, @Nullable Object value)
+    {
+        if (value == null)
+        {
+            hasher.addNull();
+        }
+        else if (value.getClass().isArray())
+        {
+            for (int i = 0, length = Array.getLength(value); i < length; i++)
+            {
+                addValue(hasher, Array.get(value, i));
+            }
+            hasher.separator();
+        }
+        else if (value instanceof Class)
+        {
+            hasher.add(((Class<?>) value).getName());
+        }
+        else if (value instanceof Enum)
+        {
+            hasher.add(((Enum<?>) value).name());
+        }
+        else
+        {
+            hasher.add(value.toString());
+        }
+    }
+
+    /**
+     * 64-bit FNV-1a hash of added tokens, each token is terminated by separator byte.
+     */
+    private static final class Hasher
+    {
+        private long hash = FNV_OFFSET;
+
+        private void add(String string)
+        {
+            for (byte b : string.getBytes(StandardCharsets.UTF_8))
+            {
+                this.addByte(b & 0xFF);
+            }
+            this.separator();
+        }
+
+        private void add(boolean getter, boolean setter)
+        {
+            this.addByte((getter ? 1 : 0) | (setter ? 2 : 0));
+        }
+
+        private void addNull()
+        {
+            this.addByte(NULL);
+        }
+
+        private void separator()
+        {
+            this.addByte(SEPARATOR);
+        }
+
+        private void addByte(int value)
+        {
+            this.hash = (this.hash ^ value) * FNV_PRIME;
+        }
+    }
+}
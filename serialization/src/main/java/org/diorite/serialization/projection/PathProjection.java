@@ -0,0 +1,337 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.projection;
+
+import org.diorite.serialization.naming.PropertyResolutionStrategy;
+import org.diorite.serialization.plan.PropertyPlan;
+import org.diorite.serialization.setting.Property;
+import org.diorite.serialization.setting.settings.SerializedNameSetting;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * State of projection automaton compiled from set of paths like {@code user.address.city} or {@code items[*].price}. <br>
+ * Paths use serialization names of properties separated by dots, {@code [*]} selects all elements of array or collection and all values
+ * of map or object. Segments after collection without {@code [*]} are also applied to its elements, so {@code items.price} is the same as
+ * {@code items[*].price}. Path that is a prefix of other path selects whole value, so {@code user} and {@code user.name} select whole
+ * user. <br>
+ * Each state is compiled once for each {@link PropertyPlan} into array of next states indexed by properties of plan, names are matched
+ * with main serialization names, {@link SerializedNameSetting} alternates and optional {@link PropertyResolutionStrategy}, so decoders
+ * only need single array lookup to decide if property should be read or skipped. <br>
+ * Projection is immutable and thread safe.
+ */
+public final class PathProjection
+{
+    private static final String ELEMENTS = "[*]";
+
+    private final Map<String, PathProjection> children = new LinkedHashMap<>(4);
+    @Nullable
+    private PathProjection elements;
+    private boolean        complete;
+
+    private final Map<PropertyPlan<?>, Transitions> transitions = new ConcurrentHashMap<>(4);
+
+    private PathProjection()
+    {
+    }
+
+    /**
+     * Compiles projection from given paths.
+     *
+     * @param paths
+     *     paths to select.
+     *
+     * @return compiled projection.
+     *
+     * @throws IllegalArgumentException
+     *     if there are no paths or any path is malformed.
+     */
+    public static PathProjection of(String... paths)
+    {
+        return of(Arrays.asList(paths));
+    }
+
+    /**
+     * Compiles projection from given paths.
+     *
+     * @param paths
+     *     paths to select.
+     *
+     * @return compiled projection.
+     *
+     * @throws IllegalArgumentException
+     *     if there are no paths or any path is malformed.
+     */
+    public static PathProjection of(Collection<String> paths)
+    {
+        if (paths.isEmpty())
+        {
+            throw new IllegalArgumentException("Projection must contain at least one path");
+        }
+        PathProjection root = new PathProjection();
+        for (String path : paths)
+        {
+            root.add(path, parse(path));
+        }
+        return root;
+    }
+
+    private static List<String> parse(String path)
+    {
+        List<String> segments = new ArrayList<>(8);
+        int start = 0;
+        int length = path.length();
+        while (start < length)
+        {
+            if (path.startsWith(ELEMENTS, start))
+            {
+                segments.add(ELEMENTS);
+                start += ELEMENTS.length();
+            }
+            else
+            {
+                int end = start;
+                while ((end < length) && (path.charAt(end) != '.') && (path.charAt(end) != '['))
+                {
+                    end++;
+                }
+                if (end == start)
+                {
+                    throw new IllegalArgumentException("Empty segment at " + start + " in path: " + path);
+                }
+                segments.add(path.substring(start, end));
+                start = end;
+            }
+            if ((start < length) && (path.charAt(start) == '.'))
+            {
+                start++;
+                if (start == length)
+                {
+                    throw new IllegalArgumentException("Path can't end with '.': " + path);
+                }
+            }
+            else if ((start < length) && ! path.startsWith(ELEMENTS, start))
+            {
+                throw new IllegalArgumentException("Unexpected character at " + start + " in path: " + path);
+            }
+        }
+        if (segments.isEmpty())
+        {
+            throw new IllegalArgumentException("Empty path");
+        }
+        return segments;
+    }
+
+    private void add(String path, List<String> segments)
+    {
+        PathProjection state = this;
+        for (String segment : segments)
+        {
+            if (state.complete)
+            {
+                return;
+            }
+            if (segment.equals(ELEMENTS))
+            {
+                if (state.elements == null)
+                {
+                    state.elements = new PathProjection();
+                }
+                state = state.elements;
+            }
+            else
+            {
+                state = state.children.computeIfAbsent(segment, k -> new PathProjection());
+            }
+        }
+        state.complete = true;
+        state.children.clear();
+        state.elements = null;
+    }
+
+    /**
+     * Returns true if whole value in this state is selected, so it should be read without any projection.
+     *
+     * @return true if whole value is selected.
+     */
+    public boolean isComplete()
+    {
+        return this.complete;
+    }
+
+    /**
+     * Returns next state for property or map key of given name, or null if value of that property should be skipped.
+     *
+     * @param name
+     *     serialization name of property or map key.
+     *
+     * @return next state or null.
+     */
+    @Nullable
+    public PathProjection getChild(String name)
+    {
+        if (this.complete)
+        {
+            return this;
+        }
+        PathProjection child = this.children.get(name);
+        return (child != null) ? child : this.elements;
+    }
+
+    /**
+     * Returns state used for elements of array or collection, this state is used if path does not contain {@code [*]} segment.
+     *
+     * @return state of elements.
+     */
+    public PathProjection getElements()
+    {
+        return (this.elements != null) ? this.elements : this;
+    }
+
+    /**
+     * Returns next states for properties of given plan, indexed by index of property in plan, null is used for properties that should
+     * be skipped. Result is computed only once for each plan, returned array must not be modified.
+     *
+     * @param plan
+     *     plan used to read objects.
+     * @param resolutionStrategy
+     *     strategy used to resolve names that does not match any property, or null.
+     *
+     * @return array of next states.
+     */
+    public PathProjection[] compile(PropertyPlan<?> plan, @Nullable PropertyResolutionStrategy resolutionStrategy)
+    {
+        Transitions transitions = this.transitions.get(plan);
+        if ((transitions == null) || (transitions.resolutionStrategy != resolutionStrategy))
+        {
+            transitions = new Transitions(resolutionStrategy, this.computeTransitions(plan, resolutionStrategy));
+            this.transitions.put(plan, transitions);
+        }
+        return transitions.states;
+    }
+
+    private PathProjection[] computeTransitions(PropertyPlan<?> plan, @Nullable PropertyResolutionStrategy resolutionStrategy)
+    {
+        PathProjection[] states = new PathProjection[plan.size()];
+        if (this.complete)
+        {
+            Arrays.fill(states, this);
+            return states;
+        }
+        if (this.elements != null)
+        {
+            Arrays.fill(states, this.elements);
+        }
+        for (Map.Entry<String, PathProjection> entry : this.children.entrySet())
+        {
+            int index = indexOf(plan, entry.getKey(), resolutionStrategy);
+            if (index >= 0)
+            {
+                states[index] = entry.getValue();
+            }
+        }
+        return states;
+    }
+
+    private static int indexOf(PropertyPlan<?> plan, String name, @Nullable PropertyResolutionStrategy resolutionStrategy)
+    {
+        int index = plan.indexOf(name);
+        if (index >= 0)
+        {
+            return index;
+        }
+        for (int i = 0, size = plan.size(); i < size; i++)
+        {
+            SerializedNameSetting setting = plan.getProperty(i).getSetting(SerializedNameSetting.class);
+            if ((setting != null) && Arrays.asList(setting.alternate()).contains(name))
+            {
+                return i;
+            }
+        }
+        if (resolutionStrategy == null)
+        {
+            return - 1;
+        }
+        Map<String, Property<?, ?>> properties = new LinkedHashMap<>(plan.size() * 2);
+        for (int i = 0, size = plan.size(); i < size; i++)
+        {
+            properties.put(plan.getName(i), plan.getProperty(i));
+        }
+        Property<?, ?> property = resolutionStrategy.resolveProperty(name, properties);
+        for (int i = 0, size = plan.size(); i < size; i++)
+        {
+            if (plan.getProperty(i) == property)
+            {
+                return i;
+            }
+        }
+        return - 1;
+    }
+
+    @Override
+    public String toString()
+    {
+        List<String> paths = new ArrayList<>(8);
+        this.collectPaths("", paths);
+        return "PathProjection" + paths;
+    }
+
+    private void collectPaths(String prefix, List<String> paths)
+    {
+        if (this.complete)
+        {
+            paths.add(prefix);
+            return;
+        }
+        for (Map.Entry<String, PathProjection> entry : this.children.entrySet())
+        {
+            entry.getValue().collectPaths(prefix.isEmpty() ? entry.getKey() : (prefix + "." + entry.getKey()), paths);
+        }
+        if (this.elements != null)
+        {
+            this.elements.collectPaths(prefix + ELEMENTS, paths);
+        }
+    }
+
+    private static final class Transitions
+    {
+        @Nullable
+        private final PropertyResolutionStrategy resolutionStrategy;
+        private final PathProjection[]           states;
+
+        private Transitions(@Nullable PropertyResolutionStrategy resolutionStrategy, PathProjection[] states)
+        {
+            this.resolutionStrategy = resolutionStrategy;
+            this.states = states;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.setting;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AnnotatedElement;
+import java.util.Map;
+import java.util.Optional;
+import java.util.WeakHashMap;
+import java.util.function.Function;
+
+/**
+ * Reads setting from annotation of single type, setting read from each annotated element is remembered, so reading same element
+ * again does not create any objects. <br>
+ * Elements are weakly referenced and compared by {@code equals}, so copies of same field returned by reflection share one entry.
+ *
+ * @param <A>
+ *     type of annotation.
+ * @param <T>
+ *     type of setting.
+ */
+class AnnotationSettingReader<A extends Annotation, T extends Setting> implements SettingReader<T>
+{
+    private final Class<A>                           annotationType;
+    private final Function<? super A, ? extends T>   factory;
+    private final Map<AnnotatedElement, Optional<T>> read = new WeakHashMap<>(64);
+
+    AnnotationSettingReader(Class<A> annotationType, Function<? super A, ? extends T> factory)
+    {
+        this.annotationType = annotationType;
+        this.factory = factory;
+    }
+
+    @Override
+    public Optional<T> read(AnnotatedElement annotatedElement)
+    {
+        synchronized (this.read)
+        {
+            Optional<T> setting = this.read.get(annotatedElement);
+            if (setting != null)
+            {
+                return setting;
+            }
+        }
+        A annotation = annotatedElement.getAnnotation(this.annotationType);
+        Optional<T> setting = (annotation == null) ? Optional.empty() : Optional.of(this.factory.apply(annotation));
+        synchronized (this.read)
+        {
+            this.read.put(annotatedElement, setting);
+        }
+        return setting;
+    }
+}
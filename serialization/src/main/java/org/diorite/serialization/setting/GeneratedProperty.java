@@ -0,0 +1,195 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.setting;
+
+import org.diorite.serialization.setting.settings.SerializedNameSetting;
+
+import javax.annotation.Nullable;
+import java.lang.reflect.Type;
+
+/**
+ * Property with value accessors and names taken from {@link GeneratedSettings} table, rest of property data is provided by delegate.
+ * <br>
+ * Delegate accessors are used for fields that are not accessible to generated code.
+ *
+ * @param <D>
+ *     type of declaration.
+ * @param <T>
+ *     type of property.
+ */
+final class GeneratedProperty<D, T> implements Property<D, T>
+{
+    private final Property<D, T>        delegate;
+    private final GeneratedSettings<D>  table;
+    private final int                   index;
+    private final boolean               getter;
+    private final boolean               setter;
+    @Nullable
+    private final SerializedNameSetting serializedName;
+
+    GeneratedProperty(Property<D, T> delegate, GeneratedSettings<D> table, int index)
+    {
+        this.delegate = delegate;
+        this.table = table;
+        this.index = index;
+        this.getter = table.hasGetter(index);
+        this.setter = table.hasSetter(index);
+        this.serializedName = table.getSetting(index, SerializedNameSetting.class);
+    }
+
+    @Override
+    public String getRawName()
+    {
+        return this.delegate.getRawName();
+    }
+
+    @Override
+    public String getSerializationName()
+    {
+        // names without annotation are left to delegate, as they may depend on its naming strategy.
+        return (this.serializedName == null) ? this.delegate.getSerializationName() : this.table.getSerializationName(this.index);
+    }
+
+    @Override
+    public boolean isDeserializationName(String name)
+    {
+        if (this.serializedName == null)
+        {
+            return this.delegate.isDeserializationName(name);
+        }
+        if (this.serializedName.value().equals(name))
+        {
+            return true;
+        }
+        for (String alternate : this.serializedName.alternate())
+        {
+            if (alternate.equals(name))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isStatic(Accessor accessor)
+    {
+        return this.delegate.isStatic(accessor);
+    }
+
+    @Override
+    public boolean isTransient(Accessor accessor)
+    {
+        return this.delegate.isTransient(accessor);
+    }
+
+    @Override
+    public boolean isSynthetic(Accessor accessor)
+    {
+        return this.delegate.isSynthetic(accessor);
+    }
+
+    @Override
+    public boolean isVolatile(Accessor accessor)
+    {
+        return this.delegate.isVolatile(accessor);
+    }
+
+    @Override
+    public boolean isNative(Accessor accessor)
+    {
+        return this.delegate.isNative(accessor);
+    }
+
+    @Override
+    public boolean isFinal()
+    {
+        return this.delegate.isFinal();
+    }
+
+    @Override
+    public Visibility getVisibility(Accessor accessor)
+    {
+        return this.delegate.getVisibility(accessor);
+    }
+
+    @Override
+    public Class<D> getDeclaringClass()
+    {
+        return this.delegate.getDeclaringClass();
+    }
+
+    @Override
+    public Class<? extends T> getRawType()
+    {
+        return this.delegate.getRawType();
+    }
+
+    @Override
+    public Type getGenericType()
+    {
+        return this.delegate.getGenericType();
+    }
+
+    @Override
+    public PropertySettings getSettings()
+    {
+        return this.delegate.getSettings();
+    }
+
+    @Nullable
+    @Override
+    public <S extends Setting> S getSetting(Class<S> type)
+    {
+        return this.delegate.getSetting(type);
+    }
+
+    @Override
+    public void setValue(D instance, @Nullable T value)
+    {
+        if (this.setter)
+        {
+            this.table.setValue(instance, this.index, value);
+        }
+        else
+        {
+            this.delegate.setValue(instance, value);
+        }
+    }
+
+    @Nullable
+    @Override
+    @SuppressWarnings("unchecked")
+    public T getValue(D instance)
+    {
+        return this.getter ? (T) this.table.getValue(instance, this.index) : this.delegate.getValue(instance);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "GeneratedProperty{" + this.table.getType().getName() + "#" + this.getRawName() + "}";
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.setting;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Property provider using {@link GeneratedSettings} tables generated at compile time. <br>
+ * Properties are found by delegate provider, but each property declared by class with generated table reads and changes its value
+ * using generated accessors instead of reflection, and takes serialized names read at compile time. <br>
+ * Properties of classes without generated table are returned unchanged.
+ */
+public class GeneratedPropertyProvider implements PropertyProvider
+{
+    private final PropertyProvider delegate;
+
+    public GeneratedPropertyProvider(PropertyProvider delegate)
+    {
+        this.delegate = delegate;
+    }
+
+    /**
+     * @return provider used to find properties.
+     */
+    public PropertyProvider getDelegate()
+    {
+        return this.delegate;
+    }
+
+    @Override
+    public <T> List<? extends Property<T, ?>> getProperties(Class<T> type)
+    {
+        List<? extends Property<T, ?>> properties = this.delegate.getProperties(type);
+        List<Property<T, ?>> result = null;
+        for (int i = 0, size = properties.size(); i < size; i++)
+        {
+            Property<T, ?> property = properties.get(i);
+            Property<T, ?> generated = wrap(property);
+            if ((generated != property) && (result == null))
+            {
+                result = new ArrayList<>(properties.subList(0, i));
+            }
+            if (result != null)
+            {
+                result.add(generated);
+            }
+        }
+        return (result == null) ? properties : result;
+    }
+
+    private static <T, V> Property<T, V> wrap(Property<T, V> property)
+    {
+        GeneratedSettings<T> table = GeneratedSettings.find(property.getDeclaringClass());
+        if (table == null)
+        {
+            return property;
+        }
+        int index = table.indexOf(property.getRawName());
+        return (index == - 1) ? property : new GeneratedProperty<>(property, table, index);
+    }
+}
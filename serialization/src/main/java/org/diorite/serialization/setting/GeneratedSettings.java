@@ -0,0 +1,280 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.diorite.serialization.setting;
+
+import org.diorite.serialization.SerializationException;
+
+import javax.annotation.Nullable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Base class of settings tables generated at compile time by serialization annotation processor. <br>
+ * Generated table of class {@code a.b.Type} is named {@code a.b.Type$$Settings}, it contains settings, serialization names and
+ * direct accessors of all declared fields of that class, so {@link SettingsManager} does not need to read annotations using reflection.
+ * Accessors and serialized names are used by properties of {@link GeneratedPropertyProvider}.
+ *
+ * @param <T>
+ *     type of described class.
+ */
+public abstract class GeneratedSettings<T>
+{
+    /**
+     * Suffix appended to binary name of described class to get name of generated table.
+     */
+    public static final String SUFFIX = "$$Settings";
+
+    private static final Object             NONE   = new Object();
+    private static final ClassValue<Object> tables = new ClassValue<>()
+    {
+        @Override
+        protected Object computeValue(Class<?> type)
+        {
+            GeneratedSettings<?> table = load(type);
+            return (table == null) ? NONE : table;
+        }
+    };
+
+    private final Class<T>             type;
+    private final String[]             names;
+    private final String[]             serializationNames;
+    private final Setting[][]          settings;
+    private final boolean[]            getters;
+    private final boolean[]            setters;
+    private final Map<String, Integer> indices;
+
+    protected GeneratedSettings(Class<T> type, String[] names, String[] serializationNames, Setting[][] settings, boolean[] getters,
+                                boolean[] setters)
+    {
+        this.type = type;
+        this.names = names;
+        this.serializationNames = serializationNames;
+        this.settings = settings;
+        this.getters = getters;
+        this.setters = setters;
+        this.indices = new HashMap<>(names.length * 2);
+        for (int i = 0; i < names.length; i++)
+        {
+            this.indices.put(names[i], i);
+        }
+    }
+
+    /**
+     * Returns generated table of given class, or null if there is no generated table for it.
+     *
+     * @param type
+     *     described class.
+     * @param <T>
+     *     type of described class.
+     *
+     * @return generated table or null.
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public static <T> GeneratedSettings<T> find(Class<T> type)
+    {
+        Object table = tables.get(type);
+        return (table == NONE) ? null : (GeneratedSettings<T>) table;
+    }
+
+    @Nullable
+    private static GeneratedSettings<?> load(Class<?> type)
+    {
+        ClassLoader classLoader = type.getClassLoader();
+        if ((classLoader == null) || type.isArray() || type.isPrimitive())
+        {
+            return null;
+        }
+        Class<?> generated;
+        try
+        {
+            generated = Class.forName(type.getName() + SUFFIX, true, classLoader);
+        }
+        catch (ClassNotFoundException e)
+        {
+            return null;
+        }
+        try
+        {
+            GeneratedSettings<?> table = (GeneratedSettings<?>) generated.getDeclaredConstructor().newInstance();
+            if (table.type != type)
+            {
+                throw new SerializationException("Generated settings " + generated.getName() + " describe " + table.type.getName());
+            }
+            return table;
+        }
+        catch (ReflectiveOperationException | ClassCastException e)
+        {
+            throw new SerializationException("Can't load generated settings of " + type.getName(), e);
+        }
+    }
+
+    /**
+     * @return described class.
+     */
+    public Class<T> getType()
+    {
+        return this.type;
+    }
+
+    /**
+     * @return amount of described fields.
+     */
+    public int size()
+    {
+        return this.names.length;
+    }
+
+    /**
+     * Returns index of field with given name, or -1 if there is no such field.
+     *
+     * @param name
+     *     raw name of field.
+     *
+     * @return index of field or -1.
+     */
+    public int indexOf(String name)
+    {
+        Integer index = this.indices.get(name);
+        return (index == null) ? - 1 : index;
+    }
+
+    /**
+     * Returns raw name of field at given index.
+     *
+     * @param index
+     *     index of field.
+     *
+     * @return raw name of field.
+     */
+    public String getName(int index)
+    {
+        return this.names[index];
+    }
+
+    /**
+     * Returns serialization name of field at given index, translated from serialized name annotations if present.
+     *
+     * @param index
+     *     index of field.
+     *
+     * @return serialization name of field.
+     */
+    public String getSerializationName(int index)
+    {
+        return this.serializationNames[index];
+    }
+
+    /**
+     * Returns setting of given type read at compile time from field at given index.
+     *
+     * @param index
+     *     index of field.
+     * @param type
+     *     type of setting.
+     * @param <S>
+     *     type of setting.
+     *
+     * @return setting or null if field does not have it.
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public <S extends Setting> S getSetting(int index, Class<S> type)
+    {
+        for (Setting setting : this.settings[index])
+        {
+            if (setting.getClass() == type)
+            {
+                return (S) setting;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns true if value of field at given index can be read by {@link #getValue(Object, int)}, private fields of described class
+     * are not accessible to generated code.
+     *
+     * @param index
+     *     index of field.
+     *
+     * @return true if field has generated getter.
+     */
+    public boolean hasGetter(int index)
+    {
+        return this.getters[index];
+    }
+
+    /**
+     * Returns true if value of field at given index can be changed by {@link #setValue(Object, int, Object)}.
+     *
+     * @param index
+     *     index of field.
+     *
+     * @return true if field has generated setter.
+     */
+    public boolean hasSetter(int index)
+    {
+        return this.setters[index];
+    }
+
+    /**
+     * Returns value of field at given index.
+     *
+     * @param instance
+     *     instance of described class, ignored for static fields.
+     * @param index
+     *     index of field.
+     *
+     * @return value of field.
+     *
+     * @throws UnsupportedOperationException
+     *     if field does not have generated getter.
+     */
+    @Nullable
+    public abstract Object getValue(T instance, int index);
+
+    /**
+     * Changes value of field at given index.
+     *
+     * @param instance
+     *     instance of described class, ignored for static fields.
+     * @param index
+     *     index of field.
+     * @param value
+     *     new value of field.
+     *
+     * @throws UnsupportedOperationException
+     *     if field does not have generated setter.
+     */
+    public abstract void setValue(T instance, int index, @Nullable Object value);
+
+    @Override
+    public String toString()
+    {
+        return "GeneratedSettings{" + this.type.getName() + "}";
+    }
+}
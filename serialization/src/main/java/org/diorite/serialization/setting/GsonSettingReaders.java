@@ -33,39 +33,32 @@ import org.diorite.serialization.setting.settings.SerializedNameSetting;
 import org.diorite.serialization.setting.settings.SinceSetting;
 import org.diorite.serialization.setting.settings.UntilSetting;
 
-import java.util.Optional;
 
 class GsonSettingReaders
 {
-    static void add(SettingsManager manager)
+    /**
+     * Gson is optional dependency, so readers of its annotations are registered only if it is present.
+     */
+    static boolean isAvailable()
     {
-        manager.register(ExposeSetting.class, annotatedElement ->
-        {
-            Expose annotation = annotatedElement.getAnnotation(Expose.class);
-            if (annotation == null)
-            { return Optional.empty(); }
-            return Optional.of(new ExposeSetting(annotation.serialize(), annotation.deserialize()));
-        });
-        manager.register(UntilSetting.class, annotatedElement ->
+        try
         {
-            Until annotation = annotatedElement.getAnnotation(Until.class);
-            if (annotation == null)
-            { return Optional.empty(); }
-            return Optional.of(new UntilSetting(Double.toString(annotation.value())));
-        });
-        manager.register(SinceSetting.class, annotatedElement ->
+            Class.forName("com.google.gson.annotations.Expose", false, GsonSettingReaders.class.getClassLoader());
+            return true;
+        }
+        catch (ClassNotFoundException e)
         {
-            Since annotation = annotatedElement.getAnnotation(Since.class);
-            if (annotation == null)
-            { return Optional.empty(); }
-            return Optional.of(new SinceSetting(Double.toString(annotation.value())));
-        });
-        manager.register(SerializedNameSetting.class, annotatedElement ->
-        {
-            SerializedName annotation = annotatedElement.getAnnotation(SerializedName.class);
-            if (annotation == null)
-            { return Optional.empty(); }
-            return Optional.of(new SerializedNameSetting(annotation.value(), annotation.alternate()));
-        });
+            return false;
+        }
+    }
+
+    static void add(SettingsManager manager)
+    {
+        manager.register(ExposeSetting.class,
+                         new AnnotationSettingReader<>(Expose.class, a -> ExposeSetting.of(a.serialize(), a.deserialize())));
+        manager.register(UntilSetting.class, new AnnotationSettingReader<>(Until.class, a -> UntilSetting.of(Double.toString(a.value()))));
+        manager.register(SinceSetting.class, new AnnotationSettingReader<>(Since.class, a -> SinceSetting.of(Double.toString(a.value()))));
+        manager.register(SerializedNameSetting.class,
+                         new AnnotationSettingReader<>(SerializedName.class, a -> SerializedNameSetting.of(a.value(), a.alternate())));
     }
 }
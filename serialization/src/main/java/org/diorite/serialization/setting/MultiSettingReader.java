@@ -43,6 +43,14 @@ class MultiSettingReader<T extends Setting> implements SettingReader<T>
         }
     }
 
+    int size()
+    {
+        synchronized (this.readers)
+        {
+            return this.readers.size();
+        }
+    }
+
     @Override
     public Optional<? extends T> read(AnnotatedElement annotatedElement)
     {
@@ -26,6 +26,7 @@ package org.diorite.serialization.setting;
 
 import javax.annotation.Nullable;
 import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
 
 /**
  * Represent single property from any place, normal class with field, pair of getter/setters, or special configuration class with own
@@ -113,6 +114,15 @@ public interface Property<D, T>
         return (Class<? extends T>) getSettings().getRealType().getRawType();
     }
 
+    /**
+     * @return generic type of this property, raw type is used if settings of this property aren't known.
+     */
+    default Type getGenericType()
+    {
+        PropertySettings settings = this.getSettings();
+        return (settings != null) ? settings.getRealType().getType() : this.getRawType();
+    }
+
     /**
      * @return settings of this property.
      */
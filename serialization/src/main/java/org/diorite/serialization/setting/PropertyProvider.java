@@ -22,41 +22,26 @@
  * SOFTWARE.
  */
 
-package org.diorite.serialization.setting.settings;
+package org.diorite.serialization.setting;
 
-import org.diorite.serialization.annotations.Expose;
-import org.diorite.serialization.setting.Setting;
+import java.util.List;
 
 /**
- * Representation of {@link Expose}
+ * Source of properties for given class, used by serialization to find out what properties given type contains.
  */
-public final class ExposeSetting implements Setting, Expose
+@FunctionalInterface
+public interface PropertyProvider
 {
-    private final boolean serialize;
-    private final boolean deserialize;
-
-    public ExposeSetting(boolean serialize, boolean deserialize)
-    {
-        this.serialize = serialize;
-        this.deserialize = deserialize;
-    }
-
-    @Override
-    public boolean serialize()
-    {
-        return serialize;
-    }
-
-    @Override
-    public boolean deserialize()
-    {
-        return deserialize;
-    }
-
-    @Override
-    public Class<Expose> annotationType()
-    {
-        return Expose.class;
-    }
-
+    /**
+     * Returns ordered list of all properties of given type. <br>
+     * Returned list should be stable, so each invocation for the same type should return the same properties in the same order.
+     *
+     * @param type
+     *     type to scan.
+     * @param <T>
+     *     type of declaration.
+     *
+     * @return ordered list of all properties of given type.
+     */
+    <T> List<? extends Property<T, ?>> getProperties(Class<T> type);
 }
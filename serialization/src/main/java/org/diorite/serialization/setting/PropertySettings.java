@@ -66,6 +66,16 @@ public class PropertySettings
         return serializerType;
     }
 
+    /**
+     * Returns amount of generic parameters of represented type.
+     *
+     * @return amount of generic parameters.
+     */
+    public int getGenericParameterCount()
+    {
+        return parameters.length;
+    }
+
     /**
      * Returns type to use as generic parameters for given generic type. <br>
      * Like for {@literal Map<String, ? extends Set<? extends String>>}
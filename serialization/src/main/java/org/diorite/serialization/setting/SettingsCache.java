@@ -0,0 +1,545 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.diorite.serialization.setting;
+
+import org.diorite.serialization.setting.settings.ExposeSetting;
+import org.diorite.serialization.setting.settings.SerializedNameSetting;
+import org.diorite.serialization.setting.settings.SinceSetting;
+import org.diorite.serialization.setting.settings.UntilSetting;
+
+import javax.annotation.Nullable;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Persistent cache of built-in settings of fields, so warm starts don't need to read annotations using reflection. <br>
+ * Cache file is loaded using {@link MappedByteBuffer} and entries are decoded lazily when class is used for first time. Each entry is
+ * keyed by hash of class bytecode, so entries of changed classes are recomputed automatically, and whole file is keyed by configuration
+ * of {@link SettingsManager}, so it is ignored when different setting readers are registered. <br>
+ * New entries are written only by {@link #save()}, corrupted entries are ignored and read using reflection again.
+ *
+ * @see SettingsManager#setCache(SettingsCache)
+ */
+public final class SettingsCache
+{
+    private static final int  MAGIC           = 0x44534331; // DSC1
+    private static final int  FORMAT          = 1;
+    private static final long FNV_OFFSET      = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME       = 0x100000001b3L;
+    private static final int  EXPOSE          = 0x1;
+    private static final int  SERIALIZE       = 0x2;
+    private static final int  DESERIALIZE     = 0x4;
+    private static final int  SINCE           = 0x8;
+    private static final int  UNTIL           = 0x10;
+    private static final int  SERIALIZED_NAME = 0x20;
+
+    static final List<Class<? extends Setting>> CACHED_TYPES =
+        List.of(ExposeSetting.class, UntilSetting.class, SinceSetting.class, SerializedNameSetting.class);
+
+    private final Path                 path;
+    private final SettingsManager      manager;
+    private final ClassLoader          classLoader;
+    private final long                 configurationHash;
+    @Nullable
+    private final ByteBuffer           mapped;
+    private final Map<String, Integer> offsets = new HashMap<>();
+    private final Map<String, Entry>   used    = new ConcurrentHashMap<>();
+    private final ClassValue<Entry>    entries = new ClassValue<>()
+    {
+        @Override
+        protected Entry computeValue(Class<?> type)
+        {
+            return SettingsCache.this.load(type);
+        }
+    };
+    private volatile boolean modified;
+
+    private SettingsCache(Path path, SettingsManager manager, ClassLoader classLoader, long configurationHash, @Nullable ByteBuffer mapped)
+    {
+        this.path = path;
+        this.manager = manager;
+        this.classLoader = classLoader;
+        this.configurationHash = configurationHash;
+        this.mapped = mapped;
+        if (mapped != null)
+        {
+            ByteBuffer buffer = mapped.duplicate();
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++)
+            {
+                String name = readString(buffer);
+                this.offsets.put(name, buffer.position());
+                buffer.position(buffer.position() + 8);
+                int length = buffer.getInt();
+                if (length < 0)
+                {
+                    throw new IllegalArgumentException("Negative length of entry: " + length);
+                }
+                buffer.position(buffer.position() + length);
+            }
+        }
+    }
+
+    /**
+     * Opens cache stored in given file, cache is empty if file does not exist, is corrupted or was created for different
+     * configuration of settings manager. <br>
+     * Context class loader of current thread is used to find classes of entries when saving cache.
+     *
+     * @param path
+     *     path to cache file.
+     * @param manager
+     *     settings manager that will use this cache.
+     *
+     * @return opened cache.
+     *
+     * @throws IOException
+     *     if file exists but can't be read.
+     * @see #open(Path, SettingsManager, ClassLoader)
+     */
+    public static SettingsCache open(Path path, SettingsManager manager) throws IOException
+    {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        return open(path, manager, (classLoader == null) ? SettingsCache.class.getClassLoader() : classLoader);
+    }
+
+    /**
+     * Opens cache stored in given file, cache is empty if file does not exist, is corrupted or was created for different
+     * configuration of settings manager.
+     *
+     * @param path
+     *     path to cache file.
+     * @param manager
+     *     settings manager that will use this cache.
+     * @param classLoader
+     *     class loader used to find classes of entries loaded from file, entries of classes that it can't find are not saved again.
+     *
+     * @return opened cache.
+     *
+     * @throws IOException
+     *     if file exists but can't be read.
+     */
+    public static SettingsCache open(Path path, SettingsManager manager, ClassLoader classLoader) throws IOException
+    {
+        long configurationHash = manager.getConfigurationHash();
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            mapped = channel.map(MapMode.READ_ONLY, 0, channel.size());
+        }
+        catch (NoSuchFileException e)
+        {
+            return new SettingsCache(path, manager, classLoader, configurationHash, null);
+        }
+        try
+        {
+            if ((mapped.getInt() == MAGIC) && (mapped.getInt() == FORMAT) && (mapped.getLong() == configurationHash))
+            {
+                return new SettingsCache(path, manager, classLoader, configurationHash, mapped.slice());
+            }
+        }
+        catch (BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException e)
+        {
+            // corrupted file, it will be replaced on save.
+        }
+        return new SettingsCache(path, manager, classLoader, configurationHash, null);
+    }
+
+    /**
+     * @return path to cache file.
+     */
+    public Path getPath()
+    {
+        return this.path;
+    }
+
+    /**
+     * Returns true if this cache still matches configuration of settings manager, cache is not used after registering new setting
+     * readers.
+     *
+     * @return true if this cache can be used.
+     */
+    public boolean isValid()
+    {
+        return this.configurationHash == this.manager.getConfigurationHash();
+    }
+
+    /**
+     * @return true if any entry was computed since cache was opened, so cache file should be saved.
+     */
+    public boolean isModified()
+    {
+        return this.modified;
+    }
+
+    /**
+     * Returns setting of given type of given field, from cache file or read using reflection if class isn't cached or was changed.
+     *
+     * @param field
+     *     field to read setting from.
+     * @param type
+     *     type of setting, one of built-in setting types.
+     * @param <T>
+     *     type of setting.
+     *
+     * @return setting or null if field does not have it.
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public <T extends Setting> T getSetting(Field field, Class<T> type)
+    {
+        Entry entry = this.entries.get(field.getDeclaringClass());
+        String name = field.getName();
+        for (int i = 0; i < entry.names.length; i++)
+        {
+            if (entry.names[i].equals(name))
+            {
+                for (Setting setting : entry.settings[i])
+                {
+                    if (setting.getClass() == type)
+                    {
+                        return (T) setting;
+                    }
+                }
+                return null;
+            }
+        }
+        return this.manager.readSettingReflectively(field, type);
+    }
+
+    /**
+     * Writes all valid entries, both computed and loaded from previous file, to cache file. <br>
+     * Entries loaded from previous file that weren't used since opening cache are written only if class loader of this cache still
+     * finds class file with same bytecode, so entries of removed and changed classes are pruned. <br>
+     * File is written to temporary file first, and then moved in place of old one.
+     *
+     * @throws IOException
+     *     if cache can't be written.
+     * @throws IllegalStateException
+     *     if cache is no longer valid.
+     */
+    public synchronized void save() throws IOException
+    {
+        if (! this.isValid())
+        {
+            throw new IllegalStateException("Settings manager configuration was changed after opening cache.");
+        }
+        Map<String, byte[]> entries = new HashMap<>(this.offsets.size() + this.used.size());
+        if (this.mapped != null)
+        {
+            for (Map.Entry<String, Integer> offset : this.offsets.entrySet())
+            {
+                if (this.used.containsKey(offset.getKey()))
+                {
+                    continue;
+                }
+                ByteBuffer buffer = this.mapped.duplicate();
+                buffer.position(offset.getValue());
+                if (buffer.getLong() != this.bytecodeHash(offset.getKey()))
+                {
+                    continue;
+                }
+                int length = buffer.getInt();
+                buffer.position(offset.getValue());
+                byte[] bytes = new byte[12 + length];
+                buffer.get(bytes);
+                entries.put(offset.getKey(), bytes);
+            }
+        }
+        for (Map.Entry<String, Entry> entry : this.used.entrySet())
+        {
+            if (entry.getValue().hash != 0)
+            {
+                entries.put(entry.getKey(), entry.getValue().encode());
+            }
+        }
+        Path temp = this.path.resolveSibling(this.path.getFileName() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp))))
+        {
+            output.writeInt(MAGIC);
+            output.writeInt(FORMAT);
+            output.writeLong(this.configurationHash);
+            output.writeInt(entries.size());
+            for (Map.Entry<String, byte[]> entry : entries.entrySet())
+            {
+                writeString(output, entry.getKey());
+                output.write(entry.getValue());
+            }
+        }
+        Files.move(temp, this.path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        this.modified = false;
+    }
+
+    private Entry load(Class<?> type)
+    {
+        long hash = bytecodeHash(type);
+        Integer offset = this.offsets.get(type.getName());
+        if ((hash != 0) && (offset != null) && (this.mapped != null))
+        {
+            ByteBuffer buffer = this.mapped.duplicate();
+            buffer.position(offset);
+            if (buffer.getLong() == hash)
+            {
+                try
+                {
+                    int length = buffer.getInt();
+                    buffer.limit(buffer.position() + length);
+                    Entry entry = Entry.decode(hash, buffer);
+                    this.used.put(type.getName(), entry);
+                    return entry;
+                }
+                catch (BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException e)
+                {
+                    // corrupted entry, settings are read using reflection and entry is replaced on save.
+                }
+            }
+        }
+        Field[] fields = type.getDeclaredFields();
+        String[] names = new String[fields.length];
+        Setting[][] settings = new Setting[fields.length][];
+        List<Setting> fieldSettings = new ArrayList<>(CACHED_TYPES.size());
+        for (int i = 0; i < fields.length; i++)
+        {
+            names[i] = fields[i].getName();
+            fieldSettings.clear();
+            for (Class<? extends Setting> settingType : CACHED_TYPES)
+            {
+                Setting setting = this.manager.readSettingReflectively(fields[i], settingType);
+                if (setting != null)
+                {
+                    fieldSettings.add(setting);
+                }
+            }
+            settings[i] = fieldSettings.toArray(new Setting[fieldSettings.size()]);
+        }
+        Entry entry = new Entry(hash, names, settings);
+        this.used.put(type.getName(), entry);
+        if (hash != 0)
+        {
+            this.modified = true;
+        }
+        return entry;
+    }
+
+    /**
+     * Returns FNV-1a hash of class file of given type, or 0 if class file isn't available.
+     */
+    private static long bytecodeHash(Class<?> type)
+    {
+        String name = type.getName();
+        try (InputStream input = type.getResourceAsStream(name.substring(name.lastIndexOf('.') + 1) + ".class"))
+        {
+            return bytecodeHash(input);
+        }
+        catch (IOException e)
+        {
+            return 0;
+        }
+    }
+
+    /**
+     * Returns FNV-1a hash of class file of class with given name found by class loader of this cache, or 0 if class file isn't
+     * available.
+     */
+    private long bytecodeHash(String name)
+    {
+        try (InputStream input = this.classLoader.getResourceAsStream(name.replace('.', '/') + ".class"))
+        {
+            return bytecodeHash(input);
+        }
+        catch (IOException e)
+        {
+            return 0;
+        }
+    }
+
+    private static long bytecodeHash(@Nullable InputStream input) throws IOException
+    {
+        if (input == null)
+        {
+            return 0;
+        }
+        byte[] bytes = input.readAllBytes();
+        long hash = FNV_OFFSET;
+        for (byte b : bytes)
+        {
+            hash = (hash ^ (b & 0xFF)) * FNV_PRIME;
+        }
+        return (hash == 0) ? 1 : hash;
+    }
+
+    private static void writeString(DataOutput output, String string) throws IOException
+    {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer)
+    {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static final class Entry
+    {
+        private final long        hash;
+        private final String[]    names;
+        private final Setting[][] settings;
+
+        private Entry(long hash, String[] names, Setting[][] settings)
+        {
+            this.hash = hash;
+            this.names = names;
+            this.settings = settings;
+        }
+
+        /**
+         * Encodes this entry as bytecode hash, length of data and data.
+         */
+        private byte[] encode() throws IOException
+        {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 + (this.names.length * 16));
+            DataOutputStream output = new DataOutputStream(bytes);
+            output.writeLong(this.hash);
+            output.writeInt(0); // length placeholder
+            output.writeInt(this.names.length);
+            for (int i = 0; i < this.names.length; i++)
+            {
+                writeString(output, this.names[i]);
+                ExposeSetting expose = null;
+                SinceSetting since = null;
+                UntilSetting until = null;
+                SerializedNameSetting serializedName = null;
+                int flags = 0;
+                for (Setting setting : this.settings[i])
+                {
+                    if (setting instanceof ExposeSetting)
+                    {
+                        expose = (ExposeSetting) setting;
+                        flags |= EXPOSE | (expose.serialize() ? SERIALIZE : 0) | (expose.deserialize() ? DESERIALIZE : 0);
+                    }
+                    else if (setting instanceof SinceSetting)
+                    {
+                        since = (SinceSetting) setting;
+                        flags |= SINCE;
+                    }
+                    else if (setting instanceof UntilSetting)
+                    {
+                        until = (UntilSetting) setting;
+                        flags |= UNTIL;
+                    }
+                    else if (setting instanceof SerializedNameSetting)
+                    {
+                        serializedName = (SerializedNameSetting) setting;
+                        flags |= SERIALIZED_NAME;
+                    }
+                }
+                output.writeByte(flags);
+                if (since != null)
+                {
+                    writeString(output, since.value());
+                }
+                if (until != null)
+                {
+                    writeString(output, until.value());
+                }
+                if (serializedName != null)
+                {
+                    writeString(output, serializedName.value());
+                    String[] alternate = serializedName.alternate();
+                    output.writeInt(alternate.length);
+                    for (String name : alternate)
+                    {
+                        writeString(output, name);
+                    }
+                }
+            }
+            byte[] result = bytes.toByteArray();
+            ByteBuffer.wrap(result).putInt(8, result.length - 12);
+            return result;
+        }
+
+        private static Entry decode(long hash, ByteBuffer buffer)
+        {
+            int size = buffer.getInt();
+            String[] names = new String[size];
+            Setting[][] settings = new Setting[size][];
+            List<Setting> fieldSettings = new ArrayList<>(CACHED_TYPES.size());
+            for (int i = 0; i < size; i++)
+            {
+                names[i] = readString(buffer);
+                int flags = buffer.get();
+                fieldSettings.clear();
+                if ((flags & EXPOSE) != 0)
+                {
+                    fieldSettings.add(ExposeSetting.of((flags & SERIALIZE) != 0, (flags & DESERIALIZE) != 0));
+                }
+                if ((flags & SINCE) != 0)
+                {
+                    fieldSettings.add(SinceSetting.of(readString(buffer)));
+                }
+                if ((flags & UNTIL) != 0)
+                {
+                    fieldSettings.add(UntilSetting.of(readString(buffer)));
+                }
+                if ((flags & SERIALIZED_NAME) != 0)
+                {
+                    String value = readString(buffer);
+                    String[] alternate = new String[buffer.getInt()];
+                    for (int j = 0; j < alternate.length; j++)
+                    {
+                        alternate[j] = readString(buffer);
+                    }
+                    fieldSettings.add(SerializedNameSetting.of(value, alternate));
+                }
+                settings[i] = fieldSettings.toArray(new Setting[fieldSettings.size()]);
+            }
+            return new Entry(hash, names, settings);
+        }
+    }
+}
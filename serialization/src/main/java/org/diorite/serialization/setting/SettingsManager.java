@@ -0,0 +1,293 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.setting;
+
+import org.diorite.serialization.annotations.Expose;
+import org.diorite.serialization.annotations.SerializedName;
+import org.diorite.serialization.annotations.Since;
+import org.diorite.serialization.annotations.Until;
+import org.diorite.serialization.jfr.SettingReadEvent;
+import org.diorite.serialization.setting.settings.ExposeSetting;
+import org.diorite.serialization.setting.settings.SerializedNameSetting;
+import org.diorite.serialization.setting.settings.SinceSetting;
+import org.diorite.serialization.setting.settings.UntilSetting;
+
+import javax.annotation.Nullable;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Manager of settings readers, allows to register new readers to provide own settings. <br>
+ * Built-in settings of fields are taken from {@link GeneratedSettings} tables when described class was compiled with serialization
+ * annotation processor, as long as no custom reader was registered for that setting type.
+ */
+public class SettingsManager
+{
+    public static final SettingsManager INSTANCE = new SettingsManager();
+
+    private final Map<Class<? extends Setting>, MultiSettingReader<? extends Setting>> settings;
+    private final Set<Class<? extends Setting>>                                        generatedTypes = ConcurrentHashMap.newKeySet();
+    @Nullable
+    private volatile SettingsCache                                                     cache;
+    private volatile long                                                              configurationHash;
+
+    SettingsManager(@Nullable Void v)
+    {
+        settings = Collections.emptyMap();
+        // do nothing.
+    }
+
+    // default to prevent subtyping.
+    SettingsManager()
+    {
+        settings = new HashMap<>();
+        register(ExposeSetting.class, new AnnotationSettingReader<>(Expose.class, a -> ExposeSetting.of(a.serialize(), a.deserialize())));
+        register(UntilSetting.class, new AnnotationSettingReader<>(Until.class, a -> UntilSetting.of(a.value())));
+        register(SinceSetting.class, new AnnotationSettingReader<>(Since.class, a -> SinceSetting.of(a.value())));
+        register(SerializedNameSetting.class,
+                 new AnnotationSettingReader<>(SerializedName.class, a -> SerializedNameSetting.of(a.value(), a.alternate())));
+        if (GsonSettingReaders.isAvailable())
+        {
+            GsonSettingReaders.add(this);
+        }
+        // generated tables contain only settings of built-in readers.
+        this.generatedTypes.addAll(List.of(ExposeSetting.class, UntilSetting.class, SinceSetting.class, SerializedNameSetting.class));
+    }
+
+    /**
+     * Returns new instance of settings manager.
+     *
+     * @return new instance of settings manager.
+     */
+    public static SettingsManager create()
+    {
+        return new SettingsManager();
+    }
+
+    /**
+     * Register new setting reader for given type.
+     *
+     * @param type
+     *     type of setting object.
+     * @param settingReader
+     *     reader instance.
+     * @param <T>
+     *     type of setting object.
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Setting> void register(Class<T> type, SettingReader<T> settingReader)
+    {
+        MultiSettingReader<T> readers = (MultiSettingReader<T>) settings
+            .computeIfAbsent(type, k -> new MultiSettingReader<>(Collections.emptyList()));
+        readers.addReader(settingReader);
+        this.generatedTypes.remove(type);
+        this.configurationHash = 0;
+    }
+
+    /**
+     * Returns persistent cache of built-in settings used by this manager, or null if cache isn't used.
+     *
+     * @return used settings cache or null.
+     */
+    @Nullable
+    public SettingsCache getCache()
+    {
+        return this.cache;
+    }
+
+    /**
+     * Sets persistent cache of built-in settings used by this manager, cache is used only for classes without generated settings
+     * tables, and only as long as configuration of this manager does not change.
+     *
+     * @param cache
+     *     settings cache to use, or null to read settings using reflection.
+     *
+     * @see SettingsCache#open(java.nio.file.Path, SettingsManager)
+     */
+    public void setCache(@Nullable SettingsCache cache)
+    {
+        this.cache = cache;
+    }
+
+    /**
+     * Returns hash of registered setting types and their readers, used to detect changes of configuration.
+     *
+     * @return configuration hash.
+     */
+    public long getConfigurationHash()
+    {
+        long hash = this.configurationHash;
+        if (hash != 0)
+        {
+            return hash;
+        }
+        List<String> entries = new ArrayList<>();
+        synchronized (settings)
+        {
+            for (Map.Entry<Class<? extends Setting>, MultiSettingReader<? extends Setting>> entry : this.settings.entrySet())
+            {
+                entries.add(entry.getKey().getName() + ':' + entry.getValue().size() + ':' + this.generatedTypes.contains(entry.getKey()));
+            }
+        }
+        Collections.sort(entries);
+        hash = 0xcbf29ce484222325L;
+        for (byte b : String.join(";", entries).getBytes(StandardCharsets.UTF_8))
+        {
+            hash = (hash ^ (b & 0xFF)) * 0x100000001b3L;
+        }
+        hash = (hash == 0) ? 1 : hash;
+        this.configurationHash = hash;
+        return hash;
+    }
+
+    /**
+     * Returns settings reader for given setting type.
+     *
+     * @param type
+     *     type of setting object.
+     * @param <T>
+     *     type of setting object.
+     *
+     * @return settings reader for given setting type.
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public <T extends Setting> SettingReader<T> getSettingsReader(Class<T> type)
+    {
+        return (SettingReader<T>) settings.get(type);
+    }
+
+    /**
+     * Returns types of all settings with registered readers.
+     *
+     * @return unmodifiable set of setting types.
+     */
+    public Set<Class<? extends Setting>> getSettingTypes()
+    {
+        synchronized (settings)
+        {
+            return Collections.unmodifiableSet(new HashSet<>(this.settings.keySet()));
+        }
+    }
+
+    /**
+     * Tries to read setting from given annotated type, returns null if there is no such setting or given annotated type does not contain
+     * it.
+     *
+     * @param annotatedElement
+     *     annotated element instance to read setting from it.
+     * @param type
+     *     type of setting object.
+     * @param <T>
+     *     type of setting object.
+     *
+     * @return read setting object or null.
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public <T extends Setting> T readSetting(AnnotatedElement annotatedElement, Class<T> type)
+    {
+        if (annotatedElement instanceof Field)
+        {
+            Field field = (Field) annotatedElement;
+            if (this.generatedTypes.contains(type))
+            {
+                GeneratedSettings<?> table = GeneratedSettings.find(field.getDeclaringClass());
+                if (table != null)
+                {
+                    int index = table.indexOf(field.getName());
+                    if (index != - 1)
+                    {
+                        return table.getSetting(index, type);
+                    }
+                }
+            }
+            SettingsCache cache = this.cache;
+            if ((cache != null) && SettingsCache.CACHED_TYPES.contains(type) && cache.isValid())
+            {
+                return cache.getSetting(field, type);
+            }
+        }
+        return this.readSettingReflectively(annotatedElement, type);
+    }
+
+    /**
+     * Reads setting using registered readers, without using generated tables or cache.
+     *
+     * @param annotatedElement
+     *     annotated element instance to read setting from it.
+     * @param type
+     *     type of setting object.
+     * @param <T>
+     *     type of setting object.
+     *
+     * @return read setting object or null.
+     */
+    @Nullable
+    <T extends Setting> T readSettingReflectively(AnnotatedElement annotatedElement, Class<T> type)
+    {
+        SettingReader<T> settingsReader = getSettingsReader(type);
+        if (settingsReader == null)
+        {
+            return null;
+        }
+        SettingReadEvent event = new SettingReadEvent();
+        event.begin();
+        T setting = settingsReader.read(annotatedElement).orElse(null);
+        event.complete(type, annotatedElement, setting != null);
+        return setting;
+    }
+
+    /**
+     * Tries to read all registered settings from given annotated type.
+     *
+     * @param annotatedElement
+     *     annotated element instance to read setting from it.
+     *
+     * @return map of all read settings.
+     */
+    @SuppressWarnings("unchecked")
+    public Map<? extends Class<? extends Setting>, ? extends Setting> readSettings(AnnotatedElement annotatedElement)
+    {
+        synchronized (settings)
+        {
+            Map<Class<? extends Setting>, Setting> result = new HashMap<>();
+            for (Class<? extends Setting> type : this.settings.keySet())
+            {
+                result.put(type, readSetting(annotatedElement, type));
+            }
+            return result;
+        }
+    }
+}
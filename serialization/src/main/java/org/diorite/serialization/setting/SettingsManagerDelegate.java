@@ -27,6 +27,7 @@ package org.diorite.serialization.setting;
 import javax.annotation.Nullable;
 import java.lang.reflect.AnnotatedElement;
 import java.util.Map;
+import java.util.Set;
 
 public final class SettingsManagerDelegate extends SettingsManager
 {
@@ -61,6 +62,38 @@ public final class SettingsManagerDelegate extends SettingsManager
         return delegate.getSettingsReader(type);
     }
 
+    @Override
+    @Nullable
+    public SettingsCache getCache()
+    {
+        return delegate.getCache();
+    }
+
+    @Override
+    public void setCache(@Nullable SettingsCache cache)
+    {
+        delegate.setCache(cache);
+    }
+
+    @Override
+    public long getConfigurationHash()
+    {
+        return delegate.getConfigurationHash();
+    }
+
+    @Override
+    @Nullable
+    <T extends Setting> T readSettingReflectively(AnnotatedElement annotatedElement, Class<T> type)
+    {
+        return delegate.readSettingReflectively(annotatedElement, type);
+    }
+
+    @Override
+    public Set<Class<? extends Setting>> getSettingTypes()
+    {
+        return delegate.getSettingTypes();
+    }
+
     @Override
     @Nullable
     public <T extends Setting> T readSetting(AnnotatedElement annotatedElement, Class<T> type)
@@ -27,6 +27,8 @@ package org.diorite.serialization.setting.settings;
 import org.diorite.serialization.annotations.SerializedName;
 import org.diorite.serialization.setting.Setting;
 
+import java.util.Arrays;
+
 /**
  * Representation of {@link SerializedName}
  */
@@ -35,6 +37,21 @@ public final class SerializedNameSetting implements Setting, SerializedName
     private final String   value;
     private final String[] alternate;
 
+    /**
+     * Returns shared setting instance with given names.
+     *
+     * @param value
+     *     serialization name.
+     * @param alternate
+     *     alternative names used in deserialization.
+     *
+     * @return shared setting instance.
+     */
+    public static SerializedNameSetting of(String value, String[] alternate)
+    {
+        return SettingInterner.intern(new SerializedNameSetting(value, alternate));
+    }
+
     public SerializedNameSetting(String value, String[] alternate)
     {
         this.value = value;
@@ -58,4 +75,36 @@ public final class SerializedNameSetting implements Setting, SerializedName
     {
         return SerializedName.class;
     }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o)
+        {
+            return true;
+        }
+        if (o instanceof SerializedNameSetting)
+        {
+            SerializedNameSetting setting = (SerializedNameSetting) o;
+            return value.equals(setting.value) && Arrays.equals(alternate, setting.alternate);
+        }
+        if (! (o instanceof SerializedName))
+        {
+            return false;
+        }
+        SerializedName serializedName = (SerializedName) o;
+        return value.equals(serializedName.value()) && Arrays.equals(alternate, serializedName.alternate());
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return ((127 * "value".hashCode()) ^ value.hashCode()) + ((127 * "alternate".hashCode()) ^ Arrays.hashCode(alternate));
+    }
+
+    @Override
+    public String toString()
+    {
+        return "@" + SerializedName.class.getName() + "(value=" + value + ", alternate=" + Arrays.toString(alternate) + ")";
+    }
 }
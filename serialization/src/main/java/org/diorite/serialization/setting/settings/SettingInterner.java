@@ -0,0 +1,85 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.diorite.serialization.setting.settings;
+
+import org.diorite.serialization.setting.Setting;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Canonicalizes immutable setting instances, so equal settings read from different annotated elements share single object and can be
+ * compared by identity. <br>
+ * Only settings with value based {@code equals} and {@code hashCode} should be interned, built-in settings implement them as specified
+ * by {@link java.lang.annotation.Annotation#hashCode()}, so they are also equal to annotations they were read from. <br>
+ * Canonical instances are weakly referenced, so settings of unloaded classes don't stay in memory.
+ */
+public final class SettingInterner
+{
+    private static final Map<Setting, WeakReference<Setting>> INTERNED = new WeakHashMap<>(64);
+
+    private SettingInterner()
+    {
+    }
+
+    /**
+     * Returns canonical instance of given setting, given instance is returned and stored if there is no equal setting yet.
+     *
+     * @param setting
+     *     setting to intern.
+     * @param <T>
+     *     type of setting.
+     *
+     * @return canonical instance equal to given setting.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Setting> T intern(T setting)
+    {
+        synchronized (INTERNED)
+        {
+            WeakReference<Setting> reference = INTERNED.get(setting);
+            Setting previous = (reference == null) ? null : reference.get();
+            if (previous == null)
+            {
+                INTERNED.put(setting, new WeakReference<>(setting));
+                return setting;
+            }
+            return (previous.getClass() == setting.getClass()) ? (T) previous : setting;
+        }
+    }
+
+    /**
+     * @return amount of canonical settings.
+     */
+    public static int size()
+    {
+        synchronized (INTERNED)
+        {
+            return INTERNED.size();
+        }
+    }
+}
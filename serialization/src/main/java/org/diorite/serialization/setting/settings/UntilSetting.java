@@ -0,0 +1,92 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.setting.settings;
+
+import org.diorite.serialization.annotations.Until;
+import org.diorite.serialization.setting.Setting;
+
+/**
+ * Representation of {@link Until}
+ */
+public final class UntilSetting implements Setting, Until
+{
+    private final String value;
+
+    /**
+     * Returns shared setting instance with given version.
+     *
+     * @param value
+     *     version string.
+     *
+     * @return shared setting instance.
+     */
+    public static UntilSetting of(String value)
+    {
+        return SettingInterner.intern(new UntilSetting(value));
+    }
+
+    public UntilSetting(String value)
+    {
+        this.value = value;
+    }
+
+    @Override
+    public String value()
+    {
+        return value;
+    }
+
+    @Override
+    public Class<Until> annotationType()
+    {
+        return Until.class;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o)
+        {
+            return true;
+        }
+        if (! (o instanceof Until))
+        {
+            return false;
+        }
+        return value.equals(((Until) o).value());
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return (127 * "value".hashCode()) ^ value.hashCode();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "@" + Until.class.getName() + "(value=" + value + ")";
+    }
+}
@@ -24,24 +24,36 @@
 
 package org.diorite.serialization.version;
 
-import org.apache.commons.lang3.StringUtils;
-
 class SimpleNumericVersionComparator implements VersionComparator {
     @Override
     public CompareResult compare(String baseVersion, String toCompare) {
-        String[] baseVersionParts = StringUtils.splitPreserveAllTokens(baseVersion, '.');
-        String[] toCompareParts = StringUtils.splitPreserveAllTokens(baseVersion, '.');
-        for (int i = 0; i < baseVersionParts.length; i++) {
-            int baseVer = Integer.parseInt(baseVersionParts[i]);
-            int toCompVer = (toCompareParts.length > i) ? Integer.parseInt(toCompareParts[i]) : 0;
-            if (baseVer == toCompVer) {
-                continue;
-            }
+        // segments are parsed in place, missing trailing segments are treated as 0, so "1.2" is equal to "1.2.0".
+        int baseLength = baseVersion.length();
+        int toCompareLength = toCompare.length();
+        int baseStart = 0;
+        int toCompareStart = 0;
+        while ((baseStart <= baseLength) || (toCompareStart <= toCompareLength)) {
+            int baseEnd = segmentEnd(baseVersion, baseStart);
+            int toCompareEnd = segmentEnd(toCompare, toCompareStart);
+            int baseVer = (baseStart <= baseLength) ? Integer.parseInt(baseVersion, baseStart, baseEnd, 10) : 0;
+            int toCompVer = (toCompareStart <= toCompareLength) ? Integer.parseInt(toCompare, toCompareStart, toCompareEnd, 10) : 0;
             if (toCompVer > baseVer) {
                 return CompareResult.AFTER;
             }
-            return CompareResult.BEFORE;
+            if (toCompVer < baseVer) {
+                return CompareResult.BEFORE;
+            }
+            baseStart = baseEnd + 1;
+            toCompareStart = toCompareEnd + 1;
         }
         return CompareResult.EQUALS;
     }
+
+    private static int segmentEnd(String version, int start) {
+        if (start > version.length()) {
+            return start;
+        }
+        int end = version.indexOf('.', start);
+        return (end == - 1) ? version.length() : end;
+    }
 }
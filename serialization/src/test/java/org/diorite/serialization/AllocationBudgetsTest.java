@@ -0,0 +1,197 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization;
+
+import org.diorite.serialization.annotations.Expose;
+import org.diorite.serialization.annotations.SerializedName;
+import org.diorite.serialization.annotations.Since;
+import org.diorite.serialization.naming.StandardFieldNamingStrategies;
+import org.diorite.serialization.plan.PlanDirection;
+import org.diorite.serialization.plan.PropertyPlan;
+import org.diorite.serialization.plan.PropertyPlanCompiler;
+import org.diorite.serialization.setting.SettingsCache;
+import org.diorite.serialization.setting.SettingsManager;
+import org.diorite.serialization.setting.settings.ExposeSetting;
+import org.diorite.serialization.setting.settings.SerializedNameSetting;
+import org.diorite.serialization.setting.settings.SinceSetting;
+import org.diorite.serialization.version.VersionComparator;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Allocation budgets of steady-state hot paths, each operation is warmed up and then run in loop while allocated bytes of current
+ * thread are measured by {@link com.sun.management.ThreadMXBean}. <br>
+ * Budgets are skipped on JVMs that can't measure allocated memory of thread.
+ */
+public class AllocationBudgetsTest
+{
+    private static final int WARMUP_OPERATIONS   = 50_000;
+    private static final int MEASURED_OPERATIONS = 200_000;
+    private static final int ROUNDS              = 3;
+
+    private static volatile Object sink;
+
+    private final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private final Customer                        customer = new Customer();
+    private       boolean                         supported;
+
+    @Before
+    public void enableMeasurement()
+    {
+        this.supported = this.threads.isThreadAllocatedMemorySupported();
+        if (this.supported)
+        {
+            this.threads.setThreadAllocatedMemoryEnabled(true);
+        }
+        this.customer.id = 42; // within Long cache, so boxing does not allocate
+        this.customer.email = "jane.doe@example.com";
+    }
+
+    @Test
+    public void propertyAccess() throws NoSuchFieldException
+    {
+        FieldProperty<Customer, Long> id = new FieldProperty<>(Customer.class.getDeclaredField("id"));
+        FieldProperty<Customer, String> email = new FieldProperty<>(Customer.class.getDeclaredField("email"));
+        this.assertBudget("Property.getValue (reference)", 0, () -> email.getValue(this.customer));
+        this.assertBudget("Property.setValue (reference)", 0, () ->
+        {
+            email.setValue(this.customer, "jane.doe@example.com");
+            return null;
+        });
+        this.assertBudget("Property.getValue (primitive)", 0, () -> id.getValue(this.customer));
+    }
+
+    @Test
+    public void planLookup()
+    {
+        PropertyPlanCompiler planCompiler = new PropertyPlanCompiler(FieldProperty.PROVIDER, VersionComparator.DEFAULT);
+        PropertyPlan<Customer> plan = planCompiler.getPlan(Customer.class, PlanDirection.SERIALIZE, "1.5");
+        this.assertBudget("PropertyPlan.getName", 0, () -> plan.getName(plan.size() - 1));
+        this.assertBudget("PropertyPlan.indexOf", 0, () -> plan.indexOf("first_name"));
+        this.assertBudget("PropertyPlanCompiler.getPlan (cached)", 0,
+                          () -> planCompiler.getPlan(Customer.class, PlanDirection.SERIALIZE, "1.5"));
+    }
+
+    @Test
+    public void naming() throws NoSuchFieldException
+    {
+        FieldProperty<Customer, String> email = new FieldProperty<>(Customer.class.getDeclaredField("email"));
+        this.assertBudget("PropertyNamingStrategy IDENTITY", 0, () -> StandardFieldNamingStrategies.IDENTITY.translateName(email));
+        this.assertBudget("PropertyNamingStrategy LOWER_CASE_WITH_UNDERSCORES (cached)", 0,
+                          () -> StandardFieldNamingStrategies.LOWER_CASE_WITH_UNDERSCORES.translateName(email));
+    }
+
+    @Test
+    public void versionComparison()
+    {
+        this.assertBudget("VersionComparator.compare", 0, () -> VersionComparator.DEFAULT.compare("1.4.2", "1.12"));
+    }
+
+    @Test
+    public void reflectiveSettingRead() throws NoSuchFieldException
+    {
+        SettingsManager manager = SettingsManager.create();
+        Field id = Customer.class.getDeclaredField("id");
+        Field email = Customer.class.getDeclaredField("email");
+        Field points = Customer.class.getDeclaredField("loyaltyPoints");
+        this.assertBudget("SettingsManager.readSetting (SerializedName)", 0, () -> manager.readSetting(id, SerializedNameSetting.class));
+        this.assertBudget("SettingsManager.readSetting (Expose)", 0, () -> manager.readSetting(email, ExposeSetting.class));
+        this.assertBudget("SettingsManager.readSetting (Since)", 0, () -> manager.readSetting(points, SinceSetting.class));
+        this.assertBudget("SettingsManager.readSetting (missing)", 0, () -> manager.readSetting(email, SinceSetting.class));
+    }
+
+    @Test
+    public void cachedSettingRead() throws Exception
+    {
+        Field field = Customer.class.getDeclaredField("firstName");
+        Path cacheFile = Files.createTempFile("settings", ".cache");
+        try
+        {
+            Files.delete(cacheFile);
+            SettingsManager manager = SettingsManager.create();
+            manager.setCache(SettingsCache.open(cacheFile, manager));
+            this.assertBudget("SettingsManager.readSetting (cached)", 0, () -> manager.readSetting(field, SerializedNameSetting.class));
+        }
+        finally
+        {
+            Files.deleteIfExists(cacheFile);
+        }
+    }
+
+    private void assertBudget(String name, long budget, Operation operation)
+    {
+        if (! this.supported)
+        {
+            return;
+        }
+        for (int i = 0; i < WARMUP_OPERATIONS; i++)
+        {
+            sink = operation.run();
+        }
+        long thread = Thread.currentThread().getId();
+        // best of few rounds, so single allocation by JIT or other runtime internals does not fail the check.
+        double best = Double.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++)
+        {
+            long start = this.threads.getThreadAllocatedBytes(thread);
+            for (int i = 0; i < MEASURED_OPERATIONS; i++)
+            {
+                sink = operation.run();
+            }
+            long allocated = this.threads.getThreadAllocatedBytes(thread) - start;
+            best = Math.min(best, (double) allocated / MEASURED_OPERATIONS);
+        }
+        assertTrue(String.format(Locale.ROOT, "%s: %.2f B/op, budget %d B/op", name, best, budget), best <= (budget + 0.5));
+    }
+
+    @FunctionalInterface
+    private interface Operation
+    {
+        Object run();
+    }
+
+    static final class Customer
+    {
+        @SerializedName(value = "id", alternate = {"customerId", "customer_id"})
+        long   id;
+        @Expose(deserialize = false)
+        String email;
+        @SerializedName("first_name")
+        String firstName;
+        @Since("1.4")
+        int    loyaltyPoints;
+        @com.google.gson.annotations.Since(1.2)
+        String tags;
+    }
+}
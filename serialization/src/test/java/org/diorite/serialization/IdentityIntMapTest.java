@@ -0,0 +1,69 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class IdentityIntMapTest
+{
+    @Test
+    public void comparesKeysByIdentity()
+    {
+        IdentityIntMap map = new IdentityIntMap();
+        String key = new String("key");
+        String equal = new String("key");
+        assertEquals(IdentityIntMap.NO_VALUE, map.putIfAbsent(key, 1));
+        assertEquals(1, map.get(key));
+        assertEquals(IdentityIntMap.NO_VALUE, map.get(equal));
+        assertEquals(IdentityIntMap.NO_VALUE, map.putIfAbsent(equal, 2));
+        assertEquals(1, map.putIfAbsent(key, 3));
+        assertEquals(1, map.get(key));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    public void growsAndClears()
+    {
+        IdentityIntMap map = new IdentityIntMap(2);
+        Object[] keys = new Object[10_000];
+        for (int i = 0; i < keys.length; i++)
+        {
+            keys[i] = new Object();
+            assertEquals(IdentityIntMap.NO_VALUE, map.putIfAbsent(keys[i], i));
+        }
+        assertEquals(keys.length, map.size());
+        for (int i = 0; i < keys.length; i++)
+        {
+            assertEquals(i, map.get(keys[i]));
+        }
+        map.clear();
+        assertEquals(0, map.size());
+        assertEquals(IdentityIntMap.NO_VALUE, map.get(keys[0]));
+        assertEquals(IdentityIntMap.NO_VALUE, map.putIfAbsent(keys[0], 5));
+        assertEquals(5, map.get(keys[0]));
+    }
+}
@@ -0,0 +1,545 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.binary;
+
+import org.diorite.serialization.FieldProperty;
+import org.diorite.serialization.InstanceFactory;
+import org.diorite.serialization.SerializationException;
+import org.diorite.serialization.annotations.SerializedName;
+import org.diorite.serialization.buffer.BufferPool;
+import org.diorite.serialization.collection.DoubleArrayList;
+import org.diorite.serialization.collection.IntArrayList;
+import org.diorite.serialization.collection.LongArrayList;
+import org.diorite.serialization.collection.ObjectLongHashMap;
+import org.diorite.serialization.plan.PropertyPlanCompiler;
+import org.diorite.serialization.version.VersionComparator;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BinaryCodecTest
+{
+    private static final int  CORRUPTED_INPUTS = 20_000;
+    private static final long SEED             = 0x5EED_2017L;
+
+    private final BinaryCodec codec = new BinaryCodec(new PropertyPlanCompiler(FieldProperty.PROVIDER, VersionComparator.DEFAULT));
+
+    private static Order order()
+    {
+        Order order = new Order();
+        order.orderId = "ORD-2017-000431";
+        order.customerId = 1_204_337L;
+        order.total = 1157.48;
+        order.quantity = - 3;
+        order.paid = true;
+        order.currency = "EUR";
+        order.tags = List.of("gift", "express");
+        order.attributes = Map.of("channel", "web");
+        order.shipping = new Address();
+        order.shipping.city = "London";
+        order.shipping.postalCode = "NW1 6XE";
+        Address billing = new Address();
+        billing.city = "Paris";
+        order.history = List.of(billing);
+        return order;
+    }
+
+    private void assertRejected(String name, Runnable decoding)
+    {
+        try
+        {
+            decoding.run();
+            fail(name + " was accepted");
+        }
+        catch (SerializationException expected)
+        {
+            // expected
+        }
+    }
+
+    private static void assertOrder(Order expected, Order actual)
+    {
+        assertEquals(expected.orderId, actual.orderId);
+        assertEquals(expected.customerId, actual.customerId);
+        assertEquals(expected.total, actual.total, 0);
+        assertEquals(expected.quantity, actual.quantity);
+        assertEquals(expected.paid, actual.paid);
+        assertEquals(expected.currency, actual.currency);
+        assertEquals(expected.tags, actual.tags);
+        assertEquals(expected.attributes, actual.attributes);
+        assertEquals(expected.shipping.city, actual.shipping.city);
+        assertEquals(expected.shipping.postalCode, actual.shipping.postalCode);
+        // element types of collections are not resolved from property settings, so objects in collections are decoded as maps.
+        assertEquals(1, actual.history.size());
+        assertEquals("Paris", ((Map<?, ?>) actual.history.get(0)).get("city"));
+    }
+
+    @Test
+    public void roundTripsObject()
+    {
+        Order order = order();
+        byte[] data = this.codec.serialize(order);
+        assertOrder(order, this.codec.deserialize(Order.class, data));
+        // second decoding uses cached remote schema.
+        assertOrder(order, this.codec.deserialize(Order.class, data));
+    }
+
+    @Test
+    public void rejectsEveryTruncatedEncoding()
+    {
+        byte[] data = this.codec.serialize(order());
+        for (int length = 0; length < data.length; length++)
+        {
+            byte[] prefix = Arrays.copyOf(data, length);
+            this.assertRejected("prefix of " + length + " bytes", () -> this.codec.deserialize(Order.class, prefix));
+        }
+    }
+
+    @Test
+    public void rejectsCorruptedInputOnlyWithSerializationException()
+    {
+        byte[] data = this.codec.serialize(order());
+        Random random = new Random(SEED);
+        for (int i = 0; i < CORRUPTED_INPUTS; i++)
+        {
+            byte[] corrupted = data.clone();
+            for (int j = 0, changes = 1 + random.nextInt(4); j < changes; j++)
+            {
+                corrupted[random.nextInt(corrupted.length)] = (byte) random.nextInt(256);
+            }
+            try
+            {
+                this.codec.deserialize(Order.class, corrupted);
+            }
+            catch (SerializationException e)
+            {
+                // corrupted input may be decoded or rejected, but only by serialization exception.
+            }
+            catch (RuntimeException | OutOfMemoryError | StackOverflowError e)
+            {
+                throw new AssertionError("Input " + i + " of seed " + SEED + " failed with " + e, e);
+            }
+        }
+    }
+
+    @Test
+    public void rejectsHostileLengths()
+    {
+        byte[] negative = {(byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x0f};
+        byte[] oversized = {(byte) 0xfe, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x07, 1, 2, 3};
+        for (byte[] length : new byte[][]{negative, oversized})
+        {
+            this.assertRejected("string length", () -> new BinaryInput(length).readString());
+            this.assertRejected("byte array length", () -> new BinaryInput(length).readByteArray());
+            this.assertRejected("skipped length", () -> new BinaryInput(length).skipLengthPrefixed());
+        }
+        this.assertRejected("negative int array length", () -> new BinaryInput(new byte[8]).readInts(- 1, ByteOrder.LITTLE_ENDIAN));
+        this.assertRejected("oversized long array length",
+                            () -> new BinaryInput(new byte[8]).readLongs(Integer.MAX_VALUE, ByteOrder.LITTLE_ENDIAN));
+    }
+
+    @Test
+    public void rejectsTamperedSchemaName()
+    {
+        Order order = order();
+        byte[] data = this.codec.serialize(order);
+        byte[] tampered = data.clone();
+        // name keeps its length, so data stays well-formed and only verification of schema names can reject it.
+        tampered[indexOf(data, "currency".getBytes(StandardCharsets.UTF_8))] = 'k';
+        this.assertRejected("tampered schema name", () -> this.codec.deserialize(Order.class, tampered));
+        // rejected schema must not replace cached one.
+        assertOrder(order, this.codec.deserialize(Order.class, data));
+    }
+
+    @Test
+    public void writesClassFingerprintsInSchemas()
+    {
+        Order order = order();
+        byte[] data = this.codec.serialize(order);
+        long fingerprint = this.codec.getFingerprints().get(Order.class);
+        byte[] encoded = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(fingerprint).array();
+        int position = indexOf(data, encoded);
+
+        // unknown fingerprint is schema of other version of class, so it is decoded by names.
+        byte[] foreign = data.clone();
+        foreign[position] ^= 1;
+        assertOrder(order, this.codec.deserialize(Order.class, foreign));
+        assertOrder(order, this.codec.deserialize(Order.class, foreign));
+
+        // schemas of other target version have other fingerprint.
+        BinaryCodec versioned = new BinaryCodec(this.codec.getPlanCompiler(), "1.0");
+        byte[] versionedData = versioned.serialize(order);
+        assertEquals(data.length, versionedData.length);
+        assertFalse(Arrays.equals(data, versionedData));
+        assertOrder(order, this.codec.deserialize(Order.class, versionedData));
+    }
+
+    @Test
+    public void rejectsIntegersOutOfRange()
+    {
+        Wide wide = new Wide();
+        wide.value = Integer.MAX_VALUE + 1L;
+        byte[] data = this.codec.serialize(wide);
+        this.assertRejected("int", () -> this.codec.deserialize(IntValue.class, data));
+        this.assertRejected("short", () -> this.codec.deserialize(ShortValue.class, data));
+        this.assertRejected("byte", () -> this.codec.deserialize(ByteValue.class, data));
+        this.assertRejected("char", () -> this.codec.deserialize(CharValue.class, data));
+
+        wide.value = Short.MIN_VALUE - 1;
+        byte[] belowShort = this.codec.serialize(wide);
+        assertEquals(Short.MIN_VALUE - 1, this.codec.deserialize(IntValue.class, belowShort).value);
+        this.assertRejected("short", () -> this.codec.deserialize(ShortValue.class, belowShort));
+
+        wide.value = - 1;
+        byte[] negative = this.codec.serialize(wide);
+        assertEquals(- 1, this.codec.deserialize(ByteValue.class, negative).value);
+        this.assertRejected("char", () -> this.codec.deserialize(CharValue.class, negative));
+
+        wide.value = Character.MAX_VALUE;
+        byte[] maxChar = this.codec.serialize(wide);
+        assertEquals(Character.MAX_VALUE, this.codec.deserialize(CharValue.class, maxChar).value);
+        this.assertRejected("short", () -> this.codec.deserialize(ShortValue.class, maxChar));
+    }
+
+    @Test
+    public void mainNamesWinOverAlternates()
+    {
+        Wide wide = new Wide();
+        wide.value = 7;
+        Renamed renamed = this.codec.deserialize(Renamed.class, this.codec.serialize(wide));
+        assertEquals(0, renamed.current);
+        assertEquals(7, renamed.value);
+    }
+
+    @Test
+    public void roundTripsBatches()
+    {
+        Order first = order();
+        Order second = order();
+        second.orderId = "ORD-2";
+        second.history = List.of();
+        BinaryOutput out = new BinaryOutput();
+        this.codec.serializeAll(Order.class, Arrays.asList(first, null, second), out);
+        this.codec.serializeAll(Order.class, List.of(), out);
+
+        BinaryInput in = new BinaryInput(out.toByteArray());
+        List<Order> decoded = this.codec.deserializeAll(Order.class, in);
+        assertEquals(3, decoded.size());
+        assertOrder(first, decoded.get(0));
+        assertNull(decoded.get(1));
+        assertEquals("ORD-2", decoded.get(2).orderId);
+        assertTrue(decoded.get(2).history.isEmpty());
+        assertTrue(this.codec.deserializeAll(Order.class, in).isEmpty());
+        assertEquals(0, in.remaining());
+    }
+
+    @Test
+    public void rejectsTruncatedBatch()
+    {
+        BinaryOutput out = new BinaryOutput();
+        this.codec.serializeAll(Order.class, List.of(order(), order()), out);
+        byte[] data = out.toByteArray();
+        // batch without end marker must not be decoded as complete.
+        byte[] truncated = Arrays.copyOf(data, data.length - 1);
+        this.assertRejected("batch without end", () -> this.codec.deserializeAll(Order.class, new BinaryInput(truncated)));
+    }
+
+    @Test
+    public void tracksSharedAndCyclicReferences()
+    {
+        BinaryCodec codec = new BinaryCodec(new PropertyPlanCompiler(FieldProperty.PROVIDER, VersionComparator.DEFAULT), null,
+                                            InstanceFactory.DEFAULT, BufferPool.DEFAULT, true);
+        Node shared = new Node();
+        shared.name = "shared";
+        Node root = new Node();
+        root.name = "root";
+        root.next = shared;
+        root.other = shared;
+        shared.next = root;
+
+        byte[] data = codec.serialize(root);
+        Node decoded = codec.deserialize(Node.class, data);
+        assertEquals("root", decoded.name);
+        assertEquals("shared", decoded.next.name);
+        assertSame(decoded.next, decoded.other);
+        assertSame(decoded, decoded.next.next);
+
+        for (int length = 0; length < data.length; length++)
+        {
+            byte[] prefix = Arrays.copyOf(data, length);
+            this.assertRejected("prefix of " + length + " bytes", () -> codec.deserialize(Node.class, prefix));
+        }
+    }
+
+    private static PrimitiveArrays arrays()
+    {
+        PrimitiveArrays arrays = new PrimitiveArrays();
+        arrays.shorts = new short[] {Short.MIN_VALUE, - 1, 0, 1, Short.MAX_VALUE};
+        arrays.chars = "packed\u20ac".toCharArray();
+        arrays.ints = new int[1000];
+        arrays.longs = new long[] {Long.MIN_VALUE, - 1L, 0x0102_0304_0506_0708L, Long.MAX_VALUE};
+        arrays.floats = new float[] {Float.NaN, - 0.0f, 1.5f, Float.MAX_VALUE};
+        arrays.doubles = new double[] {Double.NEGATIVE_INFINITY, Math.PI, Double.MIN_VALUE};
+        for (int i = 0; i < arrays.ints.length; i++)
+        {
+            arrays.ints[i] = i * 0x0101_0101;
+        }
+        return arrays;
+    }
+
+    private static void assertArrays(PrimitiveArrays expected, PrimitiveArrays actual)
+    {
+        assertArrayEquals(expected.shorts, actual.shorts);
+        assertArrayEquals(expected.chars, actual.chars);
+        assertArrayEquals(expected.ints, actual.ints);
+        assertArrayEquals(expected.longs, actual.longs);
+        assertArrayEquals(expected.floats, actual.floats, 0);
+        assertArrayEquals(expected.doubles, actual.doubles, 0);
+    }
+
+    @Test
+    public void roundTripsPackedArraysInBothByteOrders()
+    {
+        PropertyPlanCompiler planCompiler = new PropertyPlanCompiler(FieldProperty.PROVIDER, VersionComparator.DEFAULT);
+        BinaryCodec bigEndian = new BinaryCodec(planCompiler, null, InstanceFactory.DEFAULT, BufferPool.DEFAULT, false,
+                                                ByteOrder.BIG_ENDIAN);
+        PrimitiveArrays arrays = arrays();
+        byte[] little = this.codec.serialize(arrays);
+        byte[] big = bigEndian.serialize(arrays);
+        assertFalse(Arrays.equals(little, big));
+        // order is recorded in packed kind byte, so each codec reads arrays written in any order.
+        assertArrays(arrays, this.codec.deserialize(PrimitiveArrays.class, little));
+        assertArrays(arrays, this.codec.deserialize(PrimitiveArrays.class, big));
+        assertArrays(arrays, bigEndian.deserialize(PrimitiveArrays.class, little));
+        assertArrays(arrays, bigEndian.deserialize(PrimitiveArrays.class, big));
+    }
+
+    @Test
+    public void writesPrimitiveArraysWithoutElementTags()
+    {
+        // value tag, varint header, packed kind and raw values.
+        int length = this.codec.serialize(new int[1000]).length;
+        assertTrue(length >= (1000 * 4) + 3);
+        assertTrue(length <= (1000 * 4) + 8);
+        assertArrayEquals(new long[] {1, - 2, 3}, this.codec.deserialize(long[].class, this.codec.serialize(new long[] {1, - 2, 3})));
+    }
+
+    @Test
+    public void convertsPackedArraysToOtherArrayTypes()
+    {
+        PrimitiveArrays arrays = arrays();
+        WideArrays wide = this.codec.deserialize(WideArrays.class, this.codec.serialize(arrays));
+        for (int i = 0; i < arrays.ints.length; i++)
+        {
+            assertEquals(arrays.ints[i], wide.ints[i]);
+        }
+        for (int i = 0; i < arrays.shorts.length; i++)
+        {
+            assertEquals(arrays.shorts[i], wide.shorts[i], 0);
+        }
+    }
+
+    @Test
+    public void copiesPrimitiveValuesInBulk()
+    {
+        for (ByteOrder order : new ByteOrder[] {ByteOrder.LITTLE_ENDIAN, ByteOrder.BIG_ENDIAN})
+        {
+            PrimitiveArrays arrays = arrays();
+            BinaryOutput out = new BinaryOutput(16);
+            out.writeShorts(arrays.shorts, order);
+            out.writeChars(arrays.chars, order);
+            out.writeInts(arrays.ints, 10, order);
+            out.writeLongs(arrays.longs, order);
+            out.writeFloats(arrays.floats, order);
+            out.writeDoubles(arrays.doubles, order);
+
+            BinaryInput in = new BinaryInput(out.toByteArray());
+            assertArrayEquals(arrays.shorts, in.readShorts(arrays.shorts.length, order));
+            assertArrayEquals(arrays.chars, in.readChars(arrays.chars.length, order));
+            assertArrayEquals(Arrays.copyOf(arrays.ints, 10), in.readInts(10, order));
+            assertArrayEquals(arrays.longs, in.readLongs(arrays.longs.length, order));
+            assertArrayEquals(arrays.floats, in.readFloats(arrays.floats.length, order), 0);
+            assertArrayEquals(arrays.doubles, in.readDoubles(arrays.doubles.length, order), 0);
+            assertFalse(in.hasRemaining());
+        }
+        assertEquals(0x0102_0304, new BinaryInput(new byte[] {1, 2, 3, 4}).readInts(1, ByteOrder.BIG_ENDIAN)[0]);
+        assertEquals(0x0403_0201, new BinaryInput(new byte[] {1, 2, 3, 4}).readInts(1, ByteOrder.LITTLE_ENDIAN)[0]);
+    }
+
+    @Test
+    public void rejectsPackedArraysLongerThanData()
+    {
+        this.assertRejected("ints over data", () -> new BinaryInput(new byte[7]).readInts(2, ByteOrder.LITTLE_ENDIAN));
+        this.assertRejected("negative length", () -> new BinaryInput(new byte[8]).readLongs(- 1, ByteOrder.LITTLE_ENDIAN));
+        this.assertRejected("hostile length", () -> new BinaryInput(new byte[8]).readDoubles(Integer.MAX_VALUE, ByteOrder.BIG_ENDIAN));
+        byte[] data = this.codec.serialize(arrays());
+        for (int length = 0; length < data.length; length += 7)
+        {
+            byte[] prefix = Arrays.copyOf(data, length);
+            this.assertRejected("prefix of " + length + " bytes", () -> this.codec.deserialize(PrimitiveArrays.class, prefix));
+        }
+    }
+
+    @Test
+    public void readsDeclaredSpecializedCollections()
+    {
+        Specialized specialized = new Specialized();
+        specialized.ints = IntArrayList.wrap(new int[] {Integer.MIN_VALUE, 0, Integer.MAX_VALUE});
+        specialized.longs = LongArrayList.wrap(new long[] {Long.MIN_VALUE, 1L << 40});
+        specialized.doubles = DoubleArrayList.wrap(new double[] {- 0.5, 1e300});
+        specialized.counters = new ObjectLongHashMap<>();
+        specialized.counters.putLong("a", Long.MAX_VALUE);
+        Specialized decoded = this.codec.deserialize(Specialized.class, this.codec.serialize(specialized));
+        assertEquals(specialized.ints, decoded.ints);
+        assertEquals(specialized.longs, decoded.longs);
+        assertEquals(specialized.doubles, decoded.doubles);
+        assertEquals(specialized.counters, decoded.counters);
+
+        // tagged elements, as written for list of objects, are converted to element type of declared list.
+        Boxed boxed = new Boxed();
+        boxed.ints = Arrays.asList(1, 2);
+        boxed.counters = Map.of("a", 1L);
+        decoded = this.codec.deserialize(Specialized.class, this.codec.serialize(boxed));
+        assertEquals(List.of(1, 2), decoded.ints);
+        assertEquals(IntArrayList.class, decoded.ints.getClass());
+
+        boxed.ints = Arrays.asList(1, null);
+        byte[] data = this.codec.serialize(boxed);
+        this.assertRejected("null element", () -> this.codec.deserialize(Specialized.class, data));
+    }
+
+    private static int indexOf(byte[] data, byte[] part)
+    {
+        for (int i = 0, last = data.length - part.length; i <= last; i++)
+        {
+            if (Arrays.equals(data, i, i + part.length, part, 0, part.length))
+            {
+                return i;
+            }
+        }
+        throw new AssertionError("Part not found in encoded data");
+    }
+
+    static class Address
+    {
+        String city;
+        @SerializedName(value = "zip", alternate = "postal_code")
+        String postalCode;
+    }
+
+    static class Order
+    {
+        @SerializedName("order_id")
+        String              orderId;
+        long                customerId;
+        double              total;
+        int                 quantity;
+        boolean             paid;
+        String              currency;
+        List<String>        tags;
+        Map<String, String> attributes;
+        Address             shipping;
+        List<Object>        history;
+    }
+
+    static class Node
+    {
+        String name;
+        Node   next;
+        Node   other;
+    }
+
+    static class Wide
+    {
+        long value;
+    }
+
+    static class IntValue
+    {
+        int value;
+    }
+
+    static class ShortValue
+    {
+        short value;
+    }
+
+    static class ByteValue
+    {
+        byte value;
+    }
+
+    static class CharValue
+    {
+        char value;
+    }
+
+    static class PrimitiveArrays
+    {
+        short[]  shorts;
+        char[]   chars;
+        int[]    ints;
+        long[]   longs;
+        float[]  floats;
+        double[] doubles;
+    }
+
+    static class WideArrays
+    {
+        long[]   ints;
+        double[] shorts;
+    }
+
+    static class Specialized
+    {
+        IntArrayList              ints;
+        LongArrayList             longs;
+        DoubleArrayList           doubles;
+        ObjectLongHashMap<String> counters;
+    }
+
+    static class Boxed
+    {
+        List<Object>      ints;
+        Map<String, Long> counters;
+    }
+
+    static class Renamed
+    {
+        @SerializedName(value = "current", alternate = "value")
+        int current;
+        @SerializedName(value = "value", alternate = "current")
+        int value;
+    }
+}
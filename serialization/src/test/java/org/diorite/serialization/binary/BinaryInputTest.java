@@ -0,0 +1,87 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.binary;
+
+import org.diorite.serialization.SerializationException;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BinaryInputTest
+{
+    private static final long[] VALUES = {0, 1, 127, 128, 16_383, 16_384, Integer.MAX_VALUE, 1L << 42, 1L << 55, 1L << 56, 1L << 62,
+                                          Long.MAX_VALUE, - 1};
+
+    @Test
+    public void skipsVarintsOfEveryLength()
+    {
+        for (long value : VALUES)
+        {
+            // padding and trailing bytes move varint across boundaries of eight byte words and end of data.
+            for (int padding = 0; padding < 9; padding++)
+            {
+                for (int trailing = 0; trailing < 9; trailing++)
+                {
+                    BinaryOutput out = new BinaryOutput(32);
+                    out.writeBytes(new byte[padding], 0, padding);
+                    out.writeVarLong(value);
+                    out.writeBytes(new byte[trailing], 0, trailing);
+                    byte[] data = out.toByteArray();
+
+                    BinaryInput expected = new BinaryInput(data);
+                    expected.skip(padding);
+                    assertEquals(value, expected.readVarLong());
+                    BinaryInput input = new BinaryInput(data);
+                    input.skip(padding);
+                    input.skipVarLong();
+                    assertEquals(expected.getPosition(), input.getPosition());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void rejectsMalformedVarints()
+    {
+        byte[] continuation = new byte[16];
+        Arrays.fill(continuation, (byte) 0x80);
+        for (int length = 1; length <= continuation.length; length++)
+        {
+            byte[] data = Arrays.copyOf(continuation, length);
+            try
+            {
+                new BinaryInput(data).skipVarLong();
+                fail("Expected " + length + " continuation bytes to be rejected");
+            }
+            catch (SerializationException expected)
+            {
+                // expected
+            }
+        }
+    }
+}
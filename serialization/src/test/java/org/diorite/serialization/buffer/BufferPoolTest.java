@@ -0,0 +1,140 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.buffer;
+
+import org.diorite.serialization.binary.BinaryOutput;
+import org.diorite.serialization.json.JsonByteWriter;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BufferPoolTest
+{
+    @Test
+    public void roundsSizesToSizeClasses()
+    {
+        BufferPool pool = new BufferPool(4096, 1 << 20, 1, false);
+        assertEquals(BufferPool.MIN_BUFFER_SIZE, pool.acquire(0).length);
+        assertEquals(BufferPool.MIN_BUFFER_SIZE, pool.acquire(256).length);
+        assertEquals(512, pool.acquire(257).length);
+        assertEquals(4096, pool.acquire(4000).length);
+        assertEquals(5000, pool.acquire(5000).length);
+        assertEquals(8192, new BufferPool(5000, 1 << 20, 3, false).getMaxBufferSize());
+    }
+
+    @Test
+    public void reusesReleasedBuffers()
+    {
+        BufferPool pool = new BufferPool(4096, 1 << 20, 1, false);
+        byte[] buffer = pool.acquire(300);
+        pool.release(buffer);
+        assertEquals(512, pool.getRetainedBytes());
+        assertSame(buffer, pool.acquire(400));
+        assertEquals(0, pool.getRetainedBytes());
+        assertNotSame(buffer, pool.acquire(400));
+
+        // buffers that don't match any size class are never retained.
+        pool.release(new byte[300]);
+        pool.release(new byte[100]);
+        pool.release(new byte[8192]);
+        assertEquals(0, pool.getRetainedBytes());
+    }
+
+    @Test
+    public void limitsRetainedBuffers()
+    {
+        BufferPool pool = new BufferPool(4096, 1024, 1, false);
+        pool.release(pool.acquire(1024));
+        pool.release(pool.acquire(256));
+        assertEquals(1024, pool.getRetainedBytes());
+
+        pool = new BufferPool(4096, 1 << 20, 1, false);
+        for (int i = 0; i < 20; i++)
+        {
+            pool.release(new byte[256]);
+        }
+        // each size class of stripe keeps only few buffers.
+        assertEquals(8 * 256, pool.getRetainedBytes());
+        pool.clear();
+        assertEquals(0, pool.getRetainedBytes());
+    }
+
+    @Test
+    public void detectsLeaksAndDoubleReleaseInDebugMode()
+    {
+        BufferPool pool = new BufferPool(4096, 1 << 20, 1, true);
+        assertTrue(pool.isDebug());
+        byte[] buffer = pool.acquire(256);
+        byte[] leaked = pool.acquire(1024);
+        pool.release(buffer);
+        assertEquals(1, pool.getLeaks().size());
+        try
+        {
+            pool.release(buffer);
+            fail("Expected double release to be detected");
+        }
+        catch (IllegalStateException expected)
+        {
+            // expected
+        }
+        pool.release(leaked);
+        assertTrue(pool.getLeaks().isEmpty());
+        assertTrue(new BufferPool(4096, 1 << 20, 1, false).getLeaks().isEmpty());
+    }
+
+    @Test
+    public void writersReturnBuffersToPool()
+    {
+        BufferPool pool = new BufferPool(1 << 16, 1 << 20, 1, true);
+        JsonByteWriter json = new JsonByteWriter(pool, 16);
+        for (int i = 0; i < 1000; i++)
+        {
+            json.writeInt(i);
+        }
+        BinaryOutput binary = new BinaryOutput(pool, 16);
+        for (int i = 0; i < 1000; i++)
+        {
+            binary.writeVarLong(i);
+        }
+        assertFalse(pool.getLeaks().isEmpty());
+        json.release();
+        binary.release();
+        assertTrue(pool.getLeaks().isEmpty());
+        assertTrue(pool.getRetainedBytes() > 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTooSmallMaxBufferSize()
+    {
+        new BufferPool(BufferPool.MIN_BUFFER_SIZE - 1, 1024, 1, false);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveStripes()
+    {
+        new BufferPool(4096, 1024, 0, false);
+    }
+}
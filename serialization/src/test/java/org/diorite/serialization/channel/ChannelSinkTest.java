@@ -0,0 +1,243 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.channel;
+
+import org.diorite.serialization.FieldProperty;
+import org.diorite.serialization.InstanceFactory;
+import org.diorite.serialization.binary.BinaryCodec;
+import org.diorite.serialization.buffer.BufferPool;
+import org.diorite.serialization.json.JsonCodec;
+import org.diorite.serialization.plan.PropertyPlanCompiler;
+import org.diorite.serialization.version.VersionComparator;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ChannelSinkTest
+{
+    private static final ExecutorService EXECUTOR   = Executors.newSingleThreadExecutor();
+    private static final int             CHUNK_SIZE = BufferPool.MIN_BUFFER_SIZE;
+
+    private final PropertyPlanCompiler planCompiler = new PropertyPlanCompiler(FieldProperty.PROVIDER, VersionComparator.DEFAULT);
+
+    @AfterClass
+    public static void shutdown()
+    {
+        EXECUTOR.shutdown();
+    }
+
+    private static Document document()
+    {
+        Document document = new Document();
+        document.name = "document";
+        document.values = new int[10_000];
+        for (int i = 0; i < document.values.length; i++)
+        {
+            document.values[i] = i * 31;
+        }
+        return document;
+    }
+
+    private JsonCodec json(BufferPool pool)
+    {
+        return new JsonCodec(this.planCompiler, null, InstanceFactory.DEFAULT, null, pool);
+    }
+
+    private BinaryCodec binary(BufferPool pool)
+    {
+        return new BinaryCodec(this.planCompiler, null, InstanceFactory.DEFAULT, pool);
+    }
+
+    /**
+     * Waits until encoding task submitted before this call ends.
+     */
+    private static void awaitEncoder() throws Exception
+    {
+        EXECUTOR.submit(() -> {}).get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void writesSameBytesAsCodec() throws Exception
+    {
+        BufferPool pool = new BufferPool(1 << 16, 1 << 20, 1, true);
+        Document document = document();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonCodec json = this.json(pool);
+        ChannelSink sink = ChannelSink.json(json, document, EXECUTOR, CHUNK_SIZE, 1, null);
+        long written = sink.writeFully(Channels.newChannel(out));
+        assertTrue(sink.isFinished());
+        assertEquals(out.size(), written);
+        assertArrayEquals(json.serialize(document), out.toByteArray());
+
+        out.reset();
+        BinaryCodec binary = this.binary(pool);
+        sink = ChannelSink.binary(binary, document, EXECUTOR, CHUNK_SIZE, 1, null);
+        assertEquals(binary.serialize(document).length, sink.writeFully(Channels.newChannel(out)));
+        assertArrayEquals(binary.serialize(document), out.toByteArray());
+
+        awaitEncoder();
+        assertEquals(Collections.emptyList(), pool.getLeaks());
+    }
+
+    @Test
+    public void writesToNonBlockingChannel() throws Exception
+    {
+        JsonCodec codec = this.json(BufferPool.DEFAULT);
+        Document document = document();
+        LimitedChannel channel = new LimitedChannel();
+        ChannelSink sink = ChannelSink.json(codec, document, EXECUTOR, CHUNK_SIZE, 2, null);
+        while (! sink.writeTo(channel))
+        {
+            Thread.yield();
+        }
+        assertArrayEquals(codec.serialize(document), channel.out.toByteArray());
+        assertEquals(channel.out.size(), sink.getWritten());
+    }
+
+    @Test
+    public void writesToFileChannel() throws Exception
+    {
+        BinaryCodec codec = this.binary(BufferPool.DEFAULT);
+        Document document = document();
+        Path file = Files.createTempFile("sink", ".bin");
+        try (AsynchronousFileChannel channel = AsynchronousFileChannel.open(file, StandardOpenOption.WRITE))
+        {
+            ChannelSink sink = ChannelSink.binary(codec, document, EXECUTOR, CHUNK_SIZE, 1, null);
+            long written = sink.writeTo(channel, 0, ForkJoinPool.commonPool()).get(10, TimeUnit.SECONDS);
+            assertEquals(Files.size(file), written);
+        }
+        try
+        {
+            assertArrayEquals(codec.serialize(document), Files.readAllBytes(file));
+        }
+        finally
+        {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void releasesEachChunkOnceWhenCancelledConcurrently() throws Exception
+    {
+        Document document = document();
+        for (int i = 0; i < 500; i++)
+        {
+            // single stripe, so buffer released twice would be returned twice by pool.
+            BufferPool pool = new BufferPool(1 << 16, 1 << 20, 1, false);
+            ChannelSink sink = ChannelSink.json(this.json(pool), document, EXECUTOR, CHUNK_SIZE, 1, null);
+            LimitedChannel channel = new LimitedChannel();
+            for (int j = i % 4; j > 0; j--)
+            {
+                sink.writeTo(channel);
+            }
+            sink.cancel();
+            awaitEncoder();
+
+            Set<byte[]> buffers = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (int j = 0; j < 8; j++)
+            {
+                assertTrue("Buffer was released twice", buffers.add(pool.acquire(CHUNK_SIZE)));
+            }
+        }
+    }
+
+    @Test
+    public void releasesAllChunksWhenCancelled() throws Exception
+    {
+        Document document = document();
+        for (int i = 0; i < 200; i++)
+        {
+            BufferPool pool = new BufferPool(1 << 16, 1 << 20, 1, true);
+            ChannelSink sink = ChannelSink.binary(this.binary(pool), document, EXECUTOR, CHUNK_SIZE, 1, null);
+            if ((i % 2) == 0)
+            {
+                sink.writeTo(new LimitedChannel());
+            }
+            sink.cancel();
+            awaitEncoder();
+            assertEquals(Collections.emptyList(), pool.getLeaks());
+        }
+    }
+
+    public static class Document
+    {
+        String name;
+        int[]  values;
+    }
+
+    /**
+     * Non-blocking channel that accepts at most 100 bytes per write, and nothing on every third write.
+     */
+    private static final class LimitedChannel implements WritableByteChannel
+    {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private       int                   writes;
+
+        @Override
+        public int write(ByteBuffer source)
+        {
+            if ((++ this.writes % 3) == 0)
+            {
+                return 0;
+            }
+            int count = Math.min(100, source.remaining());
+            for (int i = 0; i < count; i++)
+            {
+                this.out.write(source.get());
+            }
+            return count;
+        }
+
+        @Override
+        public boolean isOpen()
+        {
+            return true;
+        }
+
+        @Override
+        public void close()
+        {
+        }
+    }
+}
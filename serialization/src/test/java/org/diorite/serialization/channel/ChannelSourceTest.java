@@ -0,0 +1,138 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.channel;
+
+import org.diorite.serialization.FieldProperty;
+import org.diorite.serialization.SerializationException;
+import org.diorite.serialization.binary.BinaryCodec;
+import org.diorite.serialization.buffer.BufferPool;
+import org.diorite.serialization.json.JsonCodec;
+import org.diorite.serialization.plan.PropertyPlanCompiler;
+import org.diorite.serialization.version.VersionComparator;
+
+import java.io.ByteArrayInputStream;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ChannelSourceTest
+{
+    private final PropertyPlanCompiler planCompiler = new PropertyPlanCompiler(FieldProperty.PROVIDER, VersionComparator.DEFAULT);
+
+    private static ReadableByteChannel channel(byte[] data)
+    {
+        return Channels.newChannel(new ByteArrayInputStream(data));
+    }
+
+    private static ChannelSinkTest.Document document()
+    {
+        ChannelSinkTest.Document document = new ChannelSinkTest.Document();
+        document.name = "document";
+        document.values = new int[5000];
+        for (int i = 0; i < document.values.length; i++)
+        {
+            document.values[i] = - i;
+        }
+        return document;
+    }
+
+    @Test
+    public void collectsWholeStream() throws Exception
+    {
+        BufferPool pool = new BufferPool(1 << 20, 1 << 20, 1, true);
+        JsonCodec codec = new JsonCodec(this.planCompiler);
+        byte[] data = codec.serialize(document());
+        assertTrue(data.length > 8192);
+
+        ChannelSource source = new ChannelSource(pool, ChannelSource.DEFAULT_MAX_LENGTH).readFully(channel(data));
+        assertTrue(source.isFinished());
+        assertEquals(data.length, source.size());
+        assertArrayEquals(data, Arrays.copyOf(source.getBuffer(), source.size()));
+        ChannelSinkTest.Document read = codec.deserialize(ChannelSinkTest.Document.class, source.toJsonReader());
+        assertArrayEquals(document().values, read.values);
+        source.release();
+        assertEquals(0, source.size());
+        assertEquals(Collections.emptyList(), pool.getLeaks());
+    }
+
+    @Test
+    public void acceptsDataOfExactlyMaxLength() throws Exception
+    {
+        ChannelSource source = new ChannelSource(BufferPool.DEFAULT, 10).readFully(channel(new byte[10]));
+        assertEquals(10, source.size());
+        source.release();
+    }
+
+    @Test(expected = SerializationException.class)
+    public void rejectsDataOverMaxLength() throws Exception
+    {
+        new ChannelSource(BufferPool.DEFAULT, 10).readFully(channel(new byte[11]));
+    }
+
+    @Test
+    public void readsFileChannel() throws Exception
+    {
+        BinaryCodec codec = new BinaryCodec(this.planCompiler);
+        byte[] data = codec.serialize(document());
+        Path file = Files.createTempFile("source", ".bin");
+        try
+        {
+            Files.write(file, data);
+            try (AsynchronousFileChannel channel = AsynchronousFileChannel.open(file, StandardOpenOption.READ))
+            {
+                ChannelSource source = new ChannelSource().readFrom(channel, 0).get(10, TimeUnit.SECONDS);
+                assertEquals(data.length, source.size());
+                ChannelSinkTest.Document read = codec.deserialize(ChannelSinkTest.Document.class, source.toBinaryInput());
+                assertArrayEquals(document().values, read.values);
+                source.release();
+
+                try
+                {
+                    new ChannelSource(BufferPool.DEFAULT, 100).readFrom(channel, 0).get(10, TimeUnit.SECONDS);
+                    fail("Data over limit was accepted");
+                }
+                catch (ExecutionException e)
+                {
+                    assertTrue(e.getCause() instanceof SerializationException);
+                }
+            }
+        }
+        finally
+        {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.codec;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Set;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CodecRegistryTest
+{
+    private final CodecRegistry<String> registry = new CodecRegistry<>();
+
+    @Test
+    public void emptyRegistryHasNoCodecs()
+    {
+        assertTrue(this.registry.isEmpty());
+        assertNull(this.registry.get(String.class));
+        assertNull(this.registry.newSite().get(String.class));
+        assertEquals(Set.of(), this.registry.getRegisteredTypes());
+    }
+
+    @Test
+    public void exactRegistrationIgnoresSubtypes()
+    {
+        this.registry.register(AbstractList.class, "abstract");
+        assertFalse(this.registry.isEmpty());
+        assertEquals("abstract", this.registry.get(AbstractList.class));
+        assertNull(this.registry.get(ArrayList.class));
+    }
+
+    @Test
+    public void resolvesClosestRegistration()
+    {
+        this.registry.registerHierarchy(Collection.class, "collection");
+        this.registry.registerHierarchy(List.class, "list");
+        this.registry.registerHierarchy(AbstractList.class, "abstract");
+        this.registry.registerHierarchy(RandomAccess.class, "random");
+        this.registry.register(LinkedList.class, "linked");
+
+        // exact registration wins, then superclasses, then interfaces in breadth-first order.
+        assertEquals("linked", this.registry.get(LinkedList.class));
+        assertEquals("abstract", this.registry.get(ArrayList.class));
+        assertEquals("list", this.registry.get(List.class));
+        assertEquals("collection", this.registry.get(Set.class));
+        assertNull(this.registry.get(Serializable.class));
+        assertEquals(Set.of(Collection.class, List.class, AbstractList.class, RandomAccess.class, LinkedList.class),
+                     this.registry.getRegisteredTypes());
+
+        this.registry.unregister(AbstractList.class);
+        assertEquals("list", this.registry.get(ArrayList.class));
+        this.registry.unregister(List.class);
+        assertEquals("random", this.registry.get(ArrayList.class));
+    }
+
+    @Test
+    public void changesVersionOnlyWhenRegistrationsChange()
+    {
+        int version = this.registry.getVersion();
+        this.registry.unregister(String.class);
+        assertEquals(version, this.registry.getVersion());
+        this.registry.register(String.class, "string");
+        assertNotEquals(version, this.registry.getVersion());
+        version = this.registry.getVersion();
+        this.registry.unregister(String.class);
+        assertNotEquals(version, this.registry.getVersion());
+        assertTrue(this.registry.isEmpty());
+        assertNull(this.registry.get(String.class));
+    }
+
+    @Test
+    public void sitesSeeLaterRegistrations()
+    {
+        CodecSite<String> site = this.registry.newSite();
+        assertSame(this.registry, site.getRegistry());
+        this.registry.register(Integer.class, "int");
+        assertEquals("int", site.get(Integer.class));
+        assertNull(site.get(Long.class));
+        this.registry.register(Integer.class, "other");
+        assertEquals("other", site.get(Integer.class));
+        this.registry.register(Long.class, "long");
+        assertEquals("long", site.get(Long.class));
+        this.registry.unregister(Integer.class);
+        assertNull(site.get(Integer.class));
+    }
+
+    @Test
+    public void sitesStopCachingWhenMegamorphic()
+    {
+        this.registry.register(Integer.class, "int");
+        CodecSite<String> site = this.registry.newSite();
+        Class<?>[] types = {Integer.class, Long.class, Short.class};
+        for (int i = 0; i < CodecSite.MEGAMORPHIC_THRESHOLD; i++)
+        {
+            assertFalse(site.isMegamorphic());
+            site.get(types[i % types.length]);
+        }
+        assertTrue(site.isMegamorphic());
+        // lookups are still correct without cache.
+        assertEquals("int", site.get(Integer.class));
+        assertNull(site.get(Long.class));
+        this.registry.register(Long.class, "long");
+        assertEquals("long", site.get(Long.class));
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.collection;
+
+import org.diorite.serialization.InstanceFactory;
+import org.diorite.serialization.SerializationException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PrimitiveCollectionsTest
+{
+    private static final long SEED = 0x5EED_2017L;
+
+    @Test
+    public void listsBehaveLikeArrayList()
+    {
+        Random random = new Random(SEED);
+        IntArrayList ints = new IntArrayList(1);
+        LongArrayList longs = new LongArrayList(1);
+        DoubleArrayList doubles = new DoubleArrayList(1);
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++)
+        {
+            int value = random.nextInt();
+            int operation = random.nextInt(4);
+            if ((operation == 0) && ! expected.isEmpty())
+            {
+                int index = random.nextInt(expected.size());
+                int removed = expected.remove(index);
+                assertEquals(removed, ints.removeInt(index));
+                assertEquals(removed, longs.removeLong(index));
+                assertEquals(removed, doubles.removeDouble(index), 0);
+            }
+            else if ((operation == 1) && ! expected.isEmpty())
+            {
+                int index = random.nextInt(expected.size());
+                int previous = expected.set(index, value);
+                assertEquals(previous, ints.setInt(index, value));
+                assertEquals(previous, longs.setLong(index, value));
+                assertEquals(previous, doubles.setDouble(index, value), 0);
+            }
+            else if (operation == 2)
+            {
+                int index = random.nextInt(expected.size() + 1);
+                expected.add(index, value);
+                ints.addInt(index, value);
+                longs.addLong(index, value);
+                doubles.addDouble(index, value);
+            }
+            else
+            {
+                expected.add(value);
+                ints.addInt(value);
+                longs.addLong(value);
+                doubles.addDouble(value);
+            }
+        }
+        assertEquals(expected, ints);
+        assertEquals(expected.size(), longs.size());
+        for (int i = 0; i < expected.size(); i++)
+        {
+            assertEquals((long) expected.get(i), longs.getLong(i));
+            assertEquals(expected.get(i), doubles.getDouble(i), 0);
+        }
+        assertEquals(expected.size(), ints.toIntArray().length);
+    }
+
+    @Test
+    public void wrapsArraysWithoutCopy()
+    {
+        int[] ints = {1, 2, 3};
+        IntArrayList list = IntArrayList.wrap(ints);
+        assertSame(ints, list.elements());
+        assertEquals(List.of(1, 2, 3), list);
+        assertEquals(List.of(4L), LongArrayList.wrap(new long[] {4}));
+        assertEquals(List.of(0.5), DoubleArrayList.wrap(new double[] {0.5}));
+        list.addInt(4);
+        assertEquals(List.of(1, 2, 3, 4), list);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rejectsIndexOutOfSize()
+    {
+        IntArrayList list = new IntArrayList(10);
+        list.addInt(1);
+        list.getInt(1);
+    }
+
+    @Test
+    public void longMapBehavesLikeHashMap()
+    {
+        Random random = new Random(SEED);
+        ObjectLongHashMap<Integer> map = new ObjectLongHashMap<>(2);
+        Map<Integer, Long> expected = new HashMap<>();
+        for (int i = 0; i < 20_000; i++)
+        {
+            // small key range, so removals shift colliding entries.
+            Integer key = random.nextInt(500);
+            if (random.nextInt(3) == 0)
+            {
+                assertEquals(expected.remove(key), map.remove(key));
+            }
+            else
+            {
+                long value = random.nextLong();
+                expected.put(key, value);
+                map.putLong(key, value);
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        assertEquals(expected, map);
+        for (int key = 0; key < 500; key++)
+        {
+            assertEquals(expected.containsKey(key), map.containsKey(key));
+            assertEquals(expected.getOrDefault(key, - 1L).longValue(), map.getLong(key, - 1L));
+        }
+        Map<Integer, Long> visited = new HashMap<>();
+        map.forEachLong(visited::put);
+        assertEquals(expected, visited);
+        assertFalse(map.containsKey(null));
+        assertNull(map.remove(null));
+    }
+
+    @Test
+    public void createsDeclaredSpecializedTypesWithoutSettings()
+    {
+        assertTrue(PrimitiveCollections.createList(IntArrayList.class, null) instanceof IntArrayList);
+        assertTrue(PrimitiveCollections.createList(LongArrayList.class, null) instanceof LongArrayList);
+        assertTrue(PrimitiveCollections.createList(DoubleArrayList.class, null) instanceof DoubleArrayList);
+        assertNotNull(PrimitiveCollections.createMap(ObjectLongHashMap.class, null));
+        // element type of interface is unknown without settings.
+        assertNull(PrimitiveCollections.createList(List.class, null));
+        assertNull(PrimitiveCollections.createList(Collection.class, null));
+        assertNull(PrimitiveCollections.createMap(Map.class, null));
+        assertNull(PrimitiveCollections.createList(ArrayList.class, null));
+
+        assertTrue(PrimitiveCollections.canWrap(IntArrayList.class, null, new int[0]));
+        assertFalse(PrimitiveCollections.canWrap(IntArrayList.class, null, new long[0]));
+        assertEquals(Long.class, PrimitiveCollections.elementType(new LongArrayList()));
+    }
+
+    @Test
+    public void copiesToBoxedCollections()
+    {
+        Collection<Object> boxed = PrimitiveCollections.toBoxed(IntArrayList.wrap(new int[] {1, 2}), List.class, InstanceFactory.DEFAULT);
+        boxed.add(null);
+        assertEquals(Arrays.asList(1, 2, null), boxed);
+
+        ObjectLongHashMap<String> longMap = new ObjectLongHashMap<>();
+        longMap.putLong("a", 1);
+        Map<Object, Object> boxedMap = PrimitiveCollections.toBoxed(longMap, Map.class, InstanceFactory.DEFAULT);
+        boxedMap.put("b", null);
+        assertEquals(1L, boxedMap.get("a"));
+        assertTrue(boxedMap.containsKey("b"));
+    }
+
+    @Test(expected = SerializationException.class)
+    public void rejectsNullsInDeclaredSpecializedList()
+    {
+        PrimitiveCollections.toBoxed(new IntArrayList(), IntArrayList.class, InstanceFactory.DEFAULT);
+    }
+
+    @Test(expected = SerializationException.class)
+    public void rejectsNullsInDeclaredSpecializedMap()
+    {
+        PrimitiveCollections.toBoxed(new ObjectLongHashMap<>(), ObjectLongHashMap.class, InstanceFactory.DEFAULT);
+    }
+}
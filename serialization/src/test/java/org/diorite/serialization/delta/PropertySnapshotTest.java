@@ -0,0 +1,192 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.delta;
+
+import org.diorite.serialization.FieldProperty;
+import org.diorite.serialization.binary.BinaryCodec;
+import org.diorite.serialization.binary.BinaryInput;
+import org.diorite.serialization.binary.BinaryOutput;
+import org.diorite.serialization.json.JsonByteReader;
+import org.diorite.serialization.json.JsonByteWriter;
+import org.diorite.serialization.json.JsonCodec;
+import org.diorite.serialization.plan.PlanDirection;
+import org.diorite.serialization.plan.PropertyPlan;
+import org.diorite.serialization.plan.PropertyPlanCompiler;
+import org.diorite.serialization.version.VersionComparator;
+
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PropertySnapshotTest
+{
+    private final PropertyPlanCompiler planCompiler = new PropertyPlanCompiler(FieldProperty.PROVIDER, VersionComparator.DEFAULT);
+    private final JsonCodec            json         = new JsonCodec(this.planCompiler);
+    private final BinaryCodec          binary       = new BinaryCodec(this.planCompiler);
+
+    private static Player player()
+    {
+        Player player = new Player();
+        player.name = "steve";
+        player.level = 3;
+        player.scores = new int[]{1, 2};
+        return player;
+    }
+
+    private String jsonDelta(Player player, PropertySnapshot<Player> snapshot)
+    {
+        JsonByteWriter writer = new JsonByteWriter();
+        this.json.writeDelta(writer, player, snapshot);
+        return new String(writer.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void tracksChangedValues()
+    {
+        PropertyPlan<Player> plan = this.planCompiler.getPlan(Player.class, PlanDirection.SERIALIZE, null);
+        Player player = player();
+        PropertySnapshot<Player> snapshot = PropertySnapshot.capture(plan, player);
+        assertSame(plan, snapshot.getPlan());
+        int scores = plan.indexOf("scores");
+
+        // arrays are copied, so changes of captured array are detected.
+        player.scores[0] = 5;
+        assertTrue(snapshot.update(scores, player.scores));
+        assertFalse(snapshot.update(scores, player.scores.clone()));
+        assertNotSame(player.scores, snapshot.getValue(scores));
+        assertFalse(snapshot.update(plan.indexOf("name"), "steve"));
+        assertTrue(snapshot.update(plan.indexOf("name"), null));
+        assertNull(snapshot.getValue(plan.indexOf("name")));
+
+        player.level = 9;
+        snapshot.update(player);
+        assertEquals(9, snapshot.getValue(plan.indexOf("level")));
+    }
+
+    @Test
+    public void writesOnlyChangedPropertiesToJson()
+    {
+        Player player = player();
+        PropertySnapshot<Player> snapshot = this.json.snapshot(player);
+        assertEquals("{}", this.jsonDelta(player, snapshot));
+
+        player.level = 4;
+        player.name = null;
+        assertEquals("{\"name\":null,\"level\":4}", this.jsonDelta(player, snapshot));
+        // snapshot is updated by written delta.
+        assertEquals("{}", this.jsonDelta(player, snapshot));
+
+        Player target = player();
+        player.scores[1] = 7;
+        this.json.applyDelta(new JsonByteReader(this.jsonDelta(player, snapshot).getBytes(StandardCharsets.UTF_8)), target);
+        assertArrayEquals(new int[]{1, 7}, target.scores);
+        assertEquals("steve", target.name);
+    }
+
+    @Test
+    public void writesOnlyChangedPropertiesToBinary()
+    {
+        Player player = player();
+        PropertySnapshot<Player> snapshot = this.binary.snapshot(player);
+        player.level = 10;
+        player.name = null;
+        BinaryOutput out = new BinaryOutput();
+        this.binary.writeDelta(out, player, snapshot);
+
+        Player target = player();
+        target.scores = new int[]{8};
+        this.binary.applyDelta(new BinaryInput(out.toByteArray()), target);
+        assertEquals(10, target.level);
+        assertNull(target.name);
+        assertArrayEquals(new int[]{8}, target.scores);
+    }
+
+    @Test
+    public void writesDirtyProperties()
+    {
+        DirtyPlayer player = new DirtyPlayer();
+        player.setName("alex");
+        JsonByteWriter writer = new JsonByteWriter();
+        this.json.writeDirty(writer, player);
+        assertEquals("{\"name\":\"alex\"}", new String(writer.toByteArray(), StandardCharsets.UTF_8));
+        assertTrue(player.getDirtyProperties().isEmpty());
+
+        player.setLevel(2);
+        player.setName(null);
+        BinaryOutput out = new BinaryOutput();
+        this.binary.writeDirty(out, player);
+        assertTrue(player.getDirtyProperties().isEmpty());
+        DirtyPlayer target = new DirtyPlayer();
+        target.name = "old";
+        this.binary.applyDelta(new BinaryInput(out.toByteArray()), target);
+        assertEquals(2, target.level);
+        assertNull(target.name);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsSnapshotOfOtherCodec()
+    {
+        Player player = player();
+        PropertySnapshot<Player> snapshot = new JsonCodec(new PropertyPlanCompiler(FieldProperty.PROVIDER, VersionComparator.DEFAULT))
+            .snapshot(player);
+        this.json.writeDelta(new JsonByteWriter(), player, snapshot);
+    }
+
+    static class Player
+    {
+        String name;
+        int    level;
+        int[]  scores;
+    }
+
+    static class DirtyPlayer implements DirtyTracked
+    {
+        String name;
+        int    level;
+
+        private final transient BitSet dirty = new BitSet();
+
+        void setName(String name)
+        {
+            this.name = name;
+            this.dirty.set(0);
+        }
+
+        void setLevel(int level)
+        {
+            this.level = level;
+            this.dirty.set(1);
+        }
+
+        @Override
+        public BitSet getDirtyProperties()
+        {
+            return this.dirty;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.gson;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import org.diorite.serialization.FieldProperty;
+import org.diorite.serialization.annotations.SerializedName;
+import org.diorite.serialization.plan.PropertyPlanCompiler;
+import org.diorite.serialization.version.VersionComparator;
+
+import java.lang.reflect.Type;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PlanTypeAdapterFactoryTest
+{
+    private final PropertyPlanCompiler planCompiler = new PropertyPlanCompiler(FieldProperty.PROVIDER, VersionComparator.DEFAULT);
+    private final Gson                 gson         =
+        new GsonBuilder().registerTypeAdapterFactory(new PlanTypeAdapterFactory(this.planCompiler)).create();
+
+    @Test
+    public void resolvesTypeVariablesOfProperties()
+    {
+        Type type = new TypeToken<Box<Integer>>() {}.getType();
+        Box<Integer> box = this.gson.fromJson("{\"value\":1}", type);
+        // integer adapter is used instead of adapter of objects, that would read number as double.
+        assertEquals(Integer.valueOf(1), box.value);
+        assertEquals("{\"value\":1}", this.gson.toJson(box, type));
+
+        Box<String> text = this.gson.fromJson("{\"value\":\"text\"}", new TypeToken<Box<String>>() {}.getType());
+        assertEquals("text", text.value);
+
+        Holder holder = this.gson.fromJson("{\"boxes\":{\"value\":[1,2]}}", Holder.class);
+        assertEquals(List.of(1L, 2L), holder.boxes.value);
+    }
+
+    @Test
+    public void usesRawTypeOfUnresolvedVariables()
+    {
+        Box<?> box = this.gson.fromJson("{\"value\":1}", Box.class);
+        assertEquals(1.0, box.value);
+    }
+
+    @Test
+    public void readsAlternateNamesAndSkipsUnknownProperties()
+    {
+        Renamed renamed = this.gson.fromJson("{\"unknown\":{\"a\":[1]},\"old\":5,\"other\":\"x\"}", Renamed.class);
+        assertEquals(5, renamed.current);
+        assertEquals("x", renamed.other);
+        assertEquals("{\"current\":5,\"other\":\"x\"}", this.gson.toJson(renamed));
+
+        renamed = this.gson.fromJson("{\"current\":null}", Renamed.class);
+        assertEquals(0, renamed.current);
+        assertEquals("{\"current\":0}", this.gson.toJson(renamed));
+        Gson nulls = new GsonBuilder().serializeNulls().registerTypeAdapterFactory(new PlanTypeAdapterFactory(this.planCompiler)).create();
+        assertEquals("{\"current\":0,\"other\":null}", nulls.toJson(renamed));
+    }
+
+    static class Box<T>
+    {
+        T value;
+    }
+
+    static class Holder
+    {
+        Box<List<Long>> boxes;
+    }
+
+    static class Renamed
+    {
+        @SerializedName(value = "current", alternate = "old")
+        int    current;
+        String other;
+    }
+}
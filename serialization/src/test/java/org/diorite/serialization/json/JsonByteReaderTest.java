@@ -0,0 +1,114 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.json;
+
+import org.diorite.serialization.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class JsonByteReaderTest
+{
+    private static final String[] VALUES = {
+        "\"\"",
+        "\"plain text longer than single word\"",
+        "\"escaped \\\" quote\"",
+        "\"escaped backslash \\\\\"",
+        "\"\\\\\\\"\\\\\"",
+        "\"brackets ] } [ { in string\"",
+        "\"unicode \\u0022 €\"",
+        "{}",
+        "[]",
+        "{\"a\":[1,2,{\"b\":\"]}\\\"\"}],\"c\":{\"d\":[[],[[]]]}}",
+        "[\"}\",\"]\",\"\\\\\",{\"\\\"\":null}]",
+        "12345678901234567890",
+        "-1.5e10",
+        "true",
+        "null",
+    };
+
+    private static JsonByteReader reader(String json)
+    {
+        return new JsonByteReader(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void skipsValuesAtEveryAlignment()
+    {
+        for (String value : VALUES)
+        {
+            // padding moves value across boundaries of eight byte words.
+            for (int padding = 0; padding < 16; padding++)
+            {
+                String json = "[" + " ".repeat(padding) + value + ",42]";
+                JsonByteReader reader = reader(json);
+                reader.beginArray();
+                reader.skipValue();
+                assertTrue(json, reader.hasNext());
+                assertEquals(json, 42, reader.nextInt());
+                reader.endArray();
+                reader.endDocument();
+            }
+        }
+    }
+
+    @Test
+    public void skipsValuesEndingAtLimit()
+    {
+        for (String value : VALUES)
+        {
+            for (int padding = 0; padding < 16; padding++)
+            {
+                JsonByteReader reader = reader(" ".repeat(padding) + value);
+                reader.skipValue();
+                reader.endDocument();
+            }
+        }
+    }
+
+    @Test
+    public void rejectsUnterminatedValues()
+    {
+        String[] unterminated = {"\"text", "\"escaped \\\"", "\"ends with backslash \\", "{\"a\":[1,2]", "[[\"]\"]", "{\"a\":\"}\""};
+        for (String value : unterminated)
+        {
+            for (int padding = 0; padding < 16; padding++)
+            {
+                try
+                {
+                    reader(" ".repeat(padding) + value).skipValue();
+                    fail("Expected " + value + " to be rejected");
+                }
+                catch (SerializationException expected)
+                {
+                    // expected
+                }
+            }
+        }
+    }
+}
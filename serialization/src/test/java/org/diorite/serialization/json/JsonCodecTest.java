@@ -0,0 +1,392 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.json;
+
+import org.diorite.serialization.FieldProperty;
+import org.diorite.serialization.InstanceFactory;
+import org.diorite.serialization.SerializationException;
+import org.diorite.serialization.annotations.SerializedName;
+import org.diorite.serialization.buffer.BufferPool;
+import org.diorite.serialization.collection.DoubleArrayList;
+import org.diorite.serialization.collection.IntArrayList;
+import org.diorite.serialization.collection.LongArrayList;
+import org.diorite.serialization.collection.ObjectLongHashMap;
+import org.diorite.serialization.plan.PropertyPlanCompiler;
+import org.diorite.serialization.version.VersionComparator;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class JsonCodecTest
+{
+    private final JsonCodec codec = new JsonCodec(new PropertyPlanCompiler(FieldProperty.PROVIDER, VersionComparator.DEFAULT));
+
+    private static byte[] json(String json)
+    {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void assertRejected(Class<?> type, String json)
+    {
+        try
+        {
+            this.codec.deserialize(type, json(json));
+            fail("Expected " + json + " to be rejected");
+        }
+        catch (SerializationException expected)
+        {
+            // expected
+        }
+    }
+
+    @Test
+    public void roundTripsAllValueTypes()
+    {
+        Values values = new Values();
+        values.i = - 42;
+        values.l = Long.MIN_VALUE;
+        values.d = 0.125;
+        values.f = 1.5f;
+        values.s = Short.MAX_VALUE;
+        values.b = Byte.MIN_VALUE;
+        values.c = 'ż';
+        values.bool = true;
+        values.string = "a \"quoted\"\n\u0001 ąę";
+        values.mode = Mode.SECOND;
+        values.ints = new int[]{1, - 2, 3};
+        values.strings = new String[]{"x", null};
+        values.child = new Child();
+        values.child.name = "child";
+
+        Values copy = this.codec.deserialize(Values.class, this.codec.serialize(values));
+        assertNotNull(copy);
+        assertEquals(values.i, copy.i);
+        assertEquals(values.l, copy.l);
+        assertEquals(values.d, copy.d, 0);
+        assertEquals(values.f, copy.f, 0);
+        assertEquals(values.s, copy.s);
+        assertEquals(values.b, copy.b);
+        assertEquals(values.c, copy.c);
+        assertTrue(copy.bool);
+        assertEquals(values.string, copy.string);
+        assertSame(Mode.SECOND, copy.mode);
+        assertArrayEquals(values.ints, copy.ints);
+        assertArrayEquals(values.strings, copy.strings);
+        assertEquals("child", copy.child.name);
+    }
+
+    @Test
+    public void readsWhitespaceAndBuffers()
+    {
+        Child child = this.codec.deserialize(Child.class, json(" \n{ \"name\" : \"a\" , \"unknown\" : [1, {\"x\": null}] }\t\r\n"));
+        assertEquals("a", child.name);
+
+        ByteBuffer buffer = ByteBuffer.allocate(32);
+        buffer.put(json("xx{\"name\":\"b\"}"));
+        buffer.flip().position(2);
+        assertEquals("b", this.codec.deserialize(Child.class, buffer).name);
+        assertEquals(2, buffer.position());
+    }
+
+    @Test
+    public void rejectsTrailingData()
+    {
+        this.assertRejected(Child.class, "{\"name\":\"a\"} {}");
+        this.assertRejected(Child.class, "{\"name\":\"a\"}x");
+        this.assertRejected(int.class, "1 2");
+        try
+        {
+            this.codec.deserialize(Child.class, ByteBuffer.wrap(json("{} ,")));
+            fail("Expected trailing data to be rejected");
+        }
+        catch (SerializationException expected)
+        {
+            // expected
+        }
+    }
+
+    @Test
+    public void rejectsMisplacedCommas()
+    {
+        this.assertRejected(int[].class, "[,1]");
+        this.assertRejected(int[].class, "[1,]");
+        this.assertRejected(int[].class, "[1,,2]");
+        this.assertRejected(int[].class, "[1 2]");
+        this.assertRejected(Child.class, "{,\"name\":\"a\"}");
+        this.assertRejected(Child.class, "{\"name\":\"a\",}");
+        this.assertRejected(Child.class, "{\"name\":\"a\" \"other\":1}");
+        assertArrayEquals(new int[]{1, 2}, this.codec.deserialize(int[].class, json("[ 1 , 2 ]")));
+        assertArrayEquals(new int[0], this.codec.deserialize(int[].class, json("[ ]")));
+    }
+
+    @Test
+    public void rejectsNumbersOutOfRange()
+    {
+        this.assertRejected(Values.class, "{\"s\":32768}");
+        this.assertRejected(Values.class, "{\"s\":-32769}");
+        this.assertRejected(Values.class, "{\"b\":128}");
+        this.assertRejected(Values.class, "{\"b\":-129}");
+        this.assertRejected(Values.class, "{\"i\":2147483648}");
+        this.assertRejected(Values.class, "{\"l\":9223372036854775808}");
+        this.assertRejected(Values.class, "{\"l\":-99999999999999999999}");
+        this.assertRejected(Values.class, "{\"i\":1.5}");
+
+        Values values = this.codec.deserialize(Values.class, json("{\"s\":-32768,\"b\":127,\"l\":9223372036854775807,\"i\":2e3}"));
+        assertEquals(Short.MIN_VALUE, values.s);
+        assertEquals(Byte.MAX_VALUE, values.b);
+        assertEquals(Long.MAX_VALUE, values.l);
+        assertEquals(2000, values.i);
+    }
+
+    @Test
+    public void mainNamesWinOverAlternates()
+    {
+        Names names = this.codec.deserialize(Names.class, json("{\"first\":1,\"second\":2}"));
+        assertEquals(1, names.first);
+        assertEquals(2, names.second);
+
+        names = this.codec.deserialize(Names.class, json("{\"old\":4,\"legacy\":5}"));
+        assertEquals(4, names.first);
+        assertEquals(5, names.second);
+    }
+
+    private static Child child(String name)
+    {
+        Child child = new Child();
+        child.name = name;
+        return child;
+    }
+
+    private static List<String> names(List<? extends Child> children)
+    {
+        List<String> names = new ArrayList<>(children.size());
+        for (Child child : children)
+        {
+            names.add((child == null) ? null : child.name);
+        }
+        return names;
+    }
+
+    @Test
+    public void roundTripsBatches()
+    {
+        List<Child> children = Arrays.asList(child("a"), null, child("b"), new SpecialChild());
+        JsonByteWriter writer = new JsonByteWriter();
+        this.codec.serializeAll(Child.class, children, writer);
+        assertEquals("[{\"name\":\"a\"},null,{\"name\":\"b\"},{\"extra\":1}]", new String(writer.toByteArray(), StandardCharsets.UTF_8));
+
+        List<Child> decoded = this.codec.deserializeAll(Child.class, new JsonByteReader(writer.toByteArray()));
+        assertEquals(Arrays.asList("a", null, "b", null), names(decoded));
+        assertSame(Child.class, decoded.get(3).getClass());
+        assertTrue(this.codec.deserializeAll(Child.class, new JsonByteReader(json("[]"))).isEmpty());
+    }
+
+    @Test
+    public void roundTripsColumnarBatches()
+    {
+        List<Values> rows = new ArrayList<>();
+        for (int i = 0; i < 3; i++)
+        {
+            Values values = new Values();
+            values.i = i;
+            values.string = (i == 1) ? null : ("s" + i);
+            values.child = child("c" + i);
+            rows.add(values);
+        }
+        rows.add(null);
+        JsonByteWriter writer = new JsonByteWriter();
+        this.codec.serializeAllColumnar(Values.class, rows, writer);
+
+        List<Values> decoded = new ArrayList<>();
+        this.codec.deserializeAllColumnar(Values.class, new JsonByteReader(writer.toByteArray()), decoded::add);
+        assertEquals(4, decoded.size());
+        for (int i = 0; i < 3; i++)
+        {
+            assertEquals(i, decoded.get(i).i);
+            assertEquals(rows.get(i).string, decoded.get(i).string);
+            assertEquals("c" + i, decoded.get(i).child.name);
+        }
+        assertNull(decoded.get(3));
+    }
+
+    @Test
+    public void readsColumnsInAnyOrder()
+    {
+        List<Values> decoded = new ArrayList<>();
+        byte[] data = json("{\"columns\":[\"string\",\"unknown\",\"i\"],\"rows\":[[\"x\",[1,{}],5],[null,null,6]],\"extra\":true}");
+        this.codec.deserializeAllColumnar(Values.class, new JsonByteReader(data), decoded::add);
+        assertEquals(2, decoded.size());
+        assertEquals("x", decoded.get(0).string);
+        assertEquals(5, decoded.get(0).i);
+        assertNull(decoded.get(1).string);
+        assertEquals(6, decoded.get(1).i);
+    }
+
+    @Test
+    public void rejectsInvalidColumnarBatches()
+    {
+        try
+        {
+            this.codec.deserializeAllColumnar(Values.class, new JsonByteReader(json("{\"rows\":[],\"columns\":[]}")), value -> {});
+            fail("Expected rows before columns to be rejected");
+        }
+        catch (SerializationException expected)
+        {
+            // expected
+        }
+        try
+        {
+            this.codec.serializeAllColumnar(Child.class, List.of(new SpecialChild()), new JsonByteWriter());
+            fail("Expected subtype to be rejected");
+        }
+        catch (IllegalArgumentException expected)
+        {
+            // expected
+        }
+    }
+
+    @Test
+    public void tracksSharedAndCyclicReferences()
+    {
+        JsonCodec codec = new JsonCodec(this.codec.getPlanCompiler(), null, InstanceFactory.DEFAULT, null, BufferPool.DEFAULT, true);
+        Node shared = new Node();
+        shared.name = "shared";
+        Node root = new Node();
+        root.name = "root";
+        root.next = shared;
+        root.other = shared;
+        shared.next = root;
+
+        byte[] data = codec.serialize(root);
+        assertEquals("{\"@id\":0,\"name\":\"root\",\"next\":{\"@id\":1,\"name\":\"shared\",\"next\":{\"@ref\":0}},\"other\":{\"@ref\":1}}",
+                     new String(data, StandardCharsets.UTF_8));
+        Node decoded = codec.deserialize(Node.class, data);
+        assertEquals("root", decoded.name);
+        assertEquals("shared", decoded.next.name);
+        assertSame(decoded.next, decoded.other);
+        assertSame(decoded, decoded.next.next);
+
+        try
+        {
+            codec.deserialize(Node.class, json("{\"@id\":0,\"next\":{\"@ref\":5}}"));
+            fail("Expected unknown reference to be rejected");
+        }
+        catch (SerializationException expected)
+        {
+            // expected
+        }
+    }
+
+    private static Specialized specialized()
+    {
+        Specialized specialized = new Specialized();
+        specialized.ints = IntArrayList.wrap(new int[] {Integer.MIN_VALUE, 0, Integer.MAX_VALUE});
+        specialized.longs = LongArrayList.wrap(new long[] {Long.MIN_VALUE, 1L << 40});
+        specialized.doubles = DoubleArrayList.wrap(new double[] {- 0.5, 1e300});
+        specialized.counters = new ObjectLongHashMap<>();
+        specialized.counters.putLong("a", Long.MAX_VALUE);
+        specialized.counters.putLong("b", - 1);
+        return specialized;
+    }
+
+    @Test
+    public void readsDeclaredSpecializedCollections()
+    {
+        Specialized specialized = specialized();
+        Specialized decoded = this.codec.deserialize(Specialized.class, this.codec.serialize(specialized));
+        assertEquals(specialized.ints, decoded.ints);
+        assertEquals(specialized.longs, decoded.longs);
+        assertEquals(specialized.doubles, decoded.doubles);
+        assertEquals(specialized.counters, decoded.counters);
+        assertEquals(IntArrayList.class, decoded.ints.getClass());
+
+        // declared specialized types can't store nulls.
+        this.assertRejected(Specialized.class, "{\"ints\":[1,null]}");
+        this.assertRejected(Specialized.class, "{\"counters\":{\"a\":null}}");
+    }
+
+    enum Mode
+    {
+        FIRST,
+        SECOND
+    }
+
+    static class Specialized
+    {
+        IntArrayList              ints;
+        LongArrayList             longs;
+        DoubleArrayList           doubles;
+        ObjectLongHashMap<String> counters;
+    }
+
+    static class Child
+    {
+        String name;
+    }
+
+    static class Node
+    {
+        String name;
+        Node   next;
+        Node   other;
+    }
+
+    static class SpecialChild extends Child
+    {
+        int extra = 1;
+    }
+
+    static class Values
+    {
+        int      i;
+        long     l;
+        double   d;
+        float    f;
+        short    s;
+        byte     b;
+        char     c;
+        boolean  bool;
+        String   string;
+        Mode     mode;
+        int[]    ints;
+        String[] strings;
+        Child    child;
+    }
+
+    static class Names
+    {
+        @SerializedName(value = "first", alternate = {"old", "second"})
+        int first;
+        @SerializedName(value = "second", alternate = {"legacy", "first"})
+        int second;
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.json;
+
+import org.diorite.serialization.FieldProperty;
+import org.diorite.serialization.InstanceFactory;
+import org.diorite.serialization.SerializationException;
+import org.diorite.serialization.buffer.BufferPool;
+import org.diorite.serialization.plan.PropertyPlanCompiler;
+import org.diorite.serialization.version.VersionComparator;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class JsonParallelDecoderTest
+{
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    private final PropertyPlanCompiler planCompiler = new PropertyPlanCompiler(FieldProperty.PROVIDER, VersionComparator.DEFAULT);
+    private final JsonCodec            codec        = new JsonCodec(this.planCompiler);
+    private final JsonParallelDecoder  decoder      = new JsonParallelDecoder(this.codec, POOL, 8);
+
+    @AfterClass
+    public static void shutdown()
+    {
+        POOL.shutdown();
+    }
+
+    private static List<Point> points(int size)
+    {
+        List<Point> points = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+        {
+            Point point = new Point();
+            point.x = i;
+            point.label = "p" + i;
+            points.add(point);
+        }
+        return points;
+    }
+
+    private static void assertPoints(int size, List<Point> decoded)
+    {
+        assertEquals(size, decoded.size());
+        for (int i = 0; i < size; i++)
+        {
+            assertEquals(i, decoded.get(i).x);
+            assertEquals("p" + i, decoded.get(i).label);
+        }
+    }
+
+    @Test
+    public void decodesElementsInSourceOrder()
+    {
+        byte[] data = this.codec.serialize(points(1000));
+        assertPoints(1000, this.decoder.decodeArray(Point.class, data));
+        assertPoints(1000, this.decoder.decodeArray(Point.class, ByteBuffer.wrap(data)));
+        assertPoints(3, this.decoder.decodeArray(Point.class, this.codec.serialize(points(3))));
+        assertTrue(this.decoder.decodeArray(Point.class, " [ ] ".getBytes(StandardCharsets.UTF_8)).isEmpty());
+    }
+
+    @Test
+    public void decodesSequentiallyWhenReferencesAreTracked()
+    {
+        JsonCodec codec = new JsonCodec(this.planCompiler, null, InstanceFactory.DEFAULT, null, BufferPool.DEFAULT, true);
+        List<Point> points = points(100);
+        assertPoints(100, new JsonParallelDecoder(codec, POOL, 8).decodeArray(Point.class, codec.serialize(points)));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void returnsUnmodifiableList()
+    {
+        this.decoder.decodeArray(Point.class, this.codec.serialize(points(2))).clear();
+    }
+
+    @Test
+    public void rejectsMalformedElements()
+    {
+        String json = new String(this.codec.serialize(points(200)), StandardCharsets.UTF_8);
+        for (String malformed : new String[]{json.replace("\"p150\"", "p150"), json.replace("\"x\":150", "\"x\":\"150\""), "[1,]", "{}"})
+        {
+            try
+            {
+                this.decoder.decodeArray(Point.class, malformed.getBytes(StandardCharsets.UTF_8));
+                fail("Expected " + malformed + " to be rejected");
+            }
+            catch (SerializationException expected)
+            {
+                // expected
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveChunkSize()
+    {
+        new JsonParallelDecoder(this.codec, POOL, 0);
+    }
+
+    static class Point
+    {
+        int    x;
+        String label;
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.json;
+
+import org.diorite.serialization.FieldProperty;
+import org.diorite.serialization.InstanceFactory;
+import org.diorite.serialization.buffer.BufferPool;
+import org.diorite.serialization.collection.DoubleArrayList;
+import org.diorite.serialization.collection.IntArrayList;
+import org.diorite.serialization.collection.LongArrayList;
+import org.diorite.serialization.collection.ObjectLongHashMap;
+import org.diorite.serialization.plan.PropertyPlanCompiler;
+import org.diorite.serialization.setting.PropertySettings;
+import org.diorite.serialization.version.VersionComparator;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class JsonParallelEncoderTest
+{
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+    private static final int          SIZE = 1000;
+
+    private final PropertyPlanCompiler planCompiler = new PropertyPlanCompiler(FieldProperty.PROVIDER, VersionComparator.DEFAULT);
+    private final JsonCodec            codec        = new JsonCodec(this.planCompiler);
+    private final JsonParallelEncoder  encoder      = new JsonParallelEncoder(this.codec, POOL, 8);
+
+    @AfterClass
+    public static void shutdown()
+    {
+        POOL.shutdown();
+    }
+
+    private static Graph graph()
+    {
+        Graph graph = new Graph();
+        graph.name = "graph";
+        graph.ints = new IntArrayList();
+        graph.longs = new LongArrayList();
+        graph.doubles = new DoubleArrayList();
+        graph.counters = new ObjectLongHashMap<>();
+        graph.labels = new LinkedHashMap<>();
+        graph.nodes = new ArrayList<>();
+        graph.array = new Object[SIZE];
+        for (int i = 0; i < SIZE; i++)
+        {
+            graph.ints.addInt(i * 7);
+            graph.longs.addLong(- i * 100_000_000_000L);
+            graph.doubles.addDouble(i / 8.0);
+            graph.counters.putLong("c" + i, i * 3L);
+            graph.labels.put("l" + i, (i % 3 == 0) ? null : ("v" + i));
+            Node node = new Node();
+            node.id = i;
+            node.values = (i % 100 == 0) ? IntArrayList.wrap(new int[SIZE]) : null;
+            graph.nodes.add(node);
+            graph.array[i] = (i % 2 == 0) ? node : ("s" + i);
+        }
+        // holes in slots of map must not change order of written entries.
+        for (int i = 0; i < SIZE; i += 7)
+        {
+            graph.counters.remove("c" + i);
+        }
+        return graph;
+    }
+
+    private void assertSameOutput(@Nullable Object value)
+    {
+        assertArrayEquals(this.codec.serialize(value), this.encoder.encode(value));
+    }
+
+    @Test
+    public void writesSameOutputAsCodec()
+    {
+        Graph graph = graph();
+        this.assertSameOutput(graph);
+        this.assertSameOutput(graph.ints);
+        this.assertSameOutput(graph.longs);
+        this.assertSameOutput(graph.doubles);
+        this.assertSameOutput(graph.counters);
+        this.assertSameOutput(graph.labels);
+        this.assertSameOutput(graph.nodes);
+        this.assertSameOutput(graph.array);
+        this.assertSameOutput(new IntArrayList());
+        this.assertSameOutput(new Node());
+        this.assertSameOutput(null);
+        this.assertSameOutput("text");
+    }
+
+    @Test
+    public void writesSegmentsToChannel() throws Exception
+    {
+        Graph graph = graph();
+        ChunkedChannel channel = new ChunkedChannel();
+        long written = this.encoder.encode(graph, channel);
+        byte[] expected = this.codec.serialize(graph);
+        assertEquals(expected.length, written);
+        assertArrayEquals(expected, channel.out.toByteArray());
+    }
+
+    @Test
+    public void writesSameOutputWhenReferencesAreTracked()
+    {
+        JsonCodec codec = new JsonCodec(this.planCompiler, null, InstanceFactory.DEFAULT, null, BufferPool.DEFAULT, true);
+        Graph graph = graph();
+        graph.nodes.add(graph.nodes.get(0));
+        assertArrayEquals(codec.serialize(graph), new JsonParallelEncoder(codec, POOL, 8).encode(graph));
+    }
+
+    @Test
+    public void neverSplitsValuesWithCustomCodec()
+    {
+        this.codec.getCodecs().register(IntArrayList.class, new JsonValueCodec<IntArrayList>()
+        {
+            @Override
+            public void write(JsonCodec codec, JsonByteWriter out, IntArrayList value)
+            {
+                out.writeInt(value.size());
+            }
+
+            @Override
+            public IntArrayList read(JsonCodec codec, JsonByteReader in, Class<?> type, @Nullable PropertySettings settings)
+            {
+                return new IntArrayList(in.nextInt());
+            }
+        });
+        Graph graph = graph();
+        this.assertSameOutput(graph);
+        assertEquals(String.valueOf(SIZE), new String(this.encoder.encode(graph.ints)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveChunkSize()
+    {
+        new JsonParallelEncoder(this.codec, POOL, - 1);
+    }
+
+    /**
+     * Channel that accepts at most 100 bytes per write, so encoder must continue partially written segments.
+     */
+    private static final class ChunkedChannel implements GatheringByteChannel
+    {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        @Override
+        public long write(ByteBuffer[] sources, int offset, int length)
+        {
+            int limit = 100;
+            long written = 0;
+            for (int i = offset; (i < (offset + length)) && (limit > 0); i++)
+            {
+                while (sources[i].hasRemaining() && (limit > 0))
+                {
+                    this.out.write(sources[i].get());
+                    limit--;
+                    written++;
+                }
+            }
+            return written;
+        }
+
+        @Override
+        public long write(ByteBuffer[] sources)
+        {
+            return this.write(sources, 0, sources.length);
+        }
+
+        @Override
+        public int write(ByteBuffer source)
+        {
+            return (int) this.write(new ByteBuffer[]{source});
+        }
+
+        @Override
+        public boolean isOpen()
+        {
+            return true;
+        }
+
+        @Override
+        public void close()
+        {
+        }
+    }
+
+    static class Node
+    {
+        int          id;
+        IntArrayList values;
+    }
+
+    static class Graph
+    {
+        String                    name;
+        IntArrayList              ints;
+        LongArrayList             longs;
+        DoubleArrayList           doubles;
+        ObjectLongHashMap<String> counters;
+        Map<String, String>       labels;
+        List<Node>                nodes;
+        Object[]                  array;
+    }
+}
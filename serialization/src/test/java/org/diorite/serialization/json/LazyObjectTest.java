@@ -0,0 +1,153 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.json;
+
+import org.diorite.serialization.FieldProperty;
+import org.diorite.serialization.InstanceFactory;
+import org.diorite.serialization.SerializationException;
+import org.diorite.serialization.annotations.SerializedName;
+import org.diorite.serialization.buffer.BufferPool;
+import org.diorite.serialization.naming.PropertyResolutionStrategy;
+import org.diorite.serialization.plan.PropertyPlanCompiler;
+import org.diorite.serialization.setting.Property;
+import org.diorite.serialization.version.VersionComparator;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LazyObjectTest
+{
+    private static final PropertyResolutionStrategy IGNORE_CASE = (name, properties) ->
+    {
+        for (Map.Entry<? extends String, ? extends Property<?, ?>> entry : properties.entrySet())
+        {
+            if (entry.getKey().equalsIgnoreCase(name))
+            {
+                return entry.getValue();
+            }
+        }
+        return null;
+    };
+
+    private final PropertyPlanCompiler planCompiler = new PropertyPlanCompiler(FieldProperty.PROVIDER, VersionComparator.DEFAULT);
+    private final JsonCodec            codec        = new JsonCodec(this.planCompiler);
+
+    private static byte[] json(String json)
+    {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void decodesPropertiesOnAccess()
+    {
+        byte[] data = json("{\"id\":7,\"unknown\":{\"a\":[1,2]},\"display_name\":\"lazy\",\"tags\":[\"x\",\"y\"]}");
+        LazyObject<Item> item = this.codec.deserializeLazy(Item.class, data);
+        assertSame(Item.class, item.getType());
+        assertTrue(item.has("id"));
+        assertTrue(item.has("old_name"));
+        assertFalse(item.has("count"));
+        assertFalse(item.has("unknown"));
+        assertEquals(7, item.get("id"));
+        assertEquals("lazy", item.get("old_name"));
+        assertSame(item.get("tags"), item.get(item.indexOf("tags")));
+        assertNull(item.get("count"));
+        assertEquals(- 1, item.indexOf("unknown"));
+    }
+
+    @Test
+    public void materializesObject()
+    {
+        Item item = this.codec.deserializeLazy(Item.class, json("{\"id\":7,\"display_name\":\"lazy\",\"tags\":[\"x\"]}")).materialize();
+        assertEquals(7, item.id);
+        assertEquals("lazy", item.name);
+        assertEquals(List.of("x"), item.tags);
+        assertEquals(0, item.count);
+    }
+
+    @Test
+    public void decodingErrorIsReportedOnAccess()
+    {
+        LazyObject<Item> item = this.codec.deserializeLazy(Item.class, json("{\"id\":\"text\",\"count\":3}"));
+        assertEquals(3, item.get("count"));
+        try
+        {
+            item.get("id");
+            fail("Expected invalid value to be rejected");
+        }
+        catch (SerializationException expected)
+        {
+            // expected
+        }
+    }
+
+    @Test
+    public void resolvesUnknownNamesLikeEagerDecoding()
+    {
+        JsonCodec codec = new JsonCodec(this.planCompiler, null, InstanceFactory.DEFAULT, IGNORE_CASE);
+        byte[] data = json("{\"ID\":7,\"Display_Name\":\"lazy\",\"COUNT\":2,\"count\":3,\"missing\":1}");
+
+        LazyObject<Item> lazy = codec.deserializeLazy(Item.class, data);
+        assertEquals(7, lazy.get("id"));
+        assertEquals("lazy", lazy.get("display_name"));
+        assertEquals(3, lazy.get("count"));
+        assertFalse(lazy.has("tags"));
+
+        Item eager = codec.deserialize(Item.class, data);
+        Item materialized = lazy.materialize();
+        assertEquals(eager.id, materialized.id);
+        assertEquals(eager.name, materialized.name);
+        assertEquals(eager.count, materialized.count);
+
+        // without resolution strategy unknown names are skipped.
+        assertFalse(this.codec.deserializeLazy(Item.class, data).has("id"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownPropertyName()
+    {
+        this.codec.deserializeLazy(Item.class, json("{}")).get("unknown");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsTrackedReferences()
+    {
+        JsonCodec codec = new JsonCodec(this.planCompiler, null, InstanceFactory.DEFAULT, null, BufferPool.DEFAULT, true);
+        codec.deserializeLazy(Item.class, json("{}"));
+    }
+
+    static class Item
+    {
+        int          id;
+        @SerializedName(value = "display_name", alternate = "old_name")
+        String       name;
+        int          count;
+        List<String> tags;
+    }
+}
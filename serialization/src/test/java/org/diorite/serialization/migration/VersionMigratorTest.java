@@ -0,0 +1,125 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.migration;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class VersionMigratorTest
+{
+    private static String migrate(VersionMigrator migrator, String json, String from, String to) throws IOException
+    {
+        StringWriter writer = new StringWriter();
+        migrator.migrate(new JsonReader(new StringReader(json)), new JsonWriter(writer), from, to);
+        return writer.toString();
+    }
+
+    @Test
+    public void appliesStepsBetweenVersions() throws IOException
+    {
+        VersionMigrator migrator = new VersionMigrator();
+        migrator.rename("1.1", "name", "title");
+        migrator.drop("1.2", "legacy");
+        migrator.defaultValue("1.3", "enabled", true);
+        migrator.rename("2.0", "title", "label");
+
+        assertEquals("{\"title\":\"a\",\"x\":1.50,\"enabled\":true}",
+                     migrate(migrator, "{\"name\":\"a\",\"legacy\":[1,{\"b\":2}],\"x\":1.50}", "1.0", "1.3"));
+        assertEquals("{\"title\":\"a\",\"legacy\":1}", migrate(migrator, "{\"title\":\"a\",\"legacy\":1}", "1.1", "1.1"));
+        assertEquals("{\"label\":\"a\",\"enabled\":false}", migrate(migrator, "{\"name\":\"a\",\"enabled\":false}", "1.0", "2.0"));
+    }
+
+    @Test
+    public void flattensChainedChanges()
+    {
+        VersionMigrator migrator = new VersionMigrator();
+        migrator.rename("1.1", "a", "b");
+        migrator.rename("1.2", "b", "c");
+        migrator.drop("1.3", "c");
+        migrator.defaultValue("1.1", "d", 1);
+        migrator.rename("1.2", "d", "e");
+
+        MigrationRules rules = migrator.getRules("1.0", "1.2");
+        assertEquals(Map.of("a", "c", "d", "e"), rules.getRenames());
+        assertEquals(Map.of("e", 1), rules.getDefaults());
+
+        rules = migrator.getRules("1.0", "1.3");
+        assertEquals(Set.of("a"), rules.getDrops());
+        assertTrue(migrator.getRules("1.3", "1.3").isIdentity());
+        assertSame(rules, migrator.getRules("1.0", "1.3"));
+    }
+
+    @Test
+    public void leavesNestedObjectsUntouched() throws IOException
+    {
+        VersionMigrator migrator = new VersionMigrator();
+        migrator.rename("1.1", "name", "title");
+        migrator.drop("1.1", "legacy");
+
+        assertEquals("{\"title\":{\"name\":1,\"legacy\":2},\"list\":[{\"name\":3}]}",
+                     migrate(migrator, "{\"name\":{\"name\":1,\"legacy\":2},\"list\":[{\"name\":3}]}", "1.0", "1.1"));
+    }
+
+    @Test
+    public void rejectsRenameCollision() throws IOException
+    {
+        VersionMigrator migrator = new VersionMigrator();
+        migrator.rename("1.1", "name", "title");
+        try
+        {
+            migrate(migrator, "{\"title\":\"a\",\"name\":\"b\"}", "1.0", "1.1");
+            fail("Expected collision to be rejected");
+        }
+        catch (IOException expected)
+        {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("title"));
+        }
+        try
+        {
+            migrate(migrator, "{\"name\":\"b\",\"title\":\"a\"}", "1.0", "1.1");
+            fail("Expected collision to be rejected");
+        }
+        catch (IOException expected)
+        {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("title"));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnsupportedDefaultValue()
+    {
+        new VersionMigrator().defaultValue("1.0", "list", new int[0]);
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.plan;
+
+import org.diorite.serialization.FieldProperty;
+import org.diorite.serialization.annotations.Expose;
+import org.diorite.serialization.annotations.SerializedName;
+import org.diorite.serialization.annotations.Since;
+import org.diorite.serialization.annotations.Until;
+import org.diorite.serialization.version.VersionComparator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PropertyPlanCompilerTest
+{
+    private final PropertyPlanCompiler compiler = new PropertyPlanCompiler(FieldProperty.PROVIDER, VersionComparator.DEFAULT);
+
+    @Test
+    public void excludesStaticTransientAndNotExposedProperties()
+    {
+        PropertyPlan<Model> serialize = this.compiler.getPlan(Model.class, PlanDirection.SERIALIZE, null);
+        assertEquals(List.of("id", "display_name", "secret", "added", "removed"), names(serialize));
+        PropertyPlan<Model> deserialize = this.compiler.getPlan(Model.class, PlanDirection.DESERIALIZE, null);
+        assertEquals(List.of("id", "display_name", "added", "removed"), names(deserialize));
+        assertEquals(5, deserialize.getSourceIndex(2));
+        assertEquals(1, deserialize.indexOf("display_name"));
+        assertEquals(- 1, deserialize.indexOf("secret"));
+    }
+
+    @Test
+    public void filtersPropertiesByTargetVersion()
+    {
+        assertEquals(List.of("id", "display_name", "secret", "removed"),
+                     names(this.compiler.getPlan(Model.class, PlanDirection.SERIALIZE, "1.0")));
+        assertEquals(List.of("id", "display_name", "secret", "added", "removed"),
+                     names(this.compiler.getPlan(Model.class, PlanDirection.SERIALIZE, "1.10")));
+        assertEquals(List.of("id", "display_name", "secret", "added"),
+                     names(this.compiler.getPlan(Model.class, PlanDirection.SERIALIZE, "2.0")));
+    }
+
+    @Test
+    public void returnsCachedPlan()
+    {
+        PropertyPlan<Model> plan = this.compiler.getPlan(Model.class, PlanDirection.SERIALIZE, "1.5");
+        assertSame(plan, this.compiler.getPlan(Model.class, PlanDirection.SERIALIZE, "1.5"));
+        PropertyPlan<Model> unversioned = this.compiler.getPlan(Model.class, PlanDirection.SERIALIZE, null);
+        assertSame(unversioned, this.compiler.getPlan(Model.class, PlanDirection.SERIALIZE, null));
+        assertNotSame(plan, this.compiler.getPlan(Model.class, PlanDirection.DESERIALIZE, "1.5"));
+        assertNotSame(plan, this.compiler.getPlan(Model.class, PlanDirection.SERIALIZE, "1.6"));
+        assertNotSame(plan, this.compiler.getPlan(Model.class, PlanDirection.SERIALIZE, null));
+    }
+
+    @Test
+    public void evictsOldestPlansWhenCacheIsFull()
+    {
+        PropertyPlanCompiler compiler = new PropertyPlanCompiler(FieldProperty.PROVIDER, VersionComparator.DEFAULT, 2);
+        PropertyPlan<Model> first = compiler.getPlan(Model.class, PlanDirection.SERIALIZE, "1.0");
+        PropertyPlan<Model> second = compiler.getPlan(Model.class, PlanDirection.SERIALIZE, "1.1");
+        compiler.getPlan(Model.class, PlanDirection.SERIALIZE, "1.2");
+        assertSame(second, compiler.getPlan(Model.class, PlanDirection.SERIALIZE, "1.1"));
+        assertNotSame(first, compiler.getPlan(Model.class, PlanDirection.SERIALIZE, "1.0"));
+    }
+
+    @Test
+    public void invalidateAllDropsCachedPlans()
+    {
+        PropertyPlan<Model> plan = this.compiler.getPlan(Model.class, PlanDirection.SERIALIZE, null);
+        this.compiler.invalidateAll();
+        PropertyPlan<Model> compiled = this.compiler.getPlan(Model.class, PlanDirection.SERIALIZE, null);
+        assertNotSame(plan, compiled);
+        assertSame(compiled, this.compiler.getPlan(Model.class, PlanDirection.SERIALIZE, null));
+    }
+
+    @Test
+    public void concurrentLookupsReturnSamePlan() throws Exception
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+        {
+            List<Callable<PropertyPlan<Model>>> tasks = new ArrayList<>();
+            for (int i = 0; i < 64; i++)
+            {
+                tasks.add(() -> this.compiler.getPlan(Model.class, PlanDirection.DESERIALIZE, "1.5"));
+            }
+            PropertyPlan<Model> expected = this.compiler.getPlan(Model.class, PlanDirection.DESERIALIZE, "1.5");
+            for (Future<PropertyPlan<Model>> future : executor.invokeAll(tasks))
+            {
+                assertSame(expected, future.get());
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveCacheSize()
+    {
+        new PropertyPlanCompiler(FieldProperty.PROVIDER, VersionComparator.DEFAULT, 0);
+    }
+
+    private static List<String> names(PropertyPlan<?> plan)
+    {
+        List<String> names = new ArrayList<>(plan.size());
+        for (int i = 0; i < plan.size(); i++)
+        {
+            names.add(plan.getName(i));
+        }
+        return names;
+    }
+
+    static class Model
+    {
+        static int constant;
+
+        int    id;
+        @SerializedName("display_name")
+        String name;
+        transient Object cache;
+        @Expose(deserialize = false)
+        String secret;
+        @Since("1.4")
+        String added;
+        @Until("2.0")
+        String removed;
+    }
+}
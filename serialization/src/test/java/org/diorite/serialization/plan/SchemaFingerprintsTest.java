@@ -0,0 +1,99 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.plan;
+
+import org.diorite.serialization.FieldProperty;
+import org.diorite.serialization.setting.Property;
+import org.diorite.serialization.setting.PropertyProvider;
+import org.diorite.serialization.setting.Setting;
+import org.diorite.serialization.setting.SettingsManager;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SchemaFingerprintsTest
+{
+    private final SchemaFingerprints fingerprints = new SchemaFingerprints(SettingsManager.INSTANCE, FieldProperty.PROVIDER);
+
+    @Test
+    public void fingerprintsAreStable()
+    {
+        long fingerprint = this.fingerprints.get(Point.class);
+        assertEquals(fingerprint, this.fingerprints.get(Point.class));
+        assertEquals(fingerprint, this.fingerprints.compute(Point.class));
+        assertEquals(fingerprint, new SchemaFingerprints(SettingsManager.INSTANCE, FieldProperty.PROVIDER).get(Point.class));
+    }
+
+    @Test
+    public void fingerprintsCoverPropertiesOfClass()
+    {
+        ShrinkingProvider provider = new ShrinkingProvider();
+        provider.shrink = true;
+        assertNotEquals(this.fingerprints.get(Point.class), new SchemaFingerprints(SettingsManager.INSTANCE, provider).get(Point.class));
+    }
+
+    @Test
+    public void dropsCachedFingerprintsWhenConfigurationChanges()
+    {
+        SettingsManager manager = SettingsManager.create();
+        ShrinkingProvider provider = new ShrinkingProvider();
+        SchemaFingerprints fingerprints = new SchemaFingerprints(manager, provider);
+        long fingerprint = fingerprints.get(Point.class);
+
+        provider.shrink = true;
+        assertEquals(fingerprint, fingerprints.get(Point.class));
+        manager.register(MarkerSetting.class, element -> Optional.empty());
+        assertNotEquals(fingerprint, fingerprints.get(Point.class));
+    }
+
+    private interface MarkerSetting extends Setting
+    {
+    }
+
+    /**
+     * Provider that can hide last property of class, used to check if fingerprint is computed again.
+     */
+    private static final class ShrinkingProvider implements PropertyProvider
+    {
+        private boolean shrink;
+
+        @Override
+        public <T> List<? extends Property<T, ?>> getProperties(Class<T> type)
+        {
+            List<? extends Property<T, ?>> properties = FieldProperty.PROVIDER.getProperties(type);
+            return this.shrink ? properties.subList(0, properties.size() - 1) : properties;
+        }
+    }
+
+    static class Point
+    {
+        int x;
+        int y;
+    }
+}
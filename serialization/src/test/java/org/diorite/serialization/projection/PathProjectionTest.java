@@ -0,0 +1,184 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.projection;
+
+import org.diorite.serialization.FieldProperty;
+import org.diorite.serialization.annotations.SerializedName;
+import org.diorite.serialization.binary.BinaryCodec;
+import org.diorite.serialization.json.JsonCodec;
+import org.diorite.serialization.plan.PlanDirection;
+import org.diorite.serialization.plan.PropertyPlan;
+import org.diorite.serialization.plan.PropertyPlanCompiler;
+import org.diorite.serialization.version.VersionComparator;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PathProjectionTest
+{
+    private final PropertyPlanCompiler planCompiler = new PropertyPlanCompiler(FieldProperty.PROVIDER, VersionComparator.DEFAULT);
+    private final JsonCodec            json         = new JsonCodec(this.planCompiler);
+    private final BinaryCodec          binary       = new BinaryCodec(this.planCompiler);
+
+    private static User user()
+    {
+        User user = new User();
+        user.name = "user";
+        user.age = 42;
+        user.address = new Address();
+        user.address.city = "London";
+        user.address.street = "Baker Street";
+        user.tags = List.of("a", "b");
+        user.scores = new LinkedHashMap<>();
+        Address home = new Address();
+        home.city = "Paris";
+        home.street = "Rue de Rivoli";
+        user.scores.put("home", home);
+        return user;
+    }
+
+    private User[] decode(User user, PathProjection projection)
+    {
+        return new User[] {this.json.deserialize(User.class, this.json.serialize(user), projection),
+                           this.binary.deserialize(User.class, this.binary.serialize(user), projection)};
+    }
+
+    @Test
+    public void parsesPaths()
+    {
+        assertEquals("PathProjection[name]", PathProjection.of("name").toString());
+        assertTrue(PathProjection.of("name").getChild("name").isComplete());
+        assertNull(PathProjection.of("name").getChild("age"));
+        PathProjection projection = PathProjection.of("items[*].price", "user.address.city");
+        assertTrue(projection.getChild("items").getElements().getChild("price").isComplete());
+        assertNull(projection.getChild("items").getElements().getChild("name"));
+        assertTrue(projection.getChild("user").getChild("address").getChild("city").isComplete());
+        // segments after collection without [*] are applied to its elements.
+        PathProjection implicit = PathProjection.of("items.price").getChild("items");
+        assertSame(implicit, implicit.getElements());
+    }
+
+    @Test
+    public void prefixSelectsWholeValue()
+    {
+        assertTrue(PathProjection.of("user", "user.name").getChild("user").isComplete());
+        assertTrue(PathProjection.of("user.name", "user").getChild("user").isComplete());
+        PathProjection complete = PathProjection.of("user").getChild("user");
+        assertSame(complete, complete.getChild("anything"));
+    }
+
+    @Test
+    public void rejectsMalformedPaths()
+    {
+        String[][] malformed = {{}, {""}, {"a."}, {".a"}, {"a..b"}, {"a[0]"}, {"a[*"}};
+        for (String[] paths : malformed)
+        {
+            try
+            {
+                PathProjection.of(paths);
+                fail("Expected " + String.join(",", paths) + " to be rejected");
+            }
+            catch (IllegalArgumentException expected)
+            {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void compilesTransitionsWithAlternateNames()
+    {
+        PropertyPlan<User> plan = this.planCompiler.getPlan(User.class, PlanDirection.DESERIALIZE, null);
+        PathProjection projection = PathProjection.of("years", "address.city");
+        PathProjection[] states = projection.compile(plan, null);
+        // transitions are computed only once for each plan.
+        assertSame(states, projection.compile(plan, null));
+        int age = plan.indexOf("age");
+        int address = plan.indexOf("address");
+        for (int i = 0; i < states.length; i++)
+        {
+            if (i == age)
+            {
+                assertTrue(states[i].isComplete());
+            }
+            else if (i == address)
+            {
+                assertTrue(states[i].getChild("city").isComplete());
+            }
+            else
+            {
+                assertNull(states[i]);
+            }
+        }
+    }
+
+    @Test
+    public void readsOnlySelectedProperties()
+    {
+        for (User decoded : this.decode(user(), PathProjection.of("name", "address.city")))
+        {
+            assertEquals("user", decoded.name);
+            assertEquals(0, decoded.age);
+            assertEquals("London", decoded.address.city);
+            assertNull(decoded.address.street);
+            assertNull(decoded.tags);
+            assertNull(decoded.scores);
+        }
+    }
+
+    @Test
+    public void readsSelectedValuesOfMaps()
+    {
+        for (User decoded : this.decode(user(), PathProjection.of("tags", "scores[*].city")))
+        {
+            assertNull(decoded.name);
+            assertEquals(List.of("a", "b"), decoded.tags);
+            assertEquals(1, decoded.scores.size());
+            // values of maps are decoded as maps, as their type is not known without property settings.
+            assertEquals(Map.of("city", "Paris"), decoded.scores.get("home"));
+        }
+    }
+
+    static class Address
+    {
+        String city;
+        String street;
+    }
+
+    static class User
+    {
+        String              name;
+        @SerializedName(value = "age", alternate = "years")
+        int                 age;
+        Address             address;
+        List<String>        tags;
+        Map<String, Object> scores;
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.setting;
+
+import org.diorite.serialization.annotations.Expose;
+import org.diorite.serialization.annotations.SerializedName;
+import org.diorite.serialization.annotations.Since;
+import org.diorite.serialization.setting.settings.ExposeSetting;
+import org.diorite.serialization.setting.settings.SerializedNameSetting;
+import org.diorite.serialization.setting.settings.SinceSetting;
+import org.diorite.serialization.setting.settings.UntilSetting;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SettingsCacheTest
+{
+    private static final int HEADER = 4 + 4 + 8 + 4;
+
+    private final SettingsManager manager = SettingsManager.create();
+    private       Path            file;
+
+    @Before
+    public void createFile() throws IOException
+    {
+        this.file = Files.createTempFile("settings", ".cache");
+        Files.delete(this.file);
+    }
+
+    @After
+    public void deleteFile() throws IOException
+    {
+        Files.deleteIfExists(this.file);
+    }
+
+    @Test
+    public void savedSettingsAreLoadedAgain() throws Exception
+    {
+        SettingsCache cache = this.open();
+        assertSettings(cache);
+        assertTrue(cache.isModified());
+        cache.save();
+        assertFalse(cache.isModified());
+
+        SettingsCache loaded = this.open();
+        assertSettings(loaded);
+        assertFalse(loaded.isModified());
+    }
+
+    @Test
+    public void cacheOfDifferentConfigurationIsIgnored() throws Exception
+    {
+        SettingsCache cache = this.open();
+        assertSettings(cache);
+        cache.save();
+
+        this.manager.register(MarkerSetting.class, element -> Optional.empty());
+        assertFalse(cache.isValid());
+        SettingsCache reopened = this.open();
+        assertSettings(reopened);
+        assertTrue(reopened.isModified());
+    }
+
+    @Test
+    public void corruptedFileIsIgnored() throws Exception
+    {
+        Files.write(this.file, new byte[] {0x44, 0x53, 0x43});
+        SettingsCache cache = this.open();
+        assertSettings(cache);
+        cache.save();
+        assertSettings(this.open());
+    }
+
+    @Test
+    public void corruptedEntryIsReadUsingReflection() throws Exception
+    {
+        SettingsCache cache = this.open();
+        assertSettings(cache);
+        cache.save();
+
+        // declares more fields than entry contains, so decoding runs past end of entry.
+        byte[] bytes = Files.readAllBytes(this.file);
+        ByteBuffer.wrap(bytes).putInt(this.entryOffset(Model.class) + 12, 1000);
+        Files.write(this.file, bytes);
+
+        SettingsCache corrupted = this.open();
+        assertSettings(corrupted);
+        assertTrue(corrupted.isModified());
+        corrupted.save();
+        assertSettings(this.open());
+        assertFalse(this.open().isModified());
+    }
+
+    @Test
+    public void entriesOfMissingClassesArePruned() throws Exception
+    {
+        SettingsCache cache = this.open();
+        assertSettings(cache);
+        cache.save();
+        long size = Files.size(this.file);
+
+        // unused entries are kept while class loader still finds class.
+        this.open().save();
+        assertEquals(size, Files.size(this.file));
+        assertTrue(this.containsName(Model.class));
+
+        SettingsCache.open(this.file, this.manager, new ClassLoader(null) {}).save();
+        assertFalse(this.containsName(Model.class));
+        assertEquals(HEADER, Files.size(this.file));
+    }
+
+    private SettingsCache open() throws IOException
+    {
+        return SettingsCache.open(this.file, this.manager, SettingsCacheTest.class.getClassLoader());
+    }
+
+    private int entryOffset(Class<?> type) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(this.file));
+        buffer.position(HEADER - 4);
+        int count = buffer.getInt();
+        for (int i = 0; i < count; i++)
+        {
+            byte[] name = new byte[buffer.getInt()];
+            buffer.get(name);
+            if (new String(name, StandardCharsets.UTF_8).equals(type.getName()))
+            {
+                return buffer.position();
+            }
+            buffer.getLong();
+            buffer.position(buffer.position() + buffer.getInt());
+        }
+        throw new AssertionError("Missing entry of " + type);
+    }
+
+    private boolean containsName(Class<?> type) throws IOException
+    {
+        return new String(Files.readAllBytes(this.file), StandardCharsets.ISO_8859_1).contains(type.getName());
+    }
+
+    private static void assertSettings(SettingsCache cache) throws NoSuchFieldException
+    {
+        assertEquals(ExposeSetting.of(true, false), cache.getSetting(Model.class.getDeclaredField("exposed"), ExposeSetting.class));
+        assertNull(cache.getSetting(Model.class.getDeclaredField("exposed"), SinceSetting.class));
+        assertEquals(SinceSetting.of("1.5"), cache.getSetting(Model.class.getDeclaredField("named"), SinceSetting.class));
+        assertEquals(SerializedNameSetting.of("name", new String[] {"old"}),
+                     cache.getSetting(Model.class.getDeclaredField("named"), SerializedNameSetting.class));
+        assertNull(cache.getSetting(Model.class.getDeclaredField("plain"), UntilSetting.class));
+    }
+
+    private interface MarkerSetting extends Setting
+    {
+    }
+
+    static class Model
+    {
+        @Expose(deserialize = false)
+        int    exposed;
+        @Since("1.5")
+        @SerializedName(value = "name", alternate = "old")
+        String named;
+        long   plain;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.serialization.setting.settings;
+
+import org.diorite.serialization.annotations.SerializedName;
+import org.diorite.serialization.annotations.Since;
+import org.diorite.serialization.setting.SettingsManager;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SettingInternerTest
+{
+    @SerializedName(value = "name", alternate = {"old", "older"})
+    @Since("1.2")
+    private int annotated;
+
+    @Test
+    public void equalSettingsShareInstance()
+    {
+        SerializedNameSetting setting = SerializedNameSetting.of("name", new String[] {"old"});
+        assertSame(setting, SerializedNameSetting.of("name", new String[] {"old"}));
+        assertSame(setting, SettingInterner.intern(new SerializedNameSetting("name", new String[] {"old"})));
+        assertNotSame(setting, SerializedNameSetting.of("name", new String[] {"other"}));
+        assertNotSame(setting, SerializedNameSetting.of("name", new String[0]));
+        assertSame(SinceSetting.of("1.0"), SinceSetting.of("1.0"));
+        assertNotSame(SinceSetting.of("1.0"), SinceSetting.of("1.1"));
+        assertSame(UntilSetting.of("2.0"), UntilSetting.of("2.0"));
+    }
+
+    @Test
+    public void settingsOfDifferentTypesAreNotMixed()
+    {
+        // since and until settings with the same value might be equal by value, but must keep their types.
+        assertEquals(SinceSetting.class, SinceSetting.of("3.0").getClass());
+        assertEquals(UntilSetting.class, UntilSetting.of("3.0").getClass());
+    }
+
+    @Test
+    public void settingsAreEqualToAnnotations() throws Exception
+    {
+        SerializedName annotation = this.getClass().getDeclaredField("annotated").getAnnotation(SerializedName.class);
+        SerializedNameSetting setting = SerializedNameSetting.of("name", new String[] {"old", "older"});
+        assertEquals(setting, annotation);
+        assertEquals(annotation, setting);
+        assertEquals(annotation.hashCode(), setting.hashCode());
+
+        Since since = this.getClass().getDeclaredField("annotated").getAnnotation(Since.class);
+        assertEquals(since, SinceSetting.of("1.2"));
+        assertEquals(since.hashCode(), SinceSetting.of("1.2").hashCode());
+    }
+
+    @Test
+    public void settingsReadFromElementsAreInterned() throws Exception
+    {
+        SerializedNameSetting setting =
+            SettingsManager.INSTANCE.readSetting(this.getClass().getDeclaredField("annotated"), SerializedNameSetting.class);
+        assertSame(SerializedNameSetting.of("name", new String[] {"old", "older"}), setting);
+    }
+
+    @Test
+    public void unusedSettingsAreReleased() throws Exception
+    {
+        String value = "released-" + System.nanoTime();
+        SettingInterner.intern(new SinceSetting(value));
+        for (int i = 0; i < 50; i++)
+        {
+            System.gc();
+            Thread.sleep(10);
+            SinceSetting fresh = new SinceSetting(value);
+            if (SettingInterner.intern(fresh) == fresh)
+            {
+                return;
+            }
+        }
+        fail("Unused setting was not released");
+    }
+}